@@ -0,0 +1,110 @@
+package com.example.transactionprocessor.benchmark;
+
+import com.example.transactionprocessor.config.TaskExecutorConfiguration;
+import com.example.transactionprocessor.delegate.TaskFlowPlanCache;
+import com.example.transactionprocessor.delegate.TaskRouterDelegate;
+import com.example.transactionprocessor.metrics.TransactionMetrics;
+import com.example.transactionprocessor.model.Address;
+import com.example.transactionprocessor.model.BankDetails;
+import com.example.transactionprocessor.model.CreditCardInfo;
+import com.example.transactionprocessor.model.CustomerAccount;
+import com.example.transactionprocessor.model.PaymentMethod;
+import com.example.transactionprocessor.model.PaymentTransactionRequest;
+import com.example.transactionprocessor.model.TransactionRequest;
+import com.example.transactionprocessor.model.VendorInfo;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.camunda.bpm.engine.delegate.DelegateExecution;
+import org.camunda.bpm.engine.delegate.JavaDelegate;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Shared inputs for the benchmarks: the example payloads from
+ * {@code example-requests.json}, a map-backed {@link DelegateExecution} and a
+ * minimal Spring context holding the router and no-op task delegates.
+ */
+final class BenchmarkFixtures {
+
+    static final String[] DELEGATE_BEANS = {
+            "purchaseAuthorizationDelegate", "purchaseSettlementDelegate",
+            "paymentValidationDelegate", "paymentPostingDelegate",
+            "adjustmentReviewDelegate", "adjustmentApplyDelegate", "fraudCheckDelegate"
+    };
+
+    private BenchmarkFixtures() {
+    }
+
+    static TransactionRequest purchaseRequest() {
+        return new TransactionRequest("Purchase", new BigDecimal("125.50"), "USD",
+                LocalDateTime.of(2025, 7, 5, 14, 30),
+                new CreditCardInfo("4111111111111111", "John Smith", LocalDate.of(2026, 12, 1), "123", "VISA"),
+                new Address("123 Main Street", "New York", "NY", "10001", "USA"),
+                new VendorInfo("Amazon Store", "Online", "AMZ123456", "E-commerce"),
+                "Online purchase - Electronics", "REF123456789");
+    }
+
+    static PaymentTransactionRequest paymentRequest() {
+        CustomerAccount account = new CustomerAccount("4532123456789012", "Sarah Johnson", "sarah.johnson@email.com",
+                "+1-555-123-4567", "CREDIT", new BigDecimal("2450.75"), new BigDecimal("5000.00"),
+                new BigDecimal("125.00"), LocalDate.of(2025, 7, 15), LocalDate.of(2025, 6, 15), "ACTIVE");
+        BankDetails bank = new BankDetails("Chase Bank", "021000021", "1234567890", "Sarah Johnson", "CHECKING",
+                new Address("270 Park Avenue", "New York", "NY", "10017", "USA"));
+        PaymentMethod method = new PaymentMethod("ACH", bank, true, "PM001", "Main Checking");
+        return new PaymentTransactionRequest("Payment", new BigDecimal("350.00"), "USD", LocalDate.of(2025, 7, 10),
+                LocalDateTime.of(2025, 7, 10, 9, 0), account, method, "CUSTOM_AMOUNT", false, null,
+                "PAY-2025-001", "Monthly payment", true);
+    }
+
+    /**
+     * A {@link DelegateExecution} backed by a plain map; only variable access is supported.
+     */
+    static DelegateExecution mapExecution(Map<String, Object> variables) {
+        Map<String, Object> store = new HashMap<>(variables);
+        return (DelegateExecution) Proxy.newProxyInstance(DelegateExecution.class.getClassLoader(),
+                new Class<?>[] {DelegateExecution.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getVariable":
+                            return store.get((String) args[0]);
+                        case "setVariable":
+                            store.put((String) args[0], args[1]);
+                            return null;
+                        case "getVariables":
+                            return store;
+                        case "hasVariable":
+                            return store.containsKey(args[0]);
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        case "toString":
+                            return "MapExecution" + store.keySet();
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    /**
+     * Spring context with the real router, plan cache, stage executor and
+     * metrics, and no-op beans for every task delegate so only routing overhead
+     * is measured.
+     */
+    static AnnotationConfigApplicationContext routingContext() {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.register(TaskExecutorConfiguration.class, TaskFlowPlanCache.class, TaskRouterDelegate.class,
+                TransactionMetrics.class);
+        context.registerBean(MeterRegistry.class, SimpleMeterRegistry::new);
+        for (String beanName : DELEGATE_BEANS) {
+            context.registerBean(beanName, JavaDelegate.class, () -> execution -> { });
+        }
+        context.refresh();
+        return context;
+    }
+}
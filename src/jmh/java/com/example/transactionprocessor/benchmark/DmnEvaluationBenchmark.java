@@ -0,0 +1,96 @@
+package com.example.transactionprocessor.benchmark;
+
+import com.example.transactionprocessor.engine.DecisionResultCache;
+import com.example.transactionprocessor.metrics.TransactionMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.camunda.bpm.dmn.engine.DmnDecision;
+import org.camunda.bpm.dmn.engine.DmnDecisionResult;
+import org.camunda.bpm.dmn.engine.DmnEngine;
+import org.camunda.bpm.dmn.engine.DmnEngineConfiguration;
+import org.camunda.bpm.dmn.engine.impl.DefaultDmnEngineConfiguration;
+import org.camunda.bpm.engine.impl.el.JuelExpressionManager;
+import org.camunda.bpm.engine.variable.VariableMap;
+import org.camunda.bpm.engine.variable.Variables;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Evaluation cost of the {@code DeterminePath} decision table on a standalone
+ * DMN engine, without the process engine or history around it: {@code evaluate}
+ * runs the engine, {@code evaluateCached} the same engine wrapped by the
+ * {@link DecisionResultCache}, which answers from its hash lookup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DmnEvaluationBenchmark {
+
+    @Param({"Purchase", "Payment", "Adjustment"})
+    private String transactionType;
+
+    private AnnotationConfigApplicationContext context;
+    private DmnEngine dmnEngine;
+    private DmnEngine cachingDmnEngine;
+    private DmnDecision decision;
+    private VariableMap variables;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        // Same JUEL provider the process engine plugs into its DMN engine
+        DefaultDmnEngineConfiguration configuration =
+                (DefaultDmnEngineConfiguration) DmnEngineConfiguration.createDefaultDmnEngineConfiguration();
+        configuration.setElProvider(new JuelExpressionManager().toElProvider());
+        dmnEngine = configuration.buildEngine();
+        try (InputStream dmn = getClass().getClassLoader().getResourceAsStream("DetermineTransactionPath.dmn")) {
+            decision = dmnEngine.parseDecision("DeterminePath", dmn);
+        }
+        variables = Variables.createVariables().putValue("transactionType", transactionType);
+
+        context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("benchmark",
+                Map.of("transaction-processor.dmn.cached-decisions", "DeterminePath")));
+        context.register(DecisionResultCache.class, TransactionMetrics.class);
+        context.registerBean(MeterRegistry.class, SimpleMeterRegistry::new);
+        context.refresh();
+        cachingDmnEngine = context.getBean(DecisionResultCache.class).wrap(dmnEngine);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Object evaluate() {
+        DmnDecisionResult result = dmnEngine.evaluateDecision(decision, variables);
+        return result.getSingleEntry();
+    }
+
+    @Benchmark
+    public Object evaluateCached() {
+        DmnDecisionResult result = cachingDmnEngine.evaluateDecision(decision, variables);
+        return result.getSingleEntry();
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.transactionprocessor.benchmark;
+
+import com.example.transactionprocessor.fraud.FraudScorer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the fraudCheck velocity counters: one transaction counted
+ * against its card, vendor and account windows and scored, with the default
+ * limits. {@code cards=1} puts every thread on the same counters; the larger
+ * key spaces measure map lookups and cache misses instead of contention.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FraudCheckBenchmark {
+
+    private static final int VENDORS = 1_000;
+
+    @Param({"1", "100000"})
+    private int cards;
+
+    private AnnotationConfigApplicationContext context;
+    private FraudScorer scorer;
+    private String[] cardKeys;
+    private String[] accountKeys;
+    private String[] vendorNames;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new AnnotationConfigApplicationContext(FraudScorer.class);
+        scorer = context.getBean(FraudScorer.class);
+        cardKeys = new String[cards];
+        accountKeys = new String[cards];
+        for (int i = 0; i < cards; i++) {
+            cardKeys[i] = "card-token-" + i;
+            accountKeys[i] = "ACC" + i;
+        }
+        vendorNames = new String[VENDORS];
+        for (int i = 0; i < VENDORS; i++) {
+            vendorNames[i] = "Vendor " + i;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int check() {
+        return checkRandomTransaction();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public int check4Threads() {
+        return checkRandomTransaction();
+    }
+
+    private int checkRandomTransaction() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int card = random.nextInt(cards);
+        int flags = scorer.check(cardKeys[card], vendorNames[random.nextInt(VENDORS)], "Online", accountKeys[card],
+                random.nextLong(100, 50_000), System.currentTimeMillis());
+        return FraudScorer.score(flags);
+    }
+}
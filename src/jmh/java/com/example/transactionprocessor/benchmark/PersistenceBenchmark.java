@@ -0,0 +1,112 @@
+package com.example.transactionprocessor.benchmark;
+
+import com.example.transactionprocessor.delegate.TaskRouterDelegate;
+import com.example.transactionprocessor.engine.CountingDataSource;
+import com.example.transactionprocessor.service.TransactionVariableMapper;
+import org.camunda.bpm.engine.ProcessEngine;
+import org.camunda.bpm.engine.ProcessEngineConfiguration;
+import org.camunda.bpm.engine.RuntimeService;
+import org.camunda.bpm.engine.impl.cfg.StandaloneProcessEngineConfiguration;
+import org.h2.jdbcx.JdbcDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Process start with Camunda's {@code jdbcBatchProcessing} on and off, through a
+ * {@link CountingDataSource}. The score is the time per start on in-memory H2,
+ * where a round trip is nearly free; the statement and round trip counts printed
+ * at the end of each trial show what batching saves against a networked database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class PersistenceBenchmark {
+
+    private static final String PROCESS_DEFINITION_KEY = "transactionProcessing";
+
+    @Param({"true", "false"})
+    private boolean jdbcBatchProcessing;
+
+    private AnnotationConfigApplicationContext context;
+    private ProcessEngine processEngine;
+    private RuntimeService runtimeService;
+    private CountingDataSource dataSource;
+    private Map<String, Object> purchaseVariables;
+    private long transactions;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkFixtures.routingContext();
+
+        Map<Object, Object> beans = new HashMap<>();
+        beans.put("taskRouterDelegate", context.getBean(TaskRouterDelegate.class));
+
+        JdbcDataSource h2 = new JdbcDataSource();
+        h2.setURL("jdbc:h2:mem:persistence-" + jdbcBatchProcessing + ";DB_CLOSE_DELAY=-1");
+        h2.setUser("sa");
+        dataSource = new CountingDataSource(h2);
+
+        StandaloneProcessEngineConfiguration configuration = new StandaloneProcessEngineConfiguration();
+        configuration.setDataSource(dataSource);
+        configuration.setDatabaseSchemaUpdate(ProcessEngineConfiguration.DB_SCHEMA_UPDATE_CREATE_DROP);
+        configuration.setHistory(ProcessEngineConfiguration.HISTORY_FULL);
+        configuration.setJdbcBatchProcessing(jdbcBatchProcessing);
+        configuration.setJobExecutorActivate(false);
+        configuration.setMetricsEnabled(false);
+        configuration.setBeans(beans);
+        processEngine = configuration.buildProcessEngine();
+
+        processEngine.getRepositoryService().createDeployment()
+                .addClasspathResource("transactionProcessingDMNBased.bpmn")
+                .addClasspathResource("DetermineTransactionPath.dmn")
+                .deploy();
+        runtimeService = processEngine.getRuntimeService();
+        TransactionVariableMapper mapper = new TransactionVariableMapper();
+        ReflectionTestUtils.setField(mapper, "mode", "flat");
+        purchaseVariables = mapper.toVariables(BenchmarkFixtures.purchaseRequest());
+        dataSource.reset();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.out.printf("%njdbcBatchProcessing=%s per transaction: %.1f inserts, %.1f statements, %.1f round trips%n",
+                jdbcBatchProcessing, perTransaction(dataSource.getInserts()),
+                perTransaction(dataSource.getStatements()), perTransaction(dataSource.getRoundTrips()));
+        processEngine.close();
+        context.close();
+    }
+
+    private double perTransaction(long count) {
+        return transactions == 0 ? 0 : (double) count / transactions;
+    }
+
+    @Benchmark
+    public String startPurchase() {
+        String processInstanceId = UUID.randomUUID().toString();
+        Map<String, Object> variables = new HashMap<>(purchaseVariables);
+        variables.put("processInstanceId", processInstanceId);
+        transactions++;
+        return runtimeService.startProcessInstanceByKey(PROCESS_DEFINITION_KEY, processInstanceId, variables).getId();
+    }
+}
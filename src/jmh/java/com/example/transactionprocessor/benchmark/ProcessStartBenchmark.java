@@ -0,0 +1,104 @@
+package com.example.transactionprocessor.benchmark;
+
+import com.example.transactionprocessor.delegate.TaskRouterDelegate;
+import com.example.transactionprocessor.engine.TransactionContextSerializer;
+import com.example.transactionprocessor.service.TransactionVariableMapper;
+import org.camunda.bpm.engine.ProcessEngine;
+import org.camunda.bpm.engine.ProcessEngineConfiguration;
+import org.camunda.bpm.engine.RuntimeService;
+import org.camunda.bpm.engine.impl.cfg.StandaloneInMemProcessEngineConfiguration;
+import org.camunda.bpm.engine.impl.variable.serializer.TypedValueSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end cost of one synchronous process start on an in-memory H2 engine:
+ * BPMN execution, the {@code DeterminePath} decision, routing and the history
+ * and runtime inserts, with no-op task delegates. {@code variablesMode}
+ * compares one variable per field with a single packed transaction context.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ProcessStartBenchmark {
+
+    private static final String PROCESS_DEFINITION_KEY = "transactionProcessing";
+
+    @Param({"full", "none"})
+    private String historyLevel;
+
+    @Param({"flat", "context"})
+    private String variablesMode;
+
+    private AnnotationConfigApplicationContext context;
+    private ProcessEngine processEngine;
+    private RuntimeService runtimeService;
+    private Map<String, Object> purchaseVariables;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkFixtures.routingContext();
+
+        Map<Object, Object> beans = new HashMap<>();
+        beans.put("taskRouterDelegate", context.getBean(TaskRouterDelegate.class));
+
+        StandaloneInMemProcessEngineConfiguration configuration = new StandaloneInMemProcessEngineConfiguration();
+        configuration.setJdbcUrl("jdbc:h2:mem:benchmark-" + historyLevel + "-" + variablesMode + ";DB_CLOSE_DELAY=-1");
+        configuration.setDatabaseSchemaUpdate(ProcessEngineConfiguration.DB_SCHEMA_UPDATE_CREATE_DROP);
+        configuration.setHistory(historyLevel);
+        configuration.setJobExecutorActivate(false);
+        configuration.setMetricsEnabled(false);
+        configuration.setBeans(beans);
+        @SuppressWarnings("rawtypes")
+        List<TypedValueSerializer> serializers = new ArrayList<>();
+        serializers.add(new TransactionContextSerializer());
+        configuration.setCustomPreVariableSerializers(serializers);
+        processEngine = configuration.buildProcessEngine();
+
+        processEngine.getRepositoryService().createDeployment()
+                .addClasspathResource("transactionProcessingDMNBased.bpmn")
+                .addClasspathResource("DetermineTransactionPath.dmn")
+                .deploy();
+        runtimeService = processEngine.getRuntimeService();
+        TransactionVariableMapper mapper = new TransactionVariableMapper();
+        ReflectionTestUtils.setField(mapper, "mode", variablesMode);
+        purchaseVariables = mapper.toVariables(BenchmarkFixtures.purchaseRequest());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        processEngine.close();
+        context.close();
+    }
+
+    @Benchmark
+    public String startPurchase() {
+        String processInstanceId = UUID.randomUUID().toString();
+        Map<String, Object> variables = new HashMap<>(purchaseVariables);
+        variables.put("processInstanceId", processInstanceId);
+        return runtimeService.startProcessInstanceByKey(PROCESS_DEFINITION_KEY, processInstanceId, variables).getId();
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.transactionprocessor.benchmark;
+
+import com.example.transactionprocessor.delegate.TaskRouterDelegate;
+import org.camunda.bpm.engine.delegate.DelegateExecution;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Routing overhead of {@link TaskRouterDelegate}: plan lookup, stage walk and
+ * logging around no-op task delegates. Parallel flows also include the stage
+ * executor hand-off.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TaskRouterBenchmark {
+
+    @Param({"fraudCheck,authorize,settle", "validate,post", "validate,[review|apply],post"})
+    private String taskFlow;
+
+    private AnnotationConfigApplicationContext context;
+    private TaskRouterDelegate router;
+    private Map<String, Object> variables;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkFixtures.routingContext();
+        router = context.getBean(TaskRouterDelegate.class);
+        variables = new HashMap<>();
+        variables.put("dmnResult", taskFlow);
+        variables.put("transactionType", "Purchase");
+        variables.put("processInstanceId", "b3c1a7a4-8d0e-4c6b-9d7e-0f1a2b3c4d5e");
+        variables.put("amount", 125.50);
+        variables.put("currency", "USD");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public DelegateExecution route() throws Exception {
+        DelegateExecution execution = BenchmarkFixtures.mapExecution(variables);
+        router.execute(execution);
+        return execution;
+    }
+}
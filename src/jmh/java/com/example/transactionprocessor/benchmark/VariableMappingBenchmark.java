@@ -0,0 +1,52 @@
+package com.example.transactionprocessor.benchmark;
+
+import com.example.transactionprocessor.model.PaymentTransactionRequest;
+import com.example.transactionprocessor.model.TransactionRequest;
+import com.example.transactionprocessor.service.TransactionVariableMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of flattening request payloads into process variables.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VariableMappingBenchmark {
+
+    private TransactionVariableMapper mapper;
+    private TransactionRequest purchase;
+    private PaymentTransactionRequest payment;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mapper = new TransactionVariableMapper();
+        purchase = BenchmarkFixtures.purchaseRequest();
+        payment = BenchmarkFixtures.paymentRequest();
+    }
+
+    @Benchmark
+    public Map<String, Object> purchase() {
+        return mapper.toVariables(purchase);
+    }
+
+    @Benchmark
+    public Map<String, Object> payment() {
+        return mapper.toVariables(payment);
+    }
+}
@@ -0,0 +1,293 @@
+package com.example.transactionprocessor.loadtest;
+
+import com.example.transactionprocessor.TransactionProcessorApplication;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays the example payloads against {@code /transactions/process} and
+ * {@code /transactions/payment} in steps of increasing load and reports
+ * achieved throughput and latency percentiles per transaction type, so the knee
+ * where latency climbs while throughput stops following the load can be read
+ * off one machine.
+ * <p>
+ * The open model sends at a fixed arrival rate whatever the response times, and
+ * measures each request from the time it was due rather than the time it went
+ * out, so a stalled server is not hidden by the generator waiting for it. The
+ * closed model runs a fixed number of users that each wait for their response,
+ * and optionally think, before the next request.
+ * <p>
+ * Without {@code --url} the application is started in the same JVM on a random
+ * port. Run with {@code mvn -Ploadtest verify -Dload.args="..."}; see
+ * {@link LoadTestOptions#USAGE} for the arguments.
+ */
+public final class LoadGenerator {
+
+    private final LoadTestOptions options;
+    private final PayloadTemplates templates;
+    private final HttpClient client;
+    private final URI baseUrl;
+    private final String[] schedule;
+    private final AtomicLong sequence = new AtomicLong();
+
+    private LoadGenerator(LoadTestOptions options, PayloadTemplates templates, HttpClient client, URI baseUrl) {
+        this.options = options;
+        this.templates = templates;
+        this.client = client;
+        this.baseUrl = baseUrl;
+        this.schedule = schedule(options.mix.isEmpty() ? defaultMix(templates) : options.mix, templates);
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options;
+        try {
+            options = LoadTestOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(LoadTestOptions.USAGE);
+            System.exit(2);
+            return;
+        }
+        String runId = "LT-" + Long.toString(System.currentTimeMillis(), 36).toUpperCase();
+        PayloadTemplates templates = PayloadTemplates.load(options.payloads, runId, options.cards, options.accounts);
+
+        ConfigurableApplicationContext application = null;
+        URI baseUrl = options.url;
+        if (baseUrl == null) {
+            application = start(options.applicationProperties);
+            int port = ((ServletWebServerApplicationContext) application).getWebServer().getPort();
+            baseUrl = URI.create("http://localhost:" + port);
+        }
+        ExecutorService responses = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), daemon());
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(responses)
+                .build();
+        try {
+            new LoadGenerator(options, templates, client, baseUrl).run();
+        } finally {
+            responses.shutdownNow();
+            if (application != null) {
+                application.close();
+            }
+        }
+        System.exit(0);
+    }
+
+    private static ConfigurableApplicationContext start(Map<String, String> overrides) {
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        Map<String, String> properties = new LinkedHashMap<>();
+        properties.put("server.port", "0");
+        properties.put("logging.level.root", "WARN");
+        properties.put("logging.level.com.example.transactionprocessor", "WARN");
+        properties.putAll(overrides);
+        String[] args = properties.entrySet().stream()
+                .map(property -> "--" + property.getKey() + "=" + property.getValue())
+                .toArray(String[]::new);
+        return SpringApplication.run(TransactionProcessorApplication.class, args);
+    }
+
+    private void run() throws InterruptedException, IOException {
+        System.out.printf("Target %s, %s model, payloads %s%n", baseUrl,
+                options.model.name().toLowerCase(), String.join(", ", distinct(schedule)));
+        if (!options.warmup.isZero()) {
+            System.out.printf("Warming up for %d s%n", options.warmup.toSeconds());
+            step(options.steps[0], options.warmup.toNanos());
+        }
+        List<StepStats.Row> results = new ArrayList<>();
+        for (int load : options.steps) {
+            StepStats stats = step(load, options.duration.toNanos());
+            List<StepStats.Row> rows = stats.rows();
+            stats.print(System.out, rows);
+            results.addAll(rows);
+        }
+        summarize(results);
+        write(results);
+    }
+
+    private StepStats step(int load, long durationNanos) throws InterruptedException {
+        StepStats stats = new StepStats(options.model.name().toLowerCase(), load);
+        long startNanos = System.nanoTime();
+        if (options.model == LoadTestOptions.Model.OPEN) {
+            open(stats, load, startNanos, durationNanos);
+        } else {
+            closed(stats, load, startNanos, durationNanos);
+        }
+        stats.finish(System.nanoTime() - startNanos);
+        return stats;
+    }
+
+    /**
+     * Sends request {@code i} at {@code start + i / rate} from a single
+     * dispatcher. Arrivals that find {@code --max-in-flight} requests outstanding
+     * are dropped and counted, rather than queued inside the generator.
+     */
+    private void open(StepStats stats, int rate, long startNanos, long durationNanos) throws InterruptedException {
+        Semaphore inFlight = new Semaphore(options.maxInFlight);
+        SplittableRandom random = new SplittableRandom(options.seed + rate);
+        double intervalNanos = 1e9 / rate;
+        for (long i = 0; ; i++) {
+            long intendedNanos = startNanos + (long) (i * intervalNanos);
+            if (intendedNanos - startNanos >= durationNanos) {
+                break;
+            }
+            long waitNanos = intendedNanos - System.nanoTime();
+            if (waitNanos > 0) {
+                LockSupport.parkNanos(waitNanos);
+            }
+            PayloadTemplates.Payload payload = next(random);
+            if (!inFlight.tryAcquire()) {
+                stats.dropped(payload.key);
+                continue;
+            }
+            client.sendAsync(request(payload), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, failure) -> {
+                        stats.record(payload.key, intendedNanos, response, failure);
+                        inFlight.release();
+                    });
+        }
+        // Let the step's outstanding requests finish before the next one starts
+        if (!inFlight.tryAcquire(options.maxInFlight, options.timeout.toNanos(), TimeUnit.NANOSECONDS)) {
+            System.out.printf("%d requests still outstanding after %d s%n",
+                    options.maxInFlight - inFlight.availablePermits(), options.timeout.toSeconds());
+        }
+    }
+
+    private void closed(StepStats stats, int users, long startNanos, long durationNanos) throws InterruptedException {
+        List<Thread> threads = new ArrayList<>(users);
+        for (int user = 0; user < users; user++) {
+            SplittableRandom random = new SplittableRandom(options.seed + users * 1_000L + user);
+            Thread thread = new Thread(() -> {
+                while (System.nanoTime() - startNanos < durationNanos) {
+                    PayloadTemplates.Payload payload = next(random);
+                    long sentNanos = System.nanoTime();
+                    try {
+                        HttpResponse<Void> response = client.send(request(payload), HttpResponse.BodyHandlers.discarding());
+                        stats.record(payload.key, sentNanos, response, null);
+                    } catch (IOException e) {
+                        stats.record(payload.key, sentNanos, null, e);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    if (options.thinkMillis > 0) {
+                        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(options.thinkMillis));
+                    }
+                }
+            }, "loadtest-user-" + user);
+            thread.setDaemon(true);
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+
+    private PayloadTemplates.Payload next(SplittableRandom random) {
+        return templates.next(schedule[random.nextInt(schedule.length)], sequence.incrementAndGet(), random);
+    }
+
+    private HttpRequest request(PayloadTemplates.Payload payload) {
+        return HttpRequest.newBuilder(baseUrl.resolve(payload.path))
+                .timeout(options.timeout)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(payload.body))
+                .build();
+    }
+
+    /**
+     * The step where throughput stopped following the load is the knee for
+     * each payload: achieved TPS below 90% of the previous step's ratio, or
+     * errors and drops appearing.
+     */
+    private void summarize(List<StepStats.Row> results) {
+        Map<String, List<StepStats.Row>> byKey = new LinkedHashMap<>();
+        results.forEach(row -> byKey.computeIfAbsent(row.key, k -> new ArrayList<>()).add(row));
+        System.out.printf("%nSummary (%s)%n", options.model == LoadTestOptions.Model.OPEN ? "rate/s" : "users");
+        byKey.forEach((key, rows) -> {
+            StepStats.Row best = rows.stream().max((a, b) -> Double.compare(a.tps, b.tps)).orElseThrow();
+            StepStats.Row knee = null;
+            for (int i = 1; i < rows.size() && knee == null; i++) {
+                StepStats.Row previous = rows.get(i - 1);
+                StepStats.Row row = rows.get(i);
+                double expected = previous.tps * row.load / previous.load;
+                if (row.tps < 0.9 * expected || row.errors + row.dropped > previous.errors + previous.dropped) {
+                    knee = row;
+                }
+            }
+            System.out.printf("%-22s max %.1f tps at %d (p99 %.2f ms)%s%n", key, best.tps, best.load, best.p99,
+                    knee == null ? ", no knee within the steps" : ", knee at " + knee.load);
+        });
+    }
+
+    private void write(List<StepStats.Row> results) throws IOException {
+        Path out = options.out.toAbsolutePath();
+        Files.createDirectories(out.getParent());
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(out))) {
+            writer.println(StepStats.Row.CSV_HEADER);
+            results.forEach(row -> writer.println(row.toCsv()));
+        }
+        System.out.printf("Results written to %s%n", out);
+    }
+
+    private static Map<String, Integer> defaultMix(PayloadTemplates templates) {
+        Map<String, Integer> mix = new LinkedHashMap<>();
+        templates.keys().forEach(key -> mix.put(key, 1));
+        return mix;
+    }
+
+    /**
+     * One slot per unit of weight, so picking a random slot follows the mix.
+     */
+    private static String[] schedule(Map<String, Integer> mix, PayloadTemplates templates) {
+        List<String> slots = new ArrayList<>();
+        mix.forEach((key, weight) -> {
+            if (!templates.keys().contains(key)) {
+                throw new IllegalArgumentException("No payload for " + key + ", available: " + templates.keys());
+            }
+            for (int i = 0; i < weight; i++) {
+                slots.add(key);
+            }
+        });
+        if (slots.isEmpty()) {
+            throw new IllegalArgumentException("The mix has no positive weight");
+        }
+        return slots.toArray(String[]::new);
+    }
+
+    private static List<String> distinct(String[] schedule) {
+        return List.copyOf(new LinkedHashSet<>(List.of(schedule)));
+    }
+
+    private static ThreadFactory daemon() {
+        return runnable -> {
+            Thread thread = new Thread(runnable, "loadtest-http");
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
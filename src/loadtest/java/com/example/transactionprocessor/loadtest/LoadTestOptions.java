@@ -0,0 +1,132 @@
+package com.example.transactionprocessor.loadtest;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Command line of the {@link LoadGenerator}, all in {@code --name=value} form.
+ * Arguments under {@code spring.}, {@code server.}, {@code camunda.},
+ * {@code management.}, {@code logging.} or {@code transaction-processor.} are
+ * passed on to the in-process application.
+ */
+final class LoadTestOptions {
+
+    enum Model { OPEN, CLOSED }
+
+    static final String USAGE = String.join(System.lineSeparator(),
+            "Usage: LoadGenerator [--name=value ...]",
+            "  --model=open|closed     open: fixed arrival rate; closed: fixed number of users (default open)",
+            "  --rate=100,200,400      open model arrivals per second, one step per value (default 100)",
+            "  --users=1,8,32          closed model concurrent users, one step per value (default 8)",
+            "  --think-ms=0            closed model pause between a user's requests",
+            "  --duration=30           seconds measured per step",
+            "  --warmup=10             seconds run before the first step and not recorded",
+            "  --mix=process:Purchase=6,payment:Payment=3",
+            "                          weights per endpoint:transactionType (default all payloads equally)",
+            "  --payloads=example-requests.json,Updated_Payment_Transactions.postman_collection.json",
+            "  --cards=100000          distinct card numbers drawn from",
+            "  --accounts=100000       distinct customer accounts drawn from",
+            "  --max-in-flight=5000    open model: arrivals beyond this many outstanding requests are dropped",
+            "  --timeout=30            seconds before a request counts as an error",
+            "  --seed=<n>              seed for the randomized payloads (default random)",
+            "  --url=http://host:port  target a running instance instead of starting one in-process",
+            "  --out=<file.csv>        results file (default target/loadtest/results-<time>.csv)");
+
+    private static final Set<String> APPLICATION_PREFIXES = Set.of("spring.", "server.", "camunda.", "management.",
+            "logging.", "transaction-processor.");
+
+    final Model model;
+    final int[] steps;
+    final long thinkMillis;
+    final Duration duration;
+    final Duration warmup;
+    final Map<String, Integer> mix;
+    final List<Path> payloads;
+    final int cards;
+    final int accounts;
+    final int maxInFlight;
+    final Duration timeout;
+    final long seed;
+    final URI url;
+    final Path out;
+    final Map<String, String> applicationProperties;
+
+    private LoadTestOptions(Map<String, String> values, Map<String, String> applicationProperties) {
+        model = Model.valueOf(values.getOrDefault("model", "open").toUpperCase());
+        steps = model == Model.OPEN ? ints(values.getOrDefault("rate", "100")) : ints(values.getOrDefault("users", "8"));
+        thinkMillis = Long.parseLong(values.getOrDefault("think-ms", "0"));
+        duration = Duration.ofSeconds(Long.parseLong(values.getOrDefault("duration", "30")));
+        warmup = Duration.ofSeconds(Long.parseLong(values.getOrDefault("warmup", "10")));
+        mix = weights(values.getOrDefault("mix", ""));
+        payloads = Arrays.stream(values.getOrDefault("payloads",
+                        "example-requests.json,Updated_Payment_Transactions.postman_collection.json").split(","))
+                .map(String::trim).map(Path::of).toList();
+        cards = Integer.parseInt(values.getOrDefault("cards", "100000"));
+        accounts = Integer.parseInt(values.getOrDefault("accounts", "100000"));
+        maxInFlight = Integer.parseInt(values.getOrDefault("max-in-flight", "5000"));
+        timeout = Duration.ofSeconds(Long.parseLong(values.getOrDefault("timeout", "30")));
+        seed = values.containsKey("seed") ? Long.parseLong(values.get("seed")) : System.nanoTime();
+        url = values.containsKey("url") ? URI.create(values.get("url")) : null;
+        out = Path.of(values.getOrDefault("out", "target/loadtest/results-"
+                + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".csv"));
+        this.applicationProperties = applicationProperties;
+        if (Arrays.stream(steps).anyMatch(step -> step <= 0)) {
+            throw new IllegalArgumentException("rates and users must be positive");
+        }
+    }
+
+    static LoadTestOptions parse(String[] args) {
+        Map<String, String> values = new LinkedHashMap<>();
+        Map<String, String> applicationProperties = new LinkedHashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                throw new IllegalArgumentException("Expected --name=value but got: " + arg);
+            }
+            String name = arg.substring(2, separator);
+            String value = arg.substring(separator + 1);
+            if (APPLICATION_PREFIXES.stream().anyMatch(name::startsWith)) {
+                applicationProperties.put(name, value);
+            } else {
+                values.put(name, value);
+            }
+        }
+        return new LoadTestOptions(values, applicationProperties);
+    }
+
+    private static int[] ints(String list) {
+        return Arrays.stream(list.split(",")).map(String::trim).mapToInt(Integer::parseInt).toArray();
+    }
+
+    private static Map<String, Integer> weights(String list) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        List<String> malformed = new ArrayList<>();
+        for (String entry : list.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            int separator = entry.lastIndexOf('=');
+            if (separator < 0) {
+                // A bare key is weighted like the others
+                weights.put(entry.trim(), 1);
+            } else if (separator == 0) {
+                malformed.add(entry);
+            } else {
+                weights.put(entry.substring(0, separator).trim(), Integer.parseInt(entry.substring(separator + 1).trim()));
+            }
+        }
+        if (!malformed.isEmpty()) {
+            throw new IllegalArgumentException("Malformed mix entries: " + malformed);
+        }
+        return weights;
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.transactionprocessor.loadtest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Request bodies read from {@code example-requests.json} and Postman
+ * collections, keyed {@code <endpoint>:<transactionType>}, e.g.
+ * {@code process:Purchase} or {@code payment:Payment}. Postman requests whose
+ * name starts with {@code Invalid} are left out.
+ * <p>
+ * Every request gets a unique reference, so idempotent retries never answer
+ * it, an amount between half and one and a half times the template's, and a
+ * card or customer account drawn from a pool. The pools keep the per-card and
+ * per-account velocity limits of the fraud check from declining the load.
+ * Payments are sent for immediate start, without their schedule.
+ */
+final class PayloadTemplates {
+
+    static final String PROCESS = "process";
+    static final String PAYMENT = "payment";
+
+    private final ObjectMapper objectMapper;
+    private final Map<String, List<ObjectNode>> templates;
+    private final String runId;
+    private final int cards;
+    private final int accounts;
+
+    private PayloadTemplates(ObjectMapper objectMapper, Map<String, List<ObjectNode>> templates, String runId,
+                             int cards, int accounts) {
+        this.objectMapper = objectMapper;
+        this.templates = templates;
+        this.runId = runId;
+        this.cards = cards;
+        this.accounts = accounts;
+    }
+
+    static PayloadTemplates load(List<Path> sources, String runId, int cards, int accounts) {
+        ObjectMapper objectMapper = new ObjectMapper();
+        Map<String, List<ObjectNode>> templates = new LinkedHashMap<>();
+        for (Path source : sources) {
+            JsonNode root;
+            try {
+                root = objectMapper.readTree(source.toFile());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot read payloads from " + source, e);
+            }
+            root.path("examples").forEach(example ->
+                    add(templates, example.path("url").asText(), example.path("body")));
+            addPostmanItems(objectMapper, templates, root.path("item"));
+        }
+        if (templates.isEmpty()) {
+            throw new IllegalArgumentException("No /transactions/process or /transactions/payment payloads in "
+                    + sources);
+        }
+        return new PayloadTemplates(objectMapper, templates, runId, cards, accounts);
+    }
+
+    List<String> keys() {
+        return new ArrayList<>(templates.keySet());
+    }
+
+    Payload next(String key, long sequence, SplittableRandom random) {
+        List<ObjectNode> candidates = templates.get(key);
+        ObjectNode body = candidates.get(random.nextInt(candidates.size())).deepCopy();
+        String reference = runId + "-" + sequence;
+        if (key.startsWith(PAYMENT + ":")) {
+            body.put("paymentReference", reference);
+            scaleAmount(body, "paymentAmount", random);
+            body.remove("scheduledDateTime");
+            body.put("isRecurring", false);
+            body.putNull("recurringFrequency");
+        } else {
+            body.put("referenceNumber", reference);
+            scaleAmount(body, "amount", random);
+        }
+        JsonNode card = body.path("creditCardInfo");
+        if (card.hasNonNull("cardNumber")) {
+            ((ObjectNode) card).put("cardNumber", cardNumber(card.get("cardNumber").asText(), random.nextInt(cards)));
+        }
+        JsonNode account = body.path("customerAccount");
+        if (account.hasNonNull("accountNumber")) {
+            ((ObjectNode) account).put("accountNumber",
+                    renumber(account.get("accountNumber").asText(), random.nextInt(accounts)));
+        }
+        try {
+            return new Payload(key, key.startsWith(PAYMENT + ":") ? "/transactions/payment" : "/transactions/process",
+                    objectMapper.writeValueAsBytes(body));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void addPostmanItems(ObjectMapper objectMapper, Map<String, List<ObjectNode>> templates,
+                                        JsonNode items) {
+        for (JsonNode item : items) {
+            if (item.has("item")) {
+                addPostmanItems(objectMapper, templates, item.get("item"));
+                continue;
+            }
+            JsonNode request = item.path("request");
+            String raw = request.path("body").path("raw").asText("");
+            if (!"POST".equals(request.path("method").asText()) || raw.isBlank()
+                    || item.path("name").asText().startsWith("Invalid")) {
+                continue;
+            }
+            JsonNode url = request.path("url");
+            try {
+                add(templates, url.isTextual() ? url.asText() : url.path("raw").asText(), objectMapper.readTree(raw));
+            } catch (JsonProcessingException e) {
+                throw new IllegalArgumentException("Postman request " + item.path("name").asText()
+                        + " has no JSON body", e);
+            }
+        }
+    }
+
+    private static void add(Map<String, List<ObjectNode>> templates, String url, JsonNode body) {
+        String endpoint = url.endsWith("/transactions/payment") ? PAYMENT
+                : url.endsWith("/transactions/process") ? PROCESS : null;
+        if (endpoint == null || !body.isObject()) {
+            return;
+        }
+        String key = endpoint + ":" + body.path("transactionType").asText("unknown");
+        templates.computeIfAbsent(key, k -> new ArrayList<>()).add((ObjectNode) body);
+    }
+
+    private static void scaleAmount(ObjectNode body, String field, SplittableRandom random) {
+        if (body.hasNonNull(field)) {
+            BigDecimal factor = BigDecimal.valueOf(0.5 + random.nextDouble());
+            body.put(field, body.get(field).decimalValue().multiply(factor).setScale(2, RoundingMode.HALF_UP));
+        }
+    }
+
+    /**
+     * The template's issuer prefix and length, with the pool index as account
+     * digits and a valid Luhn check digit.
+     */
+    static String cardNumber(String template, int index) {
+        String withoutCheckDigit = renumber(template.substring(0, template.length() - 1), index);
+        int sum = 0;
+        for (int i = 0; i < withoutCheckDigit.length(); i++) {
+            int digit = withoutCheckDigit.charAt(withoutCheckDigit.length() - 1 - i) - '0';
+            if (i % 2 == 0) {
+                digit *= 2;
+                if (digit > 9) {
+                    digit -= 9;
+                }
+            }
+            sum += digit;
+        }
+        return withoutCheckDigit + (10 - sum % 10) % 10;
+    }
+
+    /**
+     * Keeps the first six characters and fills the rest with the zero-padded index.
+     */
+    private static String renumber(String template, int index) {
+        int prefix = Math.min(6, template.length() / 2);
+        String digits = Integer.toString(index);
+        int width = template.length() - prefix;
+        if (digits.length() > width) {
+            throw new IllegalArgumentException("Pool index " + index + " does not fit " + template);
+        }
+        return template.substring(0, prefix) + "0".repeat(width - digits.length()) + digits;
+    }
+
+    static final class Payload {
+        final String key;
+        final String path;
+        final byte[] body;
+
+        private Payload(String key, String path, byte[] body) {
+            this.key = key;
+            this.path = path;
+            this.body = body;
+        }
+    }
+}
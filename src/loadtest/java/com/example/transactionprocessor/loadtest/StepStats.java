@@ -0,0 +1,150 @@
+package com.example.transactionprocessor.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.PrintStream;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Outcomes of one load step per payload key: latencies in an HdrHistogram
+ * {@link Recorder} (microseconds, three significant digits), successful and
+ * failed requests, and open-model arrivals dropped because too many requests
+ * were outstanding. 2xx responses count as successful; errors are also tallied
+ * by status or exception for the report.
+ */
+final class StepStats {
+
+    private final String model;
+    private final int load;
+    private final Map<String, KeyStats> byKey = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> errorKinds = new ConcurrentHashMap<>();
+    private long elapsedNanos;
+
+    StepStats(String model, int load) {
+        this.model = model;
+        this.load = load;
+    }
+
+    void record(String key, long startNanos, HttpResponse<?> response, Throwable failure) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos);
+        KeyStats stats = stats(key);
+        stats.latency.recordValue(Math.max(micros, 0));
+        if (failure == null && response.statusCode() / 100 == 2) {
+            stats.ok.increment();
+            return;
+        }
+        stats.errors.increment();
+        String kind = failure != null ? failure.getClass().getSimpleName() : "HTTP " + response.statusCode();
+        errorKinds.computeIfAbsent(key + " " + kind, k -> new LongAdder()).increment();
+    }
+
+    void dropped(String key) {
+        stats(key).dropped.increment();
+    }
+
+    void finish(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * One row per key and a row for all of them together.
+     */
+    List<Row> rows() {
+        List<Row> rows = new ArrayList<>();
+        Histogram all = new Histogram(3);
+        long ok = 0;
+        long errors = 0;
+        long dropped = 0;
+        for (Map.Entry<String, KeyStats> entry : new TreeMap<>(byKey).entrySet()) {
+            KeyStats stats = entry.getValue();
+            Histogram histogram = stats.latency.getIntervalHistogram();
+            all.add(histogram);
+            rows.add(row(entry.getKey(), histogram, stats.ok.sum(), stats.errors.sum(), stats.dropped.sum()));
+            ok += stats.ok.sum();
+            errors += stats.errors.sum();
+            dropped += stats.dropped.sum();
+        }
+        rows.add(row("all", all, ok, errors, dropped));
+        return rows;
+    }
+
+    void print(PrintStream out, List<Row> rows) {
+        out.printf(Locale.ROOT, "%n%s model, %s %d, %.1f s%n", model, model.equals("open") ? "rate/s" : "users",
+                load, elapsedNanos / 1e9);
+        out.printf(Locale.ROOT, "%-22s %9s %7s %7s %9s %9s %9s %9s %9s %9s%n", "payload", "ok", "errors", "dropped",
+                "tps", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (Row row : rows) {
+            out.printf(Locale.ROOT, "%-22s %9d %7d %7d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n", row.key, row.ok,
+                    row.errors, row.dropped, row.tps, row.p50, row.p90, row.p99, row.p999, row.max);
+        }
+        new TreeMap<>(errorKinds).forEach((kind, count) -> out.printf("  errors %s: %d%n", kind, count.sum()));
+    }
+
+    private KeyStats stats(String key) {
+        return byKey.computeIfAbsent(key, k -> new KeyStats());
+    }
+
+    private Row row(String key, Histogram histogram, long ok, long errors, long dropped) {
+        return new Row(model, load, key, ok, errors, dropped, elapsedNanos > 0 ? ok / (elapsedNanos / 1e9) : 0,
+                millis(histogram, 50), millis(histogram, 90), millis(histogram, 99), millis(histogram, 99.9),
+                histogram.getTotalCount() > 0 ? histogram.getMaxValue() / 1000.0 : 0);
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getTotalCount() > 0 ? histogram.getValueAtPercentile(percentile) / 1000.0 : 0;
+    }
+
+    private static final class KeyStats {
+        private final Recorder latency = new Recorder(3);
+        private final LongAdder ok = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder dropped = new LongAdder();
+    }
+
+    static final class Row {
+        static final String CSV_HEADER = "model,load,payload,ok,errors,dropped,tps,p50_ms,p90_ms,p99_ms,p999_ms,max_ms";
+
+        final String model;
+        final int load;
+        final String key;
+        final long ok;
+        final long errors;
+        final long dropped;
+        final double tps;
+        final double p50;
+        final double p90;
+        final double p99;
+        final double p999;
+        final double max;
+
+        private Row(String model, int load, String key, long ok, long errors, long dropped, double tps, double p50,
+                    double p90, double p99, double p999, double max) {
+            this.model = model;
+            this.load = load;
+            this.key = key;
+            this.ok = ok;
+            this.errors = errors;
+            this.dropped = dropped;
+            this.tps = tps;
+            this.p50 = p50;
+            this.p90 = p90;
+            this.p99 = p99;
+            this.p999 = p999;
+            this.max = max;
+        }
+
+        String toCsv() {
+            return String.format(Locale.ROOT, "%s,%d,%s,%d,%d,%d,%.1f,%.3f,%.3f,%.3f,%.3f,%.3f", model, load, key, ok,
+                    errors, dropped, tps, p50, p90, p99, p999, max);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.transactionprocessor.config;
+
+import com.example.transactionprocessor.worker.ExternalTaskWorker;
+import com.zaxxer.hikari.HikariDataSource;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Sizes the Hikari pool from the threads that can hold a connection at the same
+ * time: Tomcat request threads starting processes synchronously, Camunda job
+ * executor threads and async intake workers, plus a few spare connections for
+ * the webapps. Background work that writes to the database is counted too: the
+ * payment scheduler's poller and the settlement sender, and, when enabled, the
+ * file ingestion start workers, the external task worker threads of every
+ * topic and the async history writer with the {@code db} sink. A pool smaller
+ * than that makes engine threads queue for connections; a larger one only adds
+ * idle connections to the database.
+ * <p>
+ * Active with {@code transaction-processor.datasource.pool-sizing=derived}, which
+ * the persistent profiles set. Otherwise {@code spring.datasource.hikari.*} applies as is.
+ */
+@Component
+@ConditionalOnProperty(name = "transaction-processor.datasource.pool-sizing", havingValue = "derived")
+public class DataSourcePoolSizer implements BeanPostProcessor {
+
+    private static final Logger log = LogManager.getLogger(DataSourcePoolSizer.class);
+
+    @Value("${server.tomcat.threads.max:200}")
+    private int webThreads;
+
+    @Value("${camunda.bpm.job-execution.max-pool-size:10}")
+    private int jobExecutorThreads;
+
+    @Value("${transaction-processor.async-intake.workers:16}")
+    private int asyncIntakeWorkers;
+
+    @Value("${transaction-processor.scheduler.enabled:true}")
+    private boolean schedulerEnabled;
+
+    @Value("${transaction-processor.file-ingestion.enabled:false}")
+    private boolean fileIngestionEnabled;
+
+    @Value("${transaction-processor.file-ingestion.start-workers:8}")
+    private int fileIngestionWorkers;
+
+    @Value("${transaction-processor.external-tasks.worker.enabled:${transaction-processor.external-tasks.enabled:false}}")
+    private boolean externalTaskWorkerEnabled;
+
+    @Value("${transaction-processor.external-tasks.worker.topics:fraudCheck,authorize,settle,validate,post,review,apply}")
+    private Set<String> externalTaskTopics;
+
+    @Value("${transaction-processor.external-tasks.worker.concurrency:4}")
+    private int externalTaskConcurrency;
+
+    @Value("${transaction-processor.external-tasks.worker.concurrency-per-topic:}")
+    private String externalTaskConcurrencyPerTopic;
+
+    @Value("${transaction-processor.history.async.enabled:false}")
+    private boolean asyncHistoryEnabled;
+
+    @Value("${transaction-processor.history.async.sink:db}")
+    private String asyncHistorySink;
+
+    @Value("${transaction-processor.datasource.spare-connections:4}")
+    private int spareConnections;
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof HikariDataSource) {
+            HikariDataSource dataSource = (HikariDataSource) bean;
+            int poolSize = poolSize();
+            dataSource.setMaximumPoolSize(poolSize);
+            // Fixed-size pool: connections are opened once instead of under load
+            dataSource.setMinimumIdle(poolSize);
+            log.info("Connection pool {} sized to {} ({} web + {} job executor + {} async intake + {} background"
+                            + " + {} spare)", dataSource.getPoolName(), poolSize, webThreads, jobExecutorThreads,
+                    asyncIntakeWorkers, backgroundThreads(), spareConnections);
+        }
+        return bean;
+    }
+
+    int poolSize() {
+        return webThreads + jobExecutorThreads + asyncIntakeWorkers + backgroundThreads() + spareConnections;
+    }
+
+    /**
+     * Threads of the enabled background features that can hold a connection.
+     */
+    int backgroundThreads() {
+        // The settlement sender always runs
+        int threads = 1;
+        if (schedulerEnabled) {
+            threads++;
+        }
+        if (fileIngestionEnabled) {
+            threads += fileIngestionWorkers;
+        }
+        if (externalTaskWorkerEnabled) {
+            Map<String, Integer> concurrencies = ExternalTaskWorker.perTopic(externalTaskConcurrencyPerTopic);
+            for (String topic : externalTaskTopics) {
+                threads += concurrencies.getOrDefault(topic, externalTaskConcurrency);
+            }
+        }
+        if (asyncHistoryEnabled && "db".equalsIgnoreCase(asyncHistorySink)) {
+            threads++;
+        }
+        return threads;
+    }
+}
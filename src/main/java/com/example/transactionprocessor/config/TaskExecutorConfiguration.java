@@ -0,0 +1,84 @@
+package com.example.transactionprocessor.config;
+
+import com.example.transactionprocessor.delegate.StageExecutor;
+import com.example.transactionprocessor.metrics.TransactionMetrics;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Builds the executor that runs parallel task flow stages.
+ * <ul>
+ *   <li>{@code fork-join} (default): work-stealing pool sized to the cores it is given, suited to CPU-bound delegates</li>
+ *   <li>{@code fixed}: bounded thread pool with a bounded queue, for blocking I/O-bound delegates</li>
+ *   <li>{@code virtual}: one virtual thread per task (Java 21+); implied when
+ *       {@code transaction-processor.virtual-threads.enabled=true}</li>
+ * </ul>
+ */
+@Configuration
+public class TaskExecutorConfiguration {
+
+    private static final Logger log = LogManager.getLogger(TaskExecutorConfiguration.class);
+
+    @Value("${transaction-processor.task-executor.type:fork-join}")
+    private String type;
+
+    @Value("${transaction-processor.task-executor.parallelism:0}")
+    private int parallelism;
+
+    @Value("${transaction-processor.task-executor.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${transaction-processor.task-executor.stage-timeout-ms:30000}")
+    private long stageTimeoutMillis;
+
+    @Value("${transaction-processor.virtual-threads.enabled:false}")
+    private boolean virtualThreadsEnabled;
+
+    @Bean(destroyMethod = "shutdown")
+    public StageExecutor stageExecutor(TransactionMetrics transactionMetrics) {
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        String executorType = virtualThreadsEnabled ? "virtual" : type.toLowerCase();
+        ExecutorService executorService;
+        switch (executorType) {
+            case "fork-join":
+                executorService = new ForkJoinPool(threads, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+                break;
+            case "fixed":
+                AtomicInteger threadCount = new AtomicInteger();
+                executorService = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                        new ArrayBlockingQueue<>(queueCapacity),
+                        runnable -> {
+                            Thread thread = new Thread(runnable, "task-stage-" + threadCount.incrementAndGet());
+                            thread.setDaemon(true);
+                            return thread;
+                        },
+                        new ThreadPoolExecutor.AbortPolicy());
+                break;
+            case "virtual":
+                executorService = VirtualThreads.newVirtualThreadPerTaskExecutor();
+                log.info("Task stage executor: virtual threads, stage timeout {} ms", stageTimeoutMillis);
+                return newStageExecutor(executorService, transactionMetrics);
+            default:
+                throw new IllegalArgumentException("Unknown transaction-processor.task-executor.type: " + type);
+        }
+        log.info("Task stage executor: {} with {} threads, stage timeout {} ms", executorType, threads,
+                stageTimeoutMillis);
+        return newStageExecutor(executorService, transactionMetrics);
+    }
+
+    private StageExecutor newStageExecutor(ExecutorService executorService, TransactionMetrics transactionMetrics) {
+        StageExecutor stageExecutor = new StageExecutor(executorService, stageTimeoutMillis, transactionMetrics);
+        transactionMetrics.bindStageExecutor(stageExecutor);
+        return stageExecutor;
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.transactionprocessor.config;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Serves HTTP requests on virtual threads when
+ * {@code transaction-processor.virtual-threads.enabled=true}. Every request gets
+ * its own virtual thread, so requests blocked in a delegate's simulated
+ * downstream call no longer hold one of Tomcat's platform worker threads.
+ */
+@Configuration
+@ConditionalOnProperty(name = "transaction-processor.virtual-threads.enabled", havingValue = "true")
+public class VirtualThreadWebConfiguration {
+
+    private static final Logger log = LogManager.getLogger(VirtualThreadWebConfiguration.class);
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        return protocolHandler -> {
+            protocolHandler.setExecutor(VirtualThreads.newVirtualThreadPerTaskExecutor());
+            log.info("Tomcat request handling switched to virtual threads");
+        };
+    }
+}
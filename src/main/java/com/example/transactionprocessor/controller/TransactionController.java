@@ -1,139 +1,439 @@
 package com.example.transactionprocessor.controller;
 
+import com.example.transactionprocessor.engine.TransactionHistoryLevel;
+import com.example.transactionprocessor.ledger.AccountLedger;
+import com.example.transactionprocessor.metrics.TransactionMetrics;
+import com.example.transactionprocessor.model.SettlementEntry;
+import com.example.transactionprocessor.model.TransactionOutcome;
 import com.example.transactionprocessor.model.TransactionRequest;
 import com.example.transactionprocessor.model.PaymentTransactionRequest;
+import com.example.transactionprocessor.model.ScheduledPayment;
+import com.example.transactionprocessor.service.AsyncIntakeService;
+import com.example.transactionprocessor.service.BatchIngestionService;
+import com.example.transactionprocessor.service.IdempotencyService;
+import com.example.transactionprocessor.service.PaymentScheduler;
+import com.example.transactionprocessor.service.RequestValidator;
+import com.example.transactionprocessor.service.TransactionOutcomeIndex;
+import com.example.transactionprocessor.service.TransactionOutcomes;
+import com.example.transactionprocessor.service.TransactionStartService;
+import com.example.transactionprocessor.service.TransactionVariableMapper;
+import com.example.transactionprocessor.settlement.SettlementBatcher;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.camunda.bpm.engine.RuntimeService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.UUID;
 
 @RestController
 @RequestMapping("/transactions")
 public class TransactionController {
 
+    private static final Logger log = LogManager.getLogger(TransactionController.class);
+
+    private static final String NDJSON_VALUE = "application/x-ndjson";
+
     @Autowired
     private RuntimeService runtimeService;
 
+    @Autowired
+    private TransactionVariableMapper variableMapper;
+
+    @Autowired
+    private TransactionStartService transactionStartService;
+
+    @Autowired
+    private BatchIngestionService batchIngestionService;
+
+    @Autowired
+    private AsyncIntakeService asyncIntakeService;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private TransactionOutcomeIndex transactionOutcomeIndex;
+
+    @Autowired
+    private TransactionMetrics transactionMetrics;
+
+    @Autowired
+    private SettlementBatcher settlementBatcher;
+
+    @Autowired
+    private PaymentScheduler paymentScheduler;
+
+    @Autowired
+    private RequestValidator requestValidator;
+
+    @Value("${transaction-processor.async-intake.retry-after-seconds:1}")
+    private int asyncRetryAfterSeconds;
+
     @PostMapping("/process")
     public ResponseEntity<Map<String, Object>> processTransaction(@RequestBody TransactionRequest transactionRequest) {
+        long startNanos = System.nanoTime();
+        List<RequestValidator.Violation> violations = requestValidator.validate(transactionRequest);
+        if (!violations.isEmpty()) {
+            return recordRequest("process", transactionRequest.getTransactionType(), startNanos,
+                    invalidRequest("Invalid transaction", violations));
+        }
         try {
-            Map<String, Object> variables = new HashMap<>();
-            variables.put("transactionType", transactionRequest.getTransactionType());
-            variables.put("amount", transactionRequest.getAmount());
-            variables.put("currency", transactionRequest.getCurrency());
-            variables.put("transactionDateTime", transactionRequest.getTransactionDateTime());
-            variables.put("creditCardNumber", transactionRequest.getCreditCardInfo().getMaskedCardNumber());
-            variables.put("cardHolderName", transactionRequest.getCreditCardInfo().getHolderName());
-            variables.put("cardType", transactionRequest.getCreditCardInfo().getCardType());
-            variables.put("billingAddress", transactionRequest.getBillingAddress().toString());
-            variables.put("vendorName", transactionRequest.getVendorInfo().getName());
-            variables.put("vendorLocation", transactionRequest.getVendorInfo().getLocation());
-            variables.put("description", transactionRequest.getDescription());
-            variables.put("referenceNumber", transactionRequest.getReferenceNumber());
-            
-            String processInstanceId = UUID.randomUUID().toString();
-            variables.put("processInstanceId", processInstanceId);
+            Map<String, Object> variables = variableMapper.toVariables(transactionRequest);
+            String processInstanceId = transactionStartService.newProcessInstanceId();
 
-            System.out.println("Processing transaction: " + transactionRequest);
+            log.debug("Processing transaction {}: {}", processInstanceId, transactionRequest);
             
-            runtimeService.startProcessInstanceByKey("transactionProcessing", processInstanceId, variables);
+            IdempotencyService.Result result = idempotencyService.startOnce("process",
+                    transactionRequest.getReferenceNumber(), processInstanceId, transactionRequest.getTransactionType(),
+                    () -> transactionStartService.start(processInstanceId, variables));
 
             Map<String, Object> response = new HashMap<>();
             response.put("status", "success");
             response.put("message", "Transaction process started successfully");
-            response.put("processInstanceId", processInstanceId);
+            response.put("processInstanceId", result.getProcessInstanceId());
+            addDuplicateDetails(response, result);
             response.put("transactionType", transactionRequest.getTransactionType());
             response.put("amount", transactionRequest.getAmount());
             response.put("referenceNumber", transactionRequest.getReferenceNumber());
             
-            return ResponseEntity.ok(response);
+            return recordRequest("process", transactionRequest.getTransactionType(), startNanos, ResponseEntity.ok(response));
         } catch (Exception e) {
-            System.err.println("Error processing transaction: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error processing transaction: {}", e.getMessage(), e);
             
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("status", "error");
             errorResponse.put("message", "Error processing transaction: " + e.getMessage());
             
-            return ResponseEntity.badRequest().body(errorResponse);
+            return recordRequest("process", transactionRequest.getTransactionType(), startNanos,
+                    ResponseEntity.badRequest().body(errorResponse));
         }
     }
 
     @PostMapping("/payment")
     public ResponseEntity<Map<String, Object>> processPayment(@RequestBody PaymentTransactionRequest paymentRequest) {
+        long startNanos = System.nanoTime();
+        List<RequestValidator.Violation> violations = requestValidator.validate(paymentRequest);
+        if (!violations.isEmpty()) {
+            return recordRequest("payment", paymentRequest.getTransactionType(), startNanos,
+                    invalidRequest("Invalid payment", violations));
+        }
         try {
-            Map<String, Object> variables = new HashMap<>();
-            variables.put("transactionType", paymentRequest.getTransactionType());
-            variables.put("paymentAmount", paymentRequest.getPaymentAmount());
-            variables.put("currency", paymentRequest.getCurrency());
-            variables.put("paymentDate", paymentRequest.getPaymentDate());
-            variables.put("scheduledDateTime", paymentRequest.getScheduledDateTime());
-            
-            // Customer Account Information
-            variables.put("customerAccountNumber", paymentRequest.getCustomerAccount().getAccountNumber());
-            variables.put("customerName", paymentRequest.getCustomerAccount().getCustomerName());
-            variables.put("customerEmail", paymentRequest.getCustomerAccount().getCustomerEmail());
-            variables.put("customerPhone", paymentRequest.getCustomerAccount().getCustomerPhone());
-            variables.put("accountType", paymentRequest.getCustomerAccount().getAccountType());
-            variables.put("currentBalance", paymentRequest.getCustomerAccount().getCurrentBalance());
-            variables.put("creditLimit", paymentRequest.getCustomerAccount().getCreditLimit());
-            variables.put("minimumPaymentDue", paymentRequest.getCustomerAccount().getMinimumPaymentDue());
-            variables.put("paymentDueDate", paymentRequest.getCustomerAccount().getPaymentDueDate());
-            variables.put("accountStatus", paymentRequest.getCustomerAccount().getAccountStatus());
-            
-            // Payment Method Information
-            variables.put("paymentMethodType", paymentRequest.getPaymentMethod().getPaymentType());
-            variables.put("paymentMethodId", paymentRequest.getPaymentMethod().getPaymentMethodId());
-            variables.put("paymentMethodNickname", paymentRequest.getPaymentMethod().getNickname());
-            variables.put("isDefaultPaymentMethod", paymentRequest.getPaymentMethod().isDefault());
-            
-            // Bank Details
-            variables.put("bankName", paymentRequest.getPaymentMethod().getBankDetails().getBankName());
-            variables.put("routingNumber", paymentRequest.getPaymentMethod().getBankDetails().getRoutingNumber());
-            variables.put("bankAccountNumber", paymentRequest.getPaymentMethod().getBankDetails().getMaskedAccountNumber());
-            variables.put("bankAccountHolderName", paymentRequest.getPaymentMethod().getBankDetails().getAccountHolderName());
-            variables.put("bankAccountType", paymentRequest.getPaymentMethod().getBankDetails().getAccountType());
-            
-            // Payment Details
-            variables.put("paymentType", paymentRequest.getPaymentType());
-            variables.put("isRecurring", paymentRequest.isRecurring());
-            variables.put("recurringFrequency", paymentRequest.getRecurringFrequency());
-            variables.put("paymentReference", paymentRequest.getPaymentReference());
-            variables.put("memo", paymentRequest.getMemo());
-            variables.put("confirmationEmail", paymentRequest.isConfirmationEmail());
-            
-            String processInstanceId = UUID.randomUUID().toString();
-            variables.put("processInstanceId", processInstanceId);
+            if (paymentScheduler.accepts(paymentRequest)) {
+                return recordRequest("payment", paymentRequest.getTransactionType(), startNanos,
+                        schedulePayment(paymentRequest));
+            }
+            Map<String, Object> variables = variableMapper.toVariables(paymentRequest);
+            String processInstanceId = transactionStartService.newProcessInstanceId();
 
-            System.out.println("Processing payment: " + paymentRequest);
+            log.debug("Processing payment {}: {}", processInstanceId, paymentRequest);
             
-            runtimeService.startProcessInstanceByKey("transactionProcessing", processInstanceId, variables);
+            IdempotencyService.Result result = idempotencyService.startOnce("payment",
+                    paymentRequest.getPaymentReference(), processInstanceId, paymentRequest.getTransactionType(),
+                    () -> transactionStartService.start(processInstanceId, variables));
 
             Map<String, Object> response = new HashMap<>();
             response.put("status", "success");
             response.put("message", "Payment process started successfully");
-            response.put("processInstanceId", processInstanceId);
+            response.put("processInstanceId", result.getProcessInstanceId());
+            addDuplicateDetails(response, result);
             response.put("transactionType", paymentRequest.getTransactionType());
             response.put("paymentAmount", paymentRequest.getPaymentAmount());
             response.put("paymentReference", paymentRequest.getPaymentReference());
             response.put("customerAccount", paymentRequest.getCustomerAccount().getMaskedAccountNumber());
             response.put("paymentMethod", paymentRequest.getPaymentMethod().getNickname());
             
-            return ResponseEntity.ok(response);
+            return recordRequest("payment", paymentRequest.getTransactionType(), startNanos, ResponseEntity.ok(response));
         } catch (Exception e) {
-            System.err.println("Error processing payment: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error processing payment: {}", e.getMessage(), e);
             
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("status", "error");
             errorResponse.put("message", "Error processing payment: " + e.getMessage());
             
-            return ResponseEntity.badRequest().body(errorResponse);
+            return recordRequest("payment", paymentRequest.getTransactionType(), startNanos,
+                    ResponseEntity.badRequest().body(errorResponse));
+        }
+    }
+
+    @GetMapping("/schedules/{scheduleId}")
+    public ResponseEntity<Map<String, Object>> getSchedule(@PathVariable String scheduleId) {
+        return paymentScheduler.find(scheduleId)
+                .map(scheduledPayment -> ResponseEntity.ok(toResponse(scheduledPayment)))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Cancels the schedule's future occurrences.
+     */
+    @DeleteMapping("/schedules/{scheduleId}")
+    public ResponseEntity<Map<String, Object>> cancelSchedule(@PathVariable String scheduleId) {
+        return paymentScheduler.cancel(scheduleId)
+                .map(scheduledPayment -> ResponseEntity.ok(toResponse(scheduledPayment)))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Accepts a JSON array or NDJSON stream of {@code TransactionRequest} and
+     * {@code PaymentTransactionRequest} objects and answers with one NDJSON result
+     * line per item, written as each chunk of starts commits.
+     */
+    @PostMapping(value = "/batch", consumes = {MediaType.APPLICATION_JSON_VALUE, NDJSON_VALUE})
+    public void processBatch(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(NDJSON_VALUE);
+        batchIngestionService.process(request.getInputStream(), response.getOutputStream());
+    }
+
+    @PostMapping("/async/process")
+    public ResponseEntity<Map<String, Object>> processTransactionAsync(@RequestBody TransactionRequest transactionRequest) {
+        long startNanos = System.nanoTime();
+        List<RequestValidator.Violation> violations = requestValidator.validate(transactionRequest);
+        if (!violations.isEmpty()) {
+            return recordRequest("async/process", transactionRequest.getTransactionType(), startNanos,
+                    invalidRequest("Invalid transaction", violations));
+        }
+        try {
+            Map<String, Object> variables = variableMapper.toVariables(transactionRequest);
+            return recordRequest("async/process", transactionRequest.getTransactionType(), startNanos,
+                    acceptAsync(transactionRequest.getTransactionType(), variables));
+        } catch (Exception e) {
+            log.warn("Error queuing transaction: {}", e.getMessage());
+
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("status", "error");
+            errorResponse.put("message", "Error processing transaction: " + e.getMessage());
+
+            return recordRequest("async/process", transactionRequest.getTransactionType(), startNanos,
+                    ResponseEntity.badRequest().body(errorResponse));
+        }
+    }
+
+    @PostMapping("/async/payment")
+    public ResponseEntity<Map<String, Object>> processPaymentAsync(@RequestBody PaymentTransactionRequest paymentRequest) {
+        long startNanos = System.nanoTime();
+        List<RequestValidator.Violation> violations = requestValidator.validate(paymentRequest);
+        if (!violations.isEmpty()) {
+            return recordRequest("async/payment", paymentRequest.getTransactionType(), startNanos,
+                    invalidRequest("Invalid payment", violations));
+        }
+        try {
+            if (paymentScheduler.accepts(paymentRequest)) {
+                return recordRequest("async/payment", paymentRequest.getTransactionType(), startNanos,
+                        schedulePayment(paymentRequest));
+            }
+            Map<String, Object> variables = variableMapper.toVariables(paymentRequest);
+            return recordRequest("async/payment", paymentRequest.getTransactionType(), startNanos,
+                    acceptAsync(paymentRequest.getTransactionType(), variables));
+        } catch (Exception e) {
+            log.warn("Error queuing payment: {}", e.getMessage());
+
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("status", "error");
+            errorResponse.put("message", "Error processing payment: " + e.getMessage());
+
+            return recordRequest("async/payment", paymentRequest.getTransactionType(), startNanos,
+                    ResponseEntity.badRequest().body(errorResponse));
+        }
+    }
+
+    @GetMapping("/async/{processInstanceId}")
+    public ResponseEntity<Map<String, Object>> getAsyncStatus(@PathVariable String processInstanceId) {
+        AsyncIntakeService.IntakeStatus intakeStatus = asyncIntakeService.getStatus(processInstanceId);
+        if (intakeStatus == null) {
+            return ResponseEntity.notFound().build();
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("processInstanceId", intakeStatus.getProcessInstanceId());
+        response.put("transactionType", intakeStatus.getTransactionType());
+        response.put("state", intakeStatus.getState());
+        response.put("acceptedAt", intakeStatus.getAcceptedAt());
+        if (intakeStatus.getCompletedAt() > 0) {
+            response.put("completedAt", intakeStatus.getCompletedAt());
+        }
+        if (intakeStatus.getMessage() != null) {
+            response.put("message", intakeStatus.getMessage());
+        }
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Result of a finished transaction, from the outcome index. Transactions
+     * that are still running, failed or unknown answer 404.
+     */
+    @GetMapping("/{processInstanceId}")
+    public ResponseEntity<Map<String, Object>> getTransaction(@PathVariable String processInstanceId) {
+        return transactionOutcomeIndex.find(processInstanceId)
+                .map(outcome -> ResponseEntity.ok(toResponse(outcome)))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * The funds transfer a settled purchase or posted payment owes, and the
+     * batch that carried it once one has been submitted.
+     */
+    @GetMapping("/{processInstanceId}/settlement")
+    public ResponseEntity<Map<String, Object>> getSettlement(@PathVariable String processInstanceId) {
+        return settlementBatcher.find(processInstanceId)
+                .map(entry -> ResponseEntity.ok(toResponse(entry)))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @GetMapping(params = "reference")
+    public ResponseEntity<Map<String, Object>> findTransactions(@RequestParam String reference) {
+        List<TransactionOutcome> outcomes = transactionOutcomeIndex.findByReference(reference);
+        if (outcomes.isEmpty()) {
+            return ResponseEntity.notFound().build();
         }
+
+        List<Map<String, Object>> transactions = new ArrayList<>(outcomes.size());
+        for (TransactionOutcome outcome : outcomes) {
+            transactions.add(toResponse(outcome));
+        }
+        Map<String, Object> response = new HashMap<>();
+        response.put("reference", reference);
+        response.put("transactions", transactions);
+        return ResponseEntity.ok(response);
+    }
+
+    private Map<String, Object> toResponse(TransactionOutcome outcome) {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("processInstanceId", outcome.getProcessInstanceId());
+        response.put("transactionType", outcome.getTransactionType());
+        response.put("reference", outcome.getReference());
+        response.put("status", outcome.getStatus());
+        response.put("executionMode", outcome.getExecutionMode());
+        response.put("taskFlow", outcome.getTaskFlow());
+        response.put("outcome", TransactionOutcomes.parse(outcome.getOutcome()));
+        response.put("startedAt", outcome.getCreatedAt().toString());
+        response.put("durationMicros", outcome.getDurationMicros());
+        return response;
+    }
+
+    private Map<String, Object> toResponse(ScheduledPayment scheduledPayment) {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("scheduleId", scheduledPayment.getScheduleId());
+        response.put("paymentReference", scheduledPayment.getReference());
+        response.put("status", scheduledPayment.getStatus());
+        response.put("recurringFrequency", scheduledPayment.getFrequency());
+        response.put("nextDueAt", scheduledPayment.getDueAt() != null ? scheduledPayment.getDueAt().toString() : null);
+        response.put("occurrences", scheduledPayment.getOccurrences());
+        response.put("lastProcessInstanceId", scheduledPayment.getLastProcessInstanceId());
+        return response;
+    }
+
+    private Map<String, Object> toResponse(SettlementEntry entry) {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("processInstanceId", entry.getProcessInstanceId());
+        response.put("transactionType", entry.getTransactionType());
+        response.put("reference", entry.getReference());
+        response.put("destinationType", entry.getDestinationType());
+        response.put("destination", entry.getDestination());
+        response.put("amount", AccountLedger.toAmount(entry.getAmountCents()));
+        response.put("status", entry.getStatus());
+        response.put("batchId", entry.getBatchId());
+        response.put("createdAt", entry.getCreatedAt().toString());
+        response.put("completedAt", entry.getCompletedAt() != null ? entry.getCompletedAt().toString() : null);
+        return response;
+    }
+
+    /**
+     * A retried request is answered with the original instance, marked as a
+     * duplicate, so the client can tell that nothing new was started.
+     */
+    private void addDuplicateDetails(Map<String, Object> response, IdempotencyService.Result result) {
+        if (result.isDuplicate()) {
+            response.put("message", "Duplicate request, returning the original transaction");
+            response.put("duplicate", true);
+            response.put("outcome", result.getStatus());
+        }
+    }
+
+    /**
+     * Answers a request that failed {@link RequestValidator} with 422 and every
+     * violation, without having started anything.
+     */
+    private ResponseEntity<Map<String, Object>> invalidRequest(String message,
+                                                              List<RequestValidator.Violation> violations) {
+        List<Map<String, Object>> details = new ArrayList<>(violations.size());
+        for (RequestValidator.Violation violation : violations) {
+            Map<String, Object> detail = new LinkedHashMap<>();
+            detail.put("field", violation.getField());
+            detail.put("message", violation.getMessage());
+            details.add(detail);
+        }
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", "error");
+        response.put("message", message + ": " + RequestValidator.describe(violations));
+        response.put("violations", details);
+        return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(response);
+    }
+
+    private ResponseEntity<Map<String, Object>> recordRequest(String endpoint, String transactionType, long startNanos,
+                                                             ResponseEntity<Map<String, Object>> response) {
+        Object outcome = response.getBody() != null ? response.getBody().get("status") : null;
+        transactionMetrics.recordRequest(endpoint, transactionType, outcome != null ? outcome.toString() : "unknown",
+                System.nanoTime() - startNanos);
+        return response;
+    }
+
+    /**
+     * Stores a future or recurring payment instead of starting it; occurrences
+     * are started by the {@link PaymentScheduler} as they fall due.
+     */
+    private ResponseEntity<Map<String, Object>> schedulePayment(PaymentTransactionRequest paymentRequest) {
+        String scheduleId = transactionStartService.newProcessInstanceId();
+        IdempotencyService.Result result = idempotencyService.startOnce("payment",
+                paymentRequest.getPaymentReference(), scheduleId, paymentRequest.getTransactionType(),
+                () -> paymentScheduler.schedule(scheduleId, paymentRequest));
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", "scheduled");
+        response.put("message", "Payment scheduled");
+        response.put("scheduleId", result.getProcessInstanceId());
+        addDuplicateDetails(response, result);
+        paymentScheduler.find(result.getProcessInstanceId()).ifPresent(scheduledPayment -> {
+            response.put("nextDueAt", scheduledPayment.getDueAt() != null ? scheduledPayment.getDueAt().toString() : null);
+            response.put("recurringFrequency", scheduledPayment.getFrequency());
+        });
+        response.put("transactionType", paymentRequest.getTransactionType());
+        response.put("paymentAmount", paymentRequest.getPaymentAmount());
+        response.put("paymentReference", paymentRequest.getPaymentReference());
+        response.put("statusUrl", "/transactions/schedules/" + result.getProcessInstanceId());
+        return ResponseEntity.accepted().body(response);
+    }
+
+    private ResponseEntity<Map<String, Object>> acceptAsync(String transactionType, Map<String, Object> variables) {
+        String processInstanceId = transactionStartService.newProcessInstanceId();
+        Map<String, Object> response = new HashMap<>();
+
+        if (!asyncIntakeService.submit(processInstanceId, transactionType, variables)) {
+            response.put("status", "rejected");
+            response.put("message", "Intake queue is full, retry later");
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(asyncRetryAfterSeconds))
+                    .body(response);
+        }
+
+        response.put("status", "accepted");
+        response.put("message", "Transaction queued for processing");
+        response.put("processInstanceId", processInstanceId);
+        response.put("transactionType", transactionType);
+        response.put("statusUrl", "/transactions/async/" + processInstanceId);
+        return ResponseEntity.accepted().body(response);
     }
 
     @PostMapping("/start")
@@ -142,14 +442,14 @@ public class TransactionController {
             Map<String, Object> variables = new HashMap<>();
             variables.put("transactionType", transactionType);
 
-            System.out.println("Starting process for transaction type: " + transactionType);
+            log.info("Starting process for transaction type: {}", transactionType);
             
-            runtimeService.startProcessInstanceByKey("transactionProcessing", variables);
+            TransactionHistoryLevel.start(transactionType,
+                    () -> runtimeService.startProcessInstanceByKey(transactionStartService.getProcessDefinitionKey(), variables));
 
             return "Transaction process started for type: " + transactionType;
         } catch (Exception e) {
-            System.err.println("Error starting process: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error starting process: {}", e.getMessage(), e);
             return "Error starting transaction: " + e.getMessage();
         }
     }
@@ -1,54 +1,63 @@
 package com.example.transactionprocessor.delegate;
 
+import com.example.transactionprocessor.ledger.AccountLedger;
+import com.example.transactionprocessor.ledger.CreditAuthorizer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.camunda.bpm.engine.delegate.DelegateExecution;
 import org.camunda.bpm.engine.delegate.JavaDelegate;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.math.BigDecimal;
+
 @Component("adjustmentApplyDelegate")
 public class AdjustmentApplyDelegate implements JavaDelegate {
 
+    private static final Logger log = LogManager.getLogger(AdjustmentApplyDelegate.class);
+
+    @Autowired
+    private CreditAuthorizer creditAuthorizer;
+
     @Override
     public void execute(DelegateExecution execution) throws Exception {
-        String transactionType = (String) execution.getVariable("transactionType");
-        String reviewStatus = (String) execution.getVariable("reviewStatus");
-        Object amount = execution.getVariable("amount");
-        String reviewId = (String) execution.getVariable("reviewId");
-        String cardHolderName = (String) execution.getVariable("cardHolderName");
-        String description = (String) execution.getVariable("description");
+        TransactionVariables variables = TransactionVariables.of(execution);
+        String transactionType = variables.getString("transactionType");
+        String reviewStatus = variables.getString("reviewStatus");
+        Object amount = variables.get("amount");
+        String reviewId = variables.getString("reviewId");
+        String cardHolderName = variables.getString("cardHolderName");
+        String description = variables.getString("description");
         
-        System.out.println("=== Adjustment Apply ===");
-        System.out.println("Transaction Type: " + transactionType);
-        System.out.println("Amount: " + amount);
-        System.out.println("Review Status: " + reviewStatus);
-        System.out.println("Review ID: " + reviewId);
-        System.out.println("Card Holder: " + cardHolderName);
-        System.out.println("Description: " + description);
+        log.debug("Adjustment apply: type={}, amount={}, reviewStatus={}, reviewId={}, cardHolder={}, description={}",
+                transactionType, amount, reviewStatus, reviewId, cardHolderName, description);
         
         if (!"APPROVED".equals(reviewStatus)) {
-            System.out.println("Apply FAILED: Review not approved. Status: " + reviewStatus);
+            log.warn("Apply FAILED for transaction {}: Review not approved. Status: {}", execution.getBusinessKey(),
+                    reviewStatus);
             throw new RuntimeException("Cannot apply adjustment - review not approved");
         }
         
         // Simulate apply logic
-        String applyResult = performApply(execution);
+        String applyResult = performApply(variables);
         
-        execution.setVariable("applyStatus", applyResult);
-        execution.setVariable("applyTimestamp", System.currentTimeMillis());
-        execution.setVariable("adjustmentId", generateAdjustmentId());
+        variables.set("applyStatus", applyResult);
+        variables.set("applyTimestamp", System.currentTimeMillis());
+        variables.set("adjustmentId", generateAdjustmentId());
+        variables.set("newBalance", applyToLedger(variables));
+        variables.save();
         
-        System.out.println("Adjustment Apply completed. Status: " + applyResult);
-        System.out.println("Adjustment ID: " + execution.getVariable("adjustmentId"));
-        System.out.println("========================");
+        log.info("Adjustment apply completed for transaction {}. Status: {}, adjustment ID: {}",
+                execution.getBusinessKey(), applyResult, variables.get("adjustmentId"));
     }
     
-    private String performApply(DelegateExecution execution) {
-        Object amount = execution.getVariable("amount");
-        String cardHolderName = (String) execution.getVariable("cardHolderName");
-        String description = (String) execution.getVariable("description");
+    private String performApply(TransactionVariables variables) {
+        Object amount = variables.get("amount");
+        String cardHolderName = variables.getString("cardHolderName");
+        String description = variables.getString("description");
         
         // Simulate apply logic - update account balance, create adjustment record
-        System.out.println("Applying adjustment of " + amount + " for " + cardHolderName);
-        System.out.println("Adjustment reason: " + description);
+        log.debug("Applying adjustment of {} for {}, reason: {}", amount, cardHolderName, description);
         
         // Simulate some processing time
         try {
@@ -60,6 +69,23 @@ public class AdjustmentApplyDelegate implements JavaDelegate {
         return "APPLIED";
     }
     
+    /**
+     * Adds the adjustment amount to the card's ledger balance; a refund carries a
+     * negative amount, lowers it and frees the same amount of open-to-buy. Cards
+     * the ledger has not seen open at zero.
+     */
+    private BigDecimal applyToLedger(TransactionVariables variables) {
+        String cardToken = variables.getString("cardToken");
+        if (cardToken == null) {
+            log.warn("Adjustment carries no card, ledger not updated");
+            return null;
+        }
+        long newBalance = creditAuthorizer.adjust(cardToken, AccountLedger.toCents(variables.get("amount")));
+
+        log.debug("Ledger balance of card {} after adjustment: {}", variables.get("creditCardNumber"), newBalance);
+        return AccountLedger.toAmount(newBalance);
+    }
+
     private String generateAdjustmentId() {
         return "ADJ" + System.currentTimeMillis() % 1000000;
     }
@@ -1,5 +1,7 @@
 package com.example.transactionprocessor.delegate;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.camunda.bpm.engine.delegate.DelegateExecution;
 import org.camunda.bpm.engine.delegate.JavaDelegate;
 import org.springframework.stereotype.Component;
@@ -7,51 +9,49 @@ import org.springframework.stereotype.Component;
 @Component("adjustmentReviewDelegate")
 public class AdjustmentReviewDelegate implements JavaDelegate {
 
+    private static final Logger log = LogManager.getLogger(AdjustmentReviewDelegate.class);
+
     @Override
     public void execute(DelegateExecution execution) throws Exception {
-        String transactionType = (String) execution.getVariable("transactionType");
-        Object amount = execution.getVariable("amount");
-        String cardHolderName = (String) execution.getVariable("cardHolderName");
-        String description = (String) execution.getVariable("description");
-        String referenceNumber = (String) execution.getVariable("referenceNumber");
+        TransactionVariables variables = TransactionVariables.of(execution);
+        String transactionType = variables.getString("transactionType");
+        Object amount = variables.get("amount");
+        String cardHolderName = variables.getString("cardHolderName");
+        String description = variables.getString("description");
+        String referenceNumber = variables.getString("referenceNumber");
         
-        System.out.println("=== Adjustment Review ===");
-        System.out.println("Transaction Type: " + transactionType);
-        System.out.println("Amount: " + amount);
-        System.out.println("Card Holder: " + cardHolderName);
-        System.out.println("Description: " + description);
-        System.out.println("Reference: " + referenceNumber);
+        log.debug("Adjustment review: type={}, amount={}, cardHolder={}, description={}, reference={}",
+                transactionType, amount, cardHolderName, description, referenceNumber);
         
         // Simulate review logic
-        String reviewResult = performReview(execution);
+        String reviewResult = performReview(variables);
         
-        execution.setVariable("reviewStatus", reviewResult);
-        execution.setVariable("reviewTimestamp", System.currentTimeMillis());
-        execution.setVariable("reviewId", generateReviewId());
-        execution.setVariable("reviewedBy", "SYSTEM_REVIEWER");
+        variables.set("reviewStatus", reviewResult);
+        variables.set("reviewTimestamp", System.currentTimeMillis());
+        variables.set("reviewId", generateReviewId());
+        variables.set("reviewedBy", "SYSTEM_REVIEWER");
+        variables.save();
         
-        System.out.println("Adjustment Review completed. Status: " + reviewResult);
-        System.out.println("Review ID: " + execution.getVariable("reviewId"));
-        System.out.println("Reviewed By: " + execution.getVariable("reviewedBy"));
-        System.out.println("========================");
+        log.info("Adjustment review completed for transaction {}. Status: {}, review ID: {}, reviewed by: {}",
+                execution.getBusinessKey(), reviewResult, variables.get("reviewId"), variables.get("reviewedBy"));
     }
     
-    private String performReview(DelegateExecution execution) {
-        Object amount = execution.getVariable("amount");
-        String description = (String) execution.getVariable("description");
+    private String performReview(TransactionVariables variables) {
+        Object amount = variables.get("amount");
+        String description = variables.getString("description");
         
         // Simulate review logic - check adjustment reason, amount thresholds
         if (amount != null && amount.toString().contains("5000")) {
-            System.out.println("High-value adjustment detected, requiring manual review");
+            log.info("High-value adjustment detected, requiring manual review");
             return "PENDING_MANUAL_REVIEW";
         }
         
         if (description == null || description.trim().isEmpty()) {
-            System.out.println("Missing adjustment description, requiring additional info");
+            log.info("Missing adjustment description, requiring additional info");
             return "PENDING_INFO";
         }
         
-        System.out.println("Adjustment review checks passed");
+        log.debug("Adjustment review checks passed");
         return "APPROVED";
     }
     
@@ -0,0 +1,42 @@
+package com.example.transactionprocessor.delegate;
+
+import com.example.transactionprocessor.fraud.FraudScorer;
+import com.example.transactionprocessor.ledger.AccountLedger;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.camunda.bpm.engine.delegate.DelegateExecution;
+import org.camunda.bpm.engine.delegate.JavaDelegate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+@Component("fraudCheckDelegate")
+public class FraudCheckDelegate implements JavaDelegate {
+
+    private static final Logger log = LogManager.getLogger(FraudCheckDelegate.class);
+
+    @Autowired
+    private FraudScorer fraudScorer;
+
+    @Override
+    public void execute(DelegateExecution execution) throws Exception {
+        TransactionVariables variables = TransactionVariables.of(execution);
+        Object amount = variables.get("amount") != null ? variables.get("amount") : variables.get("paymentAmount");
+
+        int flags = fraudScorer.check(variables.getString("cardToken"), variables.getString("vendorName"),
+                variables.getString("vendorLocation"), variables.getString("customerAccountNumber"),
+                AccountLedger.toCents(amount), System.currentTimeMillis());
+        int score = FraudScorer.score(flags);
+        String exceededLimits = FraudScorer.describe(flags);
+
+        variables.set("fraudScore", score);
+        variables.set("fraudFlags", exceededLimits);
+        variables.save();
+
+        if (flags != 0) {
+            log.warn("Velocity limits exceeded for transaction {}: score {}, limits {}",
+                    execution.getBusinessKey(), score, exceededLimits);
+        } else {
+            log.debug("Fraud check passed for transaction {}", execution.getBusinessKey());
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.transactionprocessor.delegate;
+
+import org.camunda.bpm.engine.delegate.DelegateExecution;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+/**
+ * {@link DelegateExecution} backed by a plain map, used to run a task flow
+ * without a process instance. Variable reads and writes go to the map; the
+ * process instance id and business key are the transaction's id. Anything that
+ * needs a real engine execution (process definition, activity tree, incidents,
+ * typed values) throws {@link UnsupportedOperationException}.
+ * <p>
+ * Not thread-safe; parallel stages access it through {@link ParallelTaskExecution},
+ * which only touches it from the calling thread.
+ */
+public final class InMemoryExecution implements InvocationHandler {
+
+    static final String ACTIVITY_ID = "ExecuteTaskRouter";
+
+    private final String processInstanceId;
+    private final Map<String, Object> variables;
+
+    private InMemoryExecution(String processInstanceId, Map<String, Object> variables) {
+        this.processInstanceId = processInstanceId;
+        this.variables = variables;
+    }
+
+    /**
+     * @param variables initial variables; the map is used as is and receives all writes
+     */
+    public static DelegateExecution create(String processInstanceId, Map<String, Object> variables) {
+        return (DelegateExecution) Proxy.newProxyInstance(DelegateExecution.class.getClassLoader(),
+                new Class<?>[] {DelegateExecution.class}, new InMemoryExecution(processInstanceId, variables));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object invoke(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "getVariable":
+            case "getVariableLocal":
+                if (args.length == 1) {
+                    return variables.get((String) args[0]);
+                }
+                break;
+            case "setVariable":
+            case "setVariableLocal":
+                if (args.length == 2) {
+                    variables.put((String) args[0], args[1]);
+                    return null;
+                }
+                break;
+            case "setVariables":
+            case "setVariablesLocal":
+                variables.putAll((Map<String, Object>) args[0]);
+                return null;
+            case "removeVariable":
+            case "removeVariableLocal":
+                variables.remove((String) args[0]);
+                return null;
+            case "hasVariable":
+            case "hasVariableLocal":
+                return variables.containsKey(args[0]);
+            case "hasVariables":
+            case "hasVariablesLocal":
+                return !variables.isEmpty();
+            case "getVariables":
+            case "getVariablesLocal":
+                if (args == null || args.length == 0) {
+                    return new HashMap<>(variables);
+                }
+                break;
+            case "getVariableNames":
+            case "getVariableNamesLocal":
+                return new HashSet<>(variables.keySet());
+            case "getId":
+            case "getProcessInstanceId":
+            case "getBusinessKey":
+            case "getProcessBusinessKey":
+                return processInstanceId;
+            case "getCurrentActivityId":
+                return ACTIVITY_ID;
+            case "getEventName":
+            case "getParentId":
+            case "getTenantId":
+                return null;
+            case "toString":
+                return "InMemoryExecution[" + processInstanceId + "]";
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "equals":
+                return proxy == args[0];
+            default:
+                break;
+        }
+        throw new UnsupportedOperationException(method.getName() + " is not supported in straight-through execution");
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.transactionprocessor.delegate;
+
+import com.example.transactionprocessor.model.TransactionContext;
+import org.camunda.bpm.engine.delegate.DelegateExecution;
+import org.camunda.bpm.engine.delegate.JavaDelegate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link DelegateExecution} view handed to a task running on a stage executor
+ * thread. Engine executions may only be touched from the thread that owns the
+ * command context, so variable reads are served on the engine thread through
+ * {@link StageVariables} and writes are buffered until the stage has finished,
+ * when {@link #applyTo} copies them onto the real execution.
+ * <p>
+ * Transaction synchronizations are deferred the same way. When the engine
+ * thread has synchronization active, the task runs with synchronization of its
+ * own, and what its delegate registers (a rollback undo, an after-commit
+ * hand-off) is moved onto the engine transaction by
+ * {@link #registerSynchronizations} once the task has finished, whether or not
+ * the stage succeeds. A failed stage waits for the tasks it cancelled to
+ * return, so the synchronizations of a task that finishes its work after the
+ * cancellation are registered as well.
+ * <p>
+ * Non-variable calls (ids, business key, activity) are forwarded to the real
+ * execution; typed variable access and removal are not supported in a
+ * parallel stage.
+ */
+final class ParallelTaskExecution implements InvocationHandler {
+
+    private final DelegateExecution parent;
+    private final StageVariables variables;
+    private final Map<String, Object> writes = new LinkedHashMap<>();
+    private volatile List<TransactionSynchronization> synchronizations = List.of();
+
+    private ParallelTaskExecution(DelegateExecution parent, StageVariables variables) {
+        this.parent = parent;
+        this.variables = variables;
+    }
+
+    static ParallelTaskExecution create(DelegateExecution parent, StageVariables variables) {
+        return new ParallelTaskExecution(parent, variables);
+    }
+
+    DelegateExecution asExecution() {
+        return (DelegateExecution) Proxy.newProxyInstance(DelegateExecution.class.getClassLoader(),
+                new Class<?>[] {DelegateExecution.class}, this);
+    }
+
+    /**
+     * Runs the delegate on the calling task thread, collecting the
+     * synchronizations it registers if {@code deferSynchronizations} is set.
+     */
+    void execute(JavaDelegate delegate, DelegateExecution taskExecution, boolean deferSynchronizations)
+            throws Exception {
+        if (!deferSynchronizations) {
+            delegate.execute(taskExecution);
+            return;
+        }
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            delegate.execute(taskExecution);
+        } finally {
+            synchronizations = TransactionSynchronizationManager.getSynchronizations();
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    /**
+     * Must be called on the engine thread, inside the transaction the stage runs in.
+     */
+    void registerSynchronizations() {
+        List<TransactionSynchronization> collected = synchronizations;
+        synchronizations = List.of();
+        for (TransactionSynchronization synchronization : collected) {
+            TransactionSynchronizationManager.registerSynchronization(synchronization);
+        }
+    }
+
+    /**
+     * Must be called on the engine thread after the stage has completed. A
+     * {@link TransactionContext} write is merged into the execution's current
+     * context so sibling tasks' outcomes are kept.
+     */
+    void applyTo(DelegateExecution execution) {
+        for (Map.Entry<String, Object> write : writes.entrySet()) {
+            Object value = write.getValue();
+            if (value instanceof TransactionContext) {
+                Object current = execution.getVariable(write.getKey());
+                if (current instanceof TransactionContext) {
+                    value = ((TransactionContext) current).mergeChanges((TransactionContext) value);
+                }
+            }
+            execution.setVariable(write.getKey(), value);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        switch (method.getName()) {
+            case "getVariable":
+            case "getVariableLocal":
+                if (args.length == 1) {
+                    String name = (String) args[0];
+                    return writes.containsKey(name) ? writes.get(name) : variables.get(name);
+                }
+                break;
+            case "setVariable":
+            case "setVariableLocal":
+                if (args.length == 2) {
+                    writes.put((String) args[0], args[1]);
+                    return null;
+                }
+                break;
+            case "setVariables":
+            case "setVariablesLocal":
+                writes.putAll((Map<String, Object>) args[0]);
+                return null;
+            case "hasVariable":
+            case "hasVariableLocal":
+                return writes.containsKey(args[0]) || variables.has((String) args[0]);
+            case "hasVariables":
+            case "hasVariablesLocal":
+                return !writes.isEmpty() || !variables.getAll().isEmpty();
+            case "getVariables":
+            case "getVariablesLocal":
+                return merged();
+            case "getVariableNames":
+            case "getVariableNamesLocal":
+                return merged().keySet();
+            case "toString":
+                return "ParallelTaskExecution[" + parent + "]";
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "equals":
+                return proxy == args[0];
+            default:
+                break;
+        }
+        if (method.getName().contains("Variable")) {
+            throw new UnsupportedOperationException(method.getName() + " is not supported inside a parallel stage");
+        }
+        try {
+            return method.invoke(parent, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private Map<String, Object> merged() {
+        Map<String, Object> merged = new HashMap<>(variables.getAll());
+        merged.putAll(writes);
+        return merged;
+    }
+}
@@ -1,98 +1,109 @@
 package com.example.transactionprocessor.delegate;
 
+import com.example.transactionprocessor.ledger.AccountLedger;
+import com.example.transactionprocessor.model.SettlementEntry;
+import com.example.transactionprocessor.settlement.SettlementBatcher;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.camunda.bpm.engine.delegate.DelegateExecution;
 import org.camunda.bpm.engine.delegate.JavaDelegate;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.math.BigDecimal;
+import java.time.Instant;
+
 @Component("paymentPostingDelegate")
 public class PaymentPostingDelegate implements JavaDelegate {
 
+    private static final Logger log = LogManager.getLogger(PaymentPostingDelegate.class);
+
+    private static final String UNKNOWN_DESTINATION = "UNKNOWN";
+
+    @Autowired
+    private AccountLedger accountLedger;
+
+    @Autowired
+    private SettlementBatcher settlementBatcher;
+
     @Override
     public void execute(DelegateExecution execution) throws Exception {
-        String transactionType = (String) execution.getVariable("transactionType");
-        Boolean validationResult = (Boolean) execution.getVariable("validationResult");
-        Object paymentAmount = execution.getVariable("paymentAmount");
-        String validationCode = (String) execution.getVariable("validationCode");
-        String customerName = (String) execution.getVariable("customerName");
-        String customerAccountNumber = (String) execution.getVariable("customerAccountNumber");
-        String paymentReference = (String) execution.getVariable("paymentReference");
-        String paymentMethodType = (String) execution.getVariable("paymentMethodType");
-        String bankName = (String) execution.getVariable("bankName");
-        Object currentBalance = execution.getVariable("currentBalance");
-        Object minimumPaymentDue = execution.getVariable("minimumPaymentDue");
+        TransactionVariables variables = TransactionVariables.of(execution);
+        String transactionType = variables.getString("transactionType");
+        Boolean validationResult = variables.getBoolean("validationResult");
+        Object paymentAmount = variables.get("paymentAmount");
+        String validationCode = variables.getString("validationCode");
+        String customerName = variables.getString("customerName");
+        String customerAccountNumber = variables.getString("customerAccountNumber");
+        String paymentReference = variables.getString("paymentReference");
+        String paymentMethodType = variables.getString("paymentMethodType");
+        String bankName = variables.getString("bankName");
+        Object currentBalance = variables.get("currentBalance");
+        Object minimumPaymentDue = variables.get("minimumPaymentDue");
         
-        System.out.println("=== Payment Posting ===");
-        System.out.println("Transaction Type: " + transactionType);
-        System.out.println("Payment Amount: " + paymentAmount);
-        System.out.println("Validation Code: " + validationCode);
-        System.out.println("Customer: " + customerName);
-        System.out.println("Account Number: " + customerAccountNumber);
-        System.out.println("Payment Reference: " + paymentReference);
-        System.out.println("Payment Method: " + paymentMethodType);
-        System.out.println("Bank: " + bankName);
-        System.out.println("Current Balance: " + currentBalance);
-        System.out.println("Minimum Payment Due: " + minimumPaymentDue);
+        if (log.isDebugEnabled()) {
+            log.debug("Payment posting: type={}, amount={}, validationCode={}, customer={}, account={}",
+                    transactionType, paymentAmount, validationCode, customerName, customerAccountNumber);
+            log.debug("Payment posting: reference={}, method={}, bank={}, balance={}, minimumDue={}",
+                    paymentReference, paymentMethodType, bankName, currentBalance, minimumPaymentDue);
+        }
         
         if (validationResult == null || !validationResult) {
-            System.out.println("Posting FAILED: Payment validation failed");
+            log.warn("Posting FAILED for transaction {}: Payment validation failed", execution.getBusinessKey());
             throw new RuntimeException("Cannot post invalid payment");
         }
         
-        // Simulate posting logic
-        String postingResult = performPosting(execution);
+        String postingResult = performPosting(execution, variables);
         
-        execution.setVariable("postingStatus", postingResult);
-        execution.setVariable("postingTimestamp", System.currentTimeMillis());
-        execution.setVariable("postingId", generatePostingId());
-        execution.setVariable("newBalance", calculateNewBalance(execution));
+        variables.set("postingStatus", postingResult);
+        variables.set("postingTimestamp", System.currentTimeMillis());
+        variables.set("postingId", generatePostingId());
+        variables.set("newBalance", postToLedger(variables));
+        variables.save();
         
-        System.out.println("Payment Posting completed. Status: " + postingResult);
-        System.out.println("Posting ID: " + execution.getVariable("postingId"));
-        System.out.println("New Account Balance: " + execution.getVariable("newBalance"));
-        System.out.println("======================");
+        log.info("Payment posting completed for transaction {}. Status: {}, posting ID: {}",
+                execution.getBusinessKey(), postingResult, variables.get("postingId"));
+        log.debug("New account balance: {}", variables.get("newBalance"));
     }
     
-    private String performPosting(DelegateExecution execution) {
-        Object paymentAmount = execution.getVariable("paymentAmount");
-        String customerName = (String) execution.getVariable("customerName");
-        String customerAccountNumber = (String) execution.getVariable("customerAccountNumber");
-        String paymentMethodType = (String) execution.getVariable("paymentMethodType");
-        String bankName = (String) execution.getVariable("bankName");
-        
-        // Simulate posting logic - update customer account balance, process bank transfer
-        System.out.println("Processing " + paymentMethodType + " payment of " + paymentAmount + 
-                          " from " + customerName + " (Account: " + customerAccountNumber + ")");
-        System.out.println("Initiating " + paymentMethodType + " transfer from " + bankName);
-        System.out.println("Updating customer account balance and payment history");
-        
-        // Simulate ACH/Bank transfer processing time
-        try {
-            Thread.sleep(100);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
+    /**
+     * Queues the ACH debit from the customer's bank for its next settlement
+     * batch; the transfer itself happens after this transaction commits.
+     */
+    private String performPosting(DelegateExecution execution, TransactionVariables variables) {
+        Object paymentAmount = variables.get("paymentAmount");
+        String customerName = variables.getString("customerName");
+        String customerAccountNumber = variables.getString("customerAccountNumber");
+        String paymentMethodType = variables.getString("paymentMethodType");
+        String bankName = variables.getString("bankName");
         
+        log.debug("Queueing {} payment of {} from {} (Account: {}), transfer from {}",
+                paymentMethodType, paymentAmount, customerName, customerAccountNumber, bankName);
+        settlementBatcher.enqueue(new SettlementEntry(PurchaseAuthorizationDelegate.transactionId(execution),
+                variables.getString("transactionType"), variables.getString("paymentReference"),
+                SettlementEntry.DESTINATION_BANK, bankName != null ? bankName : UNKNOWN_DESTINATION,
+                AccountLedger.toCents(paymentAmount), Instant.now()));
+
         return "POSTED";
     }
     
-    private Object calculateNewBalance(DelegateExecution execution) {
-        try {
-            Object currentBalance = execution.getVariable("currentBalance");
-            Object paymentAmount = execution.getVariable("paymentAmount");
-            
-            if (currentBalance != null && paymentAmount != null) {
-                double balance = Double.parseDouble(currentBalance.toString());
-                double payment = Double.parseDouble(paymentAmount.toString());
-                double newBalance = balance - payment;
-                
-                System.out.println("Balance calculation: " + balance + " - " + payment + " = " + newBalance);
-                return newBalance;
-            }
-        } catch (NumberFormatException e) {
-            System.out.println("Error calculating new balance: " + e.getMessage());
+    /**
+     * Applies the payment to the account's ledger balance. The request's
+     * {@code currentBalance} only opens an account the ledger has no stored
+     * balance for.
+     */
+    private BigDecimal postToLedger(TransactionVariables variables) {
+        String customerAccountNumber = variables.getString("customerAccountNumber");
+        if (customerAccountNumber == null) {
+            throw new RuntimeException("Cannot post payment without customer account");
         }
-        
-        return execution.getVariable("currentBalance");
+        long paymentCents = AccountLedger.toCents(variables.get("paymentAmount"));
+        long newBalance = accountLedger.post(customerAccountNumber,
+                AccountLedger.toCents(variables.get("currentBalance")), -paymentCents);
+
+        log.debug("Ledger balance of account {} after payment of {} cents: {}", customerAccountNumber, paymentCents,
+                newBalance);
+        return AccountLedger.toAmount(newBalance);
     }
     
     private String generatePostingId() {
@@ -1,5 +1,7 @@
 package com.example.transactionprocessor.delegate;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.camunda.bpm.engine.delegate.DelegateExecution;
 import org.camunda.bpm.engine.delegate.JavaDelegate;
 import org.springframework.stereotype.Component;
@@ -7,79 +9,75 @@ import org.springframework.stereotype.Component;
 @Component("paymentValidationDelegate")
 public class PaymentValidationDelegate implements JavaDelegate {
 
+    private static final Logger log = LogManager.getLogger(PaymentValidationDelegate.class);
+
     @Override
     public void execute(DelegateExecution execution) throws Exception {
-        String transactionType = (String) execution.getVariable("transactionType");
-        Object paymentAmount = execution.getVariable("paymentAmount");
-        String customerAccountNumber = (String) execution.getVariable("customerAccountNumber");
-        String customerName = (String) execution.getVariable("customerName");
-        String accountStatus = (String) execution.getVariable("accountStatus");
-        String paymentMethodType = (String) execution.getVariable("paymentMethodType");
-        String bankName = (String) execution.getVariable("bankName");
-        String bankAccountNumber = (String) execution.getVariable("bankAccountNumber");
-        String routingNumber = (String) execution.getVariable("routingNumber");
-        Object minimumPaymentDue = execution.getVariable("minimumPaymentDue");
-        Object currentBalance = execution.getVariable("currentBalance");
+        TransactionVariables variables = TransactionVariables.of(execution);
+        String transactionType = variables.getString("transactionType");
+        Object paymentAmount = variables.get("paymentAmount");
+        String customerAccountNumber = variables.getString("customerAccountNumber");
+        String customerName = variables.getString("customerName");
+        String accountStatus = variables.getString("accountStatus");
+        String paymentMethodType = variables.getString("paymentMethodType");
+        String bankName = variables.getString("bankName");
+        String bankAccountNumber = variables.getString("bankAccountNumber");
+        String routingNumber = variables.getString("routingNumber");
+        Object minimumPaymentDue = variables.get("minimumPaymentDue");
+        Object currentBalance = variables.get("currentBalance");
         
-        System.out.println("=== Payment Validation ===");
-        System.out.println("Transaction Type: " + transactionType);
-        System.out.println("Payment Amount: " + paymentAmount);
-        System.out.println("Customer Account: " + customerAccountNumber);
-        System.out.println("Customer Name: " + customerName);
-        System.out.println("Account Status: " + accountStatus);
-        System.out.println("Payment Method: " + paymentMethodType);
-        System.out.println("Bank: " + bankName);
-        System.out.println("Bank Account: " + bankAccountNumber);
-        System.out.println("Routing Number: " + routingNumber);
-        System.out.println("Current Balance: " + currentBalance);
-        System.out.println("Minimum Payment Due: " + minimumPaymentDue);
+        if (log.isDebugEnabled()) {
+            log.debug("Payment validation: type={}, amount={}, customerAccount={}, customer={}, accountStatus={}",
+                    transactionType, paymentAmount, customerAccountNumber, customerName, accountStatus);
+            log.debug("Payment validation: method={}, bank={}, bankAccount={}, routing={}, balance={}, minimumDue={}",
+                    paymentMethodType, bankName, bankAccountNumber, routingNumber, currentBalance, minimumPaymentDue);
+        }
         
         // Simulate validation logic
-        boolean isValid = performValidation(execution);
+        boolean isValid = performValidation(variables);
         
-        execution.setVariable("validationResult", isValid);
-        execution.setVariable("validationTimestamp", System.currentTimeMillis());
-        execution.setVariable("validationCode", generateValidationCode());
+        variables.set("validationResult", isValid);
+        variables.set("validationTimestamp", System.currentTimeMillis());
+        variables.set("validationCode", generateValidationCode());
+        variables.save();
         
         if (!isValid) {
-            System.out.println("Payment validation FAILED");
-            throw new RuntimeException("Payment validation failed");
+            log.warn("Payment validation FAILED for transaction {}", execution.getBusinessKey());
+            throw new IllegalArgumentException("Payment validation failed");
         }
         
-        System.out.println("Payment Validation completed. Status: " + 
-                          (isValid ? "VALID" : "INVALID"));
-        System.out.println("Validation Code: " + execution.getVariable("validationCode"));
-        System.out.println("==========================");
+        log.info("Payment validation completed for transaction {}. Status: VALID, validation code: {}",
+                execution.getBusinessKey(), variables.get("validationCode"));
     }
     
-    private boolean performValidation(DelegateExecution execution) {
-        String customerName = (String) execution.getVariable("customerName");
-        String accountStatus = (String) execution.getVariable("accountStatus");
-        String bankName = (String) execution.getVariable("bankName");
-        String routingNumber = (String) execution.getVariable("routingNumber");
-        Object paymentAmount = execution.getVariable("paymentAmount");
-        Object minimumPaymentDue = execution.getVariable("minimumPaymentDue");
+    private boolean performValidation(TransactionVariables variables) {
+        String customerName = variables.getString("customerName");
+        String accountStatus = variables.getString("accountStatus");
+        String bankName = variables.getString("bankName");
+        String routingNumber = variables.getString("routingNumber");
+        Object paymentAmount = variables.get("paymentAmount");
+        Object minimumPaymentDue = variables.get("minimumPaymentDue");
         
         // Validate customer account status
         if (!"ACTIVE".equalsIgnoreCase(accountStatus)) {
-            System.out.println("Validation failed: Account is not active. Status: " + accountStatus);
+            log.warn("Validation failed: Account is not active. Status: {}", accountStatus);
             return false;
         }
         
         // Validate customer name
         if (customerName == null || customerName.trim().isEmpty()) {
-            System.out.println("Validation failed: Invalid customer name");
+            log.warn("Validation failed: Invalid customer name");
             return false;
         }
         
         // Validate bank details
         if (bankName == null || bankName.trim().isEmpty()) {
-            System.out.println("Validation failed: Invalid bank name");
+            log.warn("Validation failed: Invalid bank name");
             return false;
         }
         
         if (routingNumber == null || routingNumber.trim().isEmpty() || routingNumber.length() != 9) {
-            System.out.println("Validation failed: Invalid routing number");
+            log.warn("Validation failed: Invalid routing number");
             return false;
         }
         
@@ -90,21 +88,21 @@ public class PaymentValidationDelegate implements JavaDelegate {
                 double minPayment = Double.parseDouble(minimumPaymentDue.toString());
                 
                 if (paymentAmt <= 0) {
-                    System.out.println("Validation failed: Payment amount must be positive");
+                    log.warn("Validation failed: Payment amount must be positive");
                     return false;
                 }
                 
                 if (paymentAmt < minPayment) {
-                    System.out.println("Validation warning: Payment amount is less than minimum payment due");
+                    log.warn("Validation warning: Payment amount {} is less than minimum payment due {}", paymentAmt, minPayment);
                     // Allow but log warning
                 }
             } catch (NumberFormatException e) {
-                System.out.println("Validation failed: Invalid payment amount format");
+                log.warn("Validation failed: Invalid payment amount format");
                 return false;
             }
         }
         
-        System.out.println("Payment validation checks passed");
+        log.debug("Payment validation checks passed");
         return true;
     }
     
@@ -1,58 +1,86 @@
 package com.example.transactionprocessor.delegate;
 
+import com.example.transactionprocessor.ledger.AccountLedger;
+import com.example.transactionprocessor.ledger.CreditAuthorizer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.camunda.bpm.engine.delegate.DelegateExecution;
 import org.camunda.bpm.engine.delegate.JavaDelegate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 @Component("purchaseAuthorizationDelegate")
 public class PurchaseAuthorizationDelegate implements JavaDelegate {
 
+    private static final Logger log = LogManager.getLogger(PurchaseAuthorizationDelegate.class);
+
+    @Autowired
+    private CreditAuthorizer creditAuthorizer;
+
+    @Value("${transaction-processor.fraud.decline-score:60}")
+    private int fraudDeclineScore;
+
     @Override
     public void execute(DelegateExecution execution) throws Exception {
-        String transactionType = (String) execution.getVariable("transactionType");
-        Object amount = execution.getVariable("amount");
-        String cardHolderName = (String) execution.getVariable("cardHolderName");
-        String creditCardNumber = (String) execution.getVariable("creditCardNumber");
-        String vendorName = (String) execution.getVariable("vendorName");
-        String vendorLocation = (String) execution.getVariable("vendorLocation");
-        
-        System.out.println("=== Purchase Authorization ===");
-        System.out.println("Transaction Type: " + transactionType);
-        System.out.println("Amount: " + amount);
-        System.out.println("Card Holder: " + cardHolderName);
-        System.out.println("Card Number: " + creditCardNumber);
-        System.out.println("Vendor: " + vendorName + " at " + vendorLocation);
-        
-        // Simulate authorization logic
-        boolean authorized = performAuthorization(execution);
-        
-        execution.setVariable("authorized", authorized);
-        execution.setVariable("authorizationTimestamp", System.currentTimeMillis());
-        execution.setVariable("authorizationCode", generateAuthorizationCode());
-        
-        System.out.println("Purchase Authorization completed. Status: " + 
-                          (authorized ? "APPROVED" : "DENIED"));
-        System.out.println("Authorization Code: " + execution.getVariable("authorizationCode"));
-        System.out.println("===============================");
+        TransactionVariables variables = TransactionVariables.of(execution);
+        String transactionType = variables.getString("transactionType");
+        Object amount = variables.get("amount");
+        String cardHolderName = variables.getString("cardHolderName");
+        String creditCardNumber = variables.getString("creditCardNumber");
+        String vendorName = variables.getString("vendorName");
+        String vendorLocation = variables.getString("vendorLocation");
+        
+        log.debug("Purchase authorization: type={}, amount={}, cardHolder={}, card={}, vendor={} at {}",
+                transactionType, amount, cardHolderName, creditCardNumber, vendorName, vendorLocation);
+        
+        boolean authorized = performAuthorization(transactionId(execution), variables);
+        
+        variables.set("authorized", authorized);
+        if (variables.getString("cardToken") != null) {
+            variables.set("openToBuy", AccountLedger.toAmount(creditAuthorizer.getOpenToBuy(variables.getString("cardToken"))));
+        }
+        variables.set("authorizationTimestamp", System.currentTimeMillis());
+        variables.set("authorizationCode", generateAuthorizationCode());
+        variables.save();
+        
+        log.info("Purchase authorization completed for transaction {}. Status: {}, authorization code: {}",
+                execution.getBusinessKey(), authorized ? "APPROVED" : "DENIED", variables.get("authorizationCode"));
     }
     
-    private boolean performAuthorization(DelegateExecution execution) {
-        Object amount = execution.getVariable("amount");
-        String cardType = (String) execution.getVariable("cardType");
+    /**
+     * Holds the amount against the card's open-to-buy; declined when the card's
+     * credit limit, less its balance and other holds, does not cover it, or when
+     * an earlier fraudCheck task scored the transaction at the decline score or above.
+     */
+    private boolean performAuthorization(String transactionId, TransactionVariables variables) {
+        String cardToken = variables.getString("cardToken");
+        String cardType = variables.getString("cardType");
+        
+        if (cardToken == null) {
+            log.warn("Purchase carries no card, authorization declined");
+            return false;
+        }
         
-        // Simulate authorization logic based on amount and card type
-        if (amount != null && amount.toString().contains("10000")) {
-            return false; // Deny high amounts for demo
+        Integer fraudScore = variables.getInteger("fraudScore");
+        if (fraudScore != null && fraudScore >= fraudDeclineScore) {
+            log.warn("Purchase declined on fraud score {} (flags {})", fraudScore, variables.getString("fraudFlags"));
+            return false;
         }
         
         if ("DEBIT".equalsIgnoreCase(cardType)) {
             // Additional checks for debit cards
-            System.out.println("Performing additional debit card verification");
+            log.debug("Performing additional debit card verification");
         }
         
-        return true; // Approve for demo
+        return creditAuthorizer.authorize(transactionId, cardToken, AccountLedger.toCents(variables.get("amount")));
     }
     
+    static String transactionId(DelegateExecution execution) {
+        // Processes started through the legacy endpoint have no business key
+        return execution.getBusinessKey() != null ? execution.getBusinessKey() : execution.getProcessInstanceId();
+    }
+
     private String generateAuthorizationCode() {
         return "AUTH" + System.currentTimeMillis() % 1000000;
     }
@@ -1,62 +1,95 @@
 package com.example.transactionprocessor.delegate;
 
+import com.example.transactionprocessor.ledger.AccountLedger;
+import com.example.transactionprocessor.ledger.CreditAuthorizer;
+import com.example.transactionprocessor.model.SettlementEntry;
+import com.example.transactionprocessor.settlement.SettlementBatcher;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.camunda.bpm.engine.delegate.DelegateExecution;
 import org.camunda.bpm.engine.delegate.JavaDelegate;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.math.BigDecimal;
+import java.time.Instant;
+
 @Component("purchaseSettlementDelegate")
 public class PurchaseSettlementDelegate implements JavaDelegate {
 
+    private static final Logger log = LogManager.getLogger(PurchaseSettlementDelegate.class);
+
+    private static final String UNKNOWN_DESTINATION = "UNKNOWN";
+
+    @Autowired
+    private CreditAuthorizer creditAuthorizer;
+
+    @Autowired
+    private SettlementBatcher settlementBatcher;
+
     @Override
     public void execute(DelegateExecution execution) throws Exception {
-        String transactionType = (String) execution.getVariable("transactionType");
-        Boolean authorized = (Boolean) execution.getVariable("authorized");
-        Object amount = execution.getVariable("amount");
-        String authorizationCode = (String) execution.getVariable("authorizationCode");
-        String vendorName = (String) execution.getVariable("vendorName");
-        String referenceNumber = (String) execution.getVariable("referenceNumber");
+        TransactionVariables variables = TransactionVariables.of(execution);
+        String transactionType = variables.getString("transactionType");
+        Boolean authorized = variables.getBoolean("authorized");
+        Object amount = variables.get("amount");
+        String authorizationCode = variables.getString("authorizationCode");
+        String vendorName = variables.getString("vendorName");
+        String referenceNumber = variables.getString("referenceNumber");
         
-        System.out.println("=== Purchase Settlement ===");
-        System.out.println("Transaction Type: " + transactionType);
-        System.out.println("Amount: " + amount);
-        System.out.println("Authorization Code: " + authorizationCode);
-        System.out.println("Vendor: " + vendorName);
-        System.out.println("Reference: " + referenceNumber);
+        log.debug("Purchase settlement: type={}, amount={}, authorizationCode={}, vendor={}, reference={}",
+                transactionType, amount, authorizationCode, vendorName, referenceNumber);
         
         if (authorized == null || !authorized) {
-            System.out.println("Settlement FAILED: Transaction not authorized");
+            log.warn("Settlement FAILED for transaction {}: Transaction not authorized", execution.getBusinessKey());
             throw new RuntimeException("Cannot settle unauthorized transaction");
         }
         
-        // Simulate settlement logic
-        String settlementResult = performSettlement(execution);
+        String settlementResult = performSettlement(execution, variables);
         
-        execution.setVariable("settlementStatus", settlementResult);
-        execution.setVariable("settlementTimestamp", System.currentTimeMillis());
-        execution.setVariable("settlementId", generateSettlementId());
+        variables.set("settlementStatus", settlementResult);
+        variables.set("newBalance", settleHold(PurchaseAuthorizationDelegate.transactionId(execution), settlementResult));
+        variables.set("settlementTimestamp", System.currentTimeMillis());
+        variables.set("settlementId", generateSettlementId());
+        variables.save();
         
-        System.out.println("Purchase Settlement completed. Status: " + settlementResult);
-        System.out.println("Settlement ID: " + execution.getVariable("settlementId"));
-        System.out.println("===========================");
+        log.info("Purchase settlement completed for transaction {}. Status: {}, settlement ID: {}",
+                execution.getBusinessKey(), settlementResult, variables.get("settlementId"));
     }
     
-    private String performSettlement(DelegateExecution execution) {
-        Object amount = execution.getVariable("amount");
-        String vendorName = (String) execution.getVariable("vendorName");
-        
-        // Simulate settlement logic - check if vendor is active, process funds transfer
-        System.out.println("Processing funds transfer of " + amount + " to " + vendorName);
-        
-        // Simulate some settlement processing time
-        try {
-            Thread.sleep(100);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
-        
+    /**
+     * Queues the payout to the vendor for its next settlement batch; the
+     * transfer itself happens after this transaction commits.
+     */
+    private String performSettlement(DelegateExecution execution, TransactionVariables variables) {
+        Object amount = variables.get("amount");
+        String vendorName = variables.getString("vendorName");
+
+        log.debug("Queueing funds transfer of {} to {}", amount, vendorName);
+        settlementBatcher.enqueue(new SettlementEntry(PurchaseAuthorizationDelegate.transactionId(execution),
+                variables.getString("transactionType"), variables.getString("referenceNumber"),
+                SettlementEntry.DESTINATION_VENDOR, vendorName != null ? vendorName : UNKNOWN_DESTINATION,
+                AccountLedger.toCents(amount), Instant.now()));
+
         return "SETTLED";
     }
     
+    /**
+     * Turns the authorization hold into a posting on the card's balance, or
+     * releases it when the funds were not settled.
+     */
+    private BigDecimal settleHold(String transactionId, String settlementResult) {
+        if (!"SETTLED".equals(settlementResult)) {
+            creditAuthorizer.release(transactionId);
+            return null;
+        }
+        Long newBalance = creditAuthorizer.settle(transactionId);
+        if (newBalance == null) {
+            throw new RuntimeException("Cannot settle transaction without an authorization hold");
+        }
+        return AccountLedger.toAmount(newBalance);
+    }
+
     private String generateSettlementId() {
         return "SETTLE" + System.currentTimeMillis() % 1000000;
     }
@@ -0,0 +1,256 @@
+package com.example.transactionprocessor.delegate;
+
+import com.example.transactionprocessor.metrics.TransactionMetrics;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.camunda.bpm.engine.delegate.DelegateExecution;
+import org.camunda.bpm.engine.delegate.JavaDelegate;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs the tasks of one parallel {@link TaskFlowPlan.Stage} on a shared executor.
+ * A stage either completes as a whole or fails fast: the first failing task, a
+ * rejected submission or the stage timeout cancels every sibling that is still
+ * running, and no variable written by the stage reaches the execution. The
+ * stage only fails once every cancelled task that had started has returned, so
+ * a posting or hold it completes after the cancellation is still undone.
+ * <p>
+ * Tasks read only the variables they ask for, served on the engine thread
+ * while it waits for the stage (see {@link StageVariables}). Transaction
+ * synchronizations a task registers are moved onto the engine thread's
+ * transaction (see {@link ParallelTaskExecution}), so ledger and authorization
+ * holds are still undone on rollback and after-commit hand-offs wait for the
+ * commit. Database writes a delegate makes directly on its task thread are not
+ * part of that transaction; delegates defer them to a synchronization instead,
+ * as {@code SettlementBatcher#enqueue} does.
+ */
+public class StageExecutor {
+
+    private static final Logger log = LogManager.getLogger(StageExecutor.class);
+
+    private final ExecutorService executorService;
+    private final long stageTimeoutMillis;
+    private final TransactionMetrics transactionMetrics;
+
+    private final AtomicLong rejectedTasks = new AtomicLong();
+    private final AtomicLong timedOutStages = new AtomicLong();
+
+    public StageExecutor(ExecutorService executorService, long stageTimeoutMillis) {
+        this(executorService, stageTimeoutMillis, TransactionMetrics.noop());
+    }
+
+    public StageExecutor(ExecutorService executorService, long stageTimeoutMillis, TransactionMetrics transactionMetrics) {
+        this.executorService = executorService;
+        this.stageTimeoutMillis = stageTimeoutMillis;
+        this.transactionMetrics = transactionMetrics;
+    }
+
+    public void executeStage(TaskFlowPlan.Stage stage, DelegateExecution execution) throws Exception {
+        int size = stage.size();
+        StageVariables variables = new StageVariables(execution);
+        String transactionType = (String) execution.getVariable("transactionType");
+        boolean deferSynchronizations = TransactionSynchronizationManager.isSynchronizationActive();
+        ParallelTaskExecution[] taskExecutions = new ParallelTaskExecution[size];
+        StageTask[] tasks = new StageTask[size];
+
+        try {
+            for (int i = 0; i < size; i++) {
+                String taskName = stage.getTaskName(i);
+                JavaDelegate delegate = stage.getDelegate(i);
+                ParallelTaskExecution taskExecution = ParallelTaskExecution.create(execution, variables);
+                taskExecutions[i] = taskExecution;
+                long submittedNanos = System.nanoTime();
+                tasks[i] = submit(variables, taskName, () -> {
+                    transactionMetrics.recordQueueWait(System.nanoTime() - submittedNanos);
+                    runTask(taskName, delegate, taskExecution, transactionType, deferSynchronizations);
+                    return taskName;
+                });
+            }
+
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(stageTimeoutMillis);
+            for (int completed = 0; completed < size; completed++) {
+                Future<?> done = variables.awaitCompletion(deadline - System.nanoTime());
+                if (done == null) {
+                    timedOutStages.incrementAndGet();
+                    throw new TimeoutException("Stage " + stage + " did not complete within " + stageTimeoutMillis + " ms");
+                }
+                done.get();
+            }
+        } catch (ExecutionException e) {
+            cancel(tasks, variables);
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : new RuntimeException(cause);
+        } catch (Exception e) {
+            cancel(tasks, variables);
+            throw e;
+        } finally {
+            // Side effects of finished tasks are undone or handed off with the engine transaction
+            for (ParallelTaskExecution taskExecution : taskExecutions) {
+                if (taskExecution != null) {
+                    taskExecution.registerSynchronizations();
+                }
+            }
+        }
+
+        // Every task succeeded; publish their writes on the engine thread in plan order
+        for (ParallelTaskExecution taskExecution : taskExecutions) {
+            taskExecution.applyTo(execution);
+        }
+    }
+
+    private StageTask submit(StageVariables variables, String taskName, Callable<String> task) {
+        StageTask future = new StageTask(variables, task);
+        try {
+            executorService.execute(future);
+            return future;
+        } catch (RejectedExecutionException e) {
+            rejectedTasks.incrementAndGet();
+            throw new RejectedExecutionException("Stage executor saturated, rejected task: " + taskName, e);
+        }
+    }
+
+    private void runTask(String taskName, JavaDelegate delegate, ParallelTaskExecution taskExecution,
+                         String transactionType, boolean deferSynchronizations) throws Exception {
+        if (delegate == null) {
+            log.warn("No delegate found for task: {} - simulating execution", taskName);
+            return;
+        }
+        DelegateExecution execution = taskExecution.asExecution();
+        long startNanos = System.nanoTime();
+        try {
+            taskExecution.execute(delegate, execution, deferSynchronizations);
+            transactionMetrics.recordTask(taskName, transactionType, TaskOutcomes.of(taskName, execution),
+                    System.nanoTime() - startNanos);
+            log.debug("Completed parallel task: {}", taskName);
+        } catch (Exception e) {
+            transactionMetrics.recordTask(taskName, transactionType, TaskOutcomes.ERROR, System.nanoTime() - startNanos);
+            log.error("Error executing parallel task: {} - {}", taskName, e.getMessage());
+            throw e;
+        }
+    }
+
+    /**
+     * Cancels the unfinished tasks and waits, serving their reads, until every
+     * task body that started has returned and collected its synchronizations.
+     */
+    private void cancel(StageTask[] tasks, StageVariables variables) {
+        for (StageTask task : tasks) {
+            if (task != null) {
+                task.cancel(true);
+                task.abandon();
+            }
+        }
+        variables.awaitExits(() -> {
+            for (StageTask task : tasks) {
+                if (task != null && !task.exited) {
+                    return false;
+                }
+            }
+            return true;
+        });
+    }
+
+    public void shutdown() {
+        executorService.shutdown();
+    }
+
+    public ExecutorService getExecutorService() {
+        return executorService;
+    }
+
+    /**
+     * Tasks submitted but not yet picked up by a worker thread.
+     */
+    public long getQueueDepth() {
+        if (executorService instanceof ThreadPoolExecutor) {
+            return ((ThreadPoolExecutor) executorService).getQueue().size();
+        }
+        if (executorService instanceof ForkJoinPool) {
+            ForkJoinPool pool = (ForkJoinPool) executorService;
+            return pool.getQueuedSubmissionCount() + pool.getQueuedTaskCount();
+        }
+        return 0;
+    }
+
+    /**
+     * Worker threads currently running a task.
+     */
+    public int getActiveCount() {
+        if (executorService instanceof ThreadPoolExecutor) {
+            return ((ThreadPoolExecutor) executorService).getActiveCount();
+        }
+        if (executorService instanceof ForkJoinPool) {
+            return ((ForkJoinPool) executorService).getActiveThreadCount();
+        }
+        return 0;
+    }
+
+    public long getRejectedCount() {
+        return rejectedTasks.get();
+    }
+
+    public long getTimedOutStageCount() {
+        return timedOutStages.get();
+    }
+
+    public long getStageTimeoutMillis() {
+        return stageTimeoutMillis;
+    }
+
+    /**
+     * A task that reports its completion to the stage and, separately, when its
+     * body has returned: a cancelled {@link FutureTask} is done as soon as it
+     * is cancelled, while its body may still be running.
+     */
+    private static final class StageTask extends FutureTask<String> {
+
+        private final StageVariables variables;
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        private volatile boolean exited;
+
+        private StageTask(StageVariables variables, Callable<String> task) {
+            super(task);
+            this.variables = variables;
+        }
+
+        @Override
+        public void run() {
+            if (!claimed.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                super.run();
+            } finally {
+                exited = true;
+                variables.exited();
+            }
+        }
+
+        /**
+         * Keeps a task that has not started from ever running.
+         */
+        private void abandon() {
+            if (claimed.compareAndSet(false, true)) {
+                exited = true;
+            }
+        }
+
+        @Override
+        protected void done() {
+            variables.complete(this);
+        }
+    }
+}
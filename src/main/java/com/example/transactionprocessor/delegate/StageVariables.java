@@ -0,0 +1,168 @@
+package com.example.transactionprocessor.delegate;
+
+import org.camunda.bpm.engine.delegate.DelegateExecution;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * The variables of one parallel stage, read through to the execution on the
+ * engine thread. A task asking for a variable the stage has not read yet posts
+ * the read to the engine thread, which serves it while it waits for the tasks
+ * in {@link #awaitCompletion}; each value is then cached for the siblings. Only
+ * the variables the stage actually reads are fetched, and the full map only if
+ * a task asks for all of them.
+ */
+final class StageVariables {
+
+    private static final Object ABSENT = new Object();
+    private static final Object NULL = new Object();
+    private static final Object EXITED = new Object();
+
+    private final DelegateExecution execution;
+    private final Map<String, Object> values = new ConcurrentHashMap<>();
+    private final BlockingQueue<Object> events = new LinkedBlockingQueue<>();
+    private volatile Map<String, Object> all;
+
+    StageVariables(DelegateExecution execution) {
+        this.execution = execution;
+    }
+
+    /**
+     * Task thread: the value, or {@code null} if the execution has no such variable.
+     */
+    Object get(String name) {
+        Object value = lookup(name);
+        return value != ABSENT && value != NULL ? value : null;
+    }
+
+    /**
+     * Task thread: whether the execution has the variable, even with a {@code null} value.
+     */
+    boolean has(String name) {
+        return lookup(name) != ABSENT;
+    }
+
+    /**
+     * Task thread: every variable of the execution.
+     */
+    Map<String, Object> getAll() {
+        Map<String, Object> variables = all;
+        if (variables == null) {
+            request(null);
+            variables = all;
+        }
+        return variables;
+    }
+
+    /**
+     * Task thread: hands a finished task to {@link #awaitCompletion}.
+     */
+    void complete(Future<?> task) {
+        events.add(task);
+    }
+
+    /**
+     * Task thread: the task body has returned, after {@link #complete} if it was cancelled.
+     */
+    void exited() {
+        events.add(EXITED);
+    }
+
+    /**
+     * Engine thread: serves reads until a task completes.
+     *
+     * @return the completed task, or {@code null} if none completed within the timeout
+     */
+    Future<?> awaitCompletion(long timeoutNanos) throws InterruptedException {
+        long deadline = System.nanoTime() + timeoutNanos;
+        while (true) {
+            Object event = events.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            if (event == null || event instanceof Future) {
+                return (Future<?>) event;
+            }
+            if (event instanceof Read) {
+                ((Read) event).serve();
+            }
+        }
+    }
+
+    /**
+     * Engine thread: serves reads until {@code exited} holds, re-checking it
+     * whenever a task body has {@link #exited}. Interrupts are deferred until
+     * then, so a cancelled task is always waited for.
+     */
+    void awaitExits(BooleanSupplier exited) {
+        boolean interrupted = false;
+        while (!exited.getAsBoolean()) {
+            Object event;
+            try {
+                event = events.take();
+            } catch (InterruptedException e) {
+                interrupted = true;
+                continue;
+            }
+            if (event instanceof Read) {
+                ((Read) event).serve();
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Object lookup(String name) {
+        Object value = values.get(name);
+        if (value == null) {
+            request(name);
+            value = values.getOrDefault(name, ABSENT);
+        }
+        return value;
+    }
+
+    private void request(String name) {
+        Read read = new Read(name);
+        events.add(read);
+        try {
+            read.served.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Stage cancelled while reading " + (name != null ? name : "variables"));
+        }
+    }
+
+    private final class Read {
+        /**
+         * {@code null} to read every variable.
+         */
+        private final String name;
+        private final CountDownLatch served = new CountDownLatch(1);
+
+        private Read(String name) {
+            this.name = name;
+        }
+
+        private void serve() {
+            try {
+                if (name == null) {
+                    Map<String, Object> variables = new HashMap<>(execution.getVariables());
+                    variables.forEach((key, value) -> values.put(key, value != null ? value : NULL));
+                    all = variables;
+                } else if (!values.containsKey(name)) {
+                    Object value = execution.getVariable(name);
+                    values.put(name, value != null ? value : execution.hasVariable(name) ? NULL : ABSENT);
+                }
+            } finally {
+                served.countDown();
+            }
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.transactionprocessor.delegate;
+
+import org.camunda.bpm.engine.delegate.JavaDelegate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Pre-parsed form of a DMN task flow such as {@code "authorize,settle"} or
+ * {@code "validate,[fraudCheck|limitCheck],post"}. Task names are split,
+ * normalised and resolved to their {@link JavaDelegate} beans once, so routing
+ * a transaction only walks the stage array.
+ * <p>
+ * Stages are separated by commas and run in order, each depending on every
+ * stage before it. A bracketed group {@code [a|b|c]} is one parallel stage whose
+ * tasks run concurrently and must all complete before the next stage starts.
+ * The older {@code parallel:} prefix is still accepted: consecutive
+ * {@code parallel:} tasks are grouped into one parallel stage.
+ */
+public final class TaskFlowPlan {
+
+    private static final String PARALLEL_PREFIX = "parallel:";
+
+    private final String taskFlow;
+    private final Stage[] stages;
+    private final List<String> taskNames;
+
+    private TaskFlowPlan(String taskFlow, Stage[] stages) {
+        this.taskFlow = taskFlow;
+        this.stages = stages;
+        List<String> taskNames = new ArrayList<>();
+        for (Stage stage : stages) {
+            for (int i = 0; i < stage.size(); i++) {
+                if (stage.getDelegate(i) != null) {
+                    taskNames.add(stage.getTaskName(i));
+                }
+            }
+        }
+        this.taskNames = Collections.unmodifiableList(taskNames);
+    }
+
+    public static TaskFlowPlan compile(String taskFlow, Function<String, JavaDelegate> delegateResolver) {
+        if (taskFlow == null || taskFlow.trim().isEmpty()) {
+            throw new IllegalArgumentException("Task flow cannot be null or empty");
+        }
+
+        List<Stage> stages = new ArrayList<>();
+        List<String> parallelGroup = new ArrayList<>();
+        int position = 0;
+        while (position < taskFlow.length()) {
+            char current = taskFlow.charAt(position);
+            if (current == ',' || Character.isWhitespace(current)) {
+                position++;
+                continue;
+            }
+
+            if (current == '[') {
+                int close = taskFlow.indexOf(']', position);
+                if (close < 0) {
+                    throw new IllegalArgumentException("Unclosed parallel group in task flow: " + taskFlow);
+                }
+                flushParallelGroup(parallelGroup, stages, delegateResolver);
+                List<String> group = splitGroup(taskFlow.substring(position + 1, close));
+                if (!group.isEmpty()) {
+                    stages.add(Stage.of(group, group.size() > 1, delegateResolver));
+                }
+                position = close + 1;
+                continue;
+            }
+
+            int end = taskFlow.indexOf(',', position);
+            if (end < 0) {
+                end = taskFlow.length();
+            }
+            String task = taskFlow.substring(position, end).trim();
+            position = end;
+            if (task.indexOf('[') >= 0 || task.indexOf(']') >= 0 || task.indexOf('|') >= 0) {
+                throw new IllegalArgumentException("Malformed task '" + task + "' in task flow: " + taskFlow);
+            }
+            if (task.startsWith(PARALLEL_PREFIX)) {
+                parallelGroup.add(task.substring(PARALLEL_PREFIX.length()).trim());
+                continue;
+            }
+            flushParallelGroup(parallelGroup, stages, delegateResolver);
+            stages.add(Stage.of(List.of(task), false, delegateResolver));
+        }
+        flushParallelGroup(parallelGroup, stages, delegateResolver);
+
+        if (stages.isEmpty()) {
+            throw new IllegalArgumentException("Task flow contains no tasks: " + taskFlow);
+        }
+        return new TaskFlowPlan(taskFlow, stages.toArray(new Stage[0]));
+    }
+
+    private static List<String> splitGroup(String group) {
+        List<String> tasks = new ArrayList<>();
+        for (String token : group.split("[|,]")) {
+            String task = token.trim();
+            if (!task.isEmpty()) {
+                tasks.add(task);
+            }
+        }
+        return tasks;
+    }
+
+    private static void flushParallelGroup(List<String> parallelGroup, List<Stage> stages,
+                                           Function<String, JavaDelegate> delegateResolver) {
+        if (!parallelGroup.isEmpty()) {
+            stages.add(Stage.of(parallelGroup, true, delegateResolver));
+            parallelGroup.clear();
+        }
+    }
+
+    public String getTaskFlow() {
+        return taskFlow;
+    }
+
+    public Stage[] getStages() {
+        return stages;
+    }
+
+    /**
+     * @return the tasks that have a delegate, in stage order with the tasks of a
+     * parallel stage in group order; used as the external task topics of the flow
+     */
+    public List<String> getTaskNames() {
+        return taskNames;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder description = new StringBuilder("TaskFlowPlan{");
+        for (int i = 0; i < stages.length; i++) {
+            if (i > 0) {
+                description.append(" -> ");
+            }
+            description.append(stages[i]);
+        }
+        return description.append('}').toString();
+    }
+
+    public static final class Stage {
+        private final String[] taskNames;
+        private final JavaDelegate[] delegates;
+        private final boolean parallel;
+
+        private Stage(String[] taskNames, JavaDelegate[] delegates, boolean parallel) {
+            this.taskNames = taskNames;
+            this.delegates = delegates;
+            this.parallel = parallel;
+        }
+
+        private static Stage of(List<String> tasks, boolean parallel, Function<String, JavaDelegate> delegateResolver) {
+            String[] taskNames = tasks.toArray(new String[0]);
+            JavaDelegate[] delegates = new JavaDelegate[taskNames.length];
+            for (int i = 0; i < taskNames.length; i++) {
+                delegates[i] = delegateResolver.apply(taskNames[i]);
+            }
+            return new Stage(taskNames, delegates, parallel);
+        }
+
+        public int size() {
+            return taskNames.length;
+        }
+
+        public String getTaskName(int index) {
+            return taskNames[index];
+        }
+
+        /**
+         * @return the resolved delegate, or {@code null} when no bean exists for the task
+         */
+        public JavaDelegate getDelegate(int index) {
+            return delegates[index];
+        }
+
+        public boolean isParallel() {
+            return parallel;
+        }
+
+        @Override
+        public String toString() {
+            return parallel ? "[" + String.join("|", taskNames) + "]" : taskNames[0];
+        }
+    }
+}
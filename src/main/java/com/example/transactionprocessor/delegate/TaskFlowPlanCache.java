@@ -0,0 +1,130 @@
+package com.example.transactionprocessor.delegate;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.camunda.bpm.engine.delegate.JavaDelegate;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+
+/**
+ * Holds one compiled {@link TaskFlowPlan} per distinct task flow string. Plans
+ * for the flows produced by the deployed {@code DeterminePath} decision are
+ * compiled when the application is ready; flows seen for the first time at
+ * runtime are compiled lazily. A DMN redeployment replaces the known flows and
+ * drops every cached plan.
+ * <p>
+ * Delegate beans are looked up once per task name and kept, for plans and for
+ * the single tasks run by the external task worker and the straight-through
+ * path alike; a task without a bean is remembered as such.
+ */
+@Component
+public class TaskFlowPlanCache {
+
+    private static final Logger log = LogManager.getLogger(TaskFlowPlanCache.class);
+
+    private final ApplicationContext applicationContext;
+
+    private final Map<String, TaskFlowPlan> plans = new ConcurrentHashMap<>();
+    private final Map<String, Optional<JavaDelegate>> delegates = new ConcurrentHashMap<>();
+    private final Function<String, Optional<JavaDelegate>> delegateResolver = this::resolveDelegate;
+    private final List<String> decisionFlows = new CopyOnWriteArrayList<>();
+    private final Function<String, TaskFlowPlan> compiler = this::compile;
+    private volatile boolean applicationReady;
+
+    public TaskFlowPlanCache(ApplicationContext applicationContext) {
+        this.applicationContext = applicationContext;
+    }
+
+    public TaskFlowPlan getPlan(String taskFlow) {
+        if (taskFlow == null || taskFlow.isEmpty()) {
+            throw new IllegalArgumentException("Task flow cannot be null or empty");
+        }
+        TaskFlowPlan plan = plans.get(taskFlow);
+        return plan != null ? plan : plans.computeIfAbsent(taskFlow, compiler);
+    }
+
+    /**
+     * Called whenever the routing decision is (re)deployed with the task flows its
+     * rules can produce.
+     */
+    public void onDecisionDeployed(Collection<String> taskFlows) {
+        decisionFlows.clear();
+        decisionFlows.addAll(taskFlows);
+        plans.clear();
+        log.info("Task flow plans invalidated, decision flows: {}", taskFlows);
+        if (applicationReady) {
+            precompile();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        applicationReady = true;
+        precompile();
+    }
+
+    /**
+     * @return the delegate bean of a single task, or {@code null} when there is none
+     */
+    public JavaDelegate getDelegate(String taskName) {
+        Optional<JavaDelegate> delegate = delegates.get(taskName);
+        if (delegate == null) {
+            delegate = delegates.computeIfAbsent(taskName, delegateResolver);
+        }
+        return delegate.orElse(null);
+    }
+
+    public int size() {
+        return plans.size();
+    }
+
+    private void precompile() {
+        for (String taskFlow : decisionFlows) {
+            TaskFlowPlan plan = getPlan(taskFlow);
+            log.info("Compiled task flow '{}' to {}", taskFlow, plan);
+        }
+    }
+
+    private TaskFlowPlan compile(String taskFlow) {
+        return TaskFlowPlan.compile(taskFlow, this::getDelegate);
+    }
+
+    private Optional<JavaDelegate> resolveDelegate(String taskName) {
+        try {
+            String beanName = mapTaskNameToBean(taskName);
+            return Optional.ofNullable(applicationContext.getBean(beanName, JavaDelegate.class));
+        } catch (Exception e) {
+            log.debug("Delegate not found for task: {}", taskName);
+            return Optional.empty();
+        }
+    }
+
+    private String mapTaskNameToBean(String taskName) {
+        switch (taskName.toLowerCase()) {
+            case "authorize":
+                return "purchaseAuthorizationDelegate";
+            case "settle":
+                return "purchaseSettlementDelegate";
+            case "validate":
+                return "paymentValidationDelegate";
+            case "post":
+                return "paymentPostingDelegate";
+            case "review":
+                return "adjustmentReviewDelegate";
+            case "apply":
+                return "adjustmentApplyDelegate";
+            default:
+                return taskName + "Delegate";
+        }
+    }
+}
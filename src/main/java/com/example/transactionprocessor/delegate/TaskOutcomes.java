@@ -0,0 +1,56 @@
+package com.example.transactionprocessor.delegate;
+
+import org.camunda.bpm.engine.delegate.DelegateExecution;
+
+/**
+ * Reads the business outcome a task left behind, for use as a metric tag:
+ * {@code APPROVED}/{@code DENIED} for yes/no decisions, the task's status
+ * value (e.g. {@code SETTLED}, {@code PENDING_MANUAL_REVIEW}) otherwise.
+ */
+final class TaskOutcomes {
+
+    static final String ERROR = "ERROR";
+    static final String COMPLETED = "COMPLETED";
+
+    private TaskOutcomes() {
+    }
+
+    static String of(String taskName, DelegateExecution execution) {
+        switch (taskName) {
+            case "authorize":
+                return approval(TransactionVariables.read(execution, "authorized"));
+            case "settle":
+                return status(TransactionVariables.read(execution, "settlementStatus"));
+            case "validate":
+                return approval(TransactionVariables.read(execution, "validationResult"));
+            case "post":
+                return status(TransactionVariables.read(execution, "postingStatus"));
+            case "review":
+                return status(TransactionVariables.read(execution, "reviewStatus"));
+            case "apply":
+                return status(TransactionVariables.read(execution, "applyStatus"));
+            case "fraudCheck":
+                return flagged(TransactionVariables.read(execution, "fraudFlags"));
+            default:
+                return COMPLETED;
+        }
+    }
+
+    private static String approval(Object value) {
+        if (value == null) {
+            return COMPLETED;
+        }
+        return Boolean.TRUE.equals(value) ? "APPROVED" : "DENIED";
+    }
+
+    private static String flagged(Object value) {
+        if (value == null) {
+            return COMPLETED;
+        }
+        return value.toString().isEmpty() ? "CLEAR" : "FLAGGED";
+    }
+
+    private static String status(Object value) {
+        return value != null ? value.toString() : COMPLETED;
+    }
+}
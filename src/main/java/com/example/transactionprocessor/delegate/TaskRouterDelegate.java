@@ -1,130 +1,82 @@
 package com.example.transactionprocessor.delegate;
 
+import com.example.transactionprocessor.metrics.TransactionMetrics;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.camunda.bpm.engine.delegate.DelegateExecution;
 import org.camunda.bpm.engine.delegate.JavaDelegate;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.context.ApplicationContext;
 import org.springframework.stereotype.Component;
 
-import java.util.Arrays;
-import java.util.List;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-
 @Component("taskRouterDelegate")
 public class TaskRouterDelegate implements JavaDelegate {
 
+    private static final Logger log = LogManager.getLogger(TaskRouterDelegate.class);
+
     @Autowired
-    private ApplicationContext applicationContext;
+    private TaskFlowPlanCache taskFlowPlanCache;
 
-    private final ExecutorService executorService = Executors.newFixedThreadPool(4);
+    @Autowired
+    private StageExecutor stageExecutor;
+
+    @Autowired
+    private TransactionMetrics transactionMetrics;
 
     @Override
     public void execute(DelegateExecution execution) throws Exception {
-        // Debug: Print all available variables
-        System.out.println("=== Available Variables ===");
-        execution.getVariables().forEach((key, value) -> 
-            System.out.println(key + " = " + value));
-        System.out.println("========================");
-        
+        long startNanos = System.nanoTime();
+        long taskNanos = 0;
+
+        // Copying the variable map is expensive, so only dump it when debugging
+        if (log.isDebugEnabled()) {
+            log.debug("Available variables for transaction {}: {}", execution.getBusinessKey(),
+                    execution.getVariables());
+        }
+
         // Get taskFlow from DMN result
         String taskFlow = (String) execution.getVariable("dmnResult");
         String transactionType = (String) execution.getVariable("transactionType");
-        
-        System.out.println("Executing task flow: " + taskFlow + " for transaction type: " + transactionType);
-        
-        if (taskFlow == null || taskFlow.isEmpty()) {
-            throw new IllegalArgumentException("Task flow cannot be null or empty");
-        }
 
-        // Parse the task flow string to determine execution pattern
-        if (taskFlow.contains("parallel:")) {
-            executeParallelTasks(taskFlow, execution);
-        } else {
-            executeSequentialTasks(taskFlow, execution);
-        }
-    }
-
-    private void executeSequentialTasks(String taskFlow, DelegateExecution execution) throws Exception {
-        List<String> tasks = Arrays.asList(taskFlow.split(","));
-        
-        for (String task : tasks) {
-            task = task.trim();
-            executeTask(task, execution);
-        }
-    }
+        log.debug("Executing task flow: {} for transaction type: {}", taskFlow, transactionType);
 
-    private void executeParallelTasks(String taskFlow, DelegateExecution execution) throws Exception {
-        List<String> tasks = Arrays.asList(taskFlow.split(","));
-        CompletableFuture<?>[] futures = new CompletableFuture[tasks.size()];
-        
-        for (int i = 0; i < tasks.size(); i++) {
-            String task = tasks.get(i).trim();
-            
-            if (task.startsWith("parallel:")) {
-                String actualTask = task.substring("parallel:".length());
-                futures[i] = CompletableFuture.runAsync(() -> {
-                    try {
-                        executeTask(actualTask, execution);
-                    } catch (Exception e) {
-                        throw new RuntimeException("Error executing parallel task: " + actualTask, e);
-                    }
-                }, executorService);
+        TaskFlowPlan plan = taskFlowPlanCache.getPlan(taskFlow);
+        for (TaskFlowPlan.Stage stage : plan.getStages()) {
+            long stageStartNanos = System.nanoTime();
+            if (stage.isParallel()) {
+                stageExecutor.executeStage(stage, execution);
             } else {
-                executeTask(task, execution);
-            }
-        }
-        
-        // Wait for all parallel tasks to complete
-        for (CompletableFuture<?> future : futures) {
-            if (future != null) {
-                future.get();
+                executeTask(stage.getTaskName(0), stage.getDelegate(0), execution, transactionType);
             }
+            taskNanos += System.nanoTime() - stageStartNanos;
         }
+        transactionMetrics.recordRouting(transactionType, System.nanoTime() - startNanos - taskNanos);
     }
 
-    private void executeTask(String taskName, DelegateExecution execution) throws Exception {
-        try {
-            JavaDelegate delegate = getDelegate(taskName);
-            if (delegate != null) {
-                delegate.execute(execution);
-                System.out.println("Completed task: " + taskName);
-            } else {
-                System.out.println("No delegate found for task: " + taskName + " - simulating execution");
-            }
-        } catch (Exception e) {
-            System.err.println("Error executing task: " + taskName + " - " + e.getMessage());
-            throw e;
-        }
+    /**
+     * Runs a single task of a flow outside the router, as the external task
+     * worker does for each task it has locked.
+     */
+    public void executeTask(String taskName, DelegateExecution execution) throws Exception {
+        executeTask(taskName, taskFlowPlanCache.getDelegate(taskName), execution,
+                (String) execution.getVariable("transactionType"));
     }
 
-    private JavaDelegate getDelegate(String taskName) {
+    private void executeTask(String taskName, JavaDelegate delegate, DelegateExecution execution,
+                             String transactionType) throws Exception {
+        if (delegate == null) {
+            log.warn("No delegate found for task: {} - simulating execution", taskName);
+            return;
+        }
+        long startNanos = System.nanoTime();
         try {
-            String beanName = mapTaskNameToBean(taskName);
-            return applicationContext.getBean(beanName, JavaDelegate.class);
+            delegate.execute(execution);
+            transactionMetrics.recordTask(taskName, transactionType, TaskOutcomes.of(taskName, execution),
+                    System.nanoTime() - startNanos);
+            log.debug("Completed task: {}", taskName);
         } catch (Exception e) {
-            System.out.println("Delegate not found for task: " + taskName);
-            return null;
-        }
-    }
-
-    private String mapTaskNameToBean(String taskName) {
-        switch (taskName.toLowerCase()) {
-            case "authorize":
-                return "purchaseAuthorizationDelegate";
-            case "settle":
-                return "purchaseSettlementDelegate";
-            case "validate":
-                return "paymentValidationDelegate";
-            case "post":
-                return "paymentPostingDelegate";
-            case "review":
-                return "adjustmentReviewDelegate";
-            case "apply":
-                return "adjustmentApplyDelegate";
-            default:
-                return taskName + "Delegate";
+            transactionMetrics.recordTask(taskName, transactionType, TaskOutcomes.ERROR, System.nanoTime() - startNanos);
+            log.error("Error executing task: {} - {}", taskName, e.getMessage());
+            throw e;
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,77 @@
+package com.example.transactionprocessor.delegate;
+
+import com.example.transactionprocessor.model.TransactionContext;
+import org.camunda.bpm.engine.delegate.DelegateExecution;
+
+/**
+ * Typed variable access for task delegates that works with both variable
+ * layouts. When the instance carries a {@link TransactionContext}, reads are
+ * served from a private copy of it and outcomes are written back as one
+ * variable by {@link #save()}; otherwise every read and write goes straight to
+ * the individual process variables.
+ */
+public final class TransactionVariables {
+
+    private final DelegateExecution execution;
+    private final TransactionContext context;
+
+    private TransactionVariables(DelegateExecution execution, TransactionContext context) {
+        this.execution = execution;
+        this.context = context;
+    }
+
+    public static TransactionVariables of(DelegateExecution execution) {
+        Object context = execution.getVariable(TransactionContext.VARIABLE_NAME);
+        return new TransactionVariables(execution,
+                context instanceof TransactionContext ? ((TransactionContext) context).copy() : null);
+    }
+
+    /**
+     * Reads a single value without copying the context, for callers that only
+     * inspect the execution.
+     */
+    public static Object read(DelegateExecution execution, String name) {
+        Object context = execution.getVariable(TransactionContext.VARIABLE_NAME);
+        if (context instanceof TransactionContext && ((TransactionContext) context).contains(name)) {
+            return ((TransactionContext) context).get(name);
+        }
+        return execution.getVariable(name);
+    }
+
+    public Object get(String name) {
+        if (context != null && context.contains(name)) {
+            return context.get(name);
+        }
+        return execution.getVariable(name);
+    }
+
+    public String getString(String name) {
+        return (String) get(name);
+    }
+
+    public Boolean getBoolean(String name) {
+        return (Boolean) get(name);
+    }
+
+    public Integer getInteger(String name) {
+        return (Integer) get(name);
+    }
+
+    public void set(String name, Object value) {
+        if (context != null) {
+            context.put(name, value);
+        } else {
+            execution.setVariable(name, value);
+        }
+    }
+
+    /**
+     * Writes the outcomes collected through {@link #set} to the execution. A
+     * no-op for the flat layout, where {@link #set} writes immediately.
+     */
+    public void save() {
+        if (context != null && !context.getChangedNames().isEmpty()) {
+            execution.setVariable(TransactionContext.VARIABLE_NAME, context);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.transactionprocessor.engine;
+
+import org.camunda.bpm.engine.impl.bpmn.parser.AbstractBpmnParseListener;
+import org.camunda.bpm.engine.impl.bpmn.parser.BpmnParseListener;
+import org.camunda.bpm.engine.impl.cfg.AbstractProcessEnginePlugin;
+import org.camunda.bpm.engine.impl.cfg.ProcessEngineConfigurationImpl;
+import org.camunda.bpm.engine.impl.pvm.process.ActivityImpl;
+import org.camunda.bpm.engine.impl.pvm.process.ScopeImpl;
+import org.camunda.bpm.engine.impl.util.xml.Element;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Places an exclusive asynchronous continuation before the configured
+ * activities, {@code ExecuteTaskRouter} by default, without changing the BPMN.
+ * The starting thread then only runs intake and the {@code DeterminePath}
+ * decision and commits; the job executor runs the tasks in a transaction of
+ * their own. Exclusive jobs of one instance never run at the same time.
+ * <p>
+ * A failing continuation is retried as set by {@code retry-time-cycle}, e.g.
+ * {@code R3/PT10S}, and then raises an incident instead of failing the request.
+ */
+@Component
+public class AsyncContinuationPlugin extends AbstractProcessEnginePlugin {
+
+    @Value("${transaction-processor.async-continuations.enabled:false}")
+    private boolean enabled;
+
+    @Value("${transaction-processor.async-continuations.activities:ExecuteTaskRouter}")
+    private Set<String> activities;
+
+    @Value("${transaction-processor.async-continuations.retry-time-cycle:}")
+    private String retryTimeCycle;
+
+    @Override
+    public void preInit(ProcessEngineConfigurationImpl processEngineConfiguration) {
+        if (!enabled) {
+            return;
+        }
+        List<BpmnParseListener> parseListeners = processEngineConfiguration.getCustomPostBPMNParseListeners();
+        if (parseListeners == null) {
+            parseListeners = new ArrayList<>();
+            processEngineConfiguration.setCustomPostBPMNParseListeners(parseListeners);
+        }
+        parseListeners.add(new AbstractBpmnParseListener() {
+            @Override
+            public void parseServiceTask(Element serviceTaskElement, ScopeImpl scope, ActivityImpl activity) {
+                continueAsync(activity);
+            }
+
+            @Override
+            public void parseBusinessRuleTask(Element businessRuleTaskElement, ScopeImpl scope,
+                                              ActivityImpl activity) {
+                continueAsync(activity);
+            }
+        });
+        if (!retryTimeCycle.isBlank()) {
+            processEngineConfiguration.setFailedJobRetryTimeCycle(retryTimeCycle);
+        }
+    }
+
+    private void continueAsync(ActivityImpl activity) {
+        if (activities.contains(activity.getId())) {
+            activity.setAsyncBefore(true, true);
+        }
+    }
+}
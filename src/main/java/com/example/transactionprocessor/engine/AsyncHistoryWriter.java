@@ -0,0 +1,201 @@
+package com.example.transactionprocessor.engine;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.camunda.bpm.engine.impl.history.event.HistoryEvent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded buffer of committed transactions' history events, drained by one
+ * background thread that hands them to a {@link HistoryEventSink} in bulk. The
+ * writer waits up to the flush interval for the first transaction, then takes
+ * whatever else is queued, up to the batch size, into the same write.
+ * <p>
+ * A full buffer makes committing threads wait up to the offer timeout; after that
+ * the transaction's events are dropped and counted rather than stalling the
+ * engine. A failed write is retried from the first event the sink did not
+ * commit. If it still fails, each transaction of the batch is written on its
+ * own, so only the events of the transactions that cannot be written are dropped.
+ */
+public class AsyncHistoryWriter {
+
+    private static final Logger log = LogManager.getLogger(AsyncHistoryWriter.class);
+
+    private static final int WRITE_ATTEMPTS = 3;
+
+    private final HistoryEventSink sink;
+    private final BlockingQueue<List<HistoryEvent>> queue;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final long offerTimeoutMillis;
+    private final Thread thread;
+
+    private final AtomicLong writtenEvents = new AtomicLong();
+    private final AtomicLong droppedEvents = new AtomicLong();
+
+    private volatile boolean running = true;
+
+    AsyncHistoryWriter(HistoryEventSink sink, int queueCapacity, int batchSize, long flushIntervalMillis,
+                       long offerTimeoutMillis) {
+        this.sink = sink;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.offerTimeoutMillis = offerTimeoutMillis;
+        this.thread = new Thread(this::run, "history-writer");
+        this.thread.setDaemon(true);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    /**
+     * Queues the history events of one committed transaction.
+     */
+    void submit(List<HistoryEvent> events) {
+        try {
+            if (running && queue.offer(events, offerTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        droppedEvents.addAndGet(events.size());
+        log.error("History buffer full or closed, dropped {} history events", events.size());
+    }
+
+    private void run() {
+        List<List<HistoryEvent>> transactions = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                List<HistoryEvent> first = queue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                transactions.add(first);
+                queue.drainTo(transactions, batchSize - 1);
+                write(transactions);
+            } catch (InterruptedException e) {
+                // close() interrupts a waiting poll; the loop drains what is left
+            } finally {
+                transactions.clear();
+            }
+        }
+    }
+
+    private void write(List<List<HistoryEvent>> transactions) {
+        List<HistoryEvent> events = new ArrayList<>();
+        for (List<HistoryEvent> transaction : transactions) {
+            events.addAll(transaction);
+        }
+        List<HistoryEvent> unwritten = write(events, WRITE_ATTEMPTS);
+        if (unwritten.isEmpty()) {
+            return;
+        }
+        if (transactions.size() == 1) {
+            drop(unwritten);
+            return;
+        }
+        // Isolate the failing transactions: write what is left of each one on its own
+        Set<HistoryEvent> pending = Collections.newSetFromMap(new IdentityHashMap<>());
+        pending.addAll(unwritten);
+        for (List<HistoryEvent> transaction : transactions) {
+            List<HistoryEvent> rest = new ArrayList<>();
+            for (HistoryEvent event : transaction) {
+                if (pending.contains(event)) {
+                    rest.add(event);
+                }
+            }
+            if (!rest.isEmpty()) {
+                List<HistoryEvent> failed = write(rest, 1);
+                if (!failed.isEmpty()) {
+                    drop(failed);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the events still unwritten after {@code attempts} writes, each resuming where the last one stopped
+     */
+    private List<HistoryEvent> write(List<HistoryEvent> events, int attempts) {
+        List<HistoryEvent> unwritten = events;
+        for (int attempt = 1; attempt <= attempts; attempt++) {
+            try {
+                sink.write(unwritten);
+                writtenEvents.addAndGet(unwritten.size());
+                return List.of();
+            } catch (Exception e) {
+                if (e instanceof PartialWriteException) {
+                    List<HistoryEvent> rest = ((PartialWriteException) e).getUnwritten();
+                    writtenEvents.addAndGet(unwritten.size() - rest.size());
+                    unwritten = rest;
+                }
+                if (attempt == attempts) {
+                    log.warn("History write of {} events failed after {} attempts: {}", unwritten.size(), attempts,
+                            e.getMessage());
+                } else {
+                    log.warn("History write of {} events failed, retrying: {}", unwritten.size(), e.getMessage());
+                    sleep(100L * attempt);
+                }
+            }
+        }
+        return unwritten;
+    }
+
+    private void drop(List<HistoryEvent> events) {
+        droppedEvents.addAndGet(events.size());
+        log.error("Dropped {} history events of process instance {}", events.size(),
+                events.get(0).getProcessInstanceId());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Stops accepting events, writes everything still buffered and closes the sink.
+     */
+    public void close() {
+        running = false;
+        thread.interrupt();
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(30));
+            sink.close();
+        } catch (Exception e) {
+            log.warn("History writer did not close cleanly: {}", e.getMessage());
+        }
+        if (!queue.isEmpty()) {
+            log.error("{} transactions' history events not written on shutdown", queue.size());
+        }
+    }
+
+    /**
+     * Committed transactions whose events are waiting to be written.
+     */
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public long getWrittenEventCount() {
+        return writtenEvents.get();
+    }
+
+    public long getDroppedEventCount() {
+        return droppedEvents.get();
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.transactionprocessor.engine;
+
+import org.camunda.bpm.engine.impl.cfg.TransactionState;
+import org.camunda.bpm.engine.impl.context.Context;
+import org.camunda.bpm.engine.impl.history.event.HistoryEvent;
+import org.camunda.bpm.engine.impl.history.handler.HistoryEventHandler;
+import org.camunda.bpm.engine.impl.interceptor.CommandContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Replaces the engine's synchronous database history handler. Events are
+ * collected per engine command and handed to the {@link AsyncHistoryWriter}
+ * only once the command's transaction has committed, so the business transaction
+ * commits runtime state only and a rolled-back transaction leaves no history.
+ */
+class BufferedHistoryEventHandler implements HistoryEventHandler {
+
+    private final AsyncHistoryWriter writer;
+    private final Map<CommandContext, List<HistoryEvent>> pending = new ConcurrentHashMap<>();
+
+    BufferedHistoryEventHandler(AsyncHistoryWriter writer) {
+        this.writer = writer;
+    }
+
+    @Override
+    public void handleEvent(HistoryEvent historyEvent) {
+        CommandContext commandContext = Context.getCommandContext();
+        if (commandContext == null) {
+            writer.submit(List.of(historyEvent));
+            return;
+        }
+        pending.computeIfAbsent(commandContext, this::register).add(historyEvent);
+    }
+
+    @Override
+    public void handleEvents(List<HistoryEvent> historyEvents) {
+        for (HistoryEvent historyEvent : historyEvents) {
+            handleEvent(historyEvent);
+        }
+    }
+
+    private List<HistoryEvent> register(CommandContext commandContext) {
+        commandContext.getTransactionContext().addTransactionListener(TransactionState.COMMITTED,
+                context -> {
+                    List<HistoryEvent> events = pending.remove(commandContext);
+                    if (events != null) {
+                        writer.submit(events);
+                    }
+                });
+        commandContext.getTransactionContext().addTransactionListener(TransactionState.ROLLED_BACK,
+                context -> pending.remove(commandContext));
+        return new ArrayList<>();
+    }
+}
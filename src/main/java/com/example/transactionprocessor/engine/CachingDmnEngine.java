@@ -0,0 +1,93 @@
+package com.example.transactionprocessor.engine;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.camunda.bpm.dmn.engine.DmnDecision;
+import org.camunda.bpm.dmn.engine.DmnDecisionResult;
+import org.camunda.bpm.dmn.engine.DmnEngine;
+import org.camunda.bpm.engine.variable.Variables;
+import org.camunda.bpm.engine.variable.context.VariableContext;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * {@link DmnEngine} decorator that answers evaluations of the decisions opted in
+ * to {@link DecisionResultCache} from a {@link CompiledDecision}, and passes
+ * everything else through. A decision is compiled on its first evaluation, and
+ * again whenever a different parsed instance of it arrives, as after a redeployment.
+ */
+class CachingDmnEngine extends ForwardingDmnEngine {
+
+    private static final Logger log = LogManager.getLogger(CachingDmnEngine.class);
+
+    private final DecisionResultCache decisionResultCache;
+    private final Map<String, CompiledDecision> compiledDecisions = new ConcurrentHashMap<>();
+
+    CachingDmnEngine(DmnEngine delegate, DecisionResultCache decisionResultCache) {
+        super(delegate);
+        this.decisionResultCache = decisionResultCache;
+    }
+
+    @Override
+    public DmnDecisionResult evaluateDecision(DmnDecision decision, Map<String, Object> variables) {
+        if (!decisionResultCache.isCached(decision.getKey())) {
+            return delegate.evaluateDecision(decision, variables);
+        }
+        return evaluate(decision, Variables.fromMap(variables).asVariableContext(),
+                () -> delegate.evaluateDecision(decision, variables));
+    }
+
+    @Override
+    public DmnDecisionResult evaluateDecision(DmnDecision decision, VariableContext variableContext) {
+        if (!decisionResultCache.isCached(decision.getKey())) {
+            return delegate.evaluateDecision(decision, variableContext);
+        }
+        return evaluate(decision, variableContext, () -> delegate.evaluateDecision(decision, variableContext));
+    }
+
+    void invalidate(String decisionKey) {
+        compiledDecisions.remove(decisionKey);
+    }
+
+    private DmnDecisionResult evaluate(DmnDecision decision, VariableContext variableContext,
+                                       Supplier<DmnDecisionResult> engine) {
+        CompiledDecision compiledDecision = compiled(decision);
+        Object key = compiledDecision.key(variableContext);
+        if (key == null) {
+            decisionResultCache.record(decision.getKey(), DecisionResultCache.SOURCE_ENGINE);
+            return engine.get();
+        }
+        if (compiledDecision.isHashLookup()) {
+            decisionResultCache.record(decision.getKey(), DecisionResultCache.SOURCE_HASH);
+            return compiledDecision.lookup(key);
+        }
+        DmnDecisionResult result = compiledDecision.cached(key);
+        if (result != null) {
+            decisionResultCache.record(decision.getKey(), DecisionResultCache.SOURCE_CACHE);
+            return result;
+        }
+        decisionResultCache.record(decision.getKey(), DecisionResultCache.SOURCE_ENGINE);
+        result = engine.get();
+        compiledDecision.remember(key, result);
+        return result;
+    }
+
+    private CompiledDecision compiled(DmnDecision decision) {
+        CompiledDecision compiledDecision = compiledDecisions.get(decision.getKey());
+        if (compiledDecision != null && compiledDecision.getDecision() == decision) {
+            return compiledDecision;
+        }
+        compiledDecision = CompiledDecision.compile(decision, decisionResultCache.getMaxEntries());
+        if (!compiledDecision.hasShortcut()) {
+            log.warn("Decision {} cannot be cached: its result may depend on more than its inputs' values",
+                    decision.getKey());
+        } else {
+            log.info("Decision {} compiled to a {}", decision.getKey(),
+                    compiledDecision.isHashLookup() ? "hash lookup" : "result cache");
+        }
+        compiledDecisions.put(decision.getKey(), compiledDecision);
+        return compiledDecision;
+    }
+}
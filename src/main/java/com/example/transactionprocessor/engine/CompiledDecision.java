@@ -0,0 +1,217 @@
+package com.example.transactionprocessor.engine;
+
+import org.camunda.bpm.dmn.engine.DmnDecision;
+import org.camunda.bpm.dmn.engine.DmnDecisionResult;
+import org.camunda.bpm.dmn.engine.DmnDecisionResultEntries;
+import org.camunda.bpm.dmn.engine.impl.DmnDecisionResultEntriesImpl;
+import org.camunda.bpm.dmn.engine.impl.DmnDecisionResultImpl;
+import org.camunda.bpm.dmn.engine.impl.DmnDecisionTableImpl;
+import org.camunda.bpm.dmn.engine.impl.DmnDecisionTableInputImpl;
+import org.camunda.bpm.dmn.engine.impl.DmnDecisionTableOutputImpl;
+import org.camunda.bpm.dmn.engine.impl.DmnDecisionTableRuleImpl;
+import org.camunda.bpm.dmn.engine.impl.DmnExpressionImpl;
+import org.camunda.bpm.engine.variable.context.VariableContext;
+import org.camunda.bpm.engine.variable.value.TypedValue;
+import org.camunda.bpm.model.dmn.HitPolicy;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Shortcut for evaluating one parsed decision table whose inputs are plain
+ * variable names, so the input values alone decide the result.
+ * <p>
+ * A UNIQUE table whose rules only compare string inputs with string literals,
+ * and only output string literals, is compiled into a hash lookup from the input
+ * values to the matching rule's outputs, and never reaches the engine. Any other
+ * such table has its results remembered per input tuple as the engine produces
+ * them, up to {@code maxResults} tuples.
+ */
+final class CompiledDecision {
+
+    private static final Pattern VARIABLE_NAME = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+    private static final Pattern STRING_LITERAL = Pattern.compile("\"([^\"\\\\]*)\"");
+
+    private final DmnDecision decision;
+    private final String[] inputNames;
+    private final int maxResults;
+    /** Outputs of the matching rule by input key for a hash lookup, otherwise {@code null} */
+    private final Map<Object, Map<String, TypedValue>> rules;
+    private final Map<Object, DmnDecisionResult> results = new ConcurrentHashMap<>();
+
+    private CompiledDecision(DmnDecision decision, String[] inputNames, int maxResults,
+                             Map<Object, Map<String, TypedValue>> rules) {
+        this.decision = decision;
+        this.inputNames = inputNames;
+        this.maxResults = maxResults;
+        this.rules = rules;
+    }
+
+    /**
+     * Compiles the decision; one whose result may depend on more than the values
+     * of its inputs gets no shortcut, and {@link #key} always returns {@code null}.
+     */
+    static CompiledDecision compile(DmnDecision decision, int maxResults) {
+        if (!decision.isDecisionTable() || !decision.getRequiredDecisions().isEmpty()) {
+            return new CompiledDecision(decision, null, maxResults, null);
+        }
+        DmnDecisionTableImpl decisionTable = (DmnDecisionTableImpl) decision.getDecisionLogic();
+        List<DmnDecisionTableInputImpl> inputs = decisionTable.getInputs();
+        String[] inputNames = new String[inputs.size()];
+        for (int i = 0; i < inputNames.length; i++) {
+            String expression = inputs.get(i).getExpression().getExpression();
+            if (expression == null || !VARIABLE_NAME.matcher(expression.trim()).matches()) {
+                return new CompiledDecision(decision, null, maxResults, null);
+            }
+            inputNames[i] = expression.trim();
+        }
+        return new CompiledDecision(decision, inputNames, maxResults, hashLookup(decisionTable));
+    }
+
+    /**
+     * @return the rules' outputs by input key, or {@code null} when the table
+     * cannot be evaluated by equality alone
+     */
+    private static Map<Object, Map<String, TypedValue>> hashLookup(DmnDecisionTableImpl decisionTable) {
+        if (decisionTable.getHitPolicyHandler().getHitPolicyEntry().getHitPolicy() != HitPolicy.UNIQUE) {
+            return null;
+        }
+        for (DmnDecisionTableInputImpl input : decisionTable.getInputs()) {
+            if (!"string".equals(input.getExpression().getTypeDefinition().getTypeName())) {
+                return null;
+            }
+        }
+        List<DmnDecisionTableOutputImpl> outputs = decisionTable.getOutputs();
+        Map<Object, Map<String, TypedValue>> rules = new HashMap<>();
+        for (DmnDecisionTableRuleImpl rule : decisionTable.getRules()) {
+            Object[] values = new Object[rule.getConditions().size()];
+            for (int i = 0; i < values.length; i++) {
+                DmnExpressionImpl condition = rule.getConditions().get(i);
+                values[i] = isFeel(condition) ? stringLiteral(condition) : null;
+                if (values[i] == null) {
+                    return null;
+                }
+            }
+            Map<String, TypedValue> ruleOutputs = new LinkedHashMap<>();
+            for (int i = 0; i < outputs.size(); i++) {
+                DmnDecisionTableOutputImpl output = outputs.get(i);
+                DmnExpressionImpl conclusion = rule.getConclusions().get(i);
+                String value = isFeel(conclusion) ? stringLiteral(conclusion) : null;
+                if (value == null || !"string".equals(output.getTypeDefinition().getTypeName())) {
+                    return null;
+                }
+                ruleOutputs.put(output.getOutputName(), output.getTypeDefinition().transform(value));
+            }
+            // Two rules for the same inputs would fail a UNIQUE table; leave that to the engine
+            if (rules.put(key(values), Collections.unmodifiableMap(ruleOutputs)) != null) {
+                return null;
+            }
+        }
+        return rules;
+    }
+
+    private static boolean isFeel(DmnExpressionImpl expression) {
+        String language = expression.getExpressionLanguage();
+        return language == null || language.toLowerCase().contains("feel");
+    }
+
+    private static String stringLiteral(DmnExpressionImpl expression) {
+        if (expression.getExpression() == null) {
+            return null;
+        }
+        Matcher matcher = STRING_LITERAL.matcher(expression.getExpression().trim());
+        return matcher.matches() ? matcher.group(1) : null;
+    }
+
+    private static Object key(Object[] values) {
+        return values.length == 1 ? values[0] : Arrays.asList(values);
+    }
+
+    DmnDecision getDecision() {
+        return decision;
+    }
+
+    boolean hasShortcut() {
+        return inputNames != null;
+    }
+
+    boolean isHashLookup() {
+        return rules != null;
+    }
+
+    /**
+     * @return the key of the input values, or {@code null} when one is missing,
+     * null or mutable, or not a string for a hash lookup
+     */
+    Object key(VariableContext variables) {
+        if (inputNames == null) {
+            return null;
+        }
+        Object[] values = new Object[inputNames.length];
+        for (int i = 0; i < values.length; i++) {
+            TypedValue value = variables.resolve(inputNames[i]);
+            values[i] = value != null ? value.getValue() : null;
+            if (rules != null ? !(values[i] instanceof String) : !isImmutable(values[i])) {
+                return null;
+            }
+        }
+        return key(values);
+    }
+
+    private static boolean isImmutable(Object value) {
+        return value instanceof String || value instanceof Boolean || value instanceof Integer
+                || value instanceof Long || value instanceof Double || value instanceof BigDecimal;
+    }
+
+    /**
+     * Result of the hash lookup, built fresh on each call as callers may modify it.
+     */
+    DmnDecisionResult lookup(Object key) {
+        Map<String, TypedValue> outputs = rules.get(key);
+        if (outputs == null) {
+            return new DmnDecisionResultImpl(new ArrayList<>());
+        }
+        DmnDecisionResultEntriesImpl entries = new DmnDecisionResultEntriesImpl();
+        entries.putAllValues(outputs);
+        List<DmnDecisionResultEntries> resultList = new ArrayList<>(1);
+        resultList.add(entries);
+        return new DmnDecisionResultImpl(resultList);
+    }
+
+    /**
+     * @return a copy of the remembered result, or {@code null} when there is none
+     */
+    DmnDecisionResult cached(Object key) {
+        DmnDecisionResult result = results.get(key);
+        return result != null ? copy(result) : null;
+    }
+
+    void remember(Object key, DmnDecisionResult result) {
+        if (results.size() < maxResults) {
+            results.putIfAbsent(key, copy(result));
+        }
+    }
+
+    int getResultCount() {
+        return results.size();
+    }
+
+    private static DmnDecisionResult copy(DmnDecisionResult result) {
+        List<DmnDecisionResultEntries> resultList = new ArrayList<>(result.size());
+        for (DmnDecisionResultEntries resultEntries : result) {
+            DmnDecisionResultEntriesImpl entries = new DmnDecisionResultEntriesImpl();
+            entries.putAllValues(resultEntries.getEntryMapTyped());
+            resultList.add(entries);
+        }
+        return new DmnDecisionResultImpl(resultList);
+    }
+}
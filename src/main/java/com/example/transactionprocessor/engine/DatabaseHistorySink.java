@@ -0,0 +1,84 @@
+package com.example.transactionprocessor.engine;
+
+import org.camunda.bpm.engine.impl.cfg.ProcessEngineConfigurationImpl;
+import org.camunda.bpm.engine.impl.history.event.HistoricVariableUpdateEventEntity;
+import org.camunda.bpm.engine.impl.history.event.HistoryEvent;
+import org.camunda.bpm.engine.impl.history.handler.DbHistoryEventHandler;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes buffered history events to Camunda's history tables with the engine's
+ * own {@link DbHistoryEventHandler}, in a new transaction separate from the
+ * business work, so the inserts of many transactions share JDBC batches.
+ * <p>
+ * Update events (activity end, process end) carry only the changed columns and
+ * are written as updates, which needs the row inserted by the start event to
+ * exist. The engine's entity cache allows one entry per id per command, so the
+ * events are split into rounds: round {@code n} holds the {@code n}th event of
+ * each history entity and is committed before round {@code n + 1}. A burst of
+ * transactions is written in as many commands as the longest event chain of one
+ * entity (usually two), however many transactions it contains. A round that
+ * fails after earlier ones committed is reported with a
+ * {@link PartialWriteException} holding its events and those of later rounds.
+ */
+class DatabaseHistorySink implements HistoryEventSink {
+
+    private final ProcessEngineConfigurationImpl processEngineConfiguration;
+    private final DbHistoryEventHandler dbHistoryEventHandler = new DbHistoryEventHandler();
+
+    DatabaseHistorySink(ProcessEngineConfigurationImpl processEngineConfiguration) {
+        this.processEngineConfiguration = processEngineConfiguration;
+    }
+
+    @Override
+    public void write(List<HistoryEvent> events) throws PartialWriteException {
+        List<List<HistoryEvent>> rounds = rounds(events);
+        for (int i = 0; i < rounds.size(); i++) {
+            List<HistoryEvent> round = rounds.get(i);
+            try {
+                processEngineConfiguration.getCommandExecutorTxRequiresNew().execute(commandContext -> {
+                    dbHistoryEventHandler.handleEvents(round);
+                    return null;
+                });
+            } catch (RuntimeException e) {
+                if (i == 0) {
+                    throw e;
+                }
+                List<HistoryEvent> unwritten = new ArrayList<>();
+                for (List<HistoryEvent> remaining : rounds.subList(i, rounds.size())) {
+                    unwritten.addAll(remaining);
+                }
+                throw new PartialWriteException(unwritten, e);
+            }
+        }
+    }
+
+    static List<List<HistoryEvent>> rounds(List<HistoryEvent> events) {
+        List<List<HistoryEvent>> rounds = new ArrayList<>();
+        Map<String, Integer> occurrences = new HashMap<>();
+        for (HistoryEvent event : events) {
+            String key = entityKey(event);
+            int round = key == null ? 0 : occurrences.merge(key, 1, Integer::sum) - 1;
+            while (rounds.size() <= round) {
+                rounds.add(new ArrayList<>());
+            }
+            rounds.get(round).add(event);
+        }
+        return rounds;
+    }
+
+    /**
+     * Identifies the row an event inserts or updates; {@code null} for events that
+     * only insert rows with fresh ids, such as decision evaluations.
+     */
+    private static String entityKey(HistoryEvent event) {
+        if (event instanceof HistoricVariableUpdateEventEntity) {
+            return "variable:" + ((HistoricVariableUpdateEventEntity) event).getVariableInstanceId();
+        }
+        return event.getId() != null ? event.getClass().getName() + ":" + event.getId() : null;
+    }
+}
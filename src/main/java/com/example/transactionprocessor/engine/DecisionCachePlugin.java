@@ -0,0 +1,66 @@
+package com.example.transactionprocessor.engine;
+
+import org.camunda.bpm.dmn.engine.DmnDecision;
+import org.camunda.bpm.dmn.engine.DmnDecisionRequirementsGraph;
+import org.camunda.bpm.dmn.engine.impl.DmnDecisionTableInputImpl;
+import org.camunda.bpm.dmn.engine.impl.DmnDecisionTableOutputImpl;
+import org.camunda.bpm.dmn.engine.impl.DmnDecisionTableRuleImpl;
+import org.camunda.bpm.dmn.engine.impl.spi.transform.DmnTransformListener;
+import org.camunda.bpm.engine.impl.cfg.AbstractProcessEnginePlugin;
+import org.camunda.bpm.engine.impl.cfg.ProcessEngineConfigurationImpl;
+import org.camunda.bpm.model.dmn.instance.Decision;
+import org.camunda.bpm.model.dmn.instance.Definitions;
+import org.camunda.bpm.model.dmn.instance.Input;
+import org.camunda.bpm.model.dmn.instance.Output;
+import org.camunda.bpm.model.dmn.instance.Rule;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Wraps the engine's DMN engine in the {@link DecisionResultCache} shortcuts once
+ * it has been built, and invalidates a decision's shortcut whenever it is
+ * (re)deployed. Runs first, so {@link DmnMetricsPlugin} wraps this engine in
+ * turn and cached evaluations are still timed.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class DecisionCachePlugin extends AbstractProcessEnginePlugin implements DmnTransformListener {
+
+    @Autowired
+    private DecisionResultCache decisionResultCache;
+
+    @Override
+    public void preInit(ProcessEngineConfigurationImpl processEngineConfiguration) {
+        DmnEngineConfigurations.get(processEngineConfiguration).getTransformer().getTransformListeners().add(this);
+    }
+
+    @Override
+    public void postInit(ProcessEngineConfigurationImpl processEngineConfiguration) {
+        processEngineConfiguration.setDmnEngine(decisionResultCache.wrap(processEngineConfiguration.getDmnEngine()));
+    }
+
+    @Override
+    public void transformDecision(Decision decision, DmnDecision dmnDecision) {
+        if (decisionResultCache.isCached(dmnDecision.getKey())) {
+            decisionResultCache.invalidate(dmnDecision.getKey());
+        }
+    }
+
+    @Override
+    public void transformDecisionTableInput(Input input, DmnDecisionTableInputImpl dmnInput) {
+    }
+
+    @Override
+    public void transformDecisionTableOutput(Output output, DmnDecisionTableOutputImpl dmnOutput) {
+    }
+
+    @Override
+    public void transformDecisionTableRule(Rule rule, DmnDecisionTableRuleImpl dmnRule) {
+    }
+
+    @Override
+    public void transformDecisionRequirementsGraph(Definitions definitions, DmnDecisionRequirementsGraph dmnDecisionRequirementsGraph) {
+    }
+}
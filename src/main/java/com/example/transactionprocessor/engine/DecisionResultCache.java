@@ -0,0 +1,87 @@
+package com.example.transactionprocessor.engine;
+
+import com.example.transactionprocessor.metrics.TransactionMetrics;
+import org.camunda.bpm.dmn.engine.DmnEngine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+/**
+ * Settings and bookkeeping of the decision shortcuts: which decisions are opted
+ * in, how many input tuples each may remember, and the {@link CachingDmnEngine}s
+ * to invalidate when a decision is redeployed. {@link DecisionCachePlugin} wraps
+ * the process engine's DMN engine, {@link RoutingDecisionEvaluator} its own.
+ * <p>
+ * A shortcut result skips the DMN engine entirely, so it writes no decision
+ * history and counts towards no DMN engine metrics; only decisions whose
+ * evaluations need no audit trail should be opted in.
+ */
+@Component
+public class DecisionResultCache {
+
+    static final String SOURCE_HASH = "hash";
+    static final String SOURCE_CACHE = "cache";
+    static final String SOURCE_ENGINE = "engine";
+
+    @Autowired
+    private TransactionMetrics transactionMetrics;
+
+    @Value("${transaction-processor.dmn.cached-decisions:}")
+    private String cachedDecisions;
+
+    @Value("${transaction-processor.dmn.cache-max-entries:10000}")
+    private int maxEntries;
+
+    private Set<String> decisionKeys;
+    private final List<CachingDmnEngine> engines = new CopyOnWriteArrayList<>();
+
+    @PostConstruct
+    void init() {
+        decisionKeys = Arrays.stream(cachedDecisions.split(","))
+                .map(String::trim)
+                .filter(key -> !key.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    /**
+     * @return the engine itself when no decision is opted in, otherwise a
+     * caching decorator of it
+     */
+    public DmnEngine wrap(DmnEngine dmnEngine) {
+        if (decisionKeys.isEmpty()) {
+            return dmnEngine;
+        }
+        CachingDmnEngine cachingDmnEngine = new CachingDmnEngine(dmnEngine, this);
+        engines.add(cachingDmnEngine);
+        return cachingDmnEngine;
+    }
+
+    public boolean isCached(String decisionKey) {
+        return decisionKeys.contains(decisionKey);
+    }
+
+    /**
+     * Drops the decision's shortcut from every engine, so its next evaluation
+     * compiles the newly deployed version.
+     */
+    public void invalidate(String decisionKey) {
+        for (CachingDmnEngine engine : engines) {
+            engine.invalidate(decisionKey);
+        }
+    }
+
+    int getMaxEntries() {
+        return maxEntries;
+    }
+
+    void record(String decisionKey, String source) {
+        transactionMetrics.recordDecisionCache(decisionKey, source);
+    }
+}
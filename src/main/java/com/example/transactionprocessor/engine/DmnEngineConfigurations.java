@@ -0,0 +1,25 @@
+package com.example.transactionprocessor.engine;
+
+import org.camunda.bpm.dmn.engine.DmnEngineConfiguration;
+import org.camunda.bpm.dmn.engine.impl.DefaultDmnEngineConfiguration;
+import org.camunda.bpm.engine.impl.cfg.ProcessEngineConfigurationImpl;
+
+final class DmnEngineConfigurations {
+
+    private DmnEngineConfigurations() {
+    }
+
+    /**
+     * Returns the DMN engine configuration the process engine will build its DMN
+     * engine from, creating the default one early so plugins can register
+     * listeners on it during {@code preInit}.
+     */
+    static synchronized DefaultDmnEngineConfiguration get(ProcessEngineConfigurationImpl processEngineConfiguration) {
+        DefaultDmnEngineConfiguration dmnEngineConfiguration = processEngineConfiguration.getDmnEngineConfiguration();
+        if (dmnEngineConfiguration == null) {
+            dmnEngineConfiguration = (DefaultDmnEngineConfiguration) DmnEngineConfiguration.createDefaultDmnEngineConfiguration();
+            processEngineConfiguration.setDmnEngineConfiguration(dmnEngineConfiguration);
+        }
+        return dmnEngineConfiguration;
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.transactionprocessor.engine;
+
+import com.example.transactionprocessor.metrics.TransactionMetrics;
+import org.camunda.bpm.engine.impl.cfg.AbstractProcessEnginePlugin;
+import org.camunda.bpm.engine.impl.cfg.ProcessEngineConfigurationImpl;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Swaps the engine's DMN engine for a {@link MeteredDmnEngine} once it has been
+ * built. Business rule tasks look the DMN engine up on every evaluation, so all
+ * of them are timed.
+ */
+@Component
+public class DmnMetricsPlugin extends AbstractProcessEnginePlugin {
+
+    @Autowired
+    private TransactionMetrics transactionMetrics;
+
+    @Override
+    public void postInit(ProcessEngineConfigurationImpl processEngineConfiguration) {
+        processEngineConfiguration.setDmnEngine(
+                new MeteredDmnEngine(processEngineConfiguration.getDmnEngine(), transactionMetrics));
+    }
+}
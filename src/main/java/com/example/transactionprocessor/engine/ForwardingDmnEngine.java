@@ -0,0 +1,129 @@
+package com.example.transactionprocessor.engine;
+
+import org.camunda.bpm.dmn.engine.DmnDecision;
+import org.camunda.bpm.dmn.engine.DmnDecisionRequirementsGraph;
+import org.camunda.bpm.dmn.engine.DmnDecisionResult;
+import org.camunda.bpm.dmn.engine.DmnDecisionTableResult;
+import org.camunda.bpm.dmn.engine.DmnEngine;
+import org.camunda.bpm.dmn.engine.DmnEngineConfiguration;
+import org.camunda.bpm.engine.variable.context.VariableContext;
+import org.camunda.bpm.model.dmn.DmnModelInstance;
+
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Base for {@link DmnEngine} decorators: passes every call through to the
+ * wrapped engine, so subclasses only override the evaluations they change.
+ */
+abstract class ForwardingDmnEngine implements DmnEngine {
+
+    protected final DmnEngine delegate;
+
+    ForwardingDmnEngine(DmnEngine delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public DmnDecisionResult evaluateDecision(DmnDecision decision, Map<String, Object> variables) {
+        return delegate.evaluateDecision(decision, variables);
+    }
+
+    @Override
+    public DmnDecisionResult evaluateDecision(DmnDecision decision, VariableContext variableContext) {
+        return delegate.evaluateDecision(decision, variableContext);
+    }
+
+    @Override
+    public DmnEngineConfiguration getConfiguration() {
+        return delegate.getConfiguration();
+    }
+
+    @Override
+    public List<DmnDecision> parseDecisions(InputStream inputStream) {
+        return delegate.parseDecisions(inputStream);
+    }
+
+    @Override
+    public List<DmnDecision> parseDecisions(DmnModelInstance dmnModelInstance) {
+        return delegate.parseDecisions(dmnModelInstance);
+    }
+
+    @Override
+    public DmnDecision parseDecision(String decisionKey, InputStream inputStream) {
+        return delegate.parseDecision(decisionKey, inputStream);
+    }
+
+    @Override
+    public DmnDecision parseDecision(String decisionKey, DmnModelInstance dmnModelInstance) {
+        return delegate.parseDecision(decisionKey, dmnModelInstance);
+    }
+
+    @Override
+    public DmnDecisionRequirementsGraph parseDecisionRequirementsGraph(InputStream inputStream) {
+        return delegate.parseDecisionRequirementsGraph(inputStream);
+    }
+
+    @Override
+    public DmnDecisionRequirementsGraph parseDecisionRequirementsGraph(DmnModelInstance dmnModelInstance) {
+        return delegate.parseDecisionRequirementsGraph(dmnModelInstance);
+    }
+
+    @Override
+    public DmnDecisionTableResult evaluateDecisionTable(DmnDecision decision, Map<String, Object> variables) {
+        return delegate.evaluateDecisionTable(decision, variables);
+    }
+
+    @Override
+    public DmnDecisionTableResult evaluateDecisionTable(DmnDecision decision, VariableContext variableContext) {
+        return delegate.evaluateDecisionTable(decision, variableContext);
+    }
+
+    @Override
+    public DmnDecisionTableResult evaluateDecisionTable(String decisionKey, InputStream inputStream,
+                                                        Map<String, Object> variables) {
+        return delegate.evaluateDecisionTable(decisionKey, inputStream, variables);
+    }
+
+    @Override
+    public DmnDecisionTableResult evaluateDecisionTable(String decisionKey, InputStream inputStream,
+                                                        VariableContext variableContext) {
+        return delegate.evaluateDecisionTable(decisionKey, inputStream, variableContext);
+    }
+
+    @Override
+    public DmnDecisionTableResult evaluateDecisionTable(String decisionKey, DmnModelInstance dmnModelInstance,
+                                                        Map<String, Object> variables) {
+        return delegate.evaluateDecisionTable(decisionKey, dmnModelInstance, variables);
+    }
+
+    @Override
+    public DmnDecisionTableResult evaluateDecisionTable(String decisionKey, DmnModelInstance dmnModelInstance,
+                                                        VariableContext variableContext) {
+        return delegate.evaluateDecisionTable(decisionKey, dmnModelInstance, variableContext);
+    }
+
+    @Override
+    public DmnDecisionResult evaluateDecision(String decisionKey, InputStream inputStream, Map<String, Object> variables) {
+        return delegate.evaluateDecision(decisionKey, inputStream, variables);
+    }
+
+    @Override
+    public DmnDecisionResult evaluateDecision(String decisionKey, InputStream inputStream,
+                                              VariableContext variableContext) {
+        return delegate.evaluateDecision(decisionKey, inputStream, variableContext);
+    }
+
+    @Override
+    public DmnDecisionResult evaluateDecision(String decisionKey, DmnModelInstance dmnModelInstance,
+                                              Map<String, Object> variables) {
+        return delegate.evaluateDecision(decisionKey, dmnModelInstance, variables);
+    }
+
+    @Override
+    public DmnDecisionResult evaluateDecision(String decisionKey, DmnModelInstance dmnModelInstance,
+                                              VariableContext variableContext) {
+        return delegate.evaluateDecision(decisionKey, dmnModelInstance, variableContext);
+    }
+}
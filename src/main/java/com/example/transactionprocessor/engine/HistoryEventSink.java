@@ -0,0 +1,19 @@
+package com.example.transactionprocessor.engine;
+
+import org.camunda.bpm.engine.impl.history.event.HistoryEvent;
+
+import java.util.List;
+
+/**
+ * Destination of the history events an {@link AsyncHistoryWriter} drains. Events
+ * arrive in commit order; one call carries the events of many transactions.
+ * A sink that commits part of a call before failing throws a
+ * {@link PartialWriteException} with the rest.
+ */
+interface HistoryEventSink {
+
+    void write(List<HistoryEvent> events) throws Exception;
+
+    default void close() throws Exception {
+    }
+}
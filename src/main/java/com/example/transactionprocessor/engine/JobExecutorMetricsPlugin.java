@@ -0,0 +1,67 @@
+package com.example.transactionprocessor.engine;
+
+import com.example.transactionprocessor.metrics.TransactionMetrics;
+import org.camunda.bpm.engine.impl.cfg.AbstractProcessEnginePlugin;
+import org.camunda.bpm.engine.impl.cfg.ProcessEngineConfigurationImpl;
+import org.camunda.bpm.engine.impl.cfg.TransactionState;
+import org.camunda.bpm.engine.impl.interceptor.Command;
+import org.camunda.bpm.engine.impl.jobexecutor.AcquireJobsCommandFactory;
+import org.camunda.bpm.engine.impl.jobexecutor.AcquiredJobs;
+import org.camunda.bpm.engine.impl.jobexecutor.DefaultAcquireJobsCommandFactory;
+import org.camunda.bpm.engine.impl.jobexecutor.JobExecutor;
+import org.camunda.bpm.engine.impl.jobexecutor.RejectedJobsHandler;
+import org.camunda.bpm.engine.spring.components.jobexecutor.SpringJobExecutor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Meters the job executor: each acquisition with the jobs it locked and those
+ * another node locked first, jobs handed back because the executor's queue was
+ * full, and the executor's active threads and queue depth.
+ * <p>
+ * Jobs that lose a lock conflict are only removed when the acquisition flushes,
+ * so acquisitions are counted once their transaction has committed.
+ */
+@Component
+public class JobExecutorMetricsPlugin extends AbstractProcessEnginePlugin {
+
+    @Autowired
+    private TransactionMetrics transactionMetrics;
+
+    @Override
+    public void postInit(ProcessEngineConfigurationImpl processEngineConfiguration) {
+        JobExecutor jobExecutor = processEngineConfiguration.getJobExecutor();
+        if (jobExecutor == null) {
+            return;
+        }
+        AcquireJobsCommandFactory acquireJobs = jobExecutor.getAcquireJobsCmdFactory() != null
+                ? jobExecutor.getAcquireJobsCmdFactory() : new DefaultAcquireJobsCommandFactory(jobExecutor);
+        jobExecutor.setAcquireJobsCmdFactory(numJobsToAcquire -> metered(acquireJobs.getCommand(numJobsToAcquire)));
+
+        RejectedJobsHandler rejectedJobs = jobExecutor.getRejectedJobsHandler();
+        if (rejectedJobs != null) {
+            jobExecutor.setRejectedJobsHandler((jobIds, processEngine, executor) -> {
+                transactionMetrics.recordRejectedJobs(jobIds.size());
+                rejectedJobs.jobsRejected(jobIds, processEngine, executor);
+            });
+        }
+
+        if (jobExecutor instanceof SpringJobExecutor
+                && ((SpringJobExecutor) jobExecutor).getTaskExecutor() instanceof ThreadPoolTaskExecutor) {
+            transactionMetrics.bindJobExecutor(
+                    (ThreadPoolTaskExecutor) ((SpringJobExecutor) jobExecutor).getTaskExecutor());
+        }
+    }
+
+    private Command<AcquiredJobs> metered(Command<AcquiredJobs> acquisition) {
+        return commandContext -> {
+            long startNanos = System.nanoTime();
+            AcquiredJobs acquiredJobs = acquisition.execute(commandContext);
+            commandContext.getTransactionContext().addTransactionListener(TransactionState.COMMITTED, context ->
+                    transactionMetrics.recordJobAcquisition(acquiredJobs.size(),
+                            acquiredJobs.getNumberOfJobsFailedToLock(), System.nanoTime() - startNanos));
+            return acquiredJobs;
+        };
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.transactionprocessor.engine;
+
+import com.example.transactionprocessor.metrics.TransactionMetrics;
+import org.camunda.bpm.dmn.engine.DmnDecision;
+import org.camunda.bpm.dmn.engine.DmnDecisionResult;
+import org.camunda.bpm.dmn.engine.DmnEngine;
+import org.camunda.bpm.engine.variable.context.VariableContext;
+import org.camunda.bpm.engine.variable.value.TypedValue;
+
+import java.util.Map;
+
+/**
+ * {@link DmnEngine} decorator that times every evaluation of a parsed decision,
+ * which is how business rule tasks evaluate. Parsing and the evaluate-from-stream
+ * convenience methods are passed through untimed.
+ */
+class MeteredDmnEngine extends ForwardingDmnEngine {
+
+    private final TransactionMetrics transactionMetrics;
+
+    MeteredDmnEngine(DmnEngine delegate, TransactionMetrics transactionMetrics) {
+        super(delegate);
+        this.transactionMetrics = transactionMetrics;
+    }
+
+    @Override
+    public DmnDecisionResult evaluateDecision(DmnDecision decision, Map<String, Object> variables) {
+        Object transactionType = variables.get("transactionType");
+        long startNanos = System.nanoTime();
+        DmnDecisionResult result = delegate.evaluateDecision(decision, variables);
+        record(decision, transactionType, result, startNanos);
+        return result;
+    }
+
+    @Override
+    public DmnDecisionResult evaluateDecision(DmnDecision decision, VariableContext variableContext) {
+        TypedValue transactionType = variableContext.resolve("transactionType");
+        long startNanos = System.nanoTime();
+        DmnDecisionResult result = delegate.evaluateDecision(decision, variableContext);
+        record(decision, transactionType != null ? transactionType.getValue() : null, result, startNanos);
+        return result;
+    }
+
+    private void record(DmnDecision decision, Object transactionType, DmnDecisionResult result, long startNanos) {
+        transactionMetrics.recordDecision(decision.getKey(), transactionType != null ? transactionType.toString() : null,
+                result.isEmpty() ? "NO_MATCH" : "MATCHED", System.nanoTime() - startNanos);
+    }
+}
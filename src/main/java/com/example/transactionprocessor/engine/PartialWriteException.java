@@ -0,0 +1,24 @@
+package com.example.transactionprocessor.engine;
+
+import org.camunda.bpm.engine.impl.history.event.HistoryEvent;
+
+import java.util.List;
+
+/**
+ * Thrown by a {@link HistoryEventSink} that committed part of a write before
+ * failing. Carries the events that were not written, so a retry resumes after
+ * the committed ones instead of inserting them again.
+ */
+class PartialWriteException extends Exception {
+
+    private final List<HistoryEvent> unwritten;
+
+    PartialWriteException(List<HistoryEvent> unwritten, Throwable cause) {
+        super(cause.getMessage(), cause);
+        this.unwritten = unwritten;
+    }
+
+    List<HistoryEvent> getUnwritten() {
+        return unwritten;
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.transactionprocessor.engine;
+
+import com.example.transactionprocessor.metrics.TransactionMetrics;
+import org.camunda.bpm.dmn.engine.DmnDecision;
+import org.camunda.bpm.dmn.engine.DmnDecisionResult;
+import org.camunda.bpm.dmn.engine.DmnEngine;
+import org.camunda.bpm.dmn.engine.DmnEngineConfiguration;
+import org.camunda.bpm.dmn.engine.impl.DefaultDmnEngineConfiguration;
+import org.camunda.bpm.engine.impl.el.JuelExpressionManager;
+import org.camunda.bpm.model.dmn.DmnModelInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Map;
+
+/**
+ * Evaluates the deployed {@code DeterminePath} decision outside the process
+ * engine, for transactions that do not run through BPMN. The decision is
+ * re-parsed from every deployment reported by {@link TaskFlowDecisionPlugin},
+ * and evaluated on a standalone DMN engine so no command context is needed and
+ * no decision history is written. The engine is wrapped by the
+ * {@link DecisionResultCache} like the process engine's.
+ */
+@Component
+public class RoutingDecisionEvaluator {
+
+    private DmnEngine dmnEngine;
+    private volatile DmnDecision decision;
+
+    @Autowired
+    private TransactionMetrics transactionMetrics;
+
+    @Autowired
+    private DecisionResultCache decisionResultCache;
+
+    public RoutingDecisionEvaluator() {
+        DefaultDmnEngineConfiguration configuration =
+                (DefaultDmnEngineConfiguration) DmnEngineConfiguration.createDefaultDmnEngineConfiguration();
+        // Same JUEL provider the process engine plugs into its own DMN engine
+        configuration.setElProvider(new JuelExpressionManager().toElProvider());
+        this.dmnEngine = configuration.buildEngine();
+    }
+
+    @PostConstruct
+    void init() {
+        dmnEngine = decisionResultCache.wrap(dmnEngine);
+    }
+
+    void onDecisionDeployed(DmnModelInstance dmnModelInstance) {
+        decision = dmnEngine.parseDecision(TaskFlowDecisionPlugin.ROUTING_DECISION_KEY, dmnModelInstance);
+    }
+
+    public boolean isReady() {
+        return decision != null;
+    }
+
+    /**
+     * @return the task flow for the given variables, or {@code null} when no rule matched
+     */
+    public String evaluate(Map<String, Object> variables) {
+        DmnDecision currentDecision = decision;
+        if (currentDecision == null) {
+            throw new IllegalStateException("Decision " + TaskFlowDecisionPlugin.ROUTING_DECISION_KEY + " is not deployed");
+        }
+        long startNanos = System.nanoTime();
+        DmnDecisionResult result = dmnEngine.evaluateDecision(currentDecision, variables);
+        transactionMetrics.recordDecision(currentDecision.getKey(), (String) variables.get("transactionType"),
+                result.isEmpty() ? "NO_MATCH" : "MATCHED", System.nanoTime() - startNanos);
+        return result.getSingleEntry();
+    }
+}
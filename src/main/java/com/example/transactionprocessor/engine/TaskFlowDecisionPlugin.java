@@ -0,0 +1,143 @@
+package com.example.transactionprocessor.engine;
+
+import com.example.transactionprocessor.delegate.TaskFlowPlanCache;
+import com.example.transactionprocessor.service.RequestValidator;
+import org.camunda.bpm.dmn.engine.DmnDecision;
+import org.camunda.bpm.dmn.engine.DmnDecisionRequirementsGraph;
+import org.camunda.bpm.dmn.engine.impl.DefaultDmnEngineConfiguration;
+import org.camunda.bpm.dmn.engine.impl.DmnDecisionTableImpl;
+import org.camunda.bpm.dmn.engine.impl.DmnDecisionTableInputImpl;
+import org.camunda.bpm.dmn.engine.impl.DmnDecisionTableOutputImpl;
+import org.camunda.bpm.dmn.engine.impl.DmnDecisionTableRuleImpl;
+import org.camunda.bpm.dmn.engine.impl.DmnExpressionImpl;
+import org.camunda.bpm.dmn.engine.impl.spi.transform.DmnTransformListener;
+import org.camunda.bpm.engine.impl.cfg.AbstractProcessEnginePlugin;
+import org.camunda.bpm.engine.impl.cfg.ProcessEngineConfigurationImpl;
+import org.camunda.bpm.model.dmn.DmnModelInstance;
+import org.camunda.bpm.model.dmn.instance.Decision;
+import org.camunda.bpm.model.dmn.instance.Definitions;
+import org.camunda.bpm.model.dmn.instance.Input;
+import org.camunda.bpm.model.dmn.instance.Output;
+import org.camunda.bpm.model.dmn.instance.Rule;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Hooks into DMN deployment so the task flow plans always match the deployed
+ * {@code DeterminePath} decision: every (re)deployment reports the task flows
+ * its rules can output to the {@link TaskFlowPlanCache}, the transaction types
+ * they match to the {@link RequestValidator}, and the decision itself to the
+ * {@link RoutingDecisionEvaluator}.
+ */
+@Component
+public class TaskFlowDecisionPlugin extends AbstractProcessEnginePlugin implements DmnTransformListener {
+
+    public static final String ROUTING_DECISION_KEY = "DeterminePath";
+
+    private static final String TRANSACTION_TYPE = "transactionType";
+
+    @Autowired
+    private TaskFlowPlanCache taskFlowPlanCache;
+
+    @Autowired
+    private RoutingDecisionEvaluator routingDecisionEvaluator;
+
+    @Autowired
+    private RequestValidator requestValidator;
+
+    @Override
+    public void preInit(ProcessEngineConfigurationImpl processEngineConfiguration) {
+        DefaultDmnEngineConfiguration dmnEngineConfiguration = DmnEngineConfigurations.get(processEngineConfiguration);
+        dmnEngineConfiguration.getTransformer().getTransformListeners().add(this);
+    }
+
+    @Override
+    public void transformDecision(Decision decision, DmnDecision dmnDecision) {
+        if (!ROUTING_DECISION_KEY.equals(dmnDecision.getKey()) || !dmnDecision.isDecisionTable()) {
+            return;
+        }
+
+        Set<String> taskFlows = new LinkedHashSet<>();
+        DmnDecisionTableImpl decisionTable = (DmnDecisionTableImpl) dmnDecision.getDecisionLogic();
+        for (DmnDecisionTableRuleImpl rule : decisionTable.getRules()) {
+            for (DmnExpressionImpl conclusion : rule.getConclusions()) {
+                String taskFlow = unquote(conclusion.getExpression());
+                if (taskFlow != null && !taskFlow.isEmpty()) {
+                    taskFlows.add(taskFlow);
+                }
+            }
+        }
+        taskFlowPlanCache.onDecisionDeployed(taskFlows);
+        requestValidator.onDecisionDeployed(transactionTypes(decisionTable));
+        routingDecisionEvaluator.onDecisionDeployed((DmnModelInstance) decision.getModelInstance());
+    }
+
+    /**
+     * @return the types the rules match on the {@code transactionType} input, or
+     * {@code null} when a rule's entry is not a list of string literals
+     */
+    static Set<String> transactionTypes(DmnDecisionTableImpl decisionTable) {
+        List<DmnDecisionTableInputImpl> inputs = decisionTable.getInputs();
+        int input = -1;
+        for (int i = 0; i < inputs.size(); i++) {
+            DmnExpressionImpl expression = inputs.get(i).getExpression();
+            if (expression != null && TRANSACTION_TYPE.equals(trim(expression.getExpression()))) {
+                input = i;
+            }
+        }
+        if (input < 0) {
+            return null;
+        }
+        Set<String> types = new LinkedHashSet<>();
+        for (DmnDecisionTableRuleImpl rule : decisionTable.getRules()) {
+            String entry = trim(rule.getConditions().get(input).getExpression());
+            if (entry.isEmpty() || entry.equals("-")) {
+                return null;
+            }
+            for (String literal : entry.split(",")) {
+                String text = literal.trim();
+                if (text.length() < 2 || !text.startsWith("\"") || !text.endsWith("\"")
+                        || text.indexOf('"', 1) != text.length() - 1) {
+                    return null;
+                }
+                types.add(text.substring(1, text.length() - 1));
+            }
+        }
+        return types;
+    }
+
+    private static String trim(String expression) {
+        return expression != null ? expression.trim() : "";
+    }
+
+    private String unquote(String expression) {
+        if (expression == null) {
+            return null;
+        }
+        String text = expression.trim();
+        if (text.length() >= 2 && text.startsWith("\"") && text.endsWith("\"")) {
+            return text.substring(1, text.length() - 1);
+        }
+        return text;
+    }
+
+    @Override
+    public void transformDecisionTableInput(Input input, DmnDecisionTableInputImpl dmnInput) {
+    }
+
+    @Override
+    public void transformDecisionTableOutput(Output output, DmnDecisionTableOutputImpl dmnOutput) {
+    }
+
+    @Override
+    public void transformDecisionTableRule(Rule rule, DmnDecisionTableRuleImpl dmnRule) {
+    }
+
+    @Override
+    public void transformDecisionRequirementsGraph(Definitions definitions, DmnDecisionRequirementsGraph dmnDecisionRequirementsGraph) {
+    }
+}
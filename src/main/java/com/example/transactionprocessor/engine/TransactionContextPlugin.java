@@ -0,0 +1,29 @@
+package com.example.transactionprocessor.engine;
+
+import org.camunda.bpm.engine.impl.cfg.AbstractProcessEnginePlugin;
+import org.camunda.bpm.engine.impl.cfg.ProcessEngineConfigurationImpl;
+import org.camunda.bpm.engine.impl.variable.serializer.TypedValueSerializer;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Registers the {@link TransactionContextSerializer} ahead of the built-in
+ * serializers so {@code TransactionContext} variables are written in its
+ * binary format rather than through Java serialization.
+ */
+@Component
+public class TransactionContextPlugin extends AbstractProcessEnginePlugin {
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public void preInit(ProcessEngineConfigurationImpl processEngineConfiguration) {
+        List<TypedValueSerializer> serializers = processEngineConfiguration.getCustomPreVariableSerializers();
+        if (serializers == null) {
+            serializers = new ArrayList<>();
+            processEngineConfiguration.setCustomPreVariableSerializers(serializers);
+        }
+        serializers.add(new TransactionContextSerializer());
+    }
+}
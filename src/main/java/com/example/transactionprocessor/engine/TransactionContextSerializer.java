@@ -0,0 +1,172 @@
+package com.example.transactionprocessor.engine;
+
+import com.example.transactionprocessor.model.TransactionContext;
+import org.camunda.bpm.engine.impl.variable.serializer.AbstractObjectValueSerializer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Stores a {@link TransactionContext} as one compact binary value: a format
+ * version, the entry count and, per entry, the name, a one-byte type tag and
+ * the value. No reflection or Java serialization is involved, so the value
+ * stays small and cheap to write on every task.
+ */
+public class TransactionContextSerializer extends AbstractObjectValueSerializer {
+
+    public static final String NAME = "transaction-context";
+    public static final String SERIALIZATION_DATA_FORMAT = "application/x-transaction-context";
+
+    private static final byte FORMAT_VERSION = 1;
+
+    private static final byte TYPE_NULL = 0;
+    private static final byte TYPE_STRING = 1;
+    private static final byte TYPE_BOOLEAN = 2;
+    private static final byte TYPE_INTEGER = 3;
+    private static final byte TYPE_LONG = 4;
+    private static final byte TYPE_DOUBLE = 5;
+    private static final byte TYPE_DECIMAL = 6;
+    private static final byte TYPE_DATE = 7;
+    private static final byte TYPE_DATE_TIME = 8;
+
+    public TransactionContextSerializer() {
+        super(SERIALIZATION_DATA_FORMAT);
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    protected boolean canSerializeValue(Object value) {
+        return value instanceof TransactionContext;
+    }
+
+    @Override
+    protected String getTypeNameForDeserialized(Object deserializedObject) {
+        return TransactionContext.class.getName();
+    }
+
+    @Override
+    protected boolean isSerializationTextBased() {
+        return false;
+    }
+
+    @Override
+    protected byte[] serializeToByteArray(Object deserializedObject) throws IOException {
+        return encode((TransactionContext) deserializedObject);
+    }
+
+    @Override
+    protected Object deserializeFromByteArray(byte[] bytes, String objectTypeName) throws IOException {
+        return decode(bytes);
+    }
+
+    static byte[] encode(TransactionContext context) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(32 * context.size());
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(FORMAT_VERSION);
+        out.writeInt(context.size());
+        for (Map.Entry<String, Object> entry : context.getValues().entrySet()) {
+            out.writeUTF(entry.getKey());
+            writeValue(out, entry.getKey(), entry.getValue());
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    static TransactionContext decode(byte[] bytes) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        byte version = in.readByte();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported transaction context format version: " + version);
+        }
+        int size = in.readInt();
+        Map<String, Object> values = new LinkedHashMap<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            String name = in.readUTF();
+            values.put(name, readValue(in));
+        }
+        return new TransactionContext(values);
+    }
+
+    private static void writeValue(DataOutputStream out, String name, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(TYPE_NULL);
+        } else if (value instanceof String) {
+            out.writeByte(TYPE_STRING);
+            out.writeUTF((String) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte(TYPE_BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(TYPE_INTEGER);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte(TYPE_LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Double) {
+            out.writeByte(TYPE_DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof BigDecimal) {
+            BigDecimal decimal = (BigDecimal) value;
+            byte[] unscaled = decimal.unscaledValue().toByteArray();
+            out.writeByte(TYPE_DECIMAL);
+            out.writeInt(decimal.scale());
+            out.writeShort(unscaled.length);
+            out.write(unscaled);
+        } else if (value instanceof LocalDate) {
+            out.writeByte(TYPE_DATE);
+            out.writeLong(((LocalDate) value).toEpochDay());
+        } else if (value instanceof LocalDateTime) {
+            LocalDateTime dateTime = (LocalDateTime) value;
+            out.writeByte(TYPE_DATE_TIME);
+            out.writeLong(dateTime.toLocalDate().toEpochDay());
+            out.writeLong(dateTime.toLocalTime().toNanoOfDay());
+        } else {
+            throw new IllegalArgumentException("Unsupported value type " + value.getClass().getName()
+                    + " for transaction context entry '" + name + "'");
+        }
+    }
+
+    private static Object readValue(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case TYPE_NULL:
+                return null;
+            case TYPE_STRING:
+                return in.readUTF();
+            case TYPE_BOOLEAN:
+                return in.readBoolean();
+            case TYPE_INTEGER:
+                return in.readInt();
+            case TYPE_LONG:
+                return in.readLong();
+            case TYPE_DOUBLE:
+                return in.readDouble();
+            case TYPE_DECIMAL:
+                int scale = in.readInt();
+                byte[] unscaled = new byte[in.readUnsignedShort()];
+                in.readFully(unscaled);
+                return new BigDecimal(new BigInteger(unscaled), scale);
+            case TYPE_DATE:
+                return LocalDate.ofEpochDay(in.readLong());
+            case TYPE_DATE_TIME:
+                LocalDate date = LocalDate.ofEpochDay(in.readLong());
+                return LocalDateTime.of(date, LocalTime.ofNanoOfDay(in.readLong()));
+            default:
+                throw new IOException("Unknown transaction context value type: " + type);
+        }
+    }
+}
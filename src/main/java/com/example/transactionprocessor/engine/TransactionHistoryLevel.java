@@ -0,0 +1,149 @@
+package com.example.transactionprocessor.engine;
+
+import org.camunda.bpm.engine.ProcessEngineException;
+import org.camunda.bpm.engine.impl.context.BpmnExecutionContext;
+import org.camunda.bpm.engine.impl.context.Context;
+import org.camunda.bpm.engine.impl.history.HistoryLevel;
+import org.camunda.bpm.engine.impl.history.event.HistoryEventType;
+import org.camunda.bpm.engine.impl.persistence.entity.ExecutionEntity;
+import org.camunda.bpm.engine.impl.persistence.entity.VariableInstanceEntity;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * History level that applies one of Camunda's built-in levels per transaction
+ * type, read from the process instance's {@code transactionType} variable. A
+ * {@code Purchase=activity} entry keeps activity history for purchases but skips
+ * their variable and {@code DeterminePath} decision history, while every other
+ * type keeps the default level.
+ * <p>
+ * Camunda decides on the process start event before the start variables are set,
+ * so starts go through {@link #start}, which binds the type to the starting
+ * thread until the variable can be read.
+ * <p>
+ * Without an execution to resolve the type from (engine bootstrap, BPMN parsing),
+ * an event is produced if any configured level produces it, so the history parse
+ * listeners are still registered for the types that need them.
+ */
+public class TransactionHistoryLevel implements HistoryLevel {
+
+    public static final int ID = 100;
+    public static final String NAME = "per-transaction-type";
+
+    private static final String TRANSACTION_TYPE = "transactionType";
+
+    private static final ThreadLocal<String> STARTING_TRANSACTION_TYPE = new ThreadLocal<>();
+
+    private final HistoryLevel defaultLevel;
+    private final Map<String, HistoryLevel> levelsByType;
+
+    public TransactionHistoryLevel(HistoryLevel defaultLevel, Map<String, HistoryLevel> levelsByType) {
+        this.defaultLevel = defaultLevel;
+        this.levelsByType = Collections.unmodifiableMap(new LinkedHashMap<>(levelsByType));
+    }
+
+    /**
+     * Parses {@code Purchase=activity,Payment=audit} into levels per transaction type.
+     */
+    public static TransactionHistoryLevel parse(String defaultLevel, String levels) {
+        Map<String, HistoryLevel> levelsByType = new LinkedHashMap<>();
+        for (String entry : levels.split(",")) {
+            if (entry.trim().isEmpty()) {
+                continue;
+            }
+            int separator = entry.indexOf('=');
+            if (separator < 0) {
+                throw new ProcessEngineException("Expected <transactionType>=<history level> but got: " + entry.trim());
+            }
+            levelsByType.put(entry.substring(0, separator).trim(), level(entry.substring(separator + 1)));
+        }
+        return new TransactionHistoryLevel(level(defaultLevel), levelsByType);
+    }
+
+    private static HistoryLevel level(String name) {
+        for (HistoryLevel level : List.of(HISTORY_LEVEL_NONE, HISTORY_LEVEL_ACTIVITY, HISTORY_LEVEL_AUDIT,
+                HISTORY_LEVEL_FULL)) {
+            if (level.getName().equalsIgnoreCase(name.trim())) {
+                return level;
+            }
+        }
+        throw new ProcessEngineException("Unknown history level: " + name.trim());
+    }
+
+    /**
+     * Runs a process start for a transaction of the given type.
+     */
+    public static <T> T start(String transactionType, Supplier<T> start) {
+        String outer = STARTING_TRANSACTION_TYPE.get();
+        STARTING_TRANSACTION_TYPE.set(transactionType);
+        try {
+            return start.get();
+        } finally {
+            if (outer != null) {
+                STARTING_TRANSACTION_TYPE.set(outer);
+            } else {
+                STARTING_TRANSACTION_TYPE.remove();
+            }
+        }
+    }
+
+    @Override
+    public int getId() {
+        return ID;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean isHistoryEventProduced(HistoryEventType eventType, Object entity) {
+        ExecutionEntity execution = executionOf(entity);
+        if (execution == null) {
+            return isProducedByAnyLevel(eventType, entity);
+        }
+        return levelFor(transactionType(execution)).isHistoryEventProduced(eventType, entity);
+    }
+
+    public HistoryLevel levelFor(String transactionType) {
+        HistoryLevel level = transactionType != null ? levelsByType.get(transactionType) : null;
+        return level != null ? level : defaultLevel;
+    }
+
+    private boolean isProducedByAnyLevel(HistoryEventType eventType, Object entity) {
+        if (defaultLevel.isHistoryEventProduced(eventType, entity)) {
+            return true;
+        }
+        for (HistoryLevel level : levelsByType.values()) {
+            if (level.isHistoryEventProduced(eventType, entity)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static ExecutionEntity executionOf(Object entity) {
+        if (entity instanceof ExecutionEntity) {
+            return (ExecutionEntity) entity;
+        }
+        if (entity instanceof VariableInstanceEntity) {
+            ExecutionEntity execution = ((VariableInstanceEntity) entity).getExecution();
+            if (execution != null) {
+                return execution;
+            }
+        }
+        BpmnExecutionContext executionContext = Context.getBpmnExecutionContext();
+        return executionContext != null ? executionContext.getExecution() : null;
+    }
+
+    private static String transactionType(ExecutionEntity execution) {
+        ExecutionEntity processInstance = execution.getProcessInstance();
+        Object transactionType = (processInstance != null ? processInstance : execution).getVariable(TRANSACTION_TYPE);
+        return transactionType instanceof String ? (String) transactionType : STARTING_TRANSACTION_TYPE.get();
+    }
+}
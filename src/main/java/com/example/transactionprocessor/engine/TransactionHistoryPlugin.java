@@ -0,0 +1,133 @@
+package com.example.transactionprocessor.engine;
+
+import com.example.transactionprocessor.metrics.TransactionMetrics;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.camunda.bpm.engine.ProcessEngine;
+import org.camunda.bpm.engine.ProcessEngineException;
+import org.camunda.bpm.engine.impl.cfg.AbstractProcessEnginePlugin;
+import org.camunda.bpm.engine.impl.cfg.ProcessEngineConfigurationImpl;
+import org.camunda.bpm.engine.impl.history.HistoryLevel;
+import org.camunda.bpm.engine.impl.history.handler.HistoryEventHandler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Applies the {@code transaction-processor.history} settings to the engine:
+ * <ul>
+ *   <li>{@code levels}: history level per transaction type through a
+ *       {@link TransactionHistoryLevel}; when empty, {@code camunda.bpm.history-level} applies</li>
+ *   <li>{@code async.enabled}: history events leave the business transaction and are
+ *       written after commit by an {@link AsyncHistoryWriter}, to the history tables
+ *       ({@code sink: db}) or to an append-only audit file ({@code sink: file})</li>
+ * </ul>
+ */
+@Component
+public class TransactionHistoryPlugin extends AbstractProcessEnginePlugin {
+
+    private static final Logger log = LogManager.getLogger(TransactionHistoryPlugin.class);
+
+    @Autowired
+    private TransactionMetrics transactionMetrics;
+
+    @Value("${transaction-processor.history.levels:}")
+    private String levels;
+
+    @Value("${transaction-processor.history.default-level:full}")
+    private String defaultLevel;
+
+    @Value("${transaction-processor.history.async.enabled:false}")
+    private boolean asyncEnabled;
+
+    @Value("${transaction-processor.history.async.sink:db}")
+    private String sink;
+
+    @Value("${transaction-processor.history.async.file:./data/history.ndjson}")
+    private String file;
+
+    @Value("${transaction-processor.history.async.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${transaction-processor.history.async.batch-size:500}")
+    private int batchSize;
+
+    @Value("${transaction-processor.history.async.flush-interval-ms:200}")
+    private long flushIntervalMillis;
+
+    @Value("${transaction-processor.history.async.offer-timeout-ms:1000}")
+    private long offerTimeoutMillis;
+
+    private AsyncHistoryWriter writer;
+
+    @Override
+    public void preInit(ProcessEngineConfigurationImpl processEngineConfiguration) {
+        if (!levels.trim().isEmpty()) {
+            TransactionHistoryLevel historyLevel = TransactionHistoryLevel.parse(defaultLevel, levels);
+            List<HistoryLevel> customHistoryLevels = processEngineConfiguration.getCustomHistoryLevels();
+            if (customHistoryLevels == null) {
+                customHistoryLevels = new ArrayList<>();
+                processEngineConfiguration.setCustomHistoryLevels(customHistoryLevels);
+            }
+            customHistoryLevels.add(historyLevel);
+            processEngineConfiguration.setHistory(TransactionHistoryLevel.NAME);
+            log.info("History level per transaction type: {} (default {})", levels, defaultLevel);
+        }
+
+        if (asyncEnabled) {
+            writer = new AsyncHistoryWriter(createSink(processEngineConfiguration), queueCapacity, batchSize,
+                    flushIntervalMillis, offerTimeoutMillis);
+            // Replaces only the engine's own database handler; other handlers, such as
+            // the Spring event publisher, still receive every event synchronously
+            processEngineConfiguration.setEnableDefaultDbHistoryEventHandler(false);
+            List<HistoryEventHandler> customHistoryEventHandlers = processEngineConfiguration.getCustomHistoryEventHandlers();
+            if (customHistoryEventHandlers == null) {
+                customHistoryEventHandlers = new ArrayList<>();
+                processEngineConfiguration.setCustomHistoryEventHandlers(customHistoryEventHandlers);
+            }
+            customHistoryEventHandlers.add(new BufferedHistoryEventHandler(writer));
+            transactionMetrics.bindHistoryWriter(writer);
+            log.info("Asynchronous history enabled, sink: {}", sink);
+        }
+    }
+
+    private HistoryEventSink createSink(ProcessEngineConfigurationImpl processEngineConfiguration) {
+        switch (sink.toLowerCase()) {
+            case "db":
+                return new DatabaseHistorySink(processEngineConfiguration);
+            case "file":
+                try {
+                    return new FileHistorySink(Paths.get(file));
+                } catch (IOException e) {
+                    throw new ProcessEngineException("Cannot open history file " + file, e);
+                }
+            default:
+                throw new IllegalArgumentException("Unknown transaction-processor.history.async.sink: " + sink);
+        }
+    }
+
+    @Override
+    public void postProcessEngineBuild(ProcessEngine processEngine) {
+        if (writer != null) {
+            writer.start();
+        }
+    }
+
+    /**
+     * Drains the buffer while the engine, which the database sink writes
+     * through, is still open.
+     */
+    @EventListener(ContextClosedEvent.class)
+    public void closeWriter() {
+        if (writer != null) {
+            writer.close();
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.transactionprocessor.engine;
+
+import com.example.transactionprocessor.model.TransactionOutcome;
+import com.example.transactionprocessor.service.TransactionOutcomeIndex;
+import com.example.transactionprocessor.service.TransactionOutcomes;
+import org.camunda.bpm.engine.delegate.DelegateExecution;
+import org.camunda.bpm.engine.delegate.ExecutionListener;
+import org.camunda.bpm.engine.impl.bpmn.parser.AbstractBpmnParseListener;
+import org.camunda.bpm.engine.impl.bpmn.parser.BpmnParseListener;
+import org.camunda.bpm.engine.impl.cfg.AbstractProcessEnginePlugin;
+import org.camunda.bpm.engine.impl.cfg.ProcessEngineConfigurationImpl;
+import org.camunda.bpm.engine.impl.cfg.TransactionState;
+import org.camunda.bpm.engine.impl.context.Context;
+import org.camunda.bpm.engine.impl.interceptor.CommandContext;
+import org.camunda.bpm.engine.impl.persistence.entity.ProcessDefinitionEntity;
+import org.camunda.bpm.engine.impl.util.xml.Element;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records a {@link TransactionOutcome} with mode {@code BPMN} when a transaction
+ * process instance ends, {@code COMPLETED} or {@code CANCELLED}, so status
+ * queries on BPMN transactions are answered from the outcome index like
+ * straight-through ones.
+ * <p>
+ * A start listener notes the start time and the start variable names in memory
+ * until the instance ends (or its start rolls back), so the outcome lists only
+ * the values the tasks added and nothing extra is persisted per instance. Notes
+ * of instances that end on another node or wait in an incident are dropped
+ * after {@code started-retention-ms}; such an instance is recorded with every
+ * variable, like one started before a restart.
+ */
+@Component
+public class TransactionOutcomePlugin extends AbstractProcessEnginePlugin {
+
+    @Autowired
+    private TransactionOutcomeIndex transactionOutcomeIndex;
+
+    @Value("${transaction-processor.outcome-index.started-retention-ms:3600000}")
+    private long startedRetentionMillis;
+
+    private final ExecutionListener startListener = this::started;
+    private final ExecutionListener endListener = this::ended;
+
+    private final Map<String, Started> startedInstances = new ConcurrentHashMap<>();
+    private final AtomicLong nextSweepNanos = new AtomicLong(System.nanoTime());
+
+    @Override
+    public void preInit(ProcessEngineConfigurationImpl processEngineConfiguration) {
+        List<BpmnParseListener> parseListeners = processEngineConfiguration.getCustomPostBPMNParseListeners();
+        if (parseListeners == null) {
+            parseListeners = new ArrayList<>();
+            processEngineConfiguration.setCustomPostBPMNParseListeners(parseListeners);
+        }
+        parseListeners.add(new AbstractBpmnParseListener() {
+            @Override
+            public void parseProcess(Element processElement, ProcessDefinitionEntity processDefinition) {
+                processDefinition.addListener(ExecutionListener.EVENTNAME_START, startListener);
+                processDefinition.addListener(ExecutionListener.EVENTNAME_END, endListener);
+            }
+        });
+    }
+
+    private void started(DelegateExecution execution) {
+        String processInstanceId = execution.getProcessInstanceId();
+        long now = System.nanoTime();
+        sweep(now);
+        startedInstances.put(processInstanceId, new Started(Instant.now(), now,
+                TransactionOutcomes.flatten(execution.getVariables()).keySet()));
+        CommandContext commandContext = Context.getCommandContext();
+        if (commandContext != null) {
+            commandContext.getTransactionContext().addTransactionListener(TransactionState.ROLLED_BACK,
+                    context -> startedInstances.remove(processInstanceId));
+        }
+    }
+
+    private void ended(DelegateExecution execution) {
+        if (execution.getParentId() != null) {
+            return;
+        }
+        Started started = startedInstances.remove(execution.getProcessInstanceId());
+
+        Instant createdAt = Instant.now();
+        long durationMicros = 0;
+        Set<String> inputNames = new HashSet<>();
+        // Unknown when the instance was started on another node or before a restart;
+        // the outcome then lists every variable
+        if (started != null) {
+            createdAt = started.createdAt;
+            durationMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - started.startNanos);
+            inputNames.addAll(started.inputNames);
+        }
+        inputNames.add("processInstanceId");
+
+        // Intake uses its own id as business key and reports it as processInstanceId
+        String businessKey = execution.getProcessBusinessKey();
+        String processInstanceId = businessKey != null ? businessKey : execution.getProcessInstanceId();
+        if (execution.isCanceled()) {
+            transactionOutcomeIndex.record(TransactionOutcomes.cancelled(processInstanceId, execution.getVariables(),
+                    inputNames, TransactionOutcome.MODE_BPMN, createdAt, durationMicros));
+        } else {
+            transactionOutcomeIndex.record(TransactionOutcomes.completed(processInstanceId, execution.getVariables(),
+                    inputNames, TransactionOutcome.MODE_BPMN, createdAt, durationMicros));
+        }
+    }
+
+    /**
+     * Drops the notes of instances started more than the retention ago; at most
+     * one thread sweeps, once per quarter of the retention.
+     */
+    private void sweep(long now) {
+        long next = nextSweepNanos.get();
+        long retentionNanos = TimeUnit.MILLISECONDS.toNanos(startedRetentionMillis);
+        if (now - next < 0 || !nextSweepNanos.compareAndSet(next, now + retentionNanos / 4)) {
+            return;
+        }
+        startedInstances.values().removeIf(started -> now - started.startNanos > retentionNanos);
+    }
+
+    int getStartedCount() {
+        return startedInstances.size();
+    }
+
+    private static class Started {
+        private final Instant createdAt;
+        private final long startNanos;
+        private final Set<String> inputNames;
+
+        private Started(Instant createdAt, long startNanos, Set<String> inputNames) {
+            this.createdAt = createdAt;
+            this.startNanos = startNanos;
+            this.inputNames = inputNames;
+        }
+    }
+}
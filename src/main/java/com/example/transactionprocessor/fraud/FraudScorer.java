@@ -0,0 +1,181 @@
+package com.example.transactionprocessor.fraud;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Velocity checks on every transaction: how many transactions, and how much,
+ * its card, its vendor (name and location) and its account have had in the last
+ * minute, hour and day. Each dimension has its own {@link VelocityLimits}.
+ * <p>
+ * {@link #check} returns the limits the transaction exceeded as bit flags, so
+ * the hot path allocates nothing once a card, vendor or account is known;
+ * {@link #score} and {@link #describe} turn the flags into a 0-100 score and a
+ * readable list. Every checked transaction counts, declined ones included.
+ * Counters idle for a whole day are dropped once a minute.
+ */
+@Component
+public class FraudScorer {
+
+    private static final Logger log = LogManager.getLogger(FraudScorer.class);
+
+    static final int CARD = 0;
+    static final int VENDOR = 1;
+    static final int ACCOUNT = 2;
+
+    private static final String[] DIMENSION_NAMES = {"card", "vendor", "account"};
+    /** Score added per exceeded limit of each dimension */
+    private static final int[] WEIGHTS = {30, 15, 30};
+    private static final int DIMENSION_MASK = (1 << VelocityCounter.LIMIT_BITS) - 1;
+
+    @Value("${transaction-processor.fraud.card.max-count:5,30,100}")
+    private long[] cardMaxCounts;
+
+    @Value("${transaction-processor.fraud.card.max-amount:0,0,10000.00}")
+    private String[] cardMaxAmounts;
+
+    @Value("${transaction-processor.fraud.vendor.max-count:600,0,0}")
+    private long[] vendorMaxCounts;
+
+    @Value("${transaction-processor.fraud.vendor.max-amount:0,0,0}")
+    private String[] vendorMaxAmounts;
+
+    @Value("${transaction-processor.fraud.account.max-count:3,10,50}")
+    private long[] accountMaxCounts;
+
+    @Value("${transaction-processor.fraud.account.max-amount:0,0,0}")
+    private String[] accountMaxAmounts;
+
+    private final Map<String, VelocityCounter> cards = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, VelocityCounter>> vendors = new ConcurrentHashMap<>();
+    private final Map<String, VelocityCounter> accounts = new ConcurrentHashMap<>();
+
+    private final VelocityLimits[] limits = new VelocityLimits[DIMENSION_NAMES.length];
+    private ScheduledExecutorService eviction;
+
+    @PostConstruct
+    void init() {
+        limits[CARD] = VelocityLimits.of(cardMaxCounts, cardMaxAmounts);
+        limits[VENDOR] = VelocityLimits.of(vendorMaxCounts, vendorMaxAmounts);
+        limits[ACCOUNT] = VelocityLimits.of(accountMaxCounts, accountMaxAmounts);
+        eviction = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "fraud-counter-eviction");
+            thread.setDaemon(true);
+            return thread;
+        });
+        eviction.scheduleWithFixedDelay(() -> evictIdle(System.currentTimeMillis()
+                - VelocityCounter.LONGEST_WINDOW_MILLIS), 1, 1, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        eviction.shutdownNow();
+    }
+
+    /**
+     * Counts the transaction against each dimension it carries a key for, and
+     * returns the flags of the limits exceeded. A {@code null} key skips its dimension.
+     */
+    public int check(String cardKey, String vendorName, String vendorLocation, String accountKey,
+                     long cents, long nowMillis) {
+        int flags = 0;
+        if (cardKey != null) {
+            flags |= record(CARD, counter(cards, cardKey), cents, nowMillis);
+        }
+        if (vendorName != null) {
+            Map<String, VelocityCounter> locations = vendors.get(vendorName);
+            if (locations == null) {
+                locations = vendors.computeIfAbsent(vendorName, name -> new ConcurrentHashMap<>());
+            }
+            flags |= record(VENDOR, counter(locations, vendorLocation != null ? vendorLocation : ""),
+                    cents, nowMillis);
+        }
+        if (accountKey != null) {
+            flags |= record(ACCOUNT, counter(accounts, accountKey), cents, nowMillis);
+        }
+        return flags;
+    }
+
+    /**
+     * Score of 0 to 100 for the flags {@link #check} returned.
+     */
+    public static int score(int flags) {
+        int score = 0;
+        for (int dimension = 0; dimension < DIMENSION_NAMES.length; dimension++) {
+            score += WEIGHTS[dimension] * Integer.bitCount(dimensionFlags(flags, dimension));
+        }
+        return Math.min(score, 100);
+    }
+
+    /**
+     * The exceeded limits, e.g. {@code card:count/1m,card:amount/24h}; empty for no flags.
+     */
+    public static String describe(int flags) {
+        if (flags == 0) {
+            return "";
+        }
+        StringBuilder description = new StringBuilder();
+        for (int dimension = 0; dimension < DIMENSION_NAMES.length; dimension++) {
+            int dimensionFlags = dimensionFlags(flags, dimension);
+            for (int bit = 0; bit < VelocityCounter.LIMIT_BITS; bit++) {
+                if ((dimensionFlags & (1 << bit)) == 0) {
+                    continue;
+                }
+                if (description.length() > 0) {
+                    description.append(',');
+                }
+                description.append(DIMENSION_NAMES[dimension])
+                        .append(bit < VelocityCounter.WINDOWS ? ":count/" : ":amount/")
+                        .append(VelocityCounter.WINDOW_NAMES[bit % VelocityCounter.WINDOWS]);
+            }
+        }
+        return description.toString();
+    }
+
+    public int getTrackedKeyCount() {
+        int locations = 0;
+        for (Map<String, VelocityCounter> vendor : vendors.values()) {
+            locations += vendor.size();
+        }
+        return cards.size() + locations + accounts.size();
+    }
+
+    void evictIdle(long cutoffMillis) {
+        int before = getTrackedKeyCount();
+        cards.values().removeIf(counter -> counter.isIdleSince(cutoffMillis));
+        accounts.values().removeIf(counter -> counter.isIdleSince(cutoffMillis));
+        for (String vendorName : vendors.keySet()) {
+            vendors.computeIfPresent(vendorName, (name, locations) -> {
+                locations.values().removeIf(counter -> counter.isIdleSince(cutoffMillis));
+                return locations.isEmpty() ? null : locations;
+            });
+        }
+        int evicted = before - getTrackedKeyCount();
+        if (evicted > 0) {
+            log.debug("Dropped {} idle velocity counters", evicted);
+        }
+    }
+
+    private int record(int dimension, VelocityCounter counter, long cents, long nowMillis) {
+        return counter.record(nowMillis, cents, limits[dimension]) << (dimension * VelocityCounter.LIMIT_BITS);
+    }
+
+    private static VelocityCounter counter(Map<String, VelocityCounter> counters, String key) {
+        VelocityCounter counter = counters.get(key);
+        return counter != null ? counter : counters.computeIfAbsent(key, k -> new VelocityCounter());
+    }
+
+    private static int dimensionFlags(int flags, int dimension) {
+        return (flags >>> (dimension * VelocityCounter.LIMIT_BITS)) & DIMENSION_MASK;
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.transactionprocessor.fraud;
+
+/**
+ * Count and sum of the events in the last {@code buckets} buckets of
+ * {@code bucketMillis} each. Buckets are count and sum pairs in one fixed array,
+ * reused as the window moves, so recording an event allocates nothing, and
+ * running totals are corrected as buckets fall out of the window, so reading
+ * them is O(1).
+ * <p>
+ * The window moves a whole bucket at a time: it covers the current, partial
+ * bucket and the {@code buckets - 1} before it. Not thread-safe; callers lock.
+ */
+final class SlidingWindow {
+
+    private final long bucketMillis;
+    private final int buckets;
+    /** Count of bucket {@code i} at {@code 2 * i}, its sum at {@code 2 * i + 1} */
+    private final long[] totals;
+
+    private long currentBucket;
+    private long count;
+    private long sum;
+
+    SlidingWindow(long bucketMillis, int buckets) {
+        this.bucketMillis = bucketMillis;
+        this.buckets = buckets;
+        this.totals = new long[buckets * 2];
+    }
+
+    void add(long nowMillis, long amount) {
+        advance(nowMillis);
+        int slot = slot(currentBucket);
+        totals[slot]++;
+        totals[slot + 1] += amount;
+        count++;
+        sum += amount;
+    }
+
+    long count(long nowMillis) {
+        advance(nowMillis);
+        return count;
+    }
+
+    long sum(long nowMillis) {
+        advance(nowMillis);
+        return sum;
+    }
+
+    private void advance(long nowMillis) {
+        long bucket = nowMillis / bucketMillis;
+        if (bucket <= currentBucket) {
+            // Same bucket, or a clock step backwards: count it in the current bucket
+            return;
+        }
+        // Clear the slots being entered; they still hold buckets from a full window ago
+        long entered = Math.min(bucket - currentBucket, buckets);
+        for (long next = bucket - entered + 1; next <= bucket; next++) {
+            int slot = slot(next);
+            count -= totals[slot];
+            sum -= totals[slot + 1];
+            totals[slot] = 0;
+            totals[slot + 1] = 0;
+        }
+        currentBucket = bucket;
+    }
+
+    private int slot(long bucket) {
+        return Math.floorMod(bucket, buckets) * 2;
+    }
+}
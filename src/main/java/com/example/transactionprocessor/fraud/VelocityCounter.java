@@ -0,0 +1,56 @@
+package com.example.transactionprocessor.fraud;
+
+/**
+ * Transaction count and amount of one card, vendor or account over the last
+ * minute, hour and day, in 5 second, 5 minute and 1 hour buckets respectively:
+ * 48 buckets, under 1 KB per counter.
+ */
+final class VelocityCounter {
+
+    static final int WINDOWS = 3;
+    static final String[] WINDOW_NAMES = {"1m", "1h", "24h"};
+    static final long LONGEST_WINDOW_MILLIS = 24 * 3_600_000L;
+
+    /** Bits {@link #record} returns: one per window for the count, then one per window for the amount. */
+    static final int LIMIT_BITS = WINDOWS * 2;
+
+    private final SlidingWindow[] windows = {
+            new SlidingWindow(5_000, 12),
+            new SlidingWindow(300_000, 12),
+            new SlidingWindow(3_600_000, 24)
+    };
+
+    private volatile long lastEventMillis;
+
+    /**
+     * Adds one transaction of {@code cents} and returns a bit for each limit the
+     * windows, including this transaction, now exceed.
+     */
+    synchronized int record(long nowMillis, long cents, VelocityLimits limits) {
+        lastEventMillis = nowMillis;
+        int exceeded = 0;
+        for (int i = 0; i < WINDOWS; i++) {
+            SlidingWindow window = windows[i];
+            window.add(nowMillis, cents);
+            if (limits.countExceeded(i, window.count(nowMillis))) {
+                exceeded |= 1 << i;
+            }
+            if (limits.amountExceeded(i, window.sum(nowMillis))) {
+                exceeded |= 1 << (WINDOWS + i);
+            }
+        }
+        return exceeded;
+    }
+
+    synchronized long count(int window, long nowMillis) {
+        return windows[window].count(nowMillis);
+    }
+
+    synchronized long sum(int window, long nowMillis) {
+        return windows[window].sum(nowMillis);
+    }
+
+    boolean isIdleSince(long cutoffMillis) {
+        return lastEventMillis < cutoffMillis;
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.transactionprocessor.fraud;
+
+import com.example.transactionprocessor.ledger.AccountLedger;
+
+/**
+ * Per-window limits on the number and total amount of transactions, indexed like
+ * {@link VelocityCounter#WINDOW_NAMES}. Zero means no limit.
+ */
+final class VelocityLimits {
+
+    private final long[] maxCounts;
+    private final long[] maxCents;
+
+    private VelocityLimits(long[] maxCounts, long[] maxCents) {
+        this.maxCounts = maxCounts;
+        this.maxCents = maxCents;
+    }
+
+    static VelocityLimits of(long[] maxCounts, String[] maxAmounts) {
+        if (maxCounts.length != VelocityCounter.WINDOWS || maxAmounts.length != VelocityCounter.WINDOWS) {
+            throw new IllegalArgumentException("Velocity limits need one value per window "
+                    + String.join(",", VelocityCounter.WINDOW_NAMES));
+        }
+        long[] maxCents = new long[maxAmounts.length];
+        for (int i = 0; i < maxAmounts.length; i++) {
+            maxCents[i] = AccountLedger.toCents(maxAmounts[i].trim());
+        }
+        return new VelocityLimits(maxCounts.clone(), maxCents);
+    }
+
+    boolean countExceeded(int window, long count) {
+        return maxCounts[window] > 0 && count > maxCounts[window];
+    }
+
+    boolean amountExceeded(int window, long cents) {
+        return maxCents[window] > 0 && cents > maxCents[window];
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.transactionprocessor.ingest;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads a CSV line against the file's header row, whose column names are the
+ * record's field paths ({@code amount}, {@code creditCardInfo.cardNumber}, ...).
+ * Fields may be quoted, with {@code ""} for a quote inside; a quoted field
+ * cannot span lines. Empty fields are left unset, and a nested object whose
+ * columns are all empty is left off the request.
+ */
+final class CsvRecordParser implements RecordParser {
+
+    private final RecordFields.FieldSetter[] columns;
+
+    CsvRecordParser(byte[] header, int offset, int length) {
+        List<String> names = new ArrayList<>();
+        split(header, offset, length, (column, bytes, start, end) -> names.add(text(bytes, start, end)));
+        columns = new RecordFields.FieldSetter[names.size()];
+        for (int i = 0; i < columns.length; i++) {
+            String name = names.get(i).trim();
+            if (RecordFields.PAYMENT_FIELDS.stream().anyMatch(name::startsWith)) {
+                throw new IllegalArgumentException("Payment records are not ingested from files");
+            }
+            columns[i] = RecordFields.setter(name);
+        }
+    }
+
+    @Override
+    public void parse(byte[] bytes, int offset, int length, IngestRecord into) {
+        int fields = split(bytes, offset, length, (column, line, start, end) -> {
+            if (column < columns.length && columns[column] != null && end > start) {
+                columns[column].set(into, text(line, start, end));
+            }
+        });
+        if (fields != columns.length) {
+            throw new IllegalArgumentException("Expected " + columns.length + " fields but got " + fields);
+        }
+    }
+
+    private interface FieldHandler {
+        void field(int column, byte[] bytes, int start, int end);
+    }
+
+    /**
+     * @return the number of fields on the line
+     */
+    private static int split(byte[] bytes, int offset, int length, FieldHandler handler) {
+        int end = offset + length;
+        int column = 0;
+        int position = offset;
+        while (true) {
+            if (position < end && bytes[position] == '"') {
+                int close = closingQuote(bytes, position + 1, end);
+                byte[] value = unquote(bytes, position + 1, close);
+                handler.field(column++, value, 0, value.length);
+                position = close + 1;
+                if (position < end && bytes[position] != ',') {
+                    throw new IllegalArgumentException("Unexpected character after quoted field " + column);
+                }
+            } else {
+                int comma = position;
+                while (comma < end && bytes[comma] != ',') {
+                    comma++;
+                }
+                handler.field(column++, bytes, position, comma);
+                position = comma;
+            }
+            if (position >= end) {
+                return column;
+            }
+            position++;
+        }
+    }
+
+    private static int closingQuote(byte[] bytes, int from, int end) {
+        for (int i = from; i < end; i++) {
+            if (bytes[i] == '"') {
+                if (i + 1 < end && bytes[i + 1] == '"') {
+                    i++;
+                } else {
+                    return i;
+                }
+            }
+        }
+        throw new IllegalArgumentException("Unterminated quoted field");
+    }
+
+    private static byte[] unquote(byte[] bytes, int start, int end) {
+        byte[] value = new byte[end - start];
+        int length = 0;
+        for (int i = start; i < end; i++) {
+            value[length++] = bytes[i];
+            if (bytes[i] == '"') {
+                i++;
+            }
+        }
+        return Arrays.copyOf(value, length);
+    }
+
+    private static String text(byte[] bytes, int start, int end) {
+        return new String(bytes, start, end - start, StandardCharsets.UTF_8);
+    }
+}
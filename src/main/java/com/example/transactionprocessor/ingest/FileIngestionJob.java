@@ -0,0 +1,493 @@
+package com.example.transactionprocessor.ingest;
+
+import com.example.transactionprocessor.metrics.TransactionMetrics;
+import com.example.transactionprocessor.model.TransactionRequest;
+import com.example.transactionprocessor.service.IdempotencyService;
+import com.example.transactionprocessor.service.RequestValidator;
+import com.example.transactionprocessor.service.TransactionStartService;
+import com.example.transactionprocessor.service.TransactionVariableMapper;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Starts the transactions in NDJSON ({@code .ndjson}, {@code .jsonl}) and CSV
+ * ({@code .csv}) files dropped into {@code directory}, in file name order.
+ * <p>
+ * Each file runs through a three-stage pipeline connected by bounded queues:
+ * <ol>
+ *   <li>The reader splits the file channel into lines through one reused buffer
+ *       and parses each line with Jackson's streaming parser (or the CSV header's
+ *       columns) into a pooled request, see {@link IngestRecord}.</li>
+ *   <li>The validator checks the request against {@link RequestValidator} and maps
+ *       it to process variables.</li>
+ *   <li>{@code start-workers} threads start the transactions through
+ *       {@link IdempotencyService}, each in its own database transaction.</li>
+ * </ol>
+ * The reader takes a record from a pool of {@code pool-size} and waits when
+ * none is free, so heap use does not grow with the file.
+ * <p>
+ * The byte offset up to which all records have completed is checkpointed to
+ * {@code <file>.checkpoint} (see {@link IngestCheckpoint}), and reading resumes
+ * there after a restart. Records after the checkpoint that were already started
+ * are answered by their {@code referenceNumber} without a second start. Records
+ * that do not parse, validate or start are written to {@code <file>.rejected},
+ * one JSON line each with their offset. Finished files are moved to
+ * {@code processed/}, files that cannot be read to {@code failed/}.
+ * <p>
+ * Files take purchase-style {@code TransactionRequest} records; payments are
+ * sent to {@code /transactions/batch}. Upstream systems should write a file
+ * under another name and rename it into the directory once complete.
+ */
+@Service
+public class FileIngestionJob {
+
+    private static final Logger log = LogManager.getLogger(FileIngestionJob.class);
+
+    private static final List<String> EXTENSIONS = List.of(".ndjson", ".jsonl", ".csv");
+    private static final IngestRecord END = new IngestRecord();
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private TransactionVariableMapper variableMapper;
+
+    @Autowired
+    private TransactionStartService transactionStartService;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private RequestValidator requestValidator;
+
+    @Autowired
+    private TransactionMetrics transactionMetrics;
+
+    @Value("${transaction-processor.file-ingestion.enabled:false}")
+    private boolean enabled;
+
+    @Value("${transaction-processor.file-ingestion.directory:./data/inbox}")
+    private String directory;
+
+    @Value("${transaction-processor.file-ingestion.poll-interval-ms:5000}")
+    private long pollIntervalMillis;
+
+    @Value("${transaction-processor.file-ingestion.read-buffer-bytes:1048576}")
+    private int readBufferBytes;
+
+    @Value("${transaction-processor.file-ingestion.pool-size:4096}")
+    private int poolSize;
+
+    @Value("${transaction-processor.file-ingestion.queue-capacity:1024}")
+    private int queueCapacity;
+
+    @Value("${transaction-processor.file-ingestion.start-workers:8}")
+    private int startWorkers;
+
+    @Value("${transaction-processor.file-ingestion.checkpoint-every:1000}")
+    private int checkpointEvery;
+
+    private ScheduledExecutorService poller;
+    private volatile boolean stopping;
+
+    @PostConstruct
+    void init() {
+        if (!enabled) {
+            return;
+        }
+        poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "file-ingestion");
+            thread.setDaemon(true);
+            return thread;
+        });
+        poller.scheduleWithFixedDelay(this::poll, pollIntervalMillis, pollIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops reading, lets the records in flight finish and checkpoints the file
+     * being ingested, which is resumed on the next start.
+     */
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        stopping = true;
+        if (poller != null) {
+            poller.shutdown();
+            poller.awaitTermination(60, TimeUnit.SECONDS);
+        }
+    }
+
+    void poll() {
+        Path inbox = Paths.get(directory);
+        if (!Files.isDirectory(inbox)) {
+            return;
+        }
+        List<Path> files;
+        try (Stream<Path> entries = Files.list(inbox)) {
+            files = entries.filter(Files::isRegularFile)
+                    .filter(file -> EXTENSIONS.stream().anyMatch(file.getFileName().toString()::endsWith))
+                    .sorted()
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            log.error("Could not list {}", inbox, e);
+            return;
+        }
+        for (Path file : files) {
+            if (stopping) {
+                return;
+            }
+            try {
+                if (ingest(file).isCompleted()) {
+                    moveTo(inbox.resolve("processed"), file);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("Could not ingest {}, moving it to failed/", file, e);
+                try {
+                    moveTo(inbox.resolve("failed"), file);
+                } catch (IOException moveFailure) {
+                    log.error("Could not move {} to failed/", file, moveFailure);
+                }
+            }
+        }
+    }
+
+    /**
+     * Ingests {@code file} from its checkpoint, or from the start if it has none.
+     */
+    public FileSummary ingest(Path file) throws IOException, InterruptedException {
+        long startMillis = System.currentTimeMillis();
+        FileRun run = new FileRun(file);
+        try {
+            run.execute();
+        } finally {
+            run.close();
+        }
+        FileSummary summary = run.summary;
+        log.info("Ingested {} from offset {}: {} started, {} duplicates, {} rejected{} in {} ms", file,
+                summary.resumedAt, summary.getStarted(), summary.getDuplicates(), summary.getRejected(),
+                summary.isCompleted() ? "" : ", stopped at offset " + summary.getOffset(),
+                System.currentTimeMillis() - startMillis);
+        return summary;
+    }
+
+    private static void moveTo(Path target, Path file) throws IOException {
+        Files.createDirectories(target);
+        for (String suffix : List.of("", ".rejected", ".checkpoint")) {
+            Path source = file.resolveSibling(file.getFileName() + suffix);
+            if (Files.exists(source)) {
+                Files.move(source, target.resolve(source.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+
+    /**
+     * @return why the request cannot be started, or {@code null} if it can; on
+     * top of the intake rules a record needs the {@code referenceNumber} that
+     * makes resuming after a crash safe
+     */
+    private String validationError(TransactionRequest request) {
+        List<RequestValidator.Violation> violations = requestValidator.validate(request);
+        if (isBlank(request.getReferenceNumber())) {
+            String missing = "referenceNumber is required";
+            return violations.isEmpty() ? missing : RequestValidator.describe(violations) + ", " + missing;
+        }
+        return violations.isEmpty() ? null : RequestValidator.describe(violations);
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+
+    private static boolean isBlank(byte[] bytes, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            if (bytes[i] > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * State of one file's pipeline.
+     */
+    private class FileRun {
+
+        private final Path file;
+        private final IngestCheckpoint checkpoint;
+        private final FileSummary summary;
+        private final BlockingQueue<IngestRecord> pool = new ArrayBlockingQueue<>(poolSize);
+        private final BlockingQueue<IngestRecord> validateQueue = new ArrayBlockingQueue<>(queueCapacity);
+        private final BlockingQueue<IngestRecord> startQueue = new ArrayBlockingQueue<>(queueCapacity);
+        private final ExecutorService stages;
+        private JsonGenerator rejected;
+        private RecordParser parser;
+        private long sequence;
+
+        private FileRun(Path file) throws IOException {
+            this.file = file;
+            Path checkpointFile = file.resolveSibling(file.getFileName() + ".checkpoint");
+            long resumeOffset = IngestCheckpoint.read(checkpointFile);
+            if (resumeOffset > Files.size(file)) {
+                log.warn("Checkpoint of {} is past its end, ingesting it from the start", file);
+                resumeOffset = 0;
+            }
+            checkpoint = new IngestCheckpoint(checkpointFile, resumeOffset, poolSize, checkpointEvery);
+            summary = new FileSummary(resumeOffset);
+            for (int i = 0; i < poolSize; i++) {
+                pool.add(new IngestRecord());
+            }
+            AtomicInteger threadCount = new AtomicInteger();
+            stages = Executors.newFixedThreadPool(1 + startWorkers, runnable -> {
+                Thread thread = new Thread(runnable, "file-ingestion-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        private void execute() throws IOException, InterruptedException {
+            stages.execute(this::validateStage);
+            for (int i = 0; i < startWorkers; i++) {
+                stages.execute(this::startStage);
+            }
+            try {
+                read();
+            } finally {
+                validateQueue.put(END);
+                stages.shutdown();
+                while (!stages.awaitTermination(1, TimeUnit.MINUTES)) {
+                    log.info("Waiting for {} records of {} in flight", poolSize - pool.size(), file);
+                }
+                checkpoint.write();
+            }
+            summary.offset = checkpoint.offset();
+            summary.completed = !stopping;
+            if (summary.completed) {
+                checkpoint.delete();
+            }
+        }
+
+        private void read() throws IOException, InterruptedException {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                LineReader lines = new LineReader(channel, readBufferBytes);
+                long resumeOffset = summary.resumedAt;
+                if (file.getFileName().toString().endsWith(".csv")) {
+                    long[] headerEnd = new long[1];
+                    if (!lines.next((bytes, offset, length, start, end) -> {
+                        parser = new CsvRecordParser(bytes, offset, length);
+                        headerEnd[0] = end;
+                    })) {
+                        return;
+                    }
+                    resumeOffset = Math.max(resumeOffset, headerEnd[0]);
+                } else {
+                    parser = new NdjsonRecordParser(objectMapper.getFactory());
+                }
+                lines.position(resumeOffset);
+                while (!stopping && lines.next(this::line)) {
+                    // each line is handed to the validator
+                }
+            } catch (IOException | InterruptedException | RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private void line(byte[] bytes, int offset, int length, long startOffset, long endOffset)
+                throws InterruptedException {
+            if (isBlank(bytes, offset, length)) {
+                return;
+            }
+            checkpoint.awaitWindow(sequence);
+            IngestRecord record = pool.take();
+            record.reset(sequence++, startOffset, endOffset);
+            try {
+                parser.parse(bytes, offset, length, record);
+            } catch (Exception e) {
+                record.error = "Invalid record: " + e.getMessage();
+            }
+            validateQueue.put(record);
+        }
+
+        private void validateStage() {
+            try {
+                IngestRecord record;
+                while ((record = validateQueue.take()) != END) {
+                    validate(record);
+                }
+                for (int i = 0; i < startWorkers; i++) {
+                    startQueue.put(END);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void validate(IngestRecord record) throws InterruptedException {
+            if (record.error == null) {
+                record.error = validationError(record.request);
+            }
+            if (record.error == null) {
+                try {
+                    record.variables = variableMapper.toVariables(record.request);
+                    record.processInstanceId = transactionStartService.newProcessInstanceId();
+                    startQueue.put(record);
+                    return;
+                } catch (RuntimeException e) {
+                    record.error = "Invalid request: " + e.getMessage();
+                }
+            }
+            reject(record);
+        }
+
+        private void startStage() {
+            try {
+                IngestRecord record;
+                while ((record = startQueue.take()) != END) {
+                    start(record);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void start(IngestRecord record) throws InterruptedException {
+            TransactionRequest request = record.request;
+            String processInstanceId = record.processInstanceId;
+            try {
+                IdempotencyService.Result result = idempotencyService.startOnce("process",
+                        request.getReferenceNumber(), processInstanceId, request.getTransactionType(),
+                        () -> transactionStartService.start(processInstanceId, record.variables));
+                if (result.isDuplicate()) {
+                    summary.duplicates.incrementAndGet();
+                    transactionMetrics.recordIngestedRecord("duplicate");
+                } else {
+                    summary.started.incrementAndGet();
+                    transactionMetrics.recordIngestedRecord("started");
+                }
+                complete(record);
+            } catch (RuntimeException e) {
+                record.error = "Error processing transaction: " + e.getMessage();
+                reject(record);
+            }
+        }
+
+        private void reject(IngestRecord record) throws InterruptedException {
+            summary.rejected.incrementAndGet();
+            transactionMetrics.recordIngestedRecord("rejected");
+            try {
+                writeRejected(record);
+            } catch (IOException e) {
+                log.error("Could not record rejected record at offset {} of {}: {}", record.startOffset, file,
+                        record.error, e);
+            }
+            complete(record);
+        }
+
+        private synchronized void writeRejected(IngestRecord record) throws IOException {
+            if (rejected == null) {
+                rejected = objectMapper.getFactory().createGenerator(Files.newBufferedWriter(
+                        file.resolveSibling(file.getFileName() + ".rejected"), StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND));
+                rejected.setRootValueSeparator(null);
+            }
+            rejected.writeStartObject();
+            rejected.writeNumberField("offset", record.startOffset);
+            rejected.writeStringField("reference", record.request.getReferenceNumber());
+            rejected.writeStringField("message", record.error);
+            rejected.writeEndObject();
+            rejected.writeRaw('\n');
+            // Written before the checkpoint can pass the record
+            rejected.flush();
+        }
+
+        private void complete(IngestRecord record) throws InterruptedException {
+            try {
+                checkpoint.complete(record.sequence, record.endOffset);
+            } catch (IOException e) {
+                log.error("Could not write checkpoint of {}", file, e);
+            }
+            pool.put(record);
+        }
+
+        private synchronized void close() throws IOException {
+            stages.shutdownNow();
+            if (rejected != null) {
+                rejected.close();
+            }
+        }
+    }
+
+    public static class FileSummary {
+        private final long resumedAt;
+        private final AtomicLong started = new AtomicLong();
+        private final AtomicLong duplicates = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+        private volatile long offset;
+        private volatile boolean completed;
+
+        FileSummary(long resumedAt) {
+            this.resumedAt = resumedAt;
+        }
+
+        public long getResumedAt() {
+            return resumedAt;
+        }
+
+        public long getStarted() {
+            return started.get();
+        }
+
+        public long getDuplicates() {
+            return duplicates.get();
+        }
+
+        public long getRejected() {
+            return rejected.get();
+        }
+
+        /**
+         * @return offset up to which the file has been ingested
+         */
+        public long getOffset() {
+            return offset;
+        }
+
+        /**
+         * @return whether the whole file was ingested, rather than stopped by a shutdown
+         */
+        public boolean isCompleted() {
+            return completed;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.transactionprocessor.ingest;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Byte offset up to which every record of a file has been started or rejected.
+ * Records complete out of order across the start workers; the offset only
+ * moves past a record once all records before it have completed too, so
+ * resuming from it repeats at most the records that were in flight.
+ * <p>
+ * Completions are tracked for {@code window} consecutive records. The reader
+ * calls {@link #awaitWindow} before handing out a record, so a record is only
+ * read once every record {@code window} or more before it has been passed;
+ * otherwise one slow record would let a later one take its slot. The offset is
+ * written to the checkpoint file every {@code writeEvery} completed records,
+ * replacing it atomically.
+ */
+final class IngestCheckpoint {
+
+    private final Path file;
+    private final int writeEvery;
+    private final long[] endOffsets;
+    private final boolean[] completed;
+    private long nextSequence;
+    private long offset;
+    private long unwritten;
+
+    IngestCheckpoint(Path file, long offset, int window, int writeEvery) {
+        this.file = file;
+        this.offset = offset;
+        this.writeEvery = writeEvery;
+        this.endOffsets = new long[window];
+        this.completed = new boolean[window];
+    }
+
+    /**
+     * @return the offset stored in {@code file}, or 0 if there is none
+     */
+    static long read(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        return Long.parseLong(Files.readString(file, StandardCharsets.UTF_8).trim());
+    }
+
+    /**
+     * Blocks until the record with {@code sequence} falls within the window.
+     */
+    synchronized void awaitWindow(long sequence) throws InterruptedException {
+        while (sequence - nextSequence >= endOffsets.length) {
+            wait();
+        }
+    }
+
+    synchronized void complete(long sequence, long endOffset) throws IOException {
+        int slot = (int) (sequence % endOffsets.length);
+        endOffsets[slot] = endOffset;
+        completed[slot] = true;
+        while (completed[(int) (nextSequence % endOffsets.length)]) {
+            slot = (int) (nextSequence % endOffsets.length);
+            completed[slot] = false;
+            offset = endOffsets[slot];
+            nextSequence++;
+            unwritten++;
+            notifyAll();
+        }
+        if (unwritten >= writeEvery) {
+            write();
+        }
+    }
+
+    synchronized long offset() {
+        return offset;
+    }
+
+    synchronized void write() throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.writeString(temp, Long.toString(offset), StandardCharsets.UTF_8);
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        unwritten = 0;
+    }
+
+    void delete() throws IOException {
+        Files.deleteIfExists(file);
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.transactionprocessor.ingest;
+
+import com.example.transactionprocessor.model.Address;
+import com.example.transactionprocessor.model.CreditCardInfo;
+import com.example.transactionprocessor.model.TransactionRequest;
+import com.example.transactionprocessor.model.VendorInfo;
+
+import java.util.Map;
+
+/**
+ * One line of an ingested file on its way through the pipeline. Records are
+ * pooled: the request and its card, address and vendor objects are allocated
+ * once and cleared for every line they carry. A nested object is attached to
+ * the request only once the line has it, so a line without, say, a vendor
+ * reaches validation with {@code vendorInfo} null, as a request body would.
+ */
+final class IngestRecord {
+
+    static final String CREDIT_CARD_INFO = "creditCardInfo";
+    static final String BILLING_ADDRESS = "billingAddress";
+    static final String VENDOR_INFO = "vendorInfo";
+
+    final TransactionRequest request = new TransactionRequest();
+    private final CreditCardInfo card = new CreditCardInfo();
+    private final Address address = new Address();
+    private final VendorInfo vendor = new VendorInfo();
+    long sequence;
+    long startOffset;
+    long endOffset;
+    String error;
+    String processInstanceId;
+    Map<String, Object> variables;
+
+    /**
+     * @return the record's card, attached to the request
+     */
+    CreditCardInfo creditCardInfo() {
+        request.setCreditCardInfo(card);
+        return card;
+    }
+
+    /**
+     * @return the record's billing address, attached to the request
+     */
+    Address billingAddress() {
+        request.setBillingAddress(address);
+        return address;
+    }
+
+    /**
+     * @return the record's vendor, attached to the request
+     */
+    VendorInfo vendorInfo() {
+        request.setVendorInfo(vendor);
+        return vendor;
+    }
+
+    /**
+     * Attaches the nested object named {@code name}, present on the line even
+     * if without fields; other names are ignored.
+     */
+    void attach(String name) {
+        switch (name) {
+            case CREDIT_CARD_INFO:
+                creditCardInfo();
+                break;
+            case BILLING_ADDRESS:
+                billingAddress();
+                break;
+            case VENDOR_INFO:
+                vendorInfo();
+                break;
+            default:
+                break;
+        }
+    }
+
+    void reset(long sequence, long startOffset, long endOffset) {
+        this.sequence = sequence;
+        this.startOffset = startOffset;
+        this.endOffset = endOffset;
+        error = null;
+        processInstanceId = null;
+        variables = null;
+
+        request.setTransactionType(null);
+        request.setAmount(null);
+        request.setCurrency(null);
+        request.setTransactionDateTime(null);
+        request.setDescription(null);
+        request.setReferenceNumber(null);
+        request.setCreditCardInfo(null);
+        request.setBillingAddress(null);
+        request.setVendorInfo(null);
+
+        card.setCardNumber(null);
+        card.setHolderName(null);
+        card.setExpiryDate(null);
+        card.setCvv(null);
+        card.setCardType(null);
+
+        address.setStreet(null);
+        address.setCity(null);
+        address.setState(null);
+        address.setZipCode(null);
+        address.setCountry(null);
+
+        vendor.setName(null);
+        vendor.setLocation(null);
+        vendor.setMerchantId(null);
+        vendor.setCategory(null);
+    }
+}
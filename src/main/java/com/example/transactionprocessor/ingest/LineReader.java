@@ -0,0 +1,91 @@
+package com.example.transactionprocessor.ingest;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Splits a file channel into lines through one reused heap buffer, so reading
+ * a file of any size holds at most {@code bufferSize} bytes. Each line is handed
+ * out as a slice of the buffer together with the file offsets it starts and
+ * ends at; the end offset is just past its line break. A trailing {@code \r}
+ * is dropped, and a last line without a line break is still returned.
+ */
+final class LineReader {
+
+    interface LineHandler {
+        void line(byte[] bytes, int offset, int length, long startOffset, long endOffset) throws Exception;
+    }
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private long bufferOffset;
+    private boolean endOfFile;
+
+    LineReader(FileChannel channel, int bufferSize) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocate(bufferSize);
+        this.buffer.flip();
+    }
+
+    /**
+     * Continues reading at {@code offset}, which should be the start of a line.
+     */
+    void position(long offset) throws IOException {
+        channel.position(offset);
+        buffer.clear().flip();
+        bufferOffset = offset;
+        endOfFile = false;
+    }
+
+    /**
+     * Hands the next line to {@code handler}.
+     *
+     * @return {@code false} once the file is exhausted
+     * @throws IOException if a line does not fit the buffer
+     */
+    boolean next(LineHandler handler) throws Exception {
+        while (true) {
+            byte[] bytes = buffer.array();
+            int start = buffer.position();
+            int limit = buffer.limit();
+            for (int i = start; i < limit; i++) {
+                if (bytes[i] == '\n') {
+                    buffer.position(i + 1);
+                    emit(handler, bytes, start, i, i + 1);
+                    return true;
+                }
+            }
+            if (endOfFile) {
+                if (start == limit) {
+                    return false;
+                }
+                buffer.position(limit);
+                emit(handler, bytes, start, limit, limit);
+                return true;
+            }
+            fill();
+        }
+    }
+
+    private void emit(LineHandler handler, byte[] bytes, int start, int end, int next) throws Exception {
+        int length = end - start;
+        if (length > 0 && bytes[end - 1] == '\r') {
+            length--;
+        }
+        handler.line(bytes, start, length, bufferOffset + start, bufferOffset + next);
+    }
+
+    private void fill() throws IOException {
+        if (buffer.position() == 0 && buffer.limit() == buffer.capacity()) {
+            throw new IOException("Line at offset " + bufferOffset + " is longer than the "
+                    + buffer.capacity() + " byte read buffer");
+        }
+        bufferOffset += buffer.position();
+        buffer.compact();
+        if (channel.read(buffer) < 0) {
+            endOfFile = true;
+        }
+        buffer.flip();
+    }
+}
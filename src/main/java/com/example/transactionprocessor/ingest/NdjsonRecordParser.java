@@ -0,0 +1,55 @@
+package com.example.transactionprocessor.ingest;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Reads an NDJSON line token by token with Jackson's streaming parser and sets
+ * each scalar on the pooled request, without building a tree or binding the
+ * request graph. A nested object present on the line is attached even when
+ * empty, as Jackson would bind it. Objects nested deeper than the request's own,
+ * and arrays, are skipped.
+ */
+final class NdjsonRecordParser implements RecordParser {
+
+    private final JsonFactory jsonFactory;
+
+    NdjsonRecordParser(JsonFactory jsonFactory) {
+        this.jsonFactory = jsonFactory;
+    }
+
+    @Override
+    public void parse(byte[] bytes, int offset, int length, IngestRecord into) throws Exception {
+        try (JsonParser parser = jsonFactory.createParser(bytes, offset, length)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("Expected a JSON object");
+            }
+            readObject(parser, "", into);
+            if (parser.nextToken() != null) {
+                throw new IllegalArgumentException("Unexpected content after the JSON object");
+            }
+        }
+    }
+
+    private static void readObject(JsonParser parser, String prefix, IngestRecord into) throws Exception {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if (prefix.isEmpty() && RecordFields.PAYMENT_FIELDS.contains(name)) {
+                throw new IllegalArgumentException("Payment records are not ingested from files");
+            }
+            if (value == JsonToken.START_OBJECT && prefix.isEmpty()) {
+                into.attach(name);
+                readObject(parser, name + ".", into);
+            } else if (value.isStructStart()) {
+                parser.skipChildren();
+            } else if (value != JsonToken.VALUE_NULL) {
+                RecordFields.FieldSetter setter = RecordFields.setter(prefix + name);
+                if (setter != null) {
+                    setter.set(into, parser.getValueAsString());
+                }
+            }
+        }
+    }
+}
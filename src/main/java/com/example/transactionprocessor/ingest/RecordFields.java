@@ -0,0 +1,71 @@
+package com.example.transactionprocessor.ingest;
+
+import com.example.transactionprocessor.model.TransactionRequest;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Setters for the fields of a {@link TransactionRequest} record, keyed by their
+ * JSON path with nested objects joined by dots, e.g. {@code amount} or
+ * {@code creditCardInfo.cardNumber}. NDJSON field paths and CSV column headers
+ * use the same names. Unknown fields are ignored, as in request bodies. Setting
+ * a nested field attaches its object to the record's request.
+ */
+final class RecordFields {
+
+    interface FieldSetter {
+        void set(IngestRecord record, String value);
+    }
+
+    /**
+     * Fields that make a record a payment, which file ingestion does not take.
+     */
+    static final Set<String> PAYMENT_FIELDS = Set.of("paymentAmount", "customerAccount", "paymentMethod");
+
+    private static final Map<String, FieldSetter> SETTERS = new HashMap<>();
+
+    static {
+        SETTERS.put("transactionType", (record, value) -> record.request.setTransactionType(value));
+        SETTERS.put("amount", (record, value) -> record.request.setAmount(new BigDecimal(value)));
+        SETTERS.put("currency", (record, value) -> record.request.setCurrency(value));
+        SETTERS.put("transactionDateTime",
+                (record, value) -> record.request.setTransactionDateTime(LocalDateTime.parse(value)));
+        SETTERS.put("description", (record, value) -> record.request.setDescription(value));
+        SETTERS.put("referenceNumber", (record, value) -> record.request.setReferenceNumber(value));
+
+        SETTERS.put("creditCardInfo.cardNumber",
+                (record, value) -> record.creditCardInfo().setCardNumber(value));
+        SETTERS.put("creditCardInfo.holderName",
+                (record, value) -> record.creditCardInfo().setHolderName(value));
+        SETTERS.put("creditCardInfo.expiryDate",
+                (record, value) -> record.creditCardInfo().setExpiryDate(LocalDate.parse(value)));
+        SETTERS.put("creditCardInfo.cvv", (record, value) -> record.creditCardInfo().setCvv(value));
+        SETTERS.put("creditCardInfo.cardType", (record, value) -> record.creditCardInfo().setCardType(value));
+
+        SETTERS.put("billingAddress.street", (record, value) -> record.billingAddress().setStreet(value));
+        SETTERS.put("billingAddress.city", (record, value) -> record.billingAddress().setCity(value));
+        SETTERS.put("billingAddress.state", (record, value) -> record.billingAddress().setState(value));
+        SETTERS.put("billingAddress.zipCode", (record, value) -> record.billingAddress().setZipCode(value));
+        SETTERS.put("billingAddress.country", (record, value) -> record.billingAddress().setCountry(value));
+
+        SETTERS.put("vendorInfo.name", (record, value) -> record.vendorInfo().setName(value));
+        SETTERS.put("vendorInfo.location", (record, value) -> record.vendorInfo().setLocation(value));
+        SETTERS.put("vendorInfo.merchantId", (record, value) -> record.vendorInfo().setMerchantId(value));
+        SETTERS.put("vendorInfo.category", (record, value) -> record.vendorInfo().setCategory(value));
+    }
+
+    private RecordFields() {
+    }
+
+    /**
+     * @return the setter for {@code path}, or {@code null} for a field records do not carry
+     */
+    static FieldSetter setter(String path) {
+        return SETTERS.get(path);
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.transactionprocessor.ingest;
+
+/**
+ * Fills a pooled {@link IngestRecord}'s request from one line of an ingested file.
+ */
+interface RecordParser {
+
+    /**
+     * @throws IllegalArgumentException if the line is not a valid record
+     */
+    void parse(byte[] bytes, int offset, int length, IngestRecord into) throws Exception;
+}
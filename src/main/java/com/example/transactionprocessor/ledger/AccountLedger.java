@@ -0,0 +1,210 @@
+package com.example.transactionprocessor.ledger;
+
+import com.example.transactionprocessor.model.AccountBalance;
+import com.example.transactionprocessor.repository.AccountBalanceRepository;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Authoritative account balances, in cents. Payments and adjustments are
+ * applied here instead of being computed from the balance a client sent, so
+ * concurrent postings to one account each see the result of the previous one.
+ * <p>
+ * Each account is guarded by one of {@code lock-stripes} locks chosen by its
+ * key, so postings to the same account are serialized while postings to other
+ * accounts proceed in parallel.
+ * <p>
+ * With {@code persistent} set, every posting is also added to the account's
+ * {@code ACCOUNT_BALANCE} row just before its transaction commits, and an
+ * account is loaded from that row the first time this node sees it. Only an
+ * account without a row is opened with the balance of the request that
+ * references it, so balances survive restarts and a second node starts from
+ * the committed balance rather than from request data. The row is the sum of
+ * the postings of every node; the balance a node reports includes the
+ * postings of other nodes only up to when it loaded the account.
+ * <p>
+ * A posting made inside a transaction is reversed if that transaction rolls
+ * back, so a failed or retried process does not leave its amount behind.
+ */
+@Component
+public class AccountLedger {
+
+    private static final Logger log = LogManager.getLogger(AccountLedger.class);
+
+    @Autowired
+    private AccountBalanceRepository accountBalanceRepository;
+
+    @Value("${transaction-processor.ledger.lock-stripes:64}")
+    private int lockStripes;
+
+    @Value("${transaction-processor.ledger.persistent:true}")
+    private boolean persistent;
+
+    private final Map<String, Account> accounts = new ConcurrentHashMap<>();
+    private ReentrantLock[] locks;
+
+    @PostConstruct
+    void init() {
+        // Power of two, so the stripe is a mask of the key's hash
+        int stripes = Integer.highestOneBit(Math.max(1, lockStripes - 1)) << 1;
+        locks = new ReentrantLock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Adds {@code deltaCents} to the account and returns the new balance in cents.
+     * An account that is neither known here nor stored is opened with
+     * {@code openingBalanceCents} first.
+     */
+    public long post(String accountKey, long openingBalanceCents, long deltaCents) {
+        Account account = open(accountKey, openingBalanceCents);
+        ReentrantLock lock = lockFor(accountKey);
+        long balance;
+        lock.lock();
+        try {
+            balance = Math.addExact(account.balanceCents, deltaCents);
+            account.balanceCents = balance;
+            account.postings++;
+        } finally {
+            lock.unlock();
+        }
+        onCompletion(accountKey, account, deltaCents);
+        return balance;
+    }
+
+    /**
+     * Opens an account with a balance recovered from elsewhere; an open or
+     * stored account is left as it is.
+     */
+    public void restore(String accountKey, long balanceCents) {
+        open(accountKey, balanceCents);
+    }
+
+    /**
+     * Current balance in cents, or {@code null} for an account that has not been opened.
+     */
+    public Long getBalance(String accountKey) {
+        Account account = accounts.get(accountKey);
+        return account != null ? account.balanceCents : null;
+    }
+
+    public long getPostingCount(String accountKey) {
+        Account account = accounts.get(accountKey);
+        return account != null ? account.postings : 0;
+    }
+
+    public int getAccountCount() {
+        return accounts.size();
+    }
+
+    public static long toCents(Object amount) {
+        if (amount == null) {
+            return 0;
+        }
+        BigDecimal decimal = amount instanceof BigDecimal ? (BigDecimal) amount : new BigDecimal(amount.toString());
+        return decimal.setScale(2, RoundingMode.HALF_EVEN).unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal toAmount(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    private Account open(String accountKey, long openingBalanceCents) {
+        Account account = accounts.get(accountKey);
+        if (account != null) {
+            return account;
+        }
+        // Loaded outside the map, so a slow read does not block other accounts
+        Account loaded = persistent
+                ? accountBalanceRepository.findById(accountKey)
+                        .map(stored -> new Account(stored.getBalanceCents(), stored.getPostings(), 0))
+                        .orElseGet(() -> new Account(openingBalanceCents, 0, openingBalanceCents))
+                : new Account(openingBalanceCents, 0, openingBalanceCents);
+        account = accounts.putIfAbsent(accountKey, loaded);
+        return account != null ? account : loaded;
+    }
+
+    /**
+     * Stores the posting with its transaction and reverses it if that
+     * transaction rolls back. Outside a transaction it is stored at once.
+     */
+    private void onCompletion(String accountKey, Account account, long deltaCents) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            store(accountKey, account, deltaCents);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                store(accountKey, account, deltaCents);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    log.debug("Reversing posting of {} cents on rolled back transaction", deltaCents);
+                    reverse(accountKey, deltaCents);
+                }
+            }
+        });
+    }
+
+    private void store(String accountKey, Account account, long deltaCents) {
+        if (!persistent) {
+            return;
+        }
+        Instant now = Instant.now();
+        if (accountBalanceRepository.addPosting(accountKey, deltaCents, 1, now) == 0) {
+            // First posting to an account opened from request data
+            accountBalanceRepository.save(new AccountBalance(accountKey,
+                    Math.addExact(account.openingBalanceCents, deltaCents), 1, now));
+        }
+    }
+
+    private void reverse(String accountKey, long deltaCents) {
+        Account account = accounts.get(accountKey);
+        ReentrantLock lock = lockFor(accountKey);
+        lock.lock();
+        try {
+            account.balanceCents -= deltaCents;
+            account.postings--;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ReentrantLock lockFor(String accountKey) {
+        int hash = accountKey.hashCode();
+        return locks[(hash ^ (hash >>> 16)) & (locks.length - 1)];
+    }
+
+    private static class Account {
+        private volatile long balanceCents;
+        private volatile long postings;
+        /**
+         * Balance the account's row is inserted with before its first posting; unused once stored.
+         */
+        private final long openingBalanceCents;
+
+        private Account(long balanceCents, long postings, long openingBalanceCents) {
+            this.balanceCents = balanceCents;
+            this.postings = postings;
+            this.openingBalanceCents = openingBalanceCents;
+        }
+    }
+}
@@ -0,0 +1,327 @@
+package com.example.transactionprocessor.ledger;
+
+import com.example.transactionprocessor.metrics.TransactionMetrics;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Credit-limit authorization against each card's open-to-buy: its credit limit
+ * minus its {@link AccountLedger} balance minus its outstanding holds. The
+ * open-to-buy is one {@code AtomicLong} per card, so a decision is a single
+ * compare-and-set and never reads the database.
+ * <p>
+ * An approved authorization places a hold keyed by the transaction. Settling
+ * the transaction converts the hold into a ledger posting; releasing it, or
+ * letting it expire, returns the amount to the open-to-buy. Each of these is
+ * undone if its transaction rolls back.
+ * <p>
+ * Limits, card balances and holds are written to a snapshot file periodically
+ * and on shutdown, and read back on startup. Cards are keyed by card token, so
+ * snapshots are only taken with a fixed {@code card-token.secret}; otherwise
+ * the tokens of the next start would not match. Expired holds are released on the
+ * same schedule. A snapshot taken while a hold is
+ * being settled may count it twice, which only understates the open-to-buy.
+ */
+@Component
+public class CreditAuthorizer {
+
+    private static final Logger log = LogManager.getLogger(CreditAuthorizer.class);
+
+    private static final String CARD = "C";
+    private static final String HOLD = "H";
+
+    @Autowired
+    private AccountLedger accountLedger;
+
+    @Autowired
+    private TransactionMetrics transactionMetrics;
+
+    @Value("${transaction-processor.authorization.default-credit-limit:5000.00}")
+    private BigDecimal defaultCreditLimit;
+
+    @Value("${transaction-processor.authorization.hold-expiry-minutes:10080}")
+    private long holdExpiryMinutes;
+
+    @Value("${transaction-processor.authorization.snapshot.file:}")
+    private String snapshotFile;
+
+    @Value("${transaction-processor.authorization.snapshot.interval-seconds:30}")
+    private long snapshotIntervalSeconds;
+
+    @Value("${transaction-processor.card-token.secret:}")
+    private String cardTokenSecret;
+
+    private final Map<String, Card> cards = new ConcurrentHashMap<>();
+    private final Map<String, Hold> holds = new ConcurrentHashMap<>();
+
+    private long defaultLimitCents;
+    private ScheduledExecutorService maintenance;
+
+    @PostConstruct
+    void init() {
+        defaultLimitCents = AccountLedger.toCents(defaultCreditLimit);
+        if (!snapshotFile.isEmpty() && cardTokenSecret.isEmpty()) {
+            log.warn("Ignoring snapshot file {}: without transaction-processor.card-token.secret card tokens"
+                    + " change on every restart", snapshotFile);
+            snapshotFile = "";
+        }
+        if (!snapshotFile.isEmpty()) {
+            restore(Paths.get(snapshotFile));
+        }
+        maintenance = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "open-to-buy-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        maintenance.scheduleWithFixedDelay(this::maintain,
+                snapshotIntervalSeconds, snapshotIntervalSeconds, TimeUnit.SECONDS);
+        transactionMetrics.bindCreditAuthorizer(this);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        maintenance.shutdownNow();
+        if (!snapshotFile.isEmpty()) {
+            snapshot(Paths.get(snapshotFile));
+        }
+    }
+
+    /**
+     * Places a hold of {@code cents} on the card if its open-to-buy covers it.
+     * Authorizing a transaction that already holds an amount approves it again
+     * without a second hold.
+     */
+    public boolean authorize(String transactionId, String cardKey, long cents) {
+        if (holds.containsKey(transactionId)) {
+            return true;
+        }
+        if (cents <= 0) {
+            transactionMetrics.recordAuthorization("declined");
+            return false;
+        }
+        Card card = cardFor(cardKey);
+        long available;
+        do {
+            available = card.openToBuyCents.get();
+            if (available < cents) {
+                transactionMetrics.recordAuthorization("declined");
+                return false;
+            }
+        } while (!card.openToBuyCents.compareAndSet(available, available - cents));
+
+        Hold hold = new Hold(cardKey, cents, System.currentTimeMillis());
+        holds.put(transactionId, hold);
+        afterRollback(() -> release(transactionId, hold));
+        transactionMetrics.recordAuthorization("approved");
+        return true;
+    }
+
+    /**
+     * Converts the transaction's hold into a posting on the card's ledger
+     * account and returns the new card balance in cents, or {@code null} if
+     * the transaction holds nothing.
+     */
+    public Long settle(String transactionId) {
+        Hold hold = holds.get(transactionId);
+        if (hold == null) {
+            return null;
+        }
+        // Post before removing the hold, so a concurrent snapshot sees the amount at least once
+        long balance = accountLedger.post(hold.cardKey, 0, hold.cents);
+        holds.remove(transactionId, hold);
+        afterRollback(() -> holds.putIfAbsent(transactionId, hold));
+        return balance;
+    }
+
+    /**
+     * Returns the transaction's held amount to the card's open-to-buy.
+     */
+    public void release(String transactionId) {
+        Hold hold = holds.get(transactionId);
+        if (hold != null && release(transactionId, hold)) {
+            afterRollback(() -> {
+                if (holds.putIfAbsent(transactionId, hold) == null) {
+                    cardFor(hold.cardKey).openToBuyCents.addAndGet(-hold.cents);
+                }
+            });
+        }
+    }
+
+    /**
+     * Posts an adjustment to the card's ledger account and moves its open-to-buy
+     * the other way, so a refund (negative amount) makes credit available again.
+     * Returns the new card balance in cents.
+     */
+    public long adjust(String cardKey, long deltaCents) {
+        Card card = cardFor(cardKey);
+        long balance = accountLedger.post(cardKey, 0, deltaCents);
+        card.openToBuyCents.addAndGet(-deltaCents);
+        afterRollback(() -> card.openToBuyCents.addAndGet(deltaCents));
+        return balance;
+    }
+
+    /**
+     * Open-to-buy in cents; a card not seen before has its full default limit.
+     */
+    public long getOpenToBuy(String cardKey) {
+        Card card = cards.get(cardKey);
+        return card != null ? card.openToBuyCents.get() : defaultLimitCents;
+    }
+
+    public int getHoldCount() {
+        return holds.size();
+    }
+
+    public int getCardCount() {
+        return cards.size();
+    }
+
+    /**
+     * Releases holds older than the expiry and writes a snapshot if one is configured.
+     */
+    void maintain() {
+        try {
+            releaseExpiredHolds(System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(holdExpiryMinutes));
+            if (!snapshotFile.isEmpty()) {
+                snapshot(Paths.get(snapshotFile));
+            }
+        } catch (RuntimeException e) {
+            log.error("Open-to-buy maintenance failed", e);
+        }
+    }
+
+    int releaseExpiredHolds(long placedBeforeMillis) {
+        int released = 0;
+        for (Map.Entry<String, Hold> entry : holds.entrySet()) {
+            if (entry.getValue().placedAtMillis < placedBeforeMillis && release(entry.getKey(), entry.getValue())) {
+                released++;
+            }
+        }
+        if (released > 0) {
+            log.info("Released {} expired authorization holds", released);
+        }
+        return released;
+    }
+
+    void snapshot(Path file) {
+        List<String> lines = new ArrayList<>(cards.size() + holds.size());
+        cards.forEach((cardKey, card) -> {
+            Long balance = accountLedger.getBalance(cardKey);
+            lines.add(String.join("\t", CARD, cardKey, Long.toString(card.limitCents),
+                    Long.toString(balance != null ? balance : 0)));
+        });
+        holds.forEach((transactionId, hold) -> lines.add(String.join("\t", HOLD, transactionId, hold.cardKey,
+                Long.toString(hold.cents), Long.toString(hold.placedAtMillis))));
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+            try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                for (String line : lines) {
+                    writer.write(line);
+                    writer.newLine();
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.debug("Wrote open-to-buy snapshot of {} cards and {} holds to {}", cards.size(), holds.size(), file);
+        } catch (IOException e) {
+            log.error("Could not write open-to-buy snapshot to {}", file, e);
+        }
+    }
+
+    void restore(Path file) {
+        if (!Files.exists(file)) {
+            return;
+        }
+        try {
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                String[] fields = line.split("\t");
+                if (CARD.equals(fields[0])) {
+                    long limit = Long.parseLong(fields[2]);
+                    long balance = Long.parseLong(fields[3]);
+                    accountLedger.restore(fields[1], balance);
+                    cards.put(fields[1], new Card(limit, limit - balance));
+                } else if (HOLD.equals(fields[0])) {
+                    Hold hold = new Hold(fields[2], Long.parseLong(fields[3]), Long.parseLong(fields[4]));
+                    holds.put(fields[1], hold);
+                    cardFor(hold.cardKey).openToBuyCents.addAndGet(-hold.cents);
+                }
+            }
+            log.info("Restored open-to-buy of {} cards and {} holds from {}", cards.size(), holds.size(), file);
+        } catch (IOException | RuntimeException e) {
+            throw new IllegalStateException("Could not read open-to-buy snapshot " + file, e);
+        }
+    }
+
+    private boolean release(String transactionId, Hold hold) {
+        if (!holds.remove(transactionId, hold)) {
+            return false;
+        }
+        cardFor(hold.cardKey).openToBuyCents.addAndGet(hold.cents);
+        return true;
+    }
+
+    private Card cardFor(String cardKey) {
+        return cards.computeIfAbsent(cardKey, key -> new Card(defaultLimitCents, defaultLimitCents));
+    }
+
+    private static void afterRollback(Runnable undo) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    undo.run();
+                }
+            }
+        });
+    }
+
+    private static class Card {
+        private final long limitCents;
+        private final AtomicLong openToBuyCents;
+
+        private Card(long limitCents, long openToBuyCents) {
+            this.limitCents = limitCents;
+            this.openToBuyCents = new AtomicLong(openToBuyCents);
+        }
+    }
+
+    private static class Hold {
+        private final String cardKey;
+        private final long cents;
+        private final long placedAtMillis;
+
+        private Hold(String cardKey, long cents, long placedAtMillis) {
+            this.cardKey = cardKey;
+            this.cents = cents;
+            this.placedAtMillis = placedAtMillis;
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package com.example.transactionprocessor.metrics;
+
+import com.example.transactionprocessor.delegate.StageExecutor;
+import com.example.transactionprocessor.engine.AsyncHistoryWriter;
+import com.example.transactionprocessor.ledger.CreditAuthorizer;
+import com.example.transactionprocessor.service.TransactionOutcomeIndex;
+import com.example.transactionprocessor.settlement.SettlementBatcher;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer meters for each stage a transaction passes through. All timers
+ * share the {@code transaction.} prefix, so one
+ * {@code management.metrics.distribution.percentiles-histogram.transaction}
+ * setting publishes histogram buckets for p50/p99 queries on every stage.
+ * <ul>
+ *   <li>{@value #REQUESTS}: controller endpoints, by endpoint, transactionType and outcome</li>
+ *   <li>{@value #DMN_EVALUATION}: decision evaluation, by decision, transactionType and outcome</li>
+ *   <li>{@value #DMN_CACHE}: evaluations of cached decisions, by decision and where the result came from</li>
+ *   <li>{@value #ROUTER_OVERHEAD}: time spent in {@code TaskRouterDelegate} outside the tasks</li>
+ *   <li>{@value #TASK}: each task delegate, by task, transactionType and outcome</li>
+ *   <li>{@value #STAGE_QUEUE_WAIT}: time a parallel task waited for a stage executor thread</li>
+ *   <li>{@value #IDEMPOTENCY_DUPLICATES}: retried requests answered without a new start, by source</li>
+ *   <li>{@value #OUTCOME_LOOKUPS}: status queries, by where the outcome was found</li>
+ *   <li>{@value #AUTHORIZATIONS}: credit-limit authorizations, by outcome</li>
+ *   <li>{@value #SETTLEMENT_BATCHES}: settlement batches completed, by destination type and outcome</li>
+ *   <li>{@value #EXTERNAL_FETCHES}: external task fetches of a worker, by topic and whether any task was locked</li>
+ *   <li>{@value #SCHEDULED_PAYMENTS}: occurrences of scheduled payments released, by outcome</li>
+ *   <li>{@value #JOB_ACQUISITION}: job executor acquisitions, by whether any job was acquired</li>
+ *   <li>{@value #INGESTED_RECORDS}: records of ingested files, by outcome</li>
+ * </ul>
+ * The transactionType tag comes from the request, so only the types the
+ * bundled decision routes are kept; any other value is tagged {@code other}.
+ */
+@Component
+public class TransactionMetrics {
+
+    public static final String REQUESTS = "transaction.requests";
+    public static final String DMN_EVALUATION = "transaction.dmn.evaluation";
+    public static final String DMN_CACHE = "transaction.dmn.cache";
+    public static final String ROUTER_OVERHEAD = "transaction.router.overhead";
+    public static final String TASK = "transaction.task";
+    public static final String STAGE_QUEUE_WAIT = "transaction.stage.queue.wait";
+    public static final String IDEMPOTENCY_DUPLICATES = "transaction.idempotency.duplicates";
+    public static final String OUTCOME_LOOKUPS = "transaction.outcome.lookups";
+    public static final String AUTHORIZATIONS = "transaction.authorization.decisions";
+    public static final String SETTLEMENT_BATCHES = "transaction.settlement.batches";
+    public static final String EXTERNAL_FETCHES = "transaction.external.fetches";
+    public static final String SCHEDULED_PAYMENTS = "transaction.scheduler.payments";
+    public static final String JOB_ACQUISITION = "transaction.jobs.acquisition";
+    public static final String INGESTED_RECORDS = "transaction.ingest.records";
+
+    private static final String UNKNOWN = "unknown";
+    private static final String OTHER = "other";
+    private static final Set<String> TRANSACTION_TYPES = Set.of("Purchase", "Payment", "Adjustment");
+
+    private final MeterRegistry registry;
+
+    public TransactionMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Metrics that are recorded nowhere, for components built outside the
+     * application context.
+     */
+    public static TransactionMetrics noop() {
+        return new TransactionMetrics(new CompositeMeterRegistry());
+    }
+
+    public void recordRequest(String endpoint, String transactionType, String outcome, long nanos) {
+        Timer.builder(REQUESTS)
+                .tag("endpoint", endpoint)
+                .tag("transactionType", transactionTypeTag(transactionType))
+                .tag("outcome", outcome)
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordDecision(String decisionKey, String transactionType, String outcome, long nanos) {
+        Timer.builder(DMN_EVALUATION)
+                .tag("decision", tagValue(decisionKey))
+                .tag("transactionType", transactionTypeTag(transactionType))
+                .tag("outcome", outcome)
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordRouting(String transactionType, long nanos) {
+        Timer.builder(ROUTER_OVERHEAD)
+                .tag("transactionType", transactionTypeTag(transactionType))
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordTask(String task, String transactionType, String outcome, long nanos) {
+        Timer.builder(TASK)
+                .tag("task", task)
+                .tag("transactionType", transactionTypeTag(transactionType))
+                .tag("outcome", outcome)
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordQueueWait(long nanos) {
+        Timer.builder(STAGE_QUEUE_WAIT)
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordDuplicate(String source) {
+        Counter.builder(IDEMPOTENCY_DUPLICATES)
+                .tag("source", source)
+                .register(registry)
+                .increment();
+    }
+
+    public void recordDecisionCache(String decisionKey, String source) {
+        Counter.builder(DMN_CACHE)
+                .tag("decision", tagValue(decisionKey))
+                .tag("source", source)
+                .register(registry)
+                .increment();
+    }
+
+    public void recordOutcomeLookup(String source) {
+        Counter.builder(OUTCOME_LOOKUPS)
+                .tag("source", source)
+                .register(registry)
+                .increment();
+    }
+
+    public void recordAuthorization(String outcome) {
+        Counter.builder(AUTHORIZATIONS)
+                .tag("outcome", outcome)
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * Publishes the stage executor's saturation: queued and running tasks,
+     * rejected submissions and timed-out stages.
+     */
+    public void bindStageExecutor(StageExecutor stageExecutor) {
+        Gauge.builder("transaction.stage.executor.queued", stageExecutor, StageExecutor::getQueueDepth)
+                .register(registry);
+        Gauge.builder("transaction.stage.executor.active", stageExecutor, StageExecutor::getActiveCount)
+                .register(registry);
+        FunctionCounter.builder("transaction.stage.executor.rejected", stageExecutor, StageExecutor::getRejectedCount)
+                .register(registry);
+        FunctionCounter.builder("transaction.stage.executor.timeouts", stageExecutor, StageExecutor::getTimedOutStageCount)
+                .register(registry);
+    }
+
+    /**
+     * Publishes the asynchronous history writer's backlog and throughput.
+     */
+    public void bindHistoryWriter(AsyncHistoryWriter historyWriter) {
+        Gauge.builder("transaction.history.queued", historyWriter, AsyncHistoryWriter::getQueueDepth)
+                .register(registry);
+        FunctionCounter.builder("transaction.history.written", historyWriter, AsyncHistoryWriter::getWrittenEventCount)
+                .register(registry);
+        FunctionCounter.builder("transaction.history.dropped", historyWriter, AsyncHistoryWriter::getDroppedEventCount)
+                .register(registry);
+    }
+
+    public void recordSettlementBatch(String destinationType, String outcome, int entries) {
+        Counter.builder(SETTLEMENT_BATCHES)
+                .tag("destinationType", destinationType)
+                .tag("outcome", outcome)
+                .register(registry)
+                .increment();
+        Counter.builder("transaction.settlement.entries")
+                .tag("destinationType", destinationType)
+                .tag("outcome", outcome)
+                .register(registry)
+                .increment(entries);
+    }
+
+    public void recordExternalFetch(String topic, int lockedTasks) {
+        Counter.builder(EXTERNAL_FETCHES)
+                .tag("topic", topic)
+                .tag("result", lockedTasks > 0 ? "locked" : "empty")
+                .register(registry)
+                .increment();
+        if (lockedTasks > 0) {
+            Counter.builder("transaction.external.locked")
+                    .tag("topic", topic)
+                    .register(registry)
+                    .increment(lockedTasks);
+        }
+    }
+
+    public void recordScheduledPayments(String outcome, int payments) {
+        Counter.builder(SCHEDULED_PAYMENTS)
+                .tag("outcome", outcome)
+                .register(registry)
+                .increment(payments);
+    }
+
+    public void recordJobAcquisition(int acquiredJobs, int lockConflicts, long nanos) {
+        Timer.builder(JOB_ACQUISITION)
+                .tag("result", acquiredJobs > 0 ? "acquired" : "empty")
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+        if (acquiredJobs > 0) {
+            Counter.builder("transaction.jobs.acquired")
+                    .register(registry)
+                    .increment(acquiredJobs);
+        }
+        if (lockConflicts > 0) {
+            Counter.builder("transaction.jobs.lock.conflicts")
+                    .register(registry)
+                    .increment(lockConflicts);
+        }
+    }
+
+    public void recordRejectedJobs(int jobs) {
+        Counter.builder("transaction.jobs.rejected")
+                .register(registry)
+                .increment(jobs);
+    }
+
+    public void recordIngestedRecord(String outcome) {
+        Counter.builder(INGESTED_RECORDS)
+                .tag("outcome", outcome)
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * Publishes the job executor's running jobs and acquired jobs waiting for a thread.
+     */
+    public void bindJobExecutor(ThreadPoolTaskExecutor jobExecutor) {
+        Gauge.builder("transaction.jobs.executor.active", jobExecutor, ThreadPoolTaskExecutor::getActiveCount)
+                .register(registry);
+        Gauge.builder("transaction.jobs.executor.queued", jobExecutor,
+                        executor -> executor.getThreadPoolExecutor().getQueue().size())
+                .register(registry);
+    }
+
+    public void bindOutcomeIndex(TransactionOutcomeIndex outcomeIndex) {
+        Gauge.builder("transaction.outcome.index.size", outcomeIndex, TransactionOutcomeIndex::getSize)
+                .register(registry);
+    }
+
+    public void bindCreditAuthorizer(CreditAuthorizer creditAuthorizer) {
+        Gauge.builder("transaction.authorization.holds", creditAuthorizer, CreditAuthorizer::getHoldCount)
+                .register(registry);
+    }
+
+    public void bindSettlementBatcher(SettlementBatcher settlementBatcher) {
+        Gauge.builder("transaction.settlement.pending", settlementBatcher, SettlementBatcher::getPendingCount)
+                .register(registry);
+    }
+
+    private static String tagValue(String value) {
+        return value != null ? value : UNKNOWN;
+    }
+
+    static String transactionTypeTag(String transactionType) {
+        if (transactionType == null) {
+            return UNKNOWN;
+        }
+        return TRANSACTION_TYPES.contains(transactionType) ? transactionType : OTHER;
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.transactionprocessor.model;
+
+import org.springframework.data.domain.Persistable;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.PostLoad;
+import javax.persistence.PostPersist;
+import javax.persistence.Table;
+import javax.persistence.Transient;
+import java.time.Instant;
+
+/**
+ * Committed balance of one ledger account, in cents. Postings add their amount
+ * to the row in the transaction that made them, so the row is the sum of every
+ * committed posting on any node, and {@code VERSION} counts the updates.
+ */
+@Entity
+@Table(name = "ACCOUNT_BALANCE")
+public class AccountBalance implements Persistable<String> {
+
+    @Id
+    @Column(name = "ACCOUNT_KEY", length = 100)
+    private String accountKey;
+
+    @Column(name = "BALANCE_CENTS", nullable = false)
+    private long balanceCents;
+
+    @Column(name = "POSTINGS", nullable = false)
+    private long postings;
+
+    @Column(name = "VERSION", nullable = false)
+    private long version;
+
+    @Column(name = "UPDATED_AT", nullable = false)
+    private Instant updatedAt;
+
+    @Transient
+    private boolean persisted;
+
+    protected AccountBalance() {}
+
+    public AccountBalance(String accountKey, long balanceCents, long postings, Instant updatedAt) {
+        this.accountKey = accountKey;
+        this.balanceCents = balanceCents;
+        this.postings = postings;
+        this.updatedAt = updatedAt;
+    }
+
+    @Override
+    public String getId() {
+        return accountKey;
+    }
+
+    /**
+     * Always insert a new account, so two nodes opening it at once fail on the
+     * primary key instead of one overwriting the other.
+     */
+    @Override
+    public boolean isNew() {
+        return !persisted;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markPersisted() {
+        persisted = true;
+    }
+
+    public String getAccountKey() {
+        return accountKey;
+    }
+
+    public long getBalanceCents() {
+        return balanceCents;
+    }
+
+    public long getPostings() {
+        return postings;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+}
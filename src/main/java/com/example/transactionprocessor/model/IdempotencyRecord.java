@@ -0,0 +1,103 @@
+package com.example.transactionprocessor.model;
+
+import org.springframework.data.domain.Persistable;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.PostLoad;
+import javax.persistence.PostPersist;
+import javax.persistence.Table;
+import javax.persistence.Transient;
+import java.time.Instant;
+
+/**
+ * Claim on a client reference: the first request carrying it inserts the row in
+ * the same database transaction that starts its process instance, so the
+ * primary key on {@code IDEMPOTENCY_KEY} turns every later start with the same
+ * reference into a constraint violation, across restarts and instances.
+ */
+@Entity
+@Table(name = "TRANSACTION_IDEMPOTENCY")
+public class IdempotencyRecord implements Persistable<String> {
+
+    @Id
+    @Column(name = "IDEMPOTENCY_KEY", length = 100)
+    private String idempotencyKey;
+
+    @Column(name = "PROCESS_INSTANCE_ID", length = 36, nullable = false)
+    private String processInstanceId;
+
+    @Column(name = "TRANSACTION_TYPE", length = 32)
+    private String transactionType;
+
+    @Column(name = "STATUS", length = 16, nullable = false)
+    private String status;
+
+    @Column(name = "CREATED_AT", nullable = false)
+    private Instant createdAt;
+
+    @Transient
+    private boolean persisted;
+
+    protected IdempotencyRecord() {}
+
+    public IdempotencyRecord(String idempotencyKey, String processInstanceId, String transactionType, String status,
+                             Instant createdAt) {
+        this.idempotencyKey = idempotencyKey;
+        this.processInstanceId = processInstanceId;
+        this.transactionType = transactionType;
+        this.status = status;
+        this.createdAt = createdAt;
+    }
+
+    @Override
+    public String getId() {
+        return idempotencyKey;
+    }
+
+    /**
+     * Always persist a new claim, so a taken key fails on insert instead of
+     * being merged into the existing row.
+     */
+    @Override
+    public boolean isNew() {
+        return !persisted;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markPersisted() {
+        persisted = true;
+    }
+
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    public String getProcessInstanceId() {
+        return processInstanceId;
+    }
+
+    public String getTransactionType() {
+        return transactionType;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    @Override
+    public String toString() {
+        return "IdempotencyRecord{" +
+                "idempotencyKey='" + idempotencyKey + '\'' +
+                ", processInstanceId='" + processInstanceId + '\'' +
+                ", transactionType='" + transactionType + '\'' +
+                ", status='" + status + '\'' +
+                '}';
+    }
+}
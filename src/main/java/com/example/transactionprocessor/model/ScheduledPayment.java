@@ -0,0 +1,231 @@
+package com.example.transactionprocessor.model;
+
+import org.springframework.data.domain.Persistable;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Lob;
+import javax.persistence.PostLoad;
+import javax.persistence.PostPersist;
+import javax.persistence.Table;
+import javax.persistence.Transient;
+import javax.persistence.Version;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A payment to be started at a future time, once or every week, month or
+ * quarter. The row holds the payment's process variables, its next due time
+ * and how many occurrences have been started; the {@code STATUS, DUE_AT} index
+ * lets the scheduler read the next due payments without scanning the others.
+ * <p>
+ * Recurring due times are counted from {@code ANCHOR}, the first due date-time,
+ * so a payment due on the 31st falls on the last day of shorter months and
+ * returns to the 31st afterwards.
+ */
+@Entity
+@Table(name = "TRANSACTION_SCHEDULED_PAYMENT", indexes = {
+        @Index(name = "IDX_TX_SCHEDULED_DUE", columnList = "STATUS, DUE_AT")
+})
+public class ScheduledPayment implements Persistable<String> {
+
+    public static final String STATUS_SCHEDULED = "SCHEDULED";
+    public static final String STATUS_COMPLETED = "COMPLETED";
+    public static final String STATUS_CANCELLED = "CANCELLED";
+    public static final String STATUS_FAILED = "FAILED";
+
+    public static final String FREQUENCY_WEEKLY = "WEEKLY";
+    public static final String FREQUENCY_MONTHLY = "MONTHLY";
+    public static final String FREQUENCY_QUARTERLY = "QUARTERLY";
+
+    @Id
+    @Column(name = "SCHEDULE_ID", length = 36)
+    private String scheduleId;
+
+    @Column(name = "REFERENCE", length = 64)
+    private String reference;
+
+    /** {@code null} for a one-off payment */
+    @Column(name = "FREQUENCY", length = 16)
+    private String frequency;
+
+    @Column(name = "ANCHOR", nullable = false)
+    private LocalDateTime anchor;
+
+    @Column(name = "DUE_AT")
+    private Instant dueAt;
+
+    @Column(name = "OCCURRENCES", nullable = false)
+    private int occurrences;
+
+    /** Failed starts of the next occurrence; nullable so the column can be added to existing tables */
+    @Column(name = "FAILED_ATTEMPTS")
+    private Integer failedAttempts;
+
+    @Column(name = "STATUS", length = 16, nullable = false)
+    private String status;
+
+    @Column(name = "LAST_PROCESS_INSTANCE_ID", length = 36)
+    private String lastProcessInstanceId;
+
+    @Lob
+    @Column(name = "VARIABLES", nullable = false)
+    private byte[] variables;
+
+    @Column(name = "CREATED_AT", nullable = false)
+    private Instant createdAt;
+
+    @Column(name = "UPDATED_AT")
+    private Instant updatedAt;
+
+    /** Two schedulers releasing the same occurrence cannot both commit */
+    @Version
+    @Column(name = "VERSION")
+    private Long version;
+
+    @Transient
+    private boolean persisted;
+
+    protected ScheduledPayment() {}
+
+    public ScheduledPayment(String scheduleId, String reference, String frequency, LocalDateTime anchor, Instant dueAt,
+                            Map<String, Object> variables, Instant createdAt) {
+        this.scheduleId = scheduleId;
+        this.reference = reference;
+        this.frequency = frequency;
+        this.anchor = anchor;
+        this.dueAt = dueAt;
+        this.status = STATUS_SCHEDULED;
+        this.variables = serialize(variables);
+        this.createdAt = createdAt;
+    }
+
+    /**
+     * Records that occurrence {@link #getOccurrences()} + 1 has been started.
+     *
+     * @param nextDueAt due time of the following occurrence, {@code null} when there is none
+     */
+    public void released(String processInstanceId, Instant nextDueAt, Instant now) {
+        occurrences++;
+        failedAttempts = 0;
+        lastProcessInstanceId = processInstanceId;
+        dueAt = nextDueAt;
+        if (nextDueAt == null) {
+            status = STATUS_COMPLETED;
+        }
+        updatedAt = now;
+    }
+
+    /**
+     * Records a failed start of the next occurrence and retries it at {@code retryAt}.
+     */
+    public void retry(Instant retryAt, Instant now) {
+        failedAttempts = getFailedAttempts() + 1;
+        dueAt = retryAt;
+        updatedAt = now;
+    }
+
+    public void finish(String status, Instant now) {
+        this.status = status;
+        this.dueAt = null;
+        this.updatedAt = now;
+    }
+
+    @Override
+    public String getId() {
+        return scheduleId;
+    }
+
+    @Override
+    public boolean isNew() {
+        return !persisted;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markPersisted() {
+        persisted = true;
+    }
+
+    public String getScheduleId() {
+        return scheduleId;
+    }
+
+    public String getReference() {
+        return reference;
+    }
+
+    public String getFrequency() {
+        return frequency;
+    }
+
+    public boolean isRecurring() {
+        return frequency != null;
+    }
+
+    public LocalDateTime getAnchor() {
+        return anchor;
+    }
+
+    public Instant getDueAt() {
+        return dueAt;
+    }
+
+    public int getOccurrences() {
+        return occurrences;
+    }
+
+    public int getFailedAttempts() {
+        return failedAttempts != null ? failedAttempts : 0;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public String getLastProcessInstanceId() {
+        return lastProcessInstanceId;
+    }
+
+    /**
+     * @return a fresh copy of the payment's flat process variables
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> getVariables() {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(variables))) {
+            return (Map<String, Object>) in.readObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("Variables of schedule " + scheduleId + " cannot be read", e);
+        }
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    private static byte[] serialize(Map<String, Object> variables) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(2048);
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(new HashMap<>(variables));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.transactionprocessor.model;
+
+import org.springframework.data.domain.Persistable;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.PostLoad;
+import javax.persistence.PostPersist;
+import javax.persistence.Table;
+import javax.persistence.Transient;
+import java.time.Instant;
+
+/**
+ * One funds transfer owed by a finished transaction: a payout to the vendor of a
+ * settled purchase, or an ACH debit from the bank of a posted payment. The row is
+ * written in the transaction that completes the task, and updated with the batch
+ * it was sent in and how that batch ended, so every instance can be traced to
+ * its transfer. The row also names the node that owns it, the only one that
+ * batches it again after a restart.
+ */
+@Entity
+@Table(name = "TRANSACTION_SETTLEMENT", indexes = {
+        @Index(name = "IDX_TX_SETTLEMENT_STATUS", columnList = "STATUS"),
+        @Index(name = "IDX_TX_SETTLEMENT_BATCH", columnList = "BATCH_ID"),
+        @Index(name = "IDX_TX_SETTLEMENT_OWNER", columnList = "OWNER, STATUS")
+})
+public class SettlementEntry implements Persistable<String> {
+
+    public static final String STATUS_PENDING = "PENDING";
+    public static final String STATUS_SETTLED = "SETTLED";
+    public static final String STATUS_FAILED = "FAILED";
+
+    /** Funds paid out to a vendor, batched per vendor */
+    public static final String DESTINATION_VENDOR = "VENDOR";
+    /** Funds collected from a customer's bank, batched per bank */
+    public static final String DESTINATION_BANK = "BANK";
+
+    @Id
+    @Column(name = "PROCESS_INSTANCE_ID", length = 36)
+    private String processInstanceId;
+
+    @Column(name = "TRANSACTION_TYPE", length = 32)
+    private String transactionType;
+
+    @Column(name = "REFERENCE", length = 64)
+    private String reference;
+
+    @Column(name = "DESTINATION_TYPE", length = 16, nullable = false)
+    private String destinationType;
+
+    @Column(name = "DESTINATION", length = 128, nullable = false)
+    private String destination;
+
+    @Column(name = "AMOUNT_CENTS", nullable = false)
+    private long amountCents;
+
+    @Column(name = "STATUS", length = 16, nullable = false)
+    private String status;
+
+    @Column(name = "BATCH_ID", length = 36)
+    private String batchId;
+
+    @Column(name = "OWNER", length = 64)
+    private String owner;
+
+    @Column(name = "CREATED_AT", nullable = false)
+    private Instant createdAt;
+
+    @Column(name = "COMPLETED_AT")
+    private Instant completedAt;
+
+    @Transient
+    private boolean persisted;
+
+    protected SettlementEntry() {}
+
+    public SettlementEntry(String processInstanceId, String transactionType, String reference, String destinationType,
+                           String destination, long amountCents, Instant createdAt) {
+        this.processInstanceId = processInstanceId;
+        this.transactionType = transactionType;
+        this.reference = reference;
+        this.destinationType = destinationType;
+        this.destination = destination;
+        this.amountCents = amountCents;
+        this.status = STATUS_PENDING;
+        this.createdAt = createdAt;
+    }
+
+    @Override
+    public String getId() {
+        return processInstanceId;
+    }
+
+    @Override
+    public boolean isNew() {
+        return !persisted;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markPersisted() {
+        persisted = true;
+    }
+
+    public String getProcessInstanceId() {
+        return processInstanceId;
+    }
+
+    public String getTransactionType() {
+        return transactionType;
+    }
+
+    public String getReference() {
+        return reference;
+    }
+
+    public String getDestinationType() {
+        return destinationType;
+    }
+
+    public String getDestination() {
+        return destination;
+    }
+
+    public long getAmountCents() {
+        return amountCents;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public String getBatchId() {
+        return batchId;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public void setOwner(String owner) {
+        this.owner = owner;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public Instant getCompletedAt() {
+        return completedAt;
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.transactionprocessor.model;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * All request data and task outcomes of one transaction, stored as a single
+ * process variable ({@value #VARIABLE_NAME}) instead of one variable per field.
+ * Entries use the same names as the flat variable layout, so delegates read
+ * {@code "customerName"} or {@code "authorizationCode"} in either mode.
+ * <p>
+ * Supported values are {@code String}, {@code Boolean}, {@code Integer},
+ * {@code Long}, {@code Double}, {@code BigDecimal}, {@code LocalDate} and
+ * {@code LocalDateTime}. Instances are not thread-safe; use {@link #copy()} to
+ * hand one to another thread.
+ */
+public class TransactionContext {
+
+    public static final String VARIABLE_NAME = "transactionContext";
+
+    private final Map<String, Object> values;
+    private final Set<String> changedNames = new LinkedHashSet<>();
+
+    public TransactionContext() {
+        this.values = new LinkedHashMap<>();
+    }
+
+    public TransactionContext(Map<String, Object> values) {
+        this.values = new LinkedHashMap<>(values);
+    }
+
+    public boolean contains(String name) {
+        return values.containsKey(name);
+    }
+
+    public Object get(String name) {
+        return values.get(name);
+    }
+
+    public String getString(String name) {
+        return (String) values.get(name);
+    }
+
+    public Boolean getBoolean(String name) {
+        return (Boolean) values.get(name);
+    }
+
+    public BigDecimal getDecimal(String name) {
+        Object value = values.get(name);
+        if (value == null || value instanceof BigDecimal) {
+            return (BigDecimal) value;
+        }
+        return new BigDecimal(value.toString());
+    }
+
+    public void put(String name, Object value) {
+        values.put(name, value);
+        changedNames.add(name);
+    }
+
+    public Map<String, Object> getValues() {
+        return Collections.unmodifiableMap(values);
+    }
+
+    /**
+     * Names written through {@link #put} since this instance was created or copied.
+     */
+    public Set<String> getChangedNames() {
+        return Collections.unmodifiableSet(changedNames);
+    }
+
+    public TransactionContext copy() {
+        return new TransactionContext(values);
+    }
+
+    /**
+     * Returns a copy of this context with the entries changed in {@code other}
+     * applied on top, so writes of tasks that ran side by side do not overwrite
+     * each other.
+     */
+    public TransactionContext mergeChanges(TransactionContext other) {
+        TransactionContext merged = copy();
+        merged.changedNames.addAll(changedNames);
+        for (String name : other.changedNames) {
+            merged.put(name, other.values.get(name));
+        }
+        return merged;
+    }
+
+    public int size() {
+        return values.size();
+    }
+
+    @Override
+    public String toString() {
+        return "TransactionContext" + values;
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.transactionprocessor.model;
+
+import org.springframework.data.domain.Persistable;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.PostLoad;
+import javax.persistence.PostPersist;
+import javax.persistence.Table;
+import javax.persistence.Transient;
+import java.time.Instant;
+
+/**
+ * Compact audit record of one processed transaction: what was run, how it
+ * ended and the outcome values the tasks produced, in a single row. Status
+ * queries read it by id or by client reference, never the engine's history.
+ */
+@Entity
+@Table(name = "TRANSACTION_OUTCOME", indexes = @Index(name = "IDX_TX_OUTCOME_REFERENCE", columnList = "REFERENCE"))
+public class TransactionOutcome implements Persistable<String> {
+
+    public static final String STATUS_COMPLETED = "COMPLETED";
+    public static final String STATUS_CANCELLED = "CANCELLED";
+    public static final String MODE_STRAIGHT_THROUGH = "STRAIGHT_THROUGH";
+    public static final String MODE_BPMN = "BPMN";
+
+    @Id
+    @Column(name = "PROCESS_INSTANCE_ID", length = 36)
+    private String processInstanceId;
+
+    @Column(name = "TRANSACTION_TYPE", length = 32)
+    private String transactionType;
+
+    @Column(name = "REFERENCE", length = 64)
+    private String reference;
+
+    @Column(name = "STATUS", length = 16, nullable = false)
+    private String status;
+
+    @Column(name = "EXECUTION_MODE", length = 16, nullable = false)
+    private String executionMode;
+
+    @Column(name = "TASK_FLOW", length = 255)
+    private String taskFlow;
+
+    @Column(name = "OUTCOME", length = 2000)
+    private String outcome;
+
+    @Column(name = "CREATED_AT", nullable = false)
+    private Instant createdAt;
+
+    @Column(name = "DURATION_MICROS")
+    private long durationMicros;
+
+    @Transient
+    private boolean persisted;
+
+    protected TransactionOutcome() {}
+
+    public TransactionOutcome(String processInstanceId, String transactionType, String reference, String status,
+                              String executionMode, String taskFlow, String outcome, Instant createdAt,
+                              long durationMicros) {
+        this.processInstanceId = processInstanceId;
+        this.transactionType = transactionType;
+        this.reference = reference;
+        this.status = status;
+        this.executionMode = executionMode;
+        this.taskFlow = taskFlow;
+        this.outcome = outcome;
+        this.createdAt = createdAt;
+        this.durationMicros = durationMicros;
+    }
+
+    @Override
+    public String getId() {
+        return processInstanceId;
+    }
+
+    /**
+     * Ids are assigned up front, so tell Spring Data a new record is new instead
+     * of letting it select before every insert.
+     */
+    @Override
+    public boolean isNew() {
+        return !persisted;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markPersisted() {
+        persisted = true;
+    }
+
+    public String getProcessInstanceId() {
+        return processInstanceId;
+    }
+
+    public String getTransactionType() {
+        return transactionType;
+    }
+
+    public String getReference() {
+        return reference;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public String getExecutionMode() {
+        return executionMode;
+    }
+
+    public String getTaskFlow() {
+        return taskFlow;
+    }
+
+    public String getOutcome() {
+        return outcome;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public long getDurationMicros() {
+        return durationMicros;
+    }
+
+    @Override
+    public String toString() {
+        return "TransactionOutcome{" +
+                "processInstanceId='" + processInstanceId + '\'' +
+                ", transactionType='" + transactionType + '\'' +
+                ", status='" + status + '\'' +
+                ", executionMode='" + executionMode + '\'' +
+                ", taskFlow='" + taskFlow + '\'' +
+                ", outcome='" + outcome + '\'' +
+                '}';
+    }
+}
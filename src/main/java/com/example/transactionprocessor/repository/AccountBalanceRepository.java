@@ -0,0 +1,27 @@
+package com.example.transactionprocessor.repository;
+
+import com.example.transactionprocessor.model.AccountBalance;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+public interface AccountBalanceRepository extends JpaRepository<AccountBalance, String> {
+
+    /**
+     * Adds a posting to the committed balance in place, so concurrent postings
+     * from other nodes are summed rather than overwritten.
+     *
+     * @return {@code 0} if the account has no row yet
+     */
+    @Transactional
+    @Modifying
+    @Query("update AccountBalance a set a.balanceCents = a.balanceCents + :deltaCents,"
+            + " a.postings = a.postings + :postings, a.version = a.version + 1, a.updatedAt = :updatedAt"
+            + " where a.accountKey = :accountKey")
+    int addPosting(@Param("accountKey") String accountKey, @Param("deltaCents") long deltaCents,
+                   @Param("postings") long postings, @Param("updatedAt") Instant updatedAt);
+}
@@ -0,0 +1,7 @@
+package com.example.transactionprocessor.repository;
+
+import com.example.transactionprocessor.model.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+}
@@ -0,0 +1,19 @@
+package com.example.transactionprocessor.repository;
+
+import com.example.transactionprocessor.model.ScheduledPayment;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface ScheduledPaymentRepository extends JpaRepository<ScheduledPayment, String> {
+
+    /**
+     * Earliest due payments first, read through the {@code STATUS, DUE_AT} index.
+     */
+    @Query("select p from ScheduledPayment p where p.status = :status and p.dueAt <= :now order by p.dueAt")
+    List<ScheduledPayment> findDue(@Param("status") String status, @Param("now") Instant now, Pageable page);
+}
@@ -0,0 +1,38 @@
+package com.example.transactionprocessor.repository;
+
+import com.example.transactionprocessor.model.SettlementEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+public interface SettlementEntryRepository extends JpaRepository<SettlementEntry, String> {
+
+    List<SettlementEntry> findByStatusAndOwner(String status, String owner);
+
+    /**
+     * Moves the pending entries of the given owners, and those written before
+     * entries had an owner, to {@code owner}. Each row is moved by one update,
+     * so two nodes adopting the same owner never both get a row.
+     */
+    @Modifying
+    @Query("update SettlementEntry e set e.owner = :owner where e.status = :status"
+            + " and (e.owner is null or e.owner in :previousOwners)")
+    int adopt(@Param("status") String status, @Param("previousOwners") Collection<String> previousOwners,
+              @Param("owner") String owner);
+
+    @Modifying
+    @Query("update SettlementEntry e set e.batchId = :batchId where e.processInstanceId in :processInstanceIds")
+    int assignBatch(@Param("processInstanceIds") Collection<String> processInstanceIds,
+                    @Param("batchId") String batchId);
+
+    @Modifying
+    @Query("update SettlementEntry e set e.status = :status, e.batchId = :batchId, e.completedAt = :completedAt"
+            + " where e.processInstanceId in :processInstanceIds")
+    int complete(@Param("processInstanceIds") Collection<String> processInstanceIds, @Param("batchId") String batchId,
+                 @Param("status") String status, @Param("completedAt") Instant completedAt);
+}
@@ -0,0 +1,11 @@
+package com.example.transactionprocessor.repository;
+
+import com.example.transactionprocessor.model.TransactionOutcome;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface TransactionOutcomeRepository extends JpaRepository<TransactionOutcome, String> {
+
+    List<TransactionOutcome> findByReferenceOrderByCreatedAtDesc(String reference);
+}
@@ -0,0 +1,167 @@
+package com.example.transactionprocessor.service;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Decouples HTTP intake from process execution. Requests are parked in a bounded
+ * queue and drained into the engine by a fixed worker pool; when the queue is
+ * full {@link #submit} refuses the request so the caller can push back.
+ */
+@Service
+public class AsyncIntakeService {
+
+    private static final Logger log = LogManager.getLogger(AsyncIntakeService.class);
+
+    public enum State { QUEUED, RUNNING, COMPLETED, FAILED }
+
+    @Autowired
+    private TransactionStartService transactionStartService;
+
+    @Value("${transaction-processor.async-intake.workers:16}")
+    private int workers;
+
+    @Value("${transaction-processor.async-intake.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${transaction-processor.async-intake.status-retention:100000}")
+    private int statusRetention;
+
+    private ThreadPoolExecutor executor;
+
+    private final Map<String, IntakeStatus> statuses = new ConcurrentHashMap<>();
+    private final Queue<String> statusOrder = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger retainedStatuses = new AtomicInteger();
+
+    @PostConstruct
+    void init() {
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "async-intake-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("Async intake queue not drained on shutdown, {} requests dropped", executor.getQueue().size());
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Queues a process start. Returns {@code false} without side effects when the
+     * intake queue is full.
+     */
+    public boolean submit(String processInstanceId, String transactionType, Map<String, Object> variables) {
+        IntakeStatus status = new IntakeStatus(processInstanceId, transactionType);
+        statuses.put(processInstanceId, status);
+        try {
+            executor.execute(() -> run(status, variables));
+        } catch (RejectedExecutionException e) {
+            statuses.remove(processInstanceId);
+            return false;
+        }
+        statusOrder.add(processInstanceId);
+        if (retainedStatuses.incrementAndGet() > statusRetention) {
+            evictOldStatuses();
+        }
+        return true;
+    }
+
+    public IntakeStatus getStatus(String processInstanceId) {
+        return statuses.get(processInstanceId);
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    public int getRemainingCapacity() {
+        return executor.getQueue().remainingCapacity();
+    }
+
+    private void run(IntakeStatus status, Map<String, Object> variables) {
+        status.state = State.RUNNING;
+        try {
+            transactionStartService.start(status.processInstanceId, variables);
+            status.state = State.COMPLETED;
+        } catch (Exception e) {
+            log.error("Async transaction {} failed: {}", status.processInstanceId, e.getMessage());
+            status.message = e.getMessage();
+            status.state = State.FAILED;
+        } finally {
+            status.completedAt = System.currentTimeMillis();
+        }
+    }
+
+    private void evictOldStatuses() {
+        while (retainedStatuses.get() > statusRetention) {
+            String oldest = statusOrder.poll();
+            if (oldest == null) {
+                return;
+            }
+            retainedStatuses.decrementAndGet();
+            statuses.remove(oldest);
+        }
+    }
+
+    public static class IntakeStatus {
+        private final String processInstanceId;
+        private final String transactionType;
+        private final long acceptedAt = System.currentTimeMillis();
+        private volatile State state = State.QUEUED;
+        private volatile String message;
+        private volatile long completedAt;
+
+        IntakeStatus(String processInstanceId, String transactionType) {
+            this.processInstanceId = processInstanceId;
+            this.transactionType = transactionType;
+        }
+
+        public String getProcessInstanceId() {
+            return processInstanceId;
+        }
+
+        public String getTransactionType() {
+            return transactionType;
+        }
+
+        public long getAcceptedAt() {
+            return acceptedAt;
+        }
+
+        public State getState() {
+            return state;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        public long getCompletedAt() {
+            return completedAt;
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.example.transactionprocessor.service;
+
+import com.example.transactionprocessor.model.PaymentTransactionRequest;
+import com.example.transactionprocessor.model.TransactionRequest;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streams a batch of transaction requests into the engine. The body is read one
+ * element at a time (JSON array or NDJSON), instances are started in chunks of
+ * {@code commit-size} inside one database transaction per chunk, and a result
+ * line is written back for every item as soon as its chunk has committed.
+ * Future-dated and recurring payments are stored with the {@link PaymentScheduler}
+ * in the same chunk transaction instead of being started.
+ */
+@Service
+public class BatchIngestionService {
+
+    private static final Logger log = LogManager.getLogger(BatchIngestionService.class);
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private TransactionVariableMapper variableMapper;
+
+    @Autowired
+    private TransactionStartService transactionStartService;
+
+    @Autowired
+    private RequestValidator requestValidator;
+
+    @Autowired
+    private PaymentScheduler paymentScheduler;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${transaction-processor.batch.commit-size:500}")
+    private int commitSize;
+
+    public BatchSummary process(InputStream body, OutputStream results) throws IOException {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        BatchSummary summary = new BatchSummary();
+        List<BatchItem> chunk = new ArrayList<>(commitSize);
+
+        // readValues() iterates both a root-level array and whitespace separated values (NDJSON)
+        try (MappingIterator<JsonNode> items = objectMapper.readerFor(JsonNode.class).readValues(body);
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(results)) {
+            generator.setRootValueSeparator(null);
+            int index = 0;
+            while (items.hasNextValue()) {
+                chunk.add(toBatchItem(index++, items.nextValue()));
+                if (chunk.size() >= commitSize) {
+                    startChunk(chunk, transactionTemplate);
+                    writeResults(chunk, generator, summary);
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                startChunk(chunk, transactionTemplate);
+                writeResults(chunk, generator, summary);
+            }
+        }
+
+        log.info("Batch completed: {} started, {} failed", summary.getSucceeded(), summary.getFailed());
+        return summary;
+    }
+
+    private BatchItem toBatchItem(int index, JsonNode node) {
+        BatchItem item = new BatchItem(index);
+        try {
+            if (isPaymentRequest(node)) {
+                PaymentTransactionRequest paymentRequest = objectMapper.treeToValue(node, PaymentTransactionRequest.class);
+                item.transactionType = paymentRequest.getTransactionType();
+                item.reference = paymentRequest.getPaymentReference();
+                if (rejectInvalid(item, requestValidator.validate(paymentRequest))) {
+                    return item;
+                }
+                if (paymentScheduler.accepts(paymentRequest)) {
+                    item.scheduledPayment = paymentRequest;
+                } else {
+                    item.variables = variableMapper.toVariables(paymentRequest);
+                }
+            } else {
+                TransactionRequest transactionRequest = objectMapper.treeToValue(node, TransactionRequest.class);
+                item.transactionType = transactionRequest.getTransactionType();
+                item.reference = transactionRequest.getReferenceNumber();
+                if (rejectInvalid(item, requestValidator.validate(transactionRequest))) {
+                    return item;
+                }
+                item.variables = variableMapper.toVariables(transactionRequest);
+            }
+            item.processInstanceId = transactionStartService.newProcessInstanceId();
+        } catch (Exception e) {
+            item.error = "Invalid request: " + e.getMessage();
+        }
+        return item;
+    }
+
+    private static boolean rejectInvalid(BatchItem item, List<RequestValidator.Violation> violations) {
+        if (violations.isEmpty()) {
+            return false;
+        }
+        item.error = "Invalid request: " + RequestValidator.describe(violations);
+        return true;
+    }
+
+    private boolean isPaymentRequest(JsonNode node) {
+        return node.has("paymentAmount") || node.has("customerAccount");
+    }
+
+    private void startChunk(List<BatchItem> chunk, TransactionTemplate transactionTemplate) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (BatchItem item : chunk) {
+                    if (item.error == null) {
+                        start(item);
+                    }
+                }
+            });
+        } catch (RuntimeException chunkFailure) {
+            // One bad item rolls back the whole chunk; replay it item by item to isolate the failure
+            log.warn("Batch chunk rolled back, retrying items individually: {}", chunkFailure.getMessage());
+            for (BatchItem item : chunk) {
+                if (item.error == null) {
+                    try {
+                        transactionTemplate.executeWithoutResult(status -> start(item));
+                    } catch (RuntimeException e) {
+                        item.error = "Error processing transaction: " + e.getMessage();
+                    }
+                }
+            }
+        }
+    }
+
+    private void start(BatchItem item) {
+        if (item.scheduledPayment != null) {
+            paymentScheduler.schedule(item.processInstanceId, item.scheduledPayment);
+        } else {
+            transactionStartService.start(item.processInstanceId, item.variables);
+        }
+    }
+
+    private void writeResults(List<BatchItem> chunk, JsonGenerator generator, BatchSummary summary) throws IOException {
+        for (BatchItem item : chunk) {
+            generator.writeStartObject();
+            generator.writeNumberField("index", item.index);
+            if (item.error == null && item.scheduledPayment != null) {
+                generator.writeStringField("status", "scheduled");
+                generator.writeStringField("scheduleId", item.processInstanceId);
+                summary.succeeded++;
+            } else if (item.error == null) {
+                generator.writeStringField("status", "success");
+                generator.writeStringField("processInstanceId", item.processInstanceId);
+                summary.succeeded++;
+            } else {
+                generator.writeStringField("status", "error");
+                generator.writeStringField("message", item.error);
+                summary.failed++;
+            }
+            generator.writeStringField("transactionType", item.transactionType);
+            generator.writeStringField("reference", item.reference);
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        }
+        // Push the committed chunk's results to the client before reading further
+        generator.flush();
+    }
+
+    private static class BatchItem {
+        private final int index;
+        private String processInstanceId;
+        private String transactionType;
+        private String reference;
+        private Map<String, Object> variables;
+        /**
+         * Set instead of {@code variables} for a payment stored with the scheduler.
+         */
+        private PaymentTransactionRequest scheduledPayment;
+        private String error;
+
+        private BatchItem(int index) {
+            this.index = index;
+        }
+    }
+
+    public static class BatchSummary {
+        private int succeeded;
+        private int failed;
+
+        public int getSucceeded() {
+            return succeeded;
+        }
+
+        public int getFailed() {
+            return failed;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.transactionprocessor.service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Stable, non-reversible card identifiers: an HMAC-SHA256 of the card number
+ * under a secret key, so cards can be keyed in process variables and in memory
+ * without carrying the number itself. The same key always gives the same token.
+ */
+final class CardTokens {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int TOKEN_BYTES = 16;
+
+    private final ThreadLocal<Mac> macs;
+
+    CardTokens(byte[] secret) {
+        SecretKeySpec key = new SecretKeySpec(secret, ALGORITHM);
+        macs = ThreadLocal.withInitial(() -> {
+            try {
+                Mac mac = Mac.getInstance(ALGORITHM);
+                mac.init(key);
+                return mac;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("HMAC-SHA256 is not available", e);
+            }
+        });
+    }
+
+    String tokenize(String cardNumber) {
+        if (cardNumber == null) {
+            return null;
+        }
+        byte[] digest = macs.get().doFinal(cardNumber.replaceAll("[\\s-]", "").getBytes(StandardCharsets.US_ASCII));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, TOKEN_BYTES));
+    }
+}
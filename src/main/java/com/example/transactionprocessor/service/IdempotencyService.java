@@ -0,0 +1,240 @@
+package com.example.transactionprocessor.service;
+
+import com.example.transactionprocessor.metrics.TransactionMetrics;
+import com.example.transactionprocessor.model.IdempotencyRecord;
+import com.example.transactionprocessor.model.TransactionOutcome;
+import com.example.transactionprocessor.repository.IdempotencyRecordRepository;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Makes transaction starts idempotent per client reference ({@code referenceNumber}
+ * or {@code paymentReference}). A retried request gets the original process
+ * instance id back instead of starting a second instance.
+ * <p>
+ * Two layers answer a duplicate:
+ * <ul>
+ *   <li>A bounded in-memory cache of recent references, each holding a future for
+ *       the start's result. Concurrent requests with the same reference wait for
+ *       the one start in flight instead of racing it. Entries expire after
+ *       {@code ttl-seconds}, and the oldest go first beyond {@code max-entries}.</li>
+ *   <li>The {@code TRANSACTION_IDEMPOTENCY} table, keyed by reference. Its row is
+ *       inserted in the start's own database transaction, so it exists exactly
+ *       when the start committed. It answers after a cache miss, a restart, or on
+ *       another instance.</li>
+ * </ul>
+ * A failed start rolls its row back and leaves no cache entry, so the client can retry.
+ * <p>
+ * The row records that the transaction was {@code STARTED}; with async
+ * continuations or external tasks the start commits long before the
+ * transaction ends, and may never complete. A duplicate is therefore answered
+ * with the transaction's outcome from the {@link TransactionOutcomeIndex} once
+ * it has one, and as {@code STARTED} until then.
+ */
+@Service
+public class IdempotencyService {
+
+    private static final Logger log = LogManager.getLogger(IdempotencyService.class);
+
+    public static final String STATUS_STARTED = "STARTED";
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private TransactionMetrics transactionMetrics;
+
+    @Autowired
+    private TransactionOutcomeIndex transactionOutcomeIndex;
+
+    @Value("${transaction-processor.idempotency.enabled:true}")
+    private boolean enabled;
+
+    @Value("${transaction-processor.idempotency.ttl-seconds:86400}")
+    private long ttlSeconds;
+
+    @Value("${transaction-processor.idempotency.max-entries:100000}")
+    private int maxEntries;
+
+    private TransactionTemplate transactionTemplate;
+
+    private final Map<String, CacheEntry> cache = new ConcurrentHashMap<>();
+    private final Queue<CacheEntry> cacheOrder = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger orderedEntries = new AtomicInteger();
+
+    @PostConstruct
+    void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Runs {@code start} for {@code processInstanceId} unless a transaction with the
+     * same {@code scope} and {@code reference} has already been started. Requests
+     * without a reference are always started.
+     */
+    public Result startOnce(String scope, String reference, String processInstanceId, String transactionType,
+                            Runnable start) {
+        if (!enabled || reference == null || reference.trim().isEmpty()) {
+            start.run();
+            return new Result(processInstanceId, STATUS_STARTED, false);
+        }
+
+        String key = scope + ":" + reference;
+        while (true) {
+            CacheEntry entry = cache.get(key);
+            if (entry != null && entry.isExpired(System.currentTimeMillis())) {
+                cache.remove(key, entry);
+                entry = null;
+            }
+            if (entry != null) {
+                transactionMetrics.recordDuplicate(entry.result.isDone() ? "cache" : "in-flight");
+                return asDuplicate(await(entry));
+            }
+
+            CacheEntry claimed = new CacheEntry(key, System.currentTimeMillis() + ttlSeconds * 1000);
+            if (cache.putIfAbsent(key, claimed) == null) {
+                track(claimed);
+                return startOrFind(claimed, processInstanceId, transactionType, start);
+            }
+        }
+    }
+
+    private Result startOrFind(CacheEntry claimed, String processInstanceId, String transactionType, Runnable start) {
+        try {
+            Result result = findExisting(claimed.key)
+                    .orElseGet(() -> claimAndStart(claimed.key, processInstanceId, transactionType, start));
+            claimed.result.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            cache.remove(claimed.key, claimed);
+            claimed.result.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private Result claimAndStart(String key, String processInstanceId, String transactionType, Runnable start) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                // Flush the claim first: a concurrent start of the same reference elsewhere
+                // blocks on the key here and fails once this transaction commits
+                idempotencyRecordRepository.saveAndFlush(new IdempotencyRecord(key, processInstanceId,
+                        transactionType, STATUS_STARTED, Instant.now()));
+                start.run();
+            });
+            return new Result(processInstanceId, STATUS_STARTED, false);
+        } catch (DataIntegrityViolationException e) {
+            log.debug("Idempotency key {} claimed concurrently: {}", key, e.getMessage());
+            return findExisting(key).orElseThrow(() -> e);
+        }
+    }
+
+    private Optional<Result> findExisting(String key) {
+        return idempotencyRecordRepository.findById(key).map(record -> {
+            transactionMetrics.recordDuplicate("database");
+            return asDuplicate(new Result(record.getProcessInstanceId(), record.getStatus(), false));
+        });
+    }
+
+    /**
+     * The original start, with the status its transaction has reached by now.
+     */
+    private Result asDuplicate(Result original) {
+        String status = transactionOutcomeIndex.find(original.processInstanceId)
+                .map(TransactionOutcome::getStatus)
+                .orElse(STATUS_STARTED);
+        return new Result(original.processInstanceId, status, true);
+    }
+
+    private static Result await(CacheEntry entry) {
+        try {
+            return entry.result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private void track(CacheEntry entry) {
+        cacheOrder.add(entry);
+        orderedEntries.incrementAndGet();
+        long now = System.currentTimeMillis();
+        // Entries are queued in expiry order, so only the head needs checking
+        CacheEntry oldest;
+        while ((oldest = cacheOrder.peek()) != null
+                && (orderedEntries.get() > maxEntries || oldest.isExpired(now))) {
+            if (cacheOrder.remove(oldest)) {
+                orderedEntries.decrementAndGet();
+                cache.remove(oldest.key, oldest);
+            }
+        }
+    }
+
+    public int getCacheSize() {
+        return cache.size();
+    }
+
+    private static class CacheEntry {
+        private final String key;
+        private final long expiresAt;
+        private final CompletableFuture<Result> result = new CompletableFuture<>();
+
+        private CacheEntry(String key, long expiresAt) {
+            this.key = key;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired(long now) {
+            return now >= expiresAt;
+        }
+    }
+
+    /**
+     * Process instance that handles a request, and whether an earlier request
+     * with the same reference started it.
+     */
+    public static class Result {
+        private final String processInstanceId;
+        private final String status;
+        private final boolean duplicate;
+
+        Result(String processInstanceId, String status, boolean duplicate) {
+            this.processInstanceId = processInstanceId;
+            this.status = status;
+            this.duplicate = duplicate;
+        }
+
+        public String getProcessInstanceId() {
+            return processInstanceId;
+        }
+
+        public String getStatus() {
+            return status;
+        }
+
+        public boolean isDuplicate() {
+            return duplicate;
+        }
+    }
+}
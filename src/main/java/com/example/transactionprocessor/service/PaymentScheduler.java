@@ -0,0 +1,328 @@
+package com.example.transactionprocessor.service;
+
+import com.example.transactionprocessor.metrics.TransactionMetrics;
+import com.example.transactionprocessor.model.PaymentTransactionRequest;
+import com.example.transactionprocessor.model.ScheduledPayment;
+import com.example.transactionprocessor.repository.ScheduledPaymentRepository;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds payments with a future {@code scheduledDateTime} or a
+ * {@code recurringFrequency} in {@code TRANSACTION_SCHEDULED_PAYMENT} and starts
+ * them as ordinary payments once due. There is no timer per schedule: a single
+ * poller reads the earliest due rows through the due-time index, up to
+ * {@code batch-size} at a time, and starts them in one database transaction
+ * together with advancing each row to its next occurrence.
+ * <p>
+ * Occurrence {@code n} of a schedule is started with a name-based UUID of
+ * {@code <scheduleId>-<n>} as its id, the same on every node. An occurrence that fails to start stays
+ * {@code SCHEDULED} and is retried after {@code retry-delay-ms}, doubled on every
+ * further failure, up to {@code max-attempts} starts; only then, or when the
+ * start is rejected as invalid ({@link IllegalArgumentException}), is its
+ * schedule marked {@code FAILED}. Occurrences missed while no scheduler was
+ * running are started on the next poll, one per missed period.
+ * <p>
+ * Local date-times are read in the zone of the scheduler's clock. Several
+ * nodes may poll the same table: the row version lets only one of them commit
+ * an occurrence, and the other's batch rolls back and is retried row by row.
+ */
+@Service
+public class PaymentScheduler {
+
+    private static final Logger log = LogManager.getLogger(PaymentScheduler.class);
+
+    @Autowired
+    private ScheduledPaymentRepository scheduledPaymentRepository;
+
+    @Autowired
+    private TransactionStartService transactionStartService;
+
+    @Autowired
+    private TransactionVariableMapper variableMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private TransactionMetrics transactionMetrics;
+
+    @Value("${transaction-processor.scheduler.enabled:true}")
+    private boolean enabled;
+
+    @Value("${transaction-processor.scheduler.poll-interval-ms:1000}")
+    private long pollIntervalMillis;
+
+    @Value("${transaction-processor.scheduler.batch-size:500}")
+    private int batchSize;
+
+    @Value("${transaction-processor.scheduler.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${transaction-processor.scheduler.retry-delay-ms:60000}")
+    private long retryDelayMillis;
+
+    private Clock clock = Clock.systemDefaultZone();
+
+    private TransactionTemplate transactionTemplate;
+    private ScheduledExecutorService poller;
+
+    @PostConstruct
+    void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        if (!enabled) {
+            return;
+        }
+        poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "payment-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        poller.scheduleWithFixedDelay(this::poll, pollIntervalMillis, pollIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        if (poller != null) {
+            poller.shutdown();
+            poller.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * @return whether the payment is to be scheduled rather than started now
+     */
+    public boolean accepts(PaymentTransactionRequest paymentRequest) {
+        return paymentRequest.isRecurring() || (paymentRequest.getScheduledDateTime() != null
+                && paymentRequest.getScheduledDateTime().isAfter(LocalDateTime.now(clock)));
+    }
+
+    /**
+     * Stores the payment for its first due time; joins the caller's transaction
+     * when one is active. A recurring payment without a scheduled date-time, or
+     * whose scheduled date-time has passed, is first due now and recurs from now.
+     */
+    public ScheduledPayment schedule(String scheduleId, PaymentTransactionRequest paymentRequest) {
+        String frequency = null;
+        if (paymentRequest.isRecurring()) {
+            frequency = frequency(paymentRequest.getRecurringFrequency());
+        }
+        LocalDateTime now = LocalDateTime.now(clock);
+        LocalDateTime anchor = paymentRequest.getScheduledDateTime() != null
+                && paymentRequest.getScheduledDateTime().isAfter(now) ? paymentRequest.getScheduledDateTime() : now;
+        Map<String, Object> variables = variableMapper.toFlatVariables(paymentRequest);
+        ScheduledPayment scheduledPayment = new ScheduledPayment(scheduleId, paymentRequest.getPaymentReference(),
+                frequency, anchor, dueAt(anchor, frequency, 0), variables, clock.instant());
+        return scheduledPaymentRepository.save(scheduledPayment);
+    }
+
+    public Optional<ScheduledPayment> find(String scheduleId) {
+        return scheduledPaymentRepository.findById(scheduleId);
+    }
+
+    /**
+     * Stops further occurrences; those already started are not affected.
+     *
+     * @return the schedule, or empty when it does not exist
+     */
+    public Optional<ScheduledPayment> cancel(String scheduleId) {
+        return transactionTemplate.execute(status -> scheduledPaymentRepository.findById(scheduleId)
+                .map(scheduledPayment -> {
+                    if (ScheduledPayment.STATUS_SCHEDULED.equals(scheduledPayment.getStatus())) {
+                        scheduledPayment.finish(ScheduledPayment.STATUS_CANCELLED, clock.instant());
+                    }
+                    return scheduledPayment;
+                }));
+    }
+
+    /**
+     * Starts every occurrence due by now, one batch after another, until a
+     * batch starts nothing. A schedule that missed several periods is read
+     * again for each of them.
+     *
+     * @return the number of occurrences started
+     */
+    public int releaseDue() {
+        Instant now = clock.instant();
+        int released = 0;
+        int batch;
+        do {
+            batch = releaseBatch(now);
+            released += batch;
+        } while (batch > 0);
+        return released;
+    }
+
+    private void poll() {
+        try {
+            int released = releaseDue();
+            if (released > 0) {
+                log.info("Released {} scheduled payments", released);
+            }
+        } catch (RuntimeException e) {
+            log.error("Releasing scheduled payments failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private int releaseBatch(Instant now) {
+        List<ScheduledPayment> due = scheduledPaymentRepository.findDue(ScheduledPayment.STATUS_SCHEDULED, now,
+                PageRequest.of(0, batchSize));
+        if (due.isEmpty()) {
+            return 0;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> due.forEach(scheduledPayment ->
+                    release(scheduledPayment, now)));
+            transactionMetrics.recordScheduledPayments("released", due.size());
+            return due.size();
+        } catch (RuntimeException batchFailure) {
+            // One failed start, or a row released by another node, rolls back the batch; retry row by row
+            log.warn("Scheduled payment batch rolled back, retrying one by one: {}", batchFailure.getMessage());
+            int released = 0;
+            for (ScheduledPayment scheduledPayment : due) {
+                if (releaseOne(scheduledPayment.getScheduleId(), now)) {
+                    released++;
+                }
+            }
+            return released;
+        }
+    }
+
+    private boolean releaseOne(String scheduleId, Instant now) {
+        try {
+            Boolean released = transactionTemplate.execute(status -> {
+                ScheduledPayment scheduledPayment = scheduledPaymentRepository.findById(scheduleId).orElse(null);
+                if (scheduledPayment == null || !isDue(scheduledPayment, now)) {
+                    return false;
+                }
+                release(scheduledPayment, now);
+                return true;
+            });
+            if (Boolean.TRUE.equals(released)) {
+                transactionMetrics.recordScheduledPayments("released", 1);
+                return true;
+            }
+            return false;
+        } catch (RuntimeException e) {
+            boolean retryable = isRetryable(e);
+            Boolean failed = transactionTemplate.execute(status -> scheduledPaymentRepository.findById(scheduleId)
+                    .map(scheduledPayment -> failed(scheduledPayment, retryable))
+                    .orElse(false));
+            if (Boolean.TRUE.equals(failed)) {
+                log.error("Scheduled payment {} failed to start: {}", scheduleId, e.getMessage());
+                transactionMetrics.recordScheduledPayments("failed", 1);
+            } else {
+                log.warn("Scheduled payment {} failed to start, will retry: {}", scheduleId, e.getMessage());
+                transactionMetrics.recordScheduledPayments("retried", 1);
+            }
+            return false;
+        }
+    }
+
+    /**
+     * @return whether the schedule was marked {@code FAILED} rather than set to retry
+     */
+    private boolean failed(ScheduledPayment scheduledPayment, boolean retryable) {
+        Instant now = clock.instant();
+        int attempts = scheduledPayment.getFailedAttempts() + 1;
+        if (!retryable || attempts >= maxAttempts) {
+            scheduledPayment.finish(ScheduledPayment.STATUS_FAILED, now);
+            return true;
+        }
+        long delayMillis = retryDelayMillis << Math.min(attempts - 1, 20);
+        scheduledPayment.retry(now.plusMillis(delayMillis), now);
+        return false;
+    }
+
+    /**
+     * A start rejected as invalid fails the same way on every attempt.
+     */
+    private static boolean isRetryable(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof IllegalArgumentException) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void release(ScheduledPayment scheduledPayment, Instant now) {
+        int occurrence = scheduledPayment.getOccurrences() + 1;
+        String processInstanceId = occurrenceId(scheduledPayment.getScheduleId(), occurrence);
+        Map<String, Object> variables = scheduledPayment.getVariables();
+        variables.put("scheduleId", scheduledPayment.getScheduleId());
+        variables.put("scheduledOccurrence", occurrence);
+        transactionStartService.start(processInstanceId, variableMapper.pack(variables));
+
+        Instant nextDueAt = scheduledPayment.isRecurring()
+                ? dueAt(scheduledPayment.getAnchor(), scheduledPayment.getFrequency(), occurrence) : null;
+        scheduledPayment.released(processInstanceId, nextDueAt, now);
+        scheduledPaymentRepository.save(scheduledPayment);
+    }
+
+    static String occurrenceId(String scheduleId, int occurrence) {
+        return UUID.nameUUIDFromBytes((scheduleId + "-" + occurrence).getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    private static boolean isDue(ScheduledPayment scheduledPayment, Instant now) {
+        return ScheduledPayment.STATUS_SCHEDULED.equals(scheduledPayment.getStatus())
+                && scheduledPayment.getDueAt() != null && !scheduledPayment.getDueAt().isAfter(now);
+    }
+
+    /**
+     * Due time of occurrence {@code index} (0 for the first), counted from the anchor.
+     */
+    private Instant dueAt(LocalDateTime anchor, String frequency, int index) {
+        LocalDateTime due = anchor;
+        if (frequency != null) {
+            switch (frequency) {
+                case ScheduledPayment.FREQUENCY_WEEKLY:
+                    due = anchor.plusWeeks(index);
+                    break;
+                case ScheduledPayment.FREQUENCY_MONTHLY:
+                    due = anchor.plusMonths(index);
+                    break;
+                case ScheduledPayment.FREQUENCY_QUARTERLY:
+                    due = anchor.plusMonths(3L * index);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown recurring frequency: " + frequency);
+            }
+        }
+        return due.atZone(clock.getZone()).toInstant();
+    }
+
+    private static String frequency(String recurringFrequency) {
+        String frequency = recurringFrequency != null ? recurringFrequency.trim().toUpperCase(Locale.ROOT) : "";
+        switch (frequency) {
+            case ScheduledPayment.FREQUENCY_WEEKLY:
+            case ScheduledPayment.FREQUENCY_MONTHLY:
+            case ScheduledPayment.FREQUENCY_QUARTERLY:
+                return frequency;
+            default:
+                throw new IllegalArgumentException("recurringFrequency must be WEEKLY, MONTHLY or QUARTERLY but was: "
+                        + recurringFrequency);
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package com.example.transactionprocessor.service;
+
+import com.example.transactionprocessor.model.BankDetails;
+import com.example.transactionprocessor.model.CreditCardInfo;
+import com.example.transactionprocessor.model.CustomerAccount;
+import com.example.transactionprocessor.model.PaymentMethod;
+import com.example.transactionprocessor.model.PaymentTransactionRequest;
+import com.example.transactionprocessor.model.ScheduledPayment;
+import com.example.transactionprocessor.model.TransactionRequest;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Checks a request at intake, before any engine command, so a request the
+ * process would only reject is answered without starting an instance. The
+ * checks are plain getter calls, one method per request type, and collect every
+ * violation rather than stopping at the first; a valid request allocates
+ * nothing.
+ * <p>
+ * A transaction type is accepted only if the deployed {@code DeterminePath}
+ * decision routes it, matched exactly as the decision does; every redeployment
+ * reports its types through {@link #onDecisionDeployed}. Payments are held to
+ * the rules of {@code PaymentValidationDelegate}, which still runs in the
+ * process for payments started by the scheduler. References are bounded by the
+ * {@code REFERENCE} columns they are stored in.
+ */
+@Component
+public class RequestValidator {
+
+    private static final String ADJUSTMENT = "Adjustment";
+    private static final String PAYMENT = "Payment";
+    private static final String ACTIVE = "ACTIVE";
+    private static final int ROUTING_NUMBER_LENGTH = 9;
+    private static final int MAX_REFERENCE_LENGTH = 64;
+
+    /**
+     * The types the bundled decision routes, until a deployment reports its own.
+     */
+    private static final Set<String> BUNDLED_TYPES = Set.of("Purchase", PAYMENT, ADJUSTMENT);
+
+    private volatile Set<String> routedTypes = BUNDLED_TYPES;
+
+    /**
+     * Called whenever the routing decision is (re)deployed with the transaction
+     * types its rules match, or {@code null} when a rule matches types that
+     * cannot be listed, such as an empty input entry; then any type is accepted.
+     */
+    public void onDecisionDeployed(Set<String> transactionTypes) {
+        routedTypes = transactionTypes != null ? Set.copyOf(transactionTypes) : null;
+    }
+
+    /**
+     * @return the violations, empty if the request may be started
+     */
+    public List<Violation> validate(TransactionRequest request) {
+        List<Violation> violations = Collections.emptyList();
+        String transactionType = request.getTransactionType();
+        if (isBlank(transactionType)) {
+            violations = add(violations, "transactionType", "is required");
+        } else if (PAYMENT.equals(transactionType)) {
+            violations = add(violations, "transactionType",
+                    "must not be Payment, which is submitted to /transactions/payment");
+        } else if (!isRouted(transactionType)) {
+            violations = add(violations, "transactionType", "is not routed by the DeterminePath decision");
+        }
+        BigDecimal amount = request.getAmount();
+        if (amount == null) {
+            violations = add(violations, "amount", "is required");
+        } else if (ADJUSTMENT.equals(transactionType)) {
+            if (amount.signum() == 0) {
+                violations = add(violations, "amount", "must not be zero");
+            }
+        } else if (amount.signum() <= 0) {
+            violations = add(violations, "amount", "must be positive");
+        }
+        CreditCardInfo creditCardInfo = request.getCreditCardInfo();
+        if (creditCardInfo == null) {
+            violations = add(violations, "creditCardInfo", "is required");
+        } else {
+            if (isBlank(creditCardInfo.getCardNumber())) {
+                violations = add(violations, "creditCardInfo.cardNumber", "is required");
+            }
+            if (isBlank(creditCardInfo.getHolderName())) {
+                violations = add(violations, "creditCardInfo.holderName", "is required");
+            }
+        }
+        if (request.getBillingAddress() == null) {
+            violations = add(violations, "billingAddress", "is required");
+        }
+        if (request.getVendorInfo() == null) {
+            violations = add(violations, "vendorInfo", "is required");
+        }
+        if (isTooLong(request.getReferenceNumber())) {
+            violations = add(violations, "referenceNumber",
+                    "must be at most " + MAX_REFERENCE_LENGTH + " characters");
+        }
+        return violations;
+    }
+
+    /**
+     * @return the violations, empty if the payment may be started or scheduled
+     */
+    public List<Violation> validate(PaymentTransactionRequest request) {
+        List<Violation> violations = Collections.emptyList();
+        if (!PAYMENT.equals(request.getTransactionType())) {
+            violations = add(violations, "transactionType", "must be Payment");
+        }
+        if (request.getPaymentAmount() == null) {
+            violations = add(violations, "paymentAmount", "is required");
+        } else if (request.getPaymentAmount().signum() <= 0) {
+            violations = add(violations, "paymentAmount", "must be positive");
+        }
+        if (request.isRecurring() && !isFrequency(request.getRecurringFrequency())) {
+            violations = add(violations, "recurringFrequency", "must be WEEKLY, MONTHLY or QUARTERLY");
+        }
+        if (isTooLong(request.getPaymentReference())) {
+            violations = add(violations, "paymentReference",
+                    "must be at most " + MAX_REFERENCE_LENGTH + " characters");
+        }
+        CustomerAccount customerAccount = request.getCustomerAccount();
+        if (customerAccount == null) {
+            violations = add(violations, "customerAccount", "is required");
+        } else {
+            if (isBlank(customerAccount.getAccountNumber())) {
+                violations = add(violations, "customerAccount.accountNumber", "is required");
+            }
+            if (isBlank(customerAccount.getCustomerName())) {
+                violations = add(violations, "customerAccount.customerName", "is required");
+            }
+            if (!ACTIVE.equalsIgnoreCase(customerAccount.getAccountStatus())) {
+                violations = add(violations, "customerAccount.accountStatus", "must be ACTIVE");
+            }
+        }
+        PaymentMethod paymentMethod = request.getPaymentMethod();
+        BankDetails bankDetails = paymentMethod != null ? paymentMethod.getBankDetails() : null;
+        if (paymentMethod == null) {
+            violations = add(violations, "paymentMethod", "is required");
+        } else if (bankDetails == null) {
+            violations = add(violations, "paymentMethod.bankDetails", "is required");
+        } else {
+            if (isBlank(bankDetails.getBankName())) {
+                violations = add(violations, "paymentMethod.bankDetails.bankName", "is required");
+            }
+            if (!isRoutingNumber(bankDetails.getRoutingNumber())) {
+                violations = add(violations, "paymentMethod.bankDetails.routingNumber", "must be 9 digits");
+            }
+        }
+        return violations;
+    }
+
+    /**
+     * @return the violations as one line, {@code field message} separated by commas
+     */
+    public static String describe(List<Violation> violations) {
+        StringBuilder description = new StringBuilder();
+        for (Violation violation : violations) {
+            if (description.length() > 0) {
+                description.append(", ");
+            }
+            description.append(violation);
+        }
+        return description.toString();
+    }
+
+    private static List<Violation> add(List<Violation> violations, String field, String message) {
+        if (violations.isEmpty()) {
+            violations = new ArrayList<>(4);
+        }
+        violations.add(new Violation(field, message));
+        return violations;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+
+    private boolean isRouted(String transactionType) {
+        Set<String> types = routedTypes;
+        return types == null || types.contains(transactionType);
+    }
+
+    private static boolean isTooLong(String reference) {
+        return reference != null && reference.length() > MAX_REFERENCE_LENGTH;
+    }
+
+    private static boolean isRoutingNumber(String value) {
+        if (value == null || value.length() != ROUTING_NUMBER_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < ROUTING_NUMBER_LENGTH; i++) {
+            if (value.charAt(i) < '0' || value.charAt(i) > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isFrequency(String value) {
+        if (value == null) {
+            return false;
+        }
+        String frequency = value.trim().toUpperCase(Locale.ROOT);
+        return ScheduledPayment.FREQUENCY_WEEKLY.equals(frequency)
+                || ScheduledPayment.FREQUENCY_MONTHLY.equals(frequency)
+                || ScheduledPayment.FREQUENCY_QUARTERLY.equals(frequency);
+    }
+
+    public static final class Violation {
+        private final String field;
+        private final String message;
+
+        Violation(String field, String message) {
+            this.field = field;
+            this.message = message;
+        }
+
+        public String getField() {
+            return field;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return field + " " + message;
+        }
+    }
+}
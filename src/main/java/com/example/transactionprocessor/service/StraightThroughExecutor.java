@@ -0,0 +1,93 @@
+package com.example.transactionprocessor.service;
+
+import com.example.transactionprocessor.delegate.InMemoryExecution;
+import com.example.transactionprocessor.delegate.TaskRouterDelegate;
+import com.example.transactionprocessor.engine.RoutingDecisionEvaluator;
+import com.example.transactionprocessor.model.TransactionOutcome;
+import org.camunda.bpm.engine.ProcessEngineException;
+import org.camunda.bpm.engine.delegate.DelegateExecution;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs short, wait-state free task flows without the process engine: the
+ * routing decision is evaluated in memory, the resolved delegates run against
+ * an {@link InMemoryExecution}, and a single {@link TransactionOutcome} row is
+ * the only thing written. Nothing lands in the engine's runtime or history
+ * tables, so the transaction is not visible in Cockpit.
+ * <p>
+ * The delegates and the outcome row run in one transaction, joining the
+ * caller's if there is one. A failing delegate or outcome write fails the call,
+ * nothing is recorded and ledger postings and authorization holds already made
+ * are undone on rollback, exactly like a failed synchronous process start. Transaction types that may need wait
+ * states (such as adjustments going to manual review) should stay on BPMN.
+ */
+@Service
+public class StraightThroughExecutor {
+
+    @Autowired
+    private RoutingDecisionEvaluator routingDecisionEvaluator;
+
+    @Autowired
+    private TaskRouterDelegate taskRouterDelegate;
+
+    @Autowired
+    private TransactionOutcomeIndex transactionOutcomeIndex;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${transaction-processor.straight-through.enabled:false}")
+    private boolean enabled;
+
+    @Value("${transaction-processor.straight-through.transaction-types:Purchase,Payment}")
+    private Set<String> transactionTypes;
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRED);
+    }
+
+    public boolean accepts(String transactionType) {
+        return enabled && transactionTypes.contains(transactionType) && routingDecisionEvaluator.isReady();
+    }
+
+    public void execute(String processInstanceId, Map<String, Object> variables) {
+        transactionTemplate.executeWithoutResult(status -> run(processInstanceId, variables));
+    }
+
+    private void run(String processInstanceId, Map<String, Object> variables) {
+        long startNanos = System.nanoTime();
+        Instant createdAt = Instant.now();
+        Set<String> inputNames = TransactionOutcomes.flatten(variables).keySet();
+
+        String taskFlow = routingDecisionEvaluator.evaluate(variables);
+        variables.put("dmnResult", taskFlow);
+        DelegateExecution execution = InMemoryExecution.create(processInstanceId, variables);
+        try {
+            taskRouterDelegate.execute(execution);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ProcessEngineException("Straight-through execution of " + processInstanceId + " failed", e);
+        }
+
+        long durationMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos);
+        transactionOutcomeIndex.record(TransactionOutcomes.completed(processInstanceId, variables, inputNames,
+                TransactionOutcome.MODE_STRAIGHT_THROUGH, createdAt, durationMicros));
+    }
+}
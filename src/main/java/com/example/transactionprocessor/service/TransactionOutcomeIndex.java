@@ -0,0 +1,143 @@
+package com.example.transactionprocessor.service;
+
+import com.example.transactionprocessor.metrics.TransactionMetrics;
+import com.example.transactionprocessor.model.TransactionOutcome;
+import com.example.transactionprocessor.repository.TransactionOutcomeRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Read side for transaction status queries. Every finished transaction is
+ * recorded once in {@code TRANSACTION_OUTCOME}, and the most recent
+ * {@code max-entries} outcomes are also kept in memory by process instance id
+ * and by reference. Polling a recent transaction never touches the database;
+ * older ones are read from the outcome table and cached again.
+ * <p>
+ * Outcomes enter the memory index only after their transaction commits, so a
+ * rolled back start is never reported.
+ */
+@Service
+public class TransactionOutcomeIndex {
+
+    @Autowired
+    private TransactionOutcomeRepository transactionOutcomeRepository;
+
+    @Autowired
+    private TransactionMetrics transactionMetrics;
+
+    @Value("${transaction-processor.outcome-index.max-entries:100000}")
+    private int maxEntries;
+
+    private final Map<String, TransactionOutcome> outcomesById = new ConcurrentHashMap<>();
+    private final Map<String, List<TransactionOutcome>> outcomesByReference = new ConcurrentHashMap<>();
+    private final Queue<TransactionOutcome> indexOrder = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger indexedOutcomes = new AtomicInteger();
+
+    @PostConstruct
+    void init() {
+        transactionMetrics.bindOutcomeIndex(this);
+    }
+
+    /**
+     * Writes the outcome row as part of the current transaction and indexes it
+     * once that transaction has committed.
+     */
+    public void record(TransactionOutcome outcome) {
+        transactionOutcomeRepository.save(outcome);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    index(outcome);
+                }
+            });
+        } else {
+            index(outcome);
+        }
+    }
+
+    public Optional<TransactionOutcome> find(String processInstanceId) {
+        TransactionOutcome outcome = outcomesById.get(processInstanceId);
+        if (outcome != null) {
+            transactionMetrics.recordOutcomeLookup("memory");
+            return Optional.of(outcome);
+        }
+        Optional<TransactionOutcome> stored = transactionOutcomeRepository.findById(processInstanceId);
+        transactionMetrics.recordOutcomeLookup(stored.isPresent() ? "database" : "miss");
+        stored.ifPresent(this::index);
+        return stored;
+    }
+
+    /**
+     * Outcomes recorded for a client reference, most recent first.
+     */
+    public List<TransactionOutcome> findByReference(String reference) {
+        List<TransactionOutcome> outcomes = outcomesByReference.get(reference);
+        if (outcomes != null) {
+            transactionMetrics.recordOutcomeLookup("memory");
+            return outcomes;
+        }
+        List<TransactionOutcome> stored = transactionOutcomeRepository.findByReferenceOrderByCreatedAtDesc(reference);
+        transactionMetrics.recordOutcomeLookup(stored.isEmpty() ? "miss" : "database");
+        if (!stored.isEmpty()) {
+            stored.forEach(this::index);
+            outcomesByReference.putIfAbsent(reference, Collections.unmodifiableList(stored));
+        }
+        return stored;
+    }
+
+    public int getSize() {
+        return indexedOutcomes.get();
+    }
+
+    private void index(TransactionOutcome outcome) {
+        if (outcomesById.putIfAbsent(outcome.getProcessInstanceId(), outcome) != null) {
+            return;
+        }
+        if (outcome.getReference() != null) {
+            // Reference entries start from a complete database read; later outcomes only extend them
+            outcomesByReference.computeIfPresent(outcome.getReference(),
+                    (reference, outcomes) -> prepend(outcome, outcomes));
+        }
+        indexOrder.add(outcome);
+        if (indexedOutcomes.incrementAndGet() > maxEntries) {
+            evictOldest();
+        }
+    }
+
+    private void evictOldest() {
+        while (indexedOutcomes.get() > maxEntries) {
+            TransactionOutcome oldest = indexOrder.poll();
+            if (oldest == null) {
+                return;
+            }
+            indexedOutcomes.decrementAndGet();
+            outcomesById.remove(oldest.getProcessInstanceId(), oldest);
+            if (oldest.getReference() != null) {
+                // Drop the whole reference entry so a partial list is never served from memory
+                outcomesByReference.remove(oldest.getReference());
+            }
+        }
+    }
+
+    private static List<TransactionOutcome> prepend(TransactionOutcome outcome, List<TransactionOutcome> outcomes) {
+        List<TransactionOutcome> updated = new ArrayList<>(outcomes.size() + 1);
+        updated.add(outcome);
+        updated.addAll(outcomes);
+        return Collections.unmodifiableList(updated);
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.transactionprocessor.service;
+
+import com.example.transactionprocessor.model.TransactionContext;
+import com.example.transactionprocessor.model.TransactionOutcome;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Builds {@link TransactionOutcome} records from the variables a transaction
+ * ended with, the same way for straight-through and BPMN execution.
+ */
+public final class TransactionOutcomes {
+
+    private static final int MAX_OUTCOME_LENGTH = 2000;
+
+    private TransactionOutcomes() {
+    }
+
+    /**
+     * Outcome of a completed transaction. The recorded values are the variables
+     * that are not in {@code inputNames}, i.e. those the tasks produced.
+     */
+    public static TransactionOutcome completed(String processInstanceId, Map<String, Object> variables,
+                                               Set<String> inputNames, String executionMode, Instant createdAt,
+                                               long durationMicros) {
+        return outcome(TransactionOutcome.STATUS_COMPLETED, processInstanceId, variables, inputNames, executionMode,
+                createdAt, durationMicros);
+    }
+
+    /**
+     * Outcome of a transaction cancelled before it completed, with the values
+     * its tasks had produced by then.
+     */
+    public static TransactionOutcome cancelled(String processInstanceId, Map<String, Object> variables,
+                                               Set<String> inputNames, String executionMode, Instant createdAt,
+                                               long durationMicros) {
+        return outcome(TransactionOutcome.STATUS_CANCELLED, processInstanceId, variables, inputNames, executionMode,
+                createdAt, durationMicros);
+    }
+
+    /**
+     * Variables with a packed {@link TransactionContext} expanded into its entries.
+     */
+    public static Map<String, Object> flatten(Map<String, Object> variables) {
+        Map<String, Object> flat = new HashMap<>(variables);
+        Object context = flat.remove(TransactionContext.VARIABLE_NAME);
+        if (context instanceof TransactionContext) {
+            flat.putAll(((TransactionContext) context).getValues());
+        }
+        return flat;
+    }
+
+    /**
+     * Splits a recorded {@code name=value;name=value} outcome back into its values.
+     */
+    public static Map<String, String> parse(String outcome) {
+        if (outcome == null || outcome.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<String, String> values = new LinkedHashMap<>();
+        for (String entry : outcome.split(";")) {
+            int separator = entry.indexOf('=');
+            if (separator > 0) {
+                values.put(entry.substring(0, separator), entry.substring(separator + 1));
+            }
+        }
+        return values;
+    }
+
+    private static TransactionOutcome outcome(String status, String processInstanceId, Map<String, Object> variables,
+                                              Set<String> inputNames, String executionMode, Instant createdAt,
+                                              long durationMicros) {
+        Map<String, Object> result = flatten(variables);
+        return new TransactionOutcome(processInstanceId, (String) result.get("transactionType"), reference(result),
+                status, executionMode, (String) result.get("dmnResult"), describe(result, inputNames), createdAt,
+                durationMicros);
+    }
+
+    private static String reference(Map<String, Object> variables) {
+        Object reference = variables.get("referenceNumber");
+        if (reference == null) {
+            reference = variables.get("paymentReference");
+        }
+        return reference != null ? reference.toString() : null;
+    }
+
+    /**
+     * Values written by the tasks as {@code name=value;name=value}.
+     */
+    private static String describe(Map<String, Object> result, Set<String> inputNames) {
+        StringBuilder outcome = new StringBuilder();
+        for (Map.Entry<String, Object> entry : result.entrySet()) {
+            if (inputNames.contains(entry.getKey()) || "dmnResult".equals(entry.getKey())) {
+                continue;
+            }
+            if (outcome.length() > 0) {
+                outcome.append(';');
+            }
+            outcome.append(entry.getKey()).append('=').append(entry.getValue());
+        }
+        return outcome.length() > MAX_OUTCOME_LENGTH ? outcome.substring(0, MAX_OUTCOME_LENGTH) : outcome.toString();
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.transactionprocessor.service;
+
+import com.example.transactionprocessor.engine.TransactionHistoryLevel;
+import org.camunda.bpm.engine.RuntimeService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Single place where intake paths hand a transaction to the process engine, or
+ * to the {@link StraightThroughExecutor} for transaction types configured to
+ * bypass it. With {@code external-tasks.enabled} instances are started on the
+ * external task variant of the process, whose tasks are run by external task
+ * workers.
+ */
+@Service
+public class TransactionStartService {
+
+    public static final String PROCESS_DEFINITION_KEY = "transactionProcessing";
+    public static final String EXTERNAL_PROCESS_DEFINITION_KEY = "transactionProcessingExternal";
+
+    @Autowired
+    private RuntimeService runtimeService;
+
+    @Autowired
+    private StraightThroughExecutor straightThroughExecutor;
+
+    @Value("${transaction-processor.external-tasks.enabled:false}")
+    private boolean externalTasks;
+
+    public String getProcessDefinitionKey() {
+        return externalTasks ? EXTERNAL_PROCESS_DEFINITION_KEY : PROCESS_DEFINITION_KEY;
+    }
+
+    public String newProcessInstanceId() {
+        return UUID.randomUUID().toString();
+    }
+
+    /**
+     * Starts a transaction instance using {@code processInstanceId} as business key.
+     * Joins the caller's transaction when one is active, which is what lets the
+     * batch path group several starts into a single commit.
+     */
+    public void start(String processInstanceId, Map<String, Object> variables) {
+        variables.put("processInstanceId", processInstanceId);
+        if (straightThroughExecutor.accepts((String) variables.get("transactionType"))) {
+            straightThroughExecutor.execute(processInstanceId, variables);
+            return;
+        }
+        TransactionHistoryLevel.start((String) variables.get("transactionType"),
+                () -> runtimeService.startProcessInstanceByKey(getProcessDefinitionKey(), processInstanceId, variables));
+    }
+}
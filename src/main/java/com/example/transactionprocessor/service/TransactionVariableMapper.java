@@ -0,0 +1,154 @@
+package com.example.transactionprocessor.service;
+
+import com.example.transactionprocessor.model.PaymentTransactionRequest;
+import com.example.transactionprocessor.model.TransactionContext;
+import com.example.transactionprocessor.model.TransactionRequest;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Builds the process variables for a transaction request. Shared by the single,
+ * batch and asynchronous intake paths so every entry point starts instances with
+ * the same variable layout.
+ * <p>
+ * With {@code transaction-processor.variables.mode=context} the fields are
+ * packed into a single {@link TransactionContext} variable; only
+ * {@code transactionType}, which the routing decision reads, stays a separate
+ * variable.
+ * <p>
+ * The card number itself is never a variable: {@code creditCardNumber} is
+ * masked, and {@code cardToken} identifies the card for account keeping (see
+ * {@link CardTokens}), keyed by {@code transaction-processor.card-token.secret}.
+ */
+@Component
+public class TransactionVariableMapper {
+
+    private static final Logger log = LogManager.getLogger(TransactionVariableMapper.class);
+
+    public static final String MODE_CONTEXT = "context";
+
+    @Value("${transaction-processor.variables.mode:flat}")
+    private String mode;
+
+    @Value("${transaction-processor.card-token.secret:}")
+    private String cardTokenSecret;
+
+    private volatile CardTokens cardTokens;
+
+    public Map<String, Object> toVariables(TransactionRequest transactionRequest) {
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("transactionType", transactionRequest.getTransactionType());
+        variables.put("amount", transactionRequest.getAmount());
+        variables.put("currency", transactionRequest.getCurrency());
+        variables.put("transactionDateTime", transactionRequest.getTransactionDateTime());
+        variables.put("creditCardNumber", transactionRequest.getCreditCardInfo().getMaskedCardNumber());
+        variables.put("cardToken", cardTokens().tokenize(transactionRequest.getCreditCardInfo().getCardNumber()));
+        variables.put("cardHolderName", transactionRequest.getCreditCardInfo().getHolderName());
+        variables.put("cardType", transactionRequest.getCreditCardInfo().getCardType());
+        variables.put("billingAddress", transactionRequest.getBillingAddress().toString());
+        variables.put("vendorName", transactionRequest.getVendorInfo().getName());
+        variables.put("vendorLocation", transactionRequest.getVendorInfo().getLocation());
+        variables.put("description", transactionRequest.getDescription());
+        variables.put("referenceNumber", transactionRequest.getReferenceNumber());
+        return pack(variables);
+    }
+
+    public Map<String, Object> toVariables(PaymentTransactionRequest paymentRequest) {
+        return pack(toFlatVariables(paymentRequest));
+    }
+
+    /**
+     * Payment variables in the flat layout whatever the mode, for storing a
+     * payment that is started later through {@link #pack}.
+     */
+    public Map<String, Object> toFlatVariables(PaymentTransactionRequest paymentRequest) {
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("transactionType", paymentRequest.getTransactionType());
+        variables.put("paymentAmount", paymentRequest.getPaymentAmount());
+        variables.put("currency", paymentRequest.getCurrency());
+        variables.put("paymentDate", paymentRequest.getPaymentDate());
+        variables.put("scheduledDateTime", paymentRequest.getScheduledDateTime());
+
+        // Customer Account Information
+        variables.put("customerAccountNumber", paymentRequest.getCustomerAccount().getAccountNumber());
+        variables.put("customerName", paymentRequest.getCustomerAccount().getCustomerName());
+        variables.put("customerEmail", paymentRequest.getCustomerAccount().getCustomerEmail());
+        variables.put("customerPhone", paymentRequest.getCustomerAccount().getCustomerPhone());
+        variables.put("accountType", paymentRequest.getCustomerAccount().getAccountType());
+        variables.put("currentBalance", paymentRequest.getCustomerAccount().getCurrentBalance());
+        variables.put("creditLimit", paymentRequest.getCustomerAccount().getCreditLimit());
+        variables.put("minimumPaymentDue", paymentRequest.getCustomerAccount().getMinimumPaymentDue());
+        variables.put("paymentDueDate", paymentRequest.getCustomerAccount().getPaymentDueDate());
+        variables.put("accountStatus", paymentRequest.getCustomerAccount().getAccountStatus());
+
+        // Payment Method Information
+        variables.put("paymentMethodType", paymentRequest.getPaymentMethod().getPaymentType());
+        variables.put("paymentMethodId", paymentRequest.getPaymentMethod().getPaymentMethodId());
+        variables.put("paymentMethodNickname", paymentRequest.getPaymentMethod().getNickname());
+        variables.put("isDefaultPaymentMethod", paymentRequest.getPaymentMethod().isDefault());
+
+        // Bank Details
+        variables.put("bankName", paymentRequest.getPaymentMethod().getBankDetails().getBankName());
+        variables.put("routingNumber", paymentRequest.getPaymentMethod().getBankDetails().getRoutingNumber());
+        variables.put("bankAccountNumber", paymentRequest.getPaymentMethod().getBankDetails().getMaskedAccountNumber());
+        variables.put("bankAccountHolderName", paymentRequest.getPaymentMethod().getBankDetails().getAccountHolderName());
+        variables.put("bankAccountType", paymentRequest.getPaymentMethod().getBankDetails().getAccountType());
+
+        // Payment Details
+        variables.put("paymentType", paymentRequest.getPaymentType());
+        variables.put("isRecurring", paymentRequest.isRecurring());
+        variables.put("recurringFrequency", paymentRequest.getRecurringFrequency());
+        variables.put("paymentReference", paymentRequest.getPaymentReference());
+        variables.put("memo", paymentRequest.getMemo());
+        variables.put("confirmationEmail", paymentRequest.isConfirmationEmail());
+        return variables;
+    }
+
+    /**
+     * Brings flat variables into the configured layout.
+     */
+    public Map<String, Object> pack(Map<String, Object> variables) {
+        if (!isContextMode()) {
+            return variables;
+        }
+        Object transactionType = variables.remove("transactionType");
+        Map<String, Object> packed = new HashMap<>(4);
+        packed.put("transactionType", transactionType);
+        packed.put(TransactionContext.VARIABLE_NAME, new TransactionContext(variables));
+        return packed;
+    }
+
+    private CardTokens cardTokens() {
+        CardTokens tokens = cardTokens;
+        if (tokens == null) {
+            synchronized (this) {
+                if (cardTokens == null) {
+                    cardTokens = new CardTokens(cardTokenSecret());
+                }
+                tokens = cardTokens;
+            }
+        }
+        return tokens;
+    }
+
+    private byte[] cardTokenSecret() {
+        if (cardTokenSecret != null && !cardTokenSecret.isEmpty()) {
+            return cardTokenSecret.getBytes(StandardCharsets.UTF_8);
+        }
+        log.warn("No transaction-processor.card-token.secret set, card tokens change on every restart");
+        byte[] secret = new byte[32];
+        new SecureRandom().nextBytes(secret);
+        return secret;
+    }
+
+    public boolean isContextMode() {
+        return MODE_CONTEXT.equalsIgnoreCase(mode);
+    }
+}
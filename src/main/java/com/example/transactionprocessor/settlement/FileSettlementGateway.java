@@ -0,0 +1,61 @@
+package com.example.transactionprocessor.settlement;
+
+import com.example.transactionprocessor.ledger.AccountLedger;
+import com.example.transactionprocessor.model.SettlementEntry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Local stand-in for a payment network: writes each batch to
+ * {@code <directory>/<batchId>.csv} with a header record, one detail record per
+ * transfer and a trailer carrying the entry count and total, the way ACH and
+ * acquirer settlement files are laid out. The file appears atomically, and
+ * resubmitting a batch replaces its file.
+ */
+@Component
+@ConditionalOnProperty(name = "transaction-processor.settlement.gateway", havingValue = "file", matchIfMissing = true)
+public class FileSettlementGateway implements SettlementGateway {
+
+    @Value("${transaction-processor.settlement.file.directory:./data/settlement}")
+    private String directory;
+
+    @Override
+    public void submit(SettlementBatch batch) throws IOException {
+        Path target = Paths.get(directory, batch.getBatchId() + ".csv");
+        Files.createDirectories(target.getParent());
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            writer.write(String.join(",", "H", batch.getBatchId(), batch.getDestinationType(),
+                    escape(batch.getDestination()), batch.getClosedAt().toString()));
+            writer.newLine();
+            for (SettlementEntry entry : batch.getEntries()) {
+                writer.write(String.join(",", "D", entry.getProcessInstanceId(), escape(entry.getReference()),
+                        AccountLedger.toAmount(entry.getAmountCents()).toPlainString()));
+                writer.newLine();
+            }
+            writer.write(String.join(",", "T", Integer.toString(batch.getEntries().size()),
+                    AccountLedger.toAmount(batch.getTotalCents()).toPlainString()));
+            writer.newLine();
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static String escape(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.transactionprocessor.settlement;
+
+import com.example.transactionprocessor.model.SettlementEntry;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Transfers to one vendor or one bank, sent to the {@link SettlementGateway}
+ * together.
+ */
+public final class SettlementBatch {
+
+    private final String batchId;
+    private final String destinationType;
+    private final String destination;
+    private final List<SettlementEntry> entries;
+    private final long totalCents;
+    private final Instant closedAt;
+    /** Whether the batch id has been stored on the entries; only touched by the sender thread */
+    private boolean assigned;
+
+    SettlementBatch(String destinationType, String destination, List<SettlementEntry> entries, Instant closedAt) {
+        this(UUID.randomUUID().toString(), destinationType, destination, entries, closedAt);
+    }
+
+    SettlementBatch(String batchId, String destinationType, String destination, List<SettlementEntry> entries,
+                    Instant closedAt) {
+        this.batchId = batchId;
+        this.destinationType = destinationType;
+        this.destination = destination;
+        this.entries = Collections.unmodifiableList(new ArrayList<>(entries));
+        this.totalCents = entries.stream().mapToLong(SettlementEntry::getAmountCents).sum();
+        this.closedAt = closedAt;
+    }
+
+    public String getBatchId() {
+        return batchId;
+    }
+
+    public String getDestinationType() {
+        return destinationType;
+    }
+
+    public String getDestination() {
+        return destination;
+    }
+
+    public List<SettlementEntry> getEntries() {
+        return entries;
+    }
+
+    public List<String> getProcessInstanceIds() {
+        List<String> processInstanceIds = new ArrayList<>(entries.size());
+        for (SettlementEntry entry : entries) {
+            processInstanceIds.add(entry.getProcessInstanceId());
+        }
+        return processInstanceIds;
+    }
+
+    public long getTotalCents() {
+        return totalCents;
+    }
+
+    public Instant getClosedAt() {
+        return closedAt;
+    }
+
+    boolean isAssigned() {
+        return assigned;
+    }
+
+    void markAssigned() {
+        assigned = true;
+    }
+
+    @Override
+    public String toString() {
+        return destinationType + " batch " + batchId + " to " + destination + " (" + entries.size() + " entries)";
+    }
+}
@@ -0,0 +1,316 @@
+package com.example.transactionprocessor.settlement;
+
+import com.example.transactionprocessor.metrics.TransactionMetrics;
+import com.example.transactionprocessor.model.SettlementEntry;
+import com.example.transactionprocessor.repository.SettlementEntryRepository;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects the transfers of settled purchases and posted payments into one open
+ * batch per vendor or bank, and hands a batch to the {@link SettlementGateway}
+ * once it holds {@code max-batch-size} entries or has been open for
+ * {@code window-ms}. Tasks only enqueue, so no transaction waits on the network.
+ * <p>
+ * Every transfer is first written to {@code TRANSACTION_SETTLEMENT} in the
+ * transaction of the task that owes it, and joins a batch once that transaction
+ * commits. A batch's id is stored on its entries before it is submitted, and
+ * the batch outcome afterwards, so each instance can be traced to the batch
+ * that moved its funds. Every entry is stamped with this node's {@code node-id}.
+ * Entries of this node still pending at startup are picked up again; those
+ * already assigned to a batch are resubmitted under the same batch id. Entries
+ * of other nodes are left to them, unless their owner is listed in
+ * {@code adopt-owners}; those are first moved to this node in one update, so
+ * no entry is recovered by two nodes.
+ * <p>
+ * Batches are submitted one at a time from a single sender thread. A failed
+ * submission is retried after {@code retry-delay-ms} times the attempt number,
+ * and marks its entries {@code FAILED} after {@code max-attempts}.
+ */
+@Component
+public class SettlementBatcher {
+
+    private static final Logger log = LogManager.getLogger(SettlementBatcher.class);
+
+    @Autowired
+    private SettlementGateway settlementGateway;
+
+    @Autowired
+    private SettlementEntryRepository settlementEntryRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private TransactionMetrics transactionMetrics;
+
+    @Value("${transaction-processor.settlement.max-batch-size:500}")
+    private int maxBatchSize;
+
+    @Value("${transaction-processor.settlement.window-ms:5000}")
+    private long windowMillis;
+
+    @Value("${transaction-processor.settlement.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${transaction-processor.settlement.retry-delay-ms:1000}")
+    private long retryDelayMillis;
+
+    @Value("${transaction-processor.settlement.node-id:}")
+    private String nodeId;
+
+    @Value("${transaction-processor.settlement.adopt-owners:}")
+    private Set<String> adoptOwners;
+
+    /** Open batches by destination type and destination; guarded by itself */
+    private final Map<String, OpenBatch> openBatches = new LinkedHashMap<>();
+    /** Entries enqueued and not yet completed, so a recovered entry is never batched twice */
+    private final Set<String> queuedEntries = ConcurrentHashMap.newKeySet();
+
+    private TransactionTemplate transactionTemplate;
+    private ScheduledExecutorService sender;
+
+    @PostConstruct
+    void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        if (nodeId == null || nodeId.isEmpty()) {
+            nodeId = hostName();
+        }
+        sender = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "settlement-sender");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long tickMillis = Math.max(windowMillis / 4, 10);
+        sender.scheduleWithFixedDelay(() -> closeExpired(System.currentTimeMillis()), tickMillis, tickMillis,
+                TimeUnit.MILLISECONDS);
+        sender.execute(this::recover);
+        transactionMetrics.bindSettlementBatcher(this);
+    }
+
+    /**
+     * Closes every open batch, then waits up to a window for the sender to
+     * submit them. Entries not submitted by then stay pending for the next start.
+     */
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        sender.execute(() -> closeExpired(Long.MAX_VALUE));
+        sender.shutdown();
+        if (!sender.awaitTermination(windowMillis + 5_000, TimeUnit.MILLISECONDS)) {
+            log.warn("Settlement sender did not finish on shutdown, {} entries left pending", queuedEntries.size());
+            sender.shutdownNow();
+        }
+    }
+
+    /**
+     * Records the transfer in the current transaction and queues it for the
+     * next batch to its destination once that transaction commits. On a
+     * parallel stage thread, which has synchronization but no transaction of
+     * its own, the row is written just before the engine transaction commits.
+     */
+    public void enqueue(SettlementEntry entry) {
+        entry.setOwner(nodeId);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            settlementEntryRepository.save(entry);
+            add(entry);
+            return;
+        }
+        boolean deferred = !TransactionSynchronizationManager.isActualTransactionActive();
+        if (!deferred) {
+            settlementEntryRepository.save(entry);
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                if (deferred) {
+                    settlementEntryRepository.save(entry);
+                }
+            }
+
+            @Override
+            public void afterCommit() {
+                add(entry);
+            }
+        });
+    }
+
+    public Optional<SettlementEntry> find(String processInstanceId) {
+        return settlementEntryRepository.findById(processInstanceId);
+    }
+
+    public int getPendingCount() {
+        return queuedEntries.size();
+    }
+
+    void add(SettlementEntry entry) {
+        if (!queuedEntries.add(entry.getProcessInstanceId())) {
+            return;
+        }
+        SettlementBatch full = null;
+        synchronized (openBatches) {
+            String key = entry.getDestinationType() + ':' + entry.getDestination();
+            OpenBatch batch = openBatches.computeIfAbsent(key, k -> new OpenBatch(entry.getDestinationType(),
+                    entry.getDestination(), System.currentTimeMillis()));
+            batch.entries.add(entry);
+            if (batch.entries.size() >= maxBatchSize) {
+                openBatches.remove(key);
+                full = batch.close();
+            }
+        }
+        if (full != null) {
+            submitLater(full, 1, 0);
+        }
+    }
+
+    void closeExpired(long nowMillis) {
+        List<SettlementBatch> expired = new ArrayList<>();
+        synchronized (openBatches) {
+            Iterator<OpenBatch> batches = openBatches.values().iterator();
+            while (batches.hasNext()) {
+                OpenBatch batch = batches.next();
+                if (nowMillis - batch.openedAtMillis >= windowMillis) {
+                    batches.remove();
+                    expired.add(batch.close());
+                }
+            }
+        }
+        for (SettlementBatch batch : expired) {
+            submit(batch, 1);
+        }
+    }
+
+    private void recover() {
+        Set<String> previousOwners = new HashSet<>(adoptOwners);
+        previousOwners.add(nodeId);
+        List<SettlementEntry> pending;
+        try {
+            pending = transactionTemplate.execute(status -> {
+                int adopted = settlementEntryRepository.adopt(SettlementEntry.STATUS_PENDING, previousOwners, nodeId);
+                if (adopted > 0) {
+                    log.info("Node {} adopted {} pending settlement entries of {} or without an owner",
+                            nodeId, adopted, adoptOwners);
+                }
+                return settlementEntryRepository.findByStatusAndOwner(SettlementEntry.STATUS_PENDING, nodeId);
+            });
+        } catch (RuntimeException e) {
+            log.error("Pending settlement entries of node {} not recovered: {}", nodeId, e.getMessage());
+            return;
+        }
+        Map<String, List<SettlementEntry>> assigned = new LinkedHashMap<>();
+        int unassigned = 0;
+        for (SettlementEntry entry : pending) {
+            if (entry.getBatchId() == null) {
+                add(entry);
+                unassigned++;
+            } else if (queuedEntries.add(entry.getProcessInstanceId())) {
+                assigned.computeIfAbsent(entry.getBatchId(), batchId -> new ArrayList<>()).add(entry);
+            }
+        }
+        for (Map.Entry<String, List<SettlementEntry>> batch : assigned.entrySet()) {
+            SettlementEntry first = batch.getValue().get(0);
+            SettlementBatch resubmitted = new SettlementBatch(batch.getKey(), first.getDestinationType(),
+                    first.getDestination(), batch.getValue(), Instant.now());
+            resubmitted.markAssigned();
+            submit(resubmitted, 1);
+        }
+        if (unassigned > 0 || !assigned.isEmpty()) {
+            log.info("Recovered {} pending settlement entries and {} batches submitted before restart on node {}",
+                    unassigned, assigned.size(), nodeId);
+        }
+    }
+
+    private void submitLater(SettlementBatch batch, int attempt, long delayMillis) {
+        try {
+            sender.schedule(() -> submit(batch, attempt), delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RuntimeException e) {
+            // Shutting down: the entries are still pending in the table and resubmitted on the next start
+            log.warn("{} not submitted: {}", batch, e.getMessage());
+        }
+    }
+
+    private void submit(SettlementBatch batch, int attempt) {
+        try {
+            if (!batch.isAssigned()) {
+                transactionTemplate.executeWithoutResult(status -> settlementEntryRepository.assignBatch(
+                        batch.getProcessInstanceIds(), batch.getBatchId()));
+                batch.markAssigned();
+            }
+            settlementGateway.submit(batch);
+        } catch (Exception e) {
+            if (attempt < maxAttempts) {
+                log.warn("{} failed on attempt {}, retrying: {}", batch, attempt, e.getMessage());
+                submitLater(batch, attempt + 1, retryDelayMillis * attempt);
+                return;
+            }
+            log.error("{} failed after {} attempts, marking its entries failed: {}", batch, attempt, e.getMessage());
+            complete(batch, SettlementEntry.STATUS_FAILED);
+            return;
+        }
+        log.debug("{} submitted, total {} cents", batch, batch.getTotalCents());
+        complete(batch, SettlementEntry.STATUS_SETTLED);
+    }
+
+    private void complete(SettlementBatch batch, String status) {
+        List<String> processInstanceIds = batch.getProcessInstanceIds();
+        try {
+            transactionTemplate.executeWithoutResult(transaction -> settlementEntryRepository.complete(
+                    processInstanceIds, batch.getBatchId(), status, Instant.now()));
+        } catch (RuntimeException e) {
+            // The entries keep their batch id and are resubmitted under it on the next start
+            log.error("Outcome {} of {} not recorded: {}", status, batch, e.getMessage());
+        }
+        processInstanceIds.forEach(queuedEntries::remove);
+        transactionMetrics.recordSettlementBatch(batch.getDestinationType(), status, processInstanceIds.size());
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            throw new IllegalStateException("Set transaction-processor.settlement.node-id, the host name is unknown", e);
+        }
+    }
+
+    private static final class OpenBatch {
+
+        private final String destinationType;
+        private final String destination;
+        private final long openedAtMillis;
+        private final List<SettlementEntry> entries = new ArrayList<>();
+
+        private OpenBatch(String destinationType, String destination, long openedAtMillis) {
+            this.destinationType = destinationType;
+            this.destination = destination;
+            this.openedAtMillis = openedAtMillis;
+        }
+
+        private SettlementBatch close() {
+            return new SettlementBatch(destinationType, destination, entries, Instant.now());
+        }
+    }
+}
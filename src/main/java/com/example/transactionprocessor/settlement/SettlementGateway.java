@@ -0,0 +1,18 @@
+package com.example.transactionprocessor.settlement;
+
+import java.io.IOException;
+
+/**
+ * Hands closed settlement batches to the payment network. Implementations are
+ * called from a single sender thread, one batch at a time, and may be called
+ * again with the same batch after a failure, so submitting must be idempotent
+ * per batch id.
+ */
+public interface SettlementGateway {
+
+    /**
+     * Returns once the network has accepted every entry of the batch; throws
+     * when the batch should be retried.
+     */
+    void submit(SettlementBatch batch) throws IOException;
+}
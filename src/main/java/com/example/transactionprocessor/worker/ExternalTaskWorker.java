@@ -0,0 +1,228 @@
+package com.example.transactionprocessor.worker;
+
+import com.example.transactionprocessor.delegate.InMemoryExecution;
+import com.example.transactionprocessor.delegate.TaskRouterDelegate;
+import com.example.transactionprocessor.metrics.TransactionMetrics;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.camunda.bpm.engine.ExternalTaskService;
+import org.camunda.bpm.engine.delegate.DelegateExecution;
+import org.camunda.bpm.engine.delegate.ExecutionListener;
+import org.camunda.bpm.engine.externaltask.LockedExternalTask;
+import org.camunda.bpm.engine.impl.cfg.TransactionState;
+import org.camunda.bpm.engine.impl.context.Context;
+import org.camunda.bpm.engine.impl.interceptor.CommandContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Embedded worker for the external task variant of the transaction process
+ * ({@code transactionProcessingExternal}), in which each task of the routed
+ * flow is an external task whose topic is the task name. For every topic it
+ * serves, the worker fetches and locks tasks in batches and runs them on a
+ * pool of its own, through the same delegates and task metrics as
+ * {@link TaskRouterDelegate}.
+ * <p>
+ * Workers lock tasks through the engine's database, so any number of nodes
+ * sharing it can work on the same instances, each serving all topics or only
+ * some. A fetch never locks more tasks than the topic has idle threads, so no
+ * locked task waits in a queue while its lock runs down. An empty fetch is
+ * retried after a growing pause of up to {@code max-poll-interval-ms}, cut
+ * short as soon as an instance on this node reaches a task of the topic.
+ * <p>
+ * Also registered as the start listener of the external tasks, which is how
+ * it learns about new tasks created on this node.
+ */
+@Component
+public class ExternalTaskWorker implements ExecutionListener {
+
+    private static final Logger log = LogManager.getLogger(ExternalTaskWorker.class);
+
+    static final String TOPIC_VARIABLE = "taskName";
+
+    @Autowired
+    private ExternalTaskService externalTaskService;
+
+    @Autowired
+    private TaskRouterDelegate taskRouterDelegate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private TransactionMetrics transactionMetrics;
+
+    @Value("${transaction-processor.external-tasks.worker.enabled:${transaction-processor.external-tasks.enabled:false}}")
+    private boolean enabled;
+
+    @Value("${transaction-processor.external-tasks.worker.id:}")
+    private String workerId;
+
+    @Value("${transaction-processor.external-tasks.worker.topics:fraudCheck,authorize,settle,validate,post,review,apply}")
+    private Set<String> topics;
+
+    @Value("${transaction-processor.external-tasks.worker.concurrency:4}")
+    private int concurrency;
+
+    @Value("${transaction-processor.external-tasks.worker.concurrency-per-topic:}")
+    private String concurrencyPerTopic;
+
+    @Value("${transaction-processor.external-tasks.worker.batch-size:10}")
+    private int batchSize;
+
+    @Value("${transaction-processor.external-tasks.worker.batch-size-per-topic:}")
+    private String batchSizePerTopic;
+
+    @Value("${transaction-processor.external-tasks.worker.lock-duration-ms:60000}")
+    private long lockDurationMillis;
+
+    @Value("${transaction-processor.external-tasks.worker.max-poll-interval-ms:1000}")
+    private long maxPollIntervalMillis;
+
+    @Value("${transaction-processor.external-tasks.worker.retries:3}")
+    private int retries;
+
+    @Value("${transaction-processor.external-tasks.worker.retry-timeout-ms:5000}")
+    private long retryTimeoutMillis;
+
+    private final Map<String, TopicWorker> topicWorkers = new LinkedHashMap<>();
+
+    /**
+     * Starts once deployments are done and the application is ready, so no task
+     * is fetched before the delegates it needs are available.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        if (workerId == null || workerId.isEmpty()) {
+            workerId = ManagementFactory.getRuntimeMXBean().getName();
+        }
+        Map<String, Integer> concurrencies = perTopic(concurrencyPerTopic);
+        Map<String, Integer> batchSizes = perTopic(batchSizePerTopic);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        for (String topic : topics) {
+            TopicWorker topicWorker = new TopicWorker(topic, workerId, concurrencies.getOrDefault(topic, concurrency),
+                    batchSizes.getOrDefault(topic, batchSize), lockDurationMillis, maxPollIntervalMillis,
+                    (task, variables) -> transactionTemplate.executeWithoutResult(status -> execute(task, variables)),
+                    this::fail, externalTaskService, transactionMetrics);
+            topicWorkers.put(topic, topicWorker);
+            topicWorker.start();
+        }
+        log.info("External task worker {} started on topics {}", workerId, topicWorkers.values());
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        for (TopicWorker topicWorker : topicWorkers.values()) {
+            topicWorker.stop();
+        }
+        for (TopicWorker topicWorker : topicWorkers.values()) {
+            topicWorker.awaitTermination(lockDurationMillis);
+        }
+        topicWorkers.clear();
+    }
+
+    public boolean isRunning() {
+        return !topicWorkers.isEmpty();
+    }
+
+    /**
+     * Wakes the topic's worker once the transaction that created the task commits.
+     */
+    @Override
+    public void notify(DelegateExecution execution) {
+        TopicWorker topicWorker = topicWorkers.get((String) execution.getVariable(TOPIC_VARIABLE));
+        if (topicWorker == null) {
+            return;
+        }
+        CommandContext commandContext = Context.getCommandContext();
+        if (commandContext != null) {
+            commandContext.getTransactionContext().addTransactionListener(TransactionState.COMMITTED,
+                    context -> topicWorker.wake());
+        } else {
+            topicWorker.wake();
+        }
+    }
+
+    /**
+     * Runs the task's delegate and completes the task with the variables it
+     * changed. Runs in one Spring transaction, so whatever the delegate writes
+     * commits together with the completion.
+     */
+    private void execute(LockedExternalTask task, Map<String, Object> variables) {
+        Map<String, Object> before = new HashMap<>(variables);
+        try {
+            taskRouterDelegate.executeTask(task.getTopicName(), InMemoryExecution.create(transactionId(task), variables));
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException("Task " + task.getTopicName() + " failed", e);
+        }
+
+        // Compared by identity: a value a delegate wrote is a new object or the one it replaced
+        Map<String, Object> changed = new HashMap<>();
+        for (Map.Entry<String, Object> variable : variables.entrySet()) {
+            if (!before.containsKey(variable.getKey()) || before.get(variable.getKey()) != variable.getValue()) {
+                changed.put(variable.getKey(), variable.getValue());
+            }
+        }
+        externalTaskService.complete(task.getId(), workerId, changed);
+    }
+
+    /**
+     * Reports a failed task. The engine makes it available again after
+     * {@code retry-timeout-ms} until its retries run out, then raises an incident.
+     */
+    private void fail(LockedExternalTask task, Exception failure) {
+        int remainingRetries = (task.getRetries() != null ? task.getRetries() : retries) - 1;
+        log.warn("Task {} of transaction {} failed, {} retries left: {}", task.getTopicName(), transactionId(task),
+                Math.max(remainingRetries, 0), failure.getMessage());
+        try {
+            externalTaskService.handleFailure(task.getId(), workerId, String.valueOf(failure.getMessage()),
+                    TopicWorker.stackTrace(failure), Math.max(remainingRetries, 0),
+                    remainingRetries > 0 ? retryTimeoutMillis : 0);
+        } catch (RuntimeException e) {
+            // The lock expires and the task is fetched again
+            log.error("Failure of task {} not reported: {}", task.getId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Intake uses its own id as business key and reports it as processInstanceId.
+     */
+    private static String transactionId(LockedExternalTask task) {
+        return task.getBusinessKey() != null ? task.getBusinessKey() : task.getProcessInstanceId();
+    }
+
+    /**
+     * Parses {@code authorize=8,settle=2} into values per topic.
+     */
+    public static Map<String, Integer> perTopic(String values) {
+        Map<String, Integer> valuesByTopic = new HashMap<>();
+        for (String entry : values.split(",")) {
+            if (entry.trim().isEmpty()) {
+                continue;
+            }
+            int separator = entry.indexOf('=');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Expected <topic>=<value> but got: " + entry.trim());
+            }
+            valuesByTopic.put(entry.substring(0, separator).trim(), Integer.parseInt(entry.substring(separator + 1).trim()));
+        }
+        return valuesByTopic;
+    }
+}
@@ -0,0 +1,201 @@
+package com.example.transactionprocessor.worker;
+
+import com.example.transactionprocessor.metrics.TransactionMetrics;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.camunda.bpm.engine.ExternalTaskService;
+import org.camunda.bpm.engine.externaltask.LockedExternalTask;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+/**
+ * Fetch loop and task pool of one external task topic. One fetch thread locks
+ * up to {@code batchSize} tasks at a time, but never more than there are idle
+ * pool threads, and hands each to the pool.
+ */
+final class TopicWorker {
+
+    private static final Logger log = LogManager.getLogger(TopicWorker.class);
+
+    private static final long MIN_PAUSE_MILLIS = 25;
+
+    private final String topic;
+    private final String workerId;
+    private final int concurrency;
+    private final int batchSize;
+    private final long lockDurationMillis;
+    private final long maxPauseMillis;
+    private final BiConsumer<LockedExternalTask, Map<String, Object>> runner;
+    private final BiConsumer<LockedExternalTask, Exception> failureHandler;
+    private final ExternalTaskService externalTaskService;
+    private final TransactionMetrics transactionMetrics;
+
+    /** One permit per idle pool thread */
+    private final Semaphore idleThreads;
+    /** Released to end a pause early */
+    private final Semaphore wakeUps = new Semaphore(0);
+    private final ExecutorService pool;
+    private final Thread fetcher;
+    private volatile boolean running;
+
+    TopicWorker(String topic, String workerId, int concurrency, int batchSize, long lockDurationMillis,
+                long maxPauseMillis, BiConsumer<LockedExternalTask, Map<String, Object>> runner,
+                BiConsumer<LockedExternalTask, Exception> failureHandler, ExternalTaskService externalTaskService,
+                TransactionMetrics transactionMetrics) {
+        if (concurrency < 1 || batchSize < 1) {
+            throw new IllegalArgumentException("Concurrency and batch size of topic " + topic + " must be positive");
+        }
+        this.topic = topic;
+        this.workerId = workerId;
+        this.concurrency = concurrency;
+        this.batchSize = batchSize;
+        this.lockDurationMillis = lockDurationMillis;
+        this.maxPauseMillis = Math.max(maxPauseMillis, MIN_PAUSE_MILLIS);
+        this.runner = runner;
+        this.failureHandler = failureHandler;
+        this.externalTaskService = externalTaskService;
+        this.transactionMetrics = transactionMetrics;
+        this.idleThreads = new Semaphore(concurrency);
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.pool = Executors.newFixedThreadPool(concurrency, runnable -> {
+            Thread thread = new Thread(runnable, "external-task-" + topic + "-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.fetcher = new Thread(this::fetchLoop, "external-task-fetch-" + topic);
+        this.fetcher.setDaemon(true);
+    }
+
+    void start() {
+        running = true;
+        fetcher.start();
+    }
+
+    /**
+     * Stops fetching; tasks already running complete. The fetch thread is not
+     * interrupted, as that would abort a database call in progress.
+     */
+    void stop() {
+        running = false;
+        wake();
+        pool.shutdown();
+    }
+
+    void awaitTermination(long timeoutMillis) throws InterruptedException {
+        fetcher.join(timeoutMillis);
+        if (!pool.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS)) {
+            // Their locks expire and the tasks are fetched again, here or on another node
+            log.warn("Tasks of topic {} still running on shutdown", topic);
+            pool.shutdownNow();
+        }
+    }
+
+    void wake() {
+        if (wakeUps.availablePermits() == 0) {
+            wakeUps.release();
+        }
+    }
+
+    private void fetchLoop() {
+        long pauseMillis = 0;
+        while (running) {
+            try {
+                if (!idleThreads.tryAcquire(maxPauseMillis, TimeUnit.MILLISECONDS)) {
+                    continue;
+                }
+                int maxTasks = 1 + idleThreads.drainPermits();
+                if (maxTasks > batchSize) {
+                    idleThreads.release(maxTasks - batchSize);
+                    maxTasks = batchSize;
+                }
+
+                List<LockedExternalTask> tasks;
+                try {
+                    tasks = externalTaskService.fetchAndLock(maxTasks, workerId)
+                            .topic(topic, lockDurationMillis)
+                            .enableCustomObjectDeserialization()
+                            .execute();
+                } catch (RuntimeException e) {
+                    idleThreads.release(maxTasks);
+                    pauseMillis = nextPause(pauseMillis);
+                    log.warn("Fetching tasks of topic {} failed, retrying in {} ms: {}", topic, pauseMillis,
+                            e.getMessage());
+                    pause(pauseMillis);
+                    continue;
+                }
+                idleThreads.release(maxTasks - tasks.size());
+                transactionMetrics.recordExternalFetch(topic, tasks.size());
+
+                for (LockedExternalTask task : tasks) {
+                    submit(task);
+                }
+                if (!tasks.isEmpty()) {
+                    pauseMillis = 0;
+                    continue;
+                }
+                pauseMillis = nextPause(pauseMillis);
+                if (pause(pauseMillis)) {
+                    pauseMillis = 0;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void submit(LockedExternalTask task) {
+        try {
+            pool.execute(() -> run(task));
+        } catch (RejectedExecutionException e) {
+            // Stopping: the lock expires and the task is fetched again
+            idleThreads.release();
+        }
+    }
+
+    private void run(LockedExternalTask task) {
+        try {
+            runner.accept(task, new HashMap<>(task.getVariables()));
+        } catch (Exception e) {
+            failureHandler.accept(task, e);
+        } finally {
+            idleThreads.release();
+        }
+    }
+
+    private long nextPause(long pauseMillis) {
+        return pauseMillis == 0 ? MIN_PAUSE_MILLIS : Math.min(pauseMillis * 2, maxPauseMillis);
+    }
+
+    /**
+     * @return whether the pause was cut short by {@link #wake()}
+     */
+    private boolean pause(long millis) throws InterruptedException {
+        boolean woken = wakeUps.tryAcquire(millis, TimeUnit.MILLISECONDS);
+        wakeUps.drainPermits();
+        return woken;
+    }
+
+    static String stackTrace(Exception failure) {
+        StringWriter stackTrace = new StringWriter();
+        failure.printStackTrace(new PrintWriter(stackTrace));
+        return stackTrace.toString();
+    }
+
+    @Override
+    public String toString() {
+        return topic + "(concurrency=" + concurrency + ", batchSize=" + batchSize + ")";
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.transactionprocessor.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DataSourcePoolSizerTest {
+
+    private final DataSourcePoolSizer sizer = new DataSourcePoolSizer();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(sizer, "webThreads", 64);
+        ReflectionTestUtils.setField(sizer, "jobExecutorThreads", 8);
+        ReflectionTestUtils.setField(sizer, "asyncIntakeWorkers", 8);
+        ReflectionTestUtils.setField(sizer, "schedulerEnabled", true);
+        ReflectionTestUtils.setField(sizer, "fileIngestionWorkers", 8);
+        ReflectionTestUtils.setField(sizer, "externalTaskTopics", Set.of("fraudCheck", "authorize", "settle"));
+        ReflectionTestUtils.setField(sizer, "externalTaskConcurrency", 4);
+        ReflectionTestUtils.setField(sizer, "externalTaskConcurrencyPerTopic", "authorize=8");
+        ReflectionTestUtils.setField(sizer, "asyncHistorySink", "db");
+        ReflectionTestUtils.setField(sizer, "spareConnections", 4);
+    }
+
+    @Test
+    void defaultFeaturesAddTheSchedulerAndTheSettlementSender() {
+        assertEquals(2, sizer.backgroundThreads());
+        assertEquals(86, sizer.poolSize());
+    }
+
+    @Test
+    void enabledFeaturesAddTheThreadsThatCanHoldAConnection() {
+        ReflectionTestUtils.setField(sizer, "fileIngestionEnabled", true);
+        ReflectionTestUtils.setField(sizer, "externalTaskWorkerEnabled", true);
+        ReflectionTestUtils.setField(sizer, "asyncHistoryEnabled", true);
+
+        assertEquals(2 + 8 + (4 + 8 + 4) + 1, sizer.backgroundThreads());
+
+        ReflectionTestUtils.setField(sizer, "asyncHistorySink", "file");
+        ReflectionTestUtils.setField(sizer, "schedulerEnabled", false);
+        assertEquals(1 + 8 + 16, sizer.backgroundThreads());
+    }
+}
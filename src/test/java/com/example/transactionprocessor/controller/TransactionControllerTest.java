@@ -0,0 +1,84 @@
+package com.example.transactionprocessor.controller;
+
+import com.example.transactionprocessor.metrics.TransactionMetrics;
+import com.example.transactionprocessor.service.AsyncIntakeService;
+import com.example.transactionprocessor.service.IdempotencyService;
+import com.example.transactionprocessor.service.PaymentScheduler;
+import com.example.transactionprocessor.service.RequestValidator;
+import com.example.transactionprocessor.service.TransactionStartService;
+import com.example.transactionprocessor.service.TransactionVariableMapper;
+import org.camunda.bpm.engine.RuntimeService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import static org.hamcrest.Matchers.contains;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class TransactionControllerTest {
+
+    private final RuntimeService runtimeService = mock(RuntimeService.class);
+    private final TransactionStartService transactionStartService = mock(TransactionStartService.class);
+    private final IdempotencyService idempotencyService = mock(IdempotencyService.class);
+    private final AsyncIntakeService asyncIntakeService = mock(AsyncIntakeService.class);
+    private final PaymentScheduler paymentScheduler = mock(PaymentScheduler.class);
+    private final TransactionVariableMapper variableMapper = mock(TransactionVariableMapper.class);
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        TransactionController controller = new TransactionController();
+        ReflectionTestUtils.setField(controller, "runtimeService", runtimeService);
+        ReflectionTestUtils.setField(controller, "transactionStartService", transactionStartService);
+        ReflectionTestUtils.setField(controller, "idempotencyService", idempotencyService);
+        ReflectionTestUtils.setField(controller, "asyncIntakeService", asyncIntakeService);
+        ReflectionTestUtils.setField(controller, "paymentScheduler", paymentScheduler);
+        ReflectionTestUtils.setField(controller, "variableMapper", variableMapper);
+        ReflectionTestUtils.setField(controller, "requestValidator", new RequestValidator());
+        ReflectionTestUtils.setField(controller, "transactionMetrics", TransactionMetrics.noop());
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    @AfterEach
+    void nothingReachedTheEngine() {
+        verifyNoInteractions(runtimeService, transactionStartService, idempotencyService, asyncIntakeService,
+                paymentScheduler, variableMapper);
+    }
+
+    @Test
+    void invalidTransactionIsAnswered422WithEveryViolation() throws Exception {
+        for (String endpoint : new String[]{"/transactions/process", "/transactions/async/process"}) {
+            mockMvc.perform(post(endpoint).contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"transactionType\":\"purchase\",\"amount\":-5,"
+                                    + "\"creditCardInfo\":{\"cardNumber\":\"4111111111111111\"}}"))
+                    .andExpect(status().isUnprocessableEntity())
+                    .andExpect(jsonPath("$.status").value("error"))
+                    .andExpect(jsonPath("$.violations[*].field").value(contains("transactionType", "amount",
+                            "creditCardInfo.holderName", "billingAddress", "vendorInfo")));
+        }
+    }
+
+    @Test
+    void invalidPaymentIsAnswered422WithEveryViolation() throws Exception {
+        for (String endpoint : new String[]{"/transactions/payment", "/transactions/async/payment"}) {
+            mockMvc.perform(post(endpoint).contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"transactionType\":\"Payment\",\"paymentAmount\":100.00,\"isRecurring\":true,"
+                                    + "\"customerAccount\":{\"accountNumber\":\"1111222233334444\","
+                                    + "\"customerName\":\"Suspended User\",\"accountStatus\":\"SUSPENDED\"},"
+                                    + "\"paymentMethod\":{\"bankDetails\":{\"bankName\":\"Test Bank\","
+                                    + "\"routingNumber\":\"12345\"}}}"))
+                    .andExpect(status().isUnprocessableEntity())
+                    .andExpect(jsonPath("$.status").value("error"))
+                    .andExpect(jsonPath("$.violations[*].field").value(contains("recurringFrequency",
+                            "customerAccount.accountStatus", "paymentMethod.bankDetails.routingNumber")));
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.example.transactionprocessor.delegate;
+
+import com.example.transactionprocessor.ledger.AccountLedger;
+import org.camunda.bpm.engine.delegate.DelegateExecution;
+import org.camunda.bpm.engine.delegate.JavaDelegate;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class StageExecutorTest {
+
+    private final ExecutorService executorService = Executors.newFixedThreadPool(4);
+    private final StageExecutor stageExecutor = new StageExecutor(executorService, 500);
+
+    @AfterEach
+    void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    void writesOfAllTasksAreAppliedAfterTheStage() throws Exception {
+        DelegateExecution execution = executionWithVariables(Map.of("amount", 10));
+        Map<String, JavaDelegate> delegates = Map.of(
+                "fraudCheck", task -> task.setVariable("fraudScore", task.getVariable("amount")),
+                "limitCheck", task -> task.setVariable("withinLimit", true));
+
+        stageExecutor.executeStage(stage("[fraudCheck|limitCheck]", delegates), execution);
+
+        verify(execution).setVariable("fraudScore", 10);
+        verify(execution).setVariable("withinLimit", true);
+        verify(execution).getVariable("amount");
+        verify(execution, never()).getVariables();
+    }
+
+    @Test
+    void synchronizationsOfTasksAreRegisteredOnTheEngineThread() throws Exception {
+        DelegateExecution execution = executionWithVariables(Map.of());
+        TransactionSynchronization undo = new TransactionSynchronization() { };
+        TransactionSynchronization handOff = new TransactionSynchronization() { };
+        Map<String, JavaDelegate> delegates = Map.of(
+                "post", task -> TransactionSynchronizationManager.registerSynchronization(undo),
+                "settle", task -> TransactionSynchronizationManager.registerSynchronization(handOff));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            stageExecutor.executeStage(stage("[post|settle]", delegates), execution);
+
+            assertEquals(List.of(undo, handOff), TransactionSynchronizationManager.getSynchronizations());
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void synchronizationsOfFinishedTasksAreRegisteredWhenTheStageFails() {
+        DelegateExecution execution = executionWithVariables(Map.of());
+        TransactionSynchronization undo = new TransactionSynchronization() { };
+        CountDownLatch posted = new CountDownLatch(1);
+        Map<String, JavaDelegate> delegates = Map.of(
+                "post", task -> {
+                    TransactionSynchronizationManager.registerSynchronization(undo);
+                    posted.countDown();
+                },
+                "failing", task -> {
+                    posted.await();
+                    throw new IllegalStateException("limit exceeded");
+                });
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            assertThrows(IllegalStateException.class,
+                    () -> stageExecutor.executeStage(stage("[post|failing]", delegates), execution));
+
+            assertEquals(List.of(undo), TransactionSynchronizationManager.getSynchronizations());
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void postingFinishedAfterTheStageFailedIsReversedOnRollback() {
+        AccountLedger ledger = new AccountLedger();
+        ReflectionTestUtils.setField(ledger, "lockStripes", 4);
+        ReflectionTestUtils.invokeMethod(ledger, "init");
+        ledger.restore("acct-1", 10_000);
+        DelegateExecution execution = executionWithVariables(Map.of());
+        CountDownLatch postingStarted = new CountDownLatch(1);
+        Map<String, JavaDelegate> delegates = Map.of(
+                "post", task -> {
+                    postingStarted.countDown();
+                    try {
+                        Thread.sleep(10_000);
+                    } catch (InterruptedException e) {
+                        // A delegate that finishes its work despite the cancellation
+                    }
+                    ledger.post("acct-1", 0, -2_500);
+                },
+                "failing", task -> {
+                    postingStarted.await();
+                    throw new IllegalStateException("limit exceeded");
+                });
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            assertThrows(IllegalStateException.class,
+                    () -> stageExecutor.executeStage(stage("[post|failing]", delegates), execution));
+            assertEquals(7_500, ledger.getBalance("acct-1"));
+
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+            }
+            assertEquals(10_000, ledger.getBalance("acct-1"));
+            assertEquals(0, ledger.getPostingCount("acct-1"));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void firstFailureCancelsSiblingsAndDiscardsWrites() throws Exception {
+        DelegateExecution execution = executionWithVariables(Map.of());
+        CountDownLatch siblingStarted = new CountDownLatch(1);
+        CountDownLatch siblingInterrupted = new CountDownLatch(1);
+        Map<String, JavaDelegate> delegates = Map.of(
+                "slow", task -> {
+                    task.setVariable("slowDone", true);
+                    siblingStarted.countDown();
+                    try {
+                        Thread.sleep(10_000);
+                    } catch (InterruptedException e) {
+                        siblingInterrupted.countDown();
+                    }
+                },
+                "failing", task -> {
+                    siblingStarted.await();
+                    throw new IllegalStateException("limit exceeded");
+                });
+
+        IllegalStateException failure = assertThrows(IllegalStateException.class,
+                () -> stageExecutor.executeStage(stage("[slow|failing]", delegates), execution));
+
+        assertEquals("limit exceeded", failure.getMessage());
+        assertTrue(siblingInterrupted.await(2, TimeUnit.SECONDS));
+        verify(execution, never()).setVariable(anyString(), any());
+    }
+
+    @Test
+    void stageTimeoutCancelsRunningTasks() throws Exception {
+        DelegateExecution execution = executionWithVariables(Map.of());
+        CountDownLatch interrupted = new CountDownLatch(1);
+        JavaDelegate hanging = task -> {
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+        };
+
+        assertThrows(TimeoutException.class,
+                () -> stageExecutor.executeStage(stage("[a|b]", Map.of("a", hanging, "b", hanging)), execution));
+
+        assertTrue(interrupted.await(2, TimeUnit.SECONDS));
+        assertEquals(1, stageExecutor.getTimedOutStageCount());
+    }
+
+    @Test
+    void saturatedExecutorRejectsTheStage() {
+        ExecutorService saturated = mock(ExecutorService.class);
+        doThrow(new RejectedExecutionException()).when(saturated).execute(any());
+        StageExecutor rejecting = new StageExecutor(saturated, 500);
+        DelegateExecution execution = executionWithVariables(Map.of());
+
+        assertThrows(RejectedExecutionException.class,
+                () -> rejecting.executeStage(stage("[a|b]", Map.of()), execution));
+        assertEquals(1, rejecting.getRejectedCount());
+    }
+
+    private TaskFlowPlan.Stage stage(String taskFlow, Map<String, JavaDelegate> delegates) {
+        return TaskFlowPlan.compile(taskFlow, delegates::get).getStages()[0];
+    }
+
+    private DelegateExecution executionWithVariables(Map<String, Object> variables) {
+        DelegateExecution execution = mock(DelegateExecution.class);
+        when(execution.getVariables()).thenReturn(new HashMap<>(variables));
+        when(execution.getVariable(anyString())).thenAnswer(read -> variables.get(read.<String>getArgument(0)));
+        when(execution.hasVariable(anyString())).thenAnswer(read -> variables.containsKey(read.<String>getArgument(0)));
+        return execution;
+    }
+}
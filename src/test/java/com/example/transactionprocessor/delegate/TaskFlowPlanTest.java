@@ -0,0 +1,86 @@
+package com.example.transactionprocessor.delegate;
+
+import org.camunda.bpm.engine.delegate.JavaDelegate;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class TaskFlowPlanTest {
+
+    private final JavaDelegate delegate = mock(JavaDelegate.class);
+
+    @Test
+    void sequentialTasksBecomeOneStageEach() {
+        TaskFlowPlan plan = TaskFlowPlan.compile("authorize, settle", task -> delegate);
+
+        assertEquals(2, plan.getStages().length);
+        assertEquals("authorize", plan.getStages()[0].getTaskName(0));
+        assertEquals("settle", plan.getStages()[1].getTaskName(0));
+        assertFalse(plan.getStages()[0].isParallel());
+        assertSame(delegate, plan.getStages()[1].getDelegate(0));
+    }
+
+    @Test
+    void consecutiveParallelTasksShareOneStage() {
+        TaskFlowPlan plan = TaskFlowPlan.compile("validate,parallel:post,parallel:notify,archive", task -> delegate);
+
+        assertEquals(3, plan.getStages().length);
+        TaskFlowPlan.Stage parallelStage = plan.getStages()[1];
+        assertTrue(parallelStage.isParallel());
+        assertEquals(2, parallelStage.size());
+        assertEquals("post", parallelStage.getTaskName(0));
+        assertEquals("notify", parallelStage.getTaskName(1));
+    }
+
+    @Test
+    void bracketedGroupIsOneParallelStage() {
+        TaskFlowPlan plan = TaskFlowPlan.compile("validate,[fraudCheck|limitCheck],post", task -> delegate);
+
+        assertEquals(3, plan.getStages().length);
+        assertFalse(plan.getStages()[0].isParallel());
+        assertTrue(plan.getStages()[1].isParallel());
+        assertEquals("fraudCheck", plan.getStages()[1].getTaskName(0));
+        assertEquals("limitCheck", plan.getStages()[1].getTaskName(1));
+        assertEquals("post", plan.getStages()[2].getTaskName(0));
+        assertEquals("TaskFlowPlan{validate -> [fraudCheck|limitCheck] -> post}", plan.toString());
+    }
+
+    @Test
+    void singleTaskGroupRunsSequentially() {
+        TaskFlowPlan plan = TaskFlowPlan.compile("[review],apply", task -> delegate);
+
+        assertEquals(2, plan.getStages().length);
+        assertFalse(plan.getStages()[0].isParallel());
+    }
+
+    @Test
+    void malformedGroupsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> TaskFlowPlan.compile("validate,[a|b", task -> delegate));
+        assertThrows(IllegalArgumentException.class, () -> TaskFlowPlan.compile("validate,a|b", task -> delegate));
+    }
+
+    @Test
+    void unresolvedDelegatesAreKeptAsNull() {
+        TaskFlowPlan plan = TaskFlowPlan.compile("review,apply", task -> "review".equals(task) ? delegate : null);
+
+        assertSame(delegate, plan.getStages()[0].getDelegate(0));
+        assertNull(plan.getStages()[1].getDelegate(0));
+    }
+
+    @Test
+    void blankTaskFlowIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> TaskFlowPlan.compile(" ", task -> delegate));
+        assertThrows(IllegalArgumentException.class, () -> TaskFlowPlan.compile(" , ", task -> delegate));
+    }
+
+    @Test
+    void taskNamesFlattenStagesAndSkipTasksWithoutDelegate() {
+        TaskFlowPlan plan = TaskFlowPlan.compile("validate,[fraudCheck|limitCheck],post",
+                task -> "limitCheck".equals(task) ? null : delegate);
+
+        assertEquals(List.of("validate", "fraudCheck", "post"), plan.getTaskNames());
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.transactionprocessor.delegate;
 
+import com.example.transactionprocessor.metrics.TransactionMetrics;
 import org.camunda.bpm.engine.delegate.DelegateExecution;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -8,6 +9,9 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.context.ApplicationContext;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.ForkJoinPool;
 
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
@@ -29,6 +33,10 @@ class TaskRouterDelegateTest {
 
     @BeforeEach
     void setUp() {
+        ReflectionTestUtils.setField(taskRouterDelegate, "taskFlowPlanCache", new TaskFlowPlanCache(applicationContext));
+        ReflectionTestUtils.setField(taskRouterDelegate, "stageExecutor", new StageExecutor(ForkJoinPool.commonPool(), 5000));
+        ReflectionTestUtils.setField(taskRouterDelegate, "transactionMetrics", TransactionMetrics.noop());
+
         // Use lenient stubbing to avoid unnecessary stubbing exceptions
         lenient().when(applicationContext.getBean(eq("purchaseAuthorizationDelegate"), eq(org.camunda.bpm.engine.delegate.JavaDelegate.class)))
                 .thenReturn(mock(org.camunda.bpm.engine.delegate.JavaDelegate.class));
@@ -39,7 +47,7 @@ class TaskRouterDelegateTest {
     @Test
     void testExecuteSequentialTasks() throws Exception {
         // Given
-        when(execution.getVariable("taskFlow")).thenReturn("authorize,settle");
+        when(execution.getVariable("dmnResult")).thenReturn("authorize,settle");
         when(execution.getVariable("transactionType")).thenReturn("Purchase");
 
         // When
@@ -52,7 +60,7 @@ class TaskRouterDelegateTest {
     @Test
     void testExecuteParallelTasks() throws Exception {
         // Given
-        when(execution.getVariable("taskFlow")).thenReturn("validate,parallel:post");
+        when(execution.getVariable("dmnResult")).thenReturn("validate,parallel:post");
         when(execution.getVariable("transactionType")).thenReturn("Payment");
 
         // When
@@ -65,7 +73,7 @@ class TaskRouterDelegateTest {
     @Test
     void testExecuteWithNullTaskFlow() {
         // Given
-        when(execution.getVariable("taskFlow")).thenReturn(null);
+        when(execution.getVariable("dmnResult")).thenReturn(null);
         when(execution.getVariable("transactionType")).thenReturn("Purchase");
 
         // When & Then
@@ -75,7 +83,7 @@ class TaskRouterDelegateTest {
     @Test
     void testExecuteWithEmptyTaskFlow() {
         // Given
-        when(execution.getVariable("taskFlow")).thenReturn("");
+        when(execution.getVariable("dmnResult")).thenReturn("");
         when(execution.getVariable("transactionType")).thenReturn("Purchase");
 
         // When & Then
@@ -85,7 +93,7 @@ class TaskRouterDelegateTest {
     @Test
     void testExecuteWithMissingDelegate() throws Exception {
         // Given
-        when(execution.getVariable("taskFlow")).thenReturn("authorize");
+        when(execution.getVariable("dmnResult")).thenReturn("authorize");
         when(execution.getVariable("transactionType")).thenReturn("Purchase");
         when(applicationContext.getBean(anyString(), eq(org.camunda.bpm.engine.delegate.JavaDelegate.class)))
                 .thenThrow(new RuntimeException("Bean not found"));
@@ -96,4 +104,33 @@ class TaskRouterDelegateTest {
         // Then - should not throw exception, should handle gracefully
         verify(applicationContext).getBean(anyString(), eq(org.camunda.bpm.engine.delegate.JavaDelegate.class));
     }
-}
\ No newline at end of file
+
+    @Test
+    void testPlanIsCompiledOncePerTaskFlow() throws Exception {
+        // Given
+        when(execution.getVariable("dmnResult")).thenReturn("authorize,settle");
+        when(execution.getVariable("transactionType")).thenReturn("Purchase");
+
+        // When
+        taskRouterDelegate.execute(execution);
+        taskRouterDelegate.execute(execution);
+
+        // Then - delegates are resolved when the plan is compiled, not per execution
+        verify(applicationContext, times(2)).getBean(anyString(), eq(org.camunda.bpm.engine.delegate.JavaDelegate.class));
+    }
+
+    @Test
+    void testSingleTaskDelegateIsResolvedOnce() throws Exception {
+        // Given
+        when(execution.getVariable("transactionType")).thenReturn("Purchase");
+
+        // When
+        taskRouterDelegate.executeTask("authorize", execution);
+        taskRouterDelegate.executeTask("authorize", execution);
+        taskRouterDelegate.executeTask("unknown", execution);
+        taskRouterDelegate.executeTask("unknown", execution);
+
+        // Then - one lookup per task name, including the one without a bean
+        verify(applicationContext, times(2)).getBean(anyString(), eq(org.camunda.bpm.engine.delegate.JavaDelegate.class));
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.transactionprocessor.engine;
+
+import com.example.transactionprocessor.metrics.TransactionMetrics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.camunda.bpm.engine.ProcessEngine;
+import org.camunda.bpm.engine.ProcessEngineConfiguration;
+import org.camunda.bpm.engine.delegate.JavaDelegate;
+import org.camunda.bpm.engine.impl.cfg.ProcessEnginePlugin;
+import org.camunda.bpm.engine.impl.cfg.StandaloneInMemProcessEngineConfiguration;
+import org.camunda.bpm.engine.impl.jobexecutor.DefaultJobExecutor;
+import org.camunda.bpm.engine.runtime.Job;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsyncContinuationPluginTest {
+
+    private final List<String> routedOn = new CopyOnWriteArrayList<>();
+
+    private ProcessEngine processEngine;
+
+    @AfterEach
+    void tearDown() {
+        processEngine.close();
+    }
+
+    @Test
+    void startCommitsAfterTheDecisionAndTheRouterRunsAsAJob() {
+        build(List.of(asyncContinuations("")), false);
+
+        startPurchase("purchase-1", false);
+
+        assertTrue(routedOn.isEmpty());
+        Job job = processEngine.getManagementService().createJobQuery().activityId("ExecuteTaskRouter").singleResult();
+        assertNotNull(job);
+        assertNotNull(processEngine.getRuntimeService().getVariable(job.getProcessInstanceId(), "dmnResult"));
+
+        processEngine.getManagementService().executeJob(job.getId());
+
+        assertEquals(List.of("purchase-1"), routedOn);
+        assertEquals(0, processEngine.getRuntimeService().createProcessInstanceQuery().count());
+    }
+
+    @Test
+    void failingRouterIsRetriedOnTheConfiguredCycle() {
+        build(List.of(asyncContinuations("R2/PT10S")), false);
+
+        startPurchase("purchase-2", true);
+        Job job = processEngine.getManagementService().createJobQuery().singleResult();
+        assertThrows(RuntimeException.class, () -> processEngine.getManagementService().executeJob(job.getId()));
+
+        Job retried = processEngine.getManagementService().createJobQuery().singleResult();
+        assertEquals(1, retried.getRetries());
+        assertTrue(retried.getDuedate().getTime() - System.currentTimeMillis() > 5_000);
+        assertEquals(1, processEngine.getRuntimeService().createProcessInstanceQuery().count());
+    }
+
+    @Test
+    void jobExecutorAcquisitionsAreMetered() throws InterruptedException {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        JobExecutorMetricsPlugin metricsPlugin = new JobExecutorMetricsPlugin();
+        ReflectionTestUtils.setField(metricsPlugin, "transactionMetrics", new TransactionMetrics(registry));
+        build(List.of(asyncContinuations(""), metricsPlugin), true);
+
+        startPurchase("purchase-3", false);
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (processEngine.getRuntimeService().createProcessInstanceQuery().count() > 0) {
+            assertTrue(System.currentTimeMillis() < deadline, "job not executed within 10 s");
+            Thread.sleep(20);
+        }
+        assertEquals(List.of("purchase-3"), routedOn);
+        Timer acquired = registry.find(TransactionMetrics.JOB_ACQUISITION).tag("result", "acquired").timer();
+        assertNotNull(acquired);
+        assertTrue(acquired.count() >= 1);
+        Counter jobs = registry.find("transaction.jobs.acquired").counter();
+        assertNotNull(jobs);
+        assertTrue(jobs.count() >= 1);
+    }
+
+    private AsyncContinuationPlugin asyncContinuations(String retryTimeCycle) {
+        AsyncContinuationPlugin plugin = new AsyncContinuationPlugin();
+        ReflectionTestUtils.setField(plugin, "enabled", true);
+        ReflectionTestUtils.setField(plugin, "activities", Set.of("ExecuteTaskRouter"));
+        ReflectionTestUtils.setField(plugin, "retryTimeCycle", retryTimeCycle);
+        return plugin;
+    }
+
+    private void build(List<ProcessEnginePlugin> plugins, boolean jobExecutorActivate) {
+        Map<Object, Object> beans = new HashMap<>();
+        beans.put("taskRouterDelegate", (JavaDelegate) execution -> {
+            if (Boolean.TRUE.equals(execution.getVariable("fail"))) {
+                throw new IllegalStateException("settlement network unavailable");
+            }
+            routedOn.add(execution.getProcessBusinessKey());
+        });
+        DefaultJobExecutor jobExecutor = new DefaultJobExecutor();
+        jobExecutor.setWaitTimeInMillis(50);
+        StandaloneInMemProcessEngineConfiguration configuration = new StandaloneInMemProcessEngineConfiguration();
+        configuration.setJdbcUrl("jdbc:h2:mem:async-continuation;DB_CLOSE_DELAY=-1");
+        configuration.setDatabaseSchemaUpdate(ProcessEngineConfiguration.DB_SCHEMA_UPDATE_CREATE_DROP);
+        configuration.setHistory(ProcessEngineConfiguration.HISTORY_NONE);
+        configuration.setJobExecutor(jobExecutor);
+        configuration.setJobExecutorActivate(jobExecutorActivate);
+        configuration.setMetricsEnabled(false);
+        configuration.setBeans(beans);
+        configuration.setProcessEnginePlugins(plugins);
+        processEngine = configuration.buildProcessEngine();
+        processEngine.getRepositoryService().createDeployment()
+                .addClasspathResource("transactionProcessingDMNBased.bpmn")
+                .addClasspathResource("DetermineTransactionPath.dmn")
+                .deploy();
+    }
+
+    private void startPurchase(String transactionId, boolean fail) {
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("transactionType", "Purchase");
+        variables.put("fail", fail);
+        processEngine.getRuntimeService().startProcessInstanceByKey("transactionProcessing", transactionId, variables);
+    }
+}
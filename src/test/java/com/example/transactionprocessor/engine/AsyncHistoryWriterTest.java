@@ -0,0 +1,81 @@
+package com.example.transactionprocessor.engine;
+
+import org.camunda.bpm.engine.impl.history.event.HistoryEvent;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsyncHistoryWriterTest {
+
+    private final List<List<HistoryEvent>> calls = new ArrayList<>();
+    private final List<HistoryEvent> written = new ArrayList<>();
+
+    @Test
+    void failedWriteResumesAfterTheCommittedRound() {
+        List<HistoryEvent> first = List.of(event("pi-1", "start-1"), event("pi-1", "end-1"));
+        List<HistoryEvent> second = List.of(event("pi-2", "start-2"), event("pi-2", "end-2"));
+        HistoryEventSink sink = events -> {
+            calls.add(List.copyOf(events));
+            if (calls.size() == 1) {
+                // The start events commit, the end events' round fails
+                written.add(events.get(0));
+                written.add(events.get(2));
+                throw new PartialWriteException(List.of(events.get(1), events.get(3)),
+                        new IllegalStateException("connection reset"));
+            }
+            written.addAll(events);
+        };
+
+        AsyncHistoryWriter writer = writer(sink, first, second);
+
+        assertEquals(List.of(first.get(1), second.get(1)), calls.get(1));
+        assertEquals(4, written.size());
+        assertEquals(4, writer.getWrittenEventCount());
+        assertEquals(0, writer.getDroppedEventCount());
+    }
+
+    @Test
+    void failingTransactionIsIsolatedFromTheRestOfTheBatch() {
+        List<HistoryEvent> first = List.of(event("pi-1", "start-1"), event("pi-1", "end-1"));
+        List<HistoryEvent> poisoned = List.of(event("pi-2", "start-2"), event("pi-2", "bad"));
+        List<HistoryEvent> third = List.of(event("pi-3", "start-3"));
+        HistoryEventSink sink = events -> {
+            calls.add(List.copyOf(events));
+            for (HistoryEvent event : events) {
+                if (event.getId().equals("bad")) {
+                    throw new IllegalStateException("value too long");
+                }
+            }
+            written.addAll(events);
+        };
+
+        AsyncHistoryWriter writer = writer(sink, first, poisoned, third);
+
+        List<HistoryEvent> expected = new ArrayList<>(first);
+        expected.addAll(third);
+        assertEquals(expected, written);
+        assertEquals(3, writer.getWrittenEventCount());
+        assertEquals(2, writer.getDroppedEventCount());
+    }
+
+    @SafeVarargs
+    private static AsyncHistoryWriter writer(HistoryEventSink sink, List<HistoryEvent>... transactions) {
+        AsyncHistoryWriter writer = new AsyncHistoryWriter(sink, 10, 10, 50, 1000);
+        for (List<HistoryEvent> transaction : transactions) {
+            writer.submit(transaction);
+        }
+        writer.start();
+        writer.close();
+        return writer;
+    }
+
+    private static HistoryEvent event(String processInstanceId, String id) {
+        HistoryEvent event = new HistoryEvent();
+        event.setId(id);
+        event.setProcessInstanceId(processInstanceId);
+        return event;
+    }
+}
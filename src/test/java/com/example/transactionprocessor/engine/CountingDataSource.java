@@ -0,0 +1,129 @@
+package com.example.transactionprocessor.engine;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link DataSource} wrapper that counts the SQL statements sent through it and
+ * the JDBC round trips used to send them. A batched statement counts once per
+ * {@code addBatch}, while the whole batch is one round trip on
+ * {@code executeBatch}. This makes the effect of {@code jdbcBatchProcessing}
+ * on the inserts of one transaction directly visible.
+ */
+public class CountingDataSource extends DelegatingDataSource {
+
+    private final AtomicLong statements = new AtomicLong();
+    private final AtomicLong inserts = new AtomicLong();
+    private final AtomicLong roundTrips = new AtomicLong();
+
+    public CountingDataSource(DataSource targetDataSource) {
+        super(targetDataSource);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(super.getConnection(username, password));
+    }
+
+    public void reset() {
+        statements.set(0);
+        inserts.set(0);
+        roundTrips.set(0);
+    }
+
+    /**
+     * SQL statements executed, each batched statement counted individually.
+     */
+    public long getStatements() {
+        return statements.get();
+    }
+
+    public long getInserts() {
+        return inserts.get();
+    }
+
+    /**
+     * Calls that sent SQL to the database: one per {@code execute*} call and one per batch.
+     */
+    public long getRoundTrips() {
+        return roundTrips.get();
+    }
+
+    private Connection wrap(Connection connection) {
+        return proxy(Connection.class, connection, (target, method, args) -> {
+            Object result = method.invoke(target, args);
+            if (result instanceof Statement) {
+                String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+                return wrap((Statement) result, sql);
+            }
+            return result;
+        });
+    }
+
+    private Statement wrap(Statement statement, String preparedSql) {
+        Class<? extends Statement> type = statement instanceof CallableStatement ? CallableStatement.class
+                : statement instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+        return proxy(type, statement, (target, method, args) -> {
+            String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : preparedSql;
+            switch (method.getName()) {
+                case "addBatch":
+                    count(sql);
+                    break;
+                case "executeBatch":
+                case "executeLargeBatch":
+                    roundTrips.incrementAndGet();
+                    break;
+                case "execute":
+                case "executeQuery":
+                case "executeUpdate":
+                case "executeLargeUpdate":
+                    count(sql);
+                    roundTrips.incrementAndGet();
+                    break;
+                default:
+                    break;
+            }
+            return method.invoke(target, args);
+        });
+    }
+
+    private void count(String sql) {
+        statements.incrementAndGet();
+        if (sql != null && sql.trim().toLowerCase(Locale.ROOT).startsWith("insert")) {
+            inserts.incrementAndGet();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<? extends T> type, Object target, Interceptor interceptor) {
+        return (T) Proxy.newProxyInstance(CountingDataSource.class.getClassLoader(), new Class<?>[] {type},
+                (InvocationHandler) (proxy, method, args) -> {
+                    try {
+                        return interceptor.invoke(target, method, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    private interface Interceptor {
+        Object invoke(Object target, Method method, Object[] args) throws Throwable;
+    }
+}
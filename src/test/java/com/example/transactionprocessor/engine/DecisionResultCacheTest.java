@@ -0,0 +1,163 @@
+package com.example.transactionprocessor.engine;
+
+import com.example.transactionprocessor.metrics.TransactionMetrics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.camunda.bpm.dmn.engine.DmnDecision;
+import org.camunda.bpm.dmn.engine.DmnDecisionResult;
+import org.camunda.bpm.dmn.engine.DmnEngine;
+import org.camunda.bpm.dmn.engine.DmnEngineConfiguration;
+import org.camunda.bpm.dmn.engine.impl.DefaultDmnEngineConfiguration;
+import org.camunda.bpm.engine.impl.el.JuelExpressionManager;
+import org.camunda.bpm.engine.variable.Variables;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DecisionResultCacheTest {
+
+    private static final String AMOUNT_BAND_DMN = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+            + "<definitions xmlns=\"https://www.omg.org/spec/DMN/20191111/MODEL/\" id=\"Definitions_Band\""
+            + " name=\"AmountBand\" namespace=\"http://camunda.org/schema/1.0/dmn\">"
+            + "<decision id=\"AmountBand\" name=\"Amount Band\"><decisionTable id=\"DecisionTable_Band\" hitPolicy=\"FIRST\">"
+            + "<input id=\"Input_Amount\"><inputExpression id=\"InputExpression_Amount\" typeRef=\"integer\">"
+            + "<text>amount</text></inputExpression></input>"
+            + "<output id=\"Output_Band\" name=\"band\" typeRef=\"string\"/>"
+            + "<rule id=\"Rule_Small\"><inputEntry id=\"InputEntry_Small\"><text>&lt; 100</text></inputEntry>"
+            + "<outputEntry id=\"OutputEntry_Small\"><text>\"small\"</text></outputEntry></rule>"
+            + "<rule id=\"Rule_Large\"><inputEntry id=\"InputEntry_Large\"><text>-</text></inputEntry>"
+            + "<outputEntry id=\"OutputEntry_Large\"><text>\"large\"</text></outputEntry></rule>"
+            + "</decisionTable></decision></definitions>";
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private DmnEngine dmnEngine;
+    private DecisionResultCache decisionResultCache;
+
+    @BeforeEach
+    void setUp() {
+        DefaultDmnEngineConfiguration configuration =
+                (DefaultDmnEngineConfiguration) DmnEngineConfiguration.createDefaultDmnEngineConfiguration();
+        configuration.setElProvider(new JuelExpressionManager().toElProvider());
+        dmnEngine = configuration.buildEngine();
+
+        decisionResultCache = new DecisionResultCache();
+        ReflectionTestUtils.setField(decisionResultCache, "transactionMetrics", new TransactionMetrics(registry));
+        ReflectionTestUtils.setField(decisionResultCache, "cachedDecisions", "DeterminePath, AmountBand");
+        ReflectionTestUtils.setField(decisionResultCache, "maxEntries", 2);
+        ReflectionTestUtils.invokeMethod(decisionResultCache, "init");
+    }
+
+    @Test
+    void hashLookupAnswersLikeTheEngine() throws IOException {
+        DmnDecision decision = routingDecision();
+        DmnEngine cachingEngine = decisionResultCache.wrap(dmnEngine);
+
+        for (String transactionType : new String[] {"Purchase", "Payment", "Adjustment", "Refund"}) {
+            Map<String, Object> variables = Variables.createVariables().putValue("transactionType", transactionType);
+            DmnDecisionResult expected = dmnEngine.evaluateDecision(decision, variables);
+            DmnDecisionResult actual = cachingEngine.evaluateDecision(decision, variables);
+            assertEquals(expected.getResultList(), actual.getResultList(), transactionType);
+            assertEquals(expected.isEmpty() ? null : expected.getSingleResult().getEntryMapTyped(),
+                    actual.isEmpty() ? null : actual.getSingleResult().getEntryMapTyped(), transactionType);
+        }
+        assertEquals(4, count("DeterminePath", DecisionResultCache.SOURCE_HASH));
+    }
+
+    @Test
+    void missingOrNonStringInputIsLeftToTheEngine() throws IOException {
+        DmnDecision decision = routingDecision();
+        DmnEngine cachingEngine = decisionResultCache.wrap(dmnEngine);
+
+        assertThrows(RuntimeException.class, () -> cachingEngine.evaluateDecision(decision, Variables.createVariables()));
+        Map<String, Object> number = Variables.createVariables().putValue("transactionType", 42);
+        assertEquals(dmnEngine.evaluateDecision(decision, number).getResultList(),
+                cachingEngine.evaluateDecision(decision, number).getResultList());
+        assertEquals(2, count("DeterminePath", DecisionResultCache.SOURCE_ENGINE));
+        assertEquals(0, count("DeterminePath", DecisionResultCache.SOURCE_HASH));
+    }
+
+    @Test
+    void otherTablesCacheResultsPerInputTuple() {
+        DmnDecision decision = dmnEngine.parseDecision("AmountBand",
+                new ByteArrayInputStream(AMOUNT_BAND_DMN.getBytes(StandardCharsets.UTF_8)));
+        DmnEngine cachingEngine = decisionResultCache.wrap(dmnEngine);
+
+        assertEquals("small", band(cachingEngine, decision, 50));
+        assertEquals("small", band(cachingEngine, decision, 50));
+        assertEquals("large", band(cachingEngine, decision, 500));
+        assertEquals("large", band(cachingEngine, decision, 500));
+        assertEquals(2, count("AmountBand", DecisionResultCache.SOURCE_ENGINE));
+        assertEquals(2, count("AmountBand", DecisionResultCache.SOURCE_CACHE));
+
+        // Beyond cache-max-entries, further tuples are evaluated every time
+        band(cachingEngine, decision, 7);
+        band(cachingEngine, decision, 7);
+        assertEquals(4, count("AmountBand", DecisionResultCache.SOURCE_ENGINE));
+    }
+
+    @Test
+    void invalidatedDecisionIsEvaluatedAfresh() {
+        DmnDecision decision = dmnEngine.parseDecision("AmountBand",
+                new ByteArrayInputStream(AMOUNT_BAND_DMN.getBytes(StandardCharsets.UTF_8)));
+        DmnEngine cachingEngine = decisionResultCache.wrap(dmnEngine);
+        band(cachingEngine, decision, 50);
+
+        decisionResultCache.invalidate("AmountBand");
+        band(cachingEngine, decision, 50);
+
+        assertEquals(2, count("AmountBand", DecisionResultCache.SOURCE_ENGINE));
+        assertEquals(0, count("AmountBand", DecisionResultCache.SOURCE_CACHE));
+    }
+
+    @Test
+    void redeployedDecisionIsRecompiled() throws IOException {
+        DmnEngine cachingEngine = decisionResultCache.wrap(dmnEngine);
+        Map<String, Object> payment = Variables.createVariables().putValue("transactionType", "Payment");
+        assertEquals("validate,post", cachingEngine.evaluateDecision(routingDecision(), payment).getSingleEntry());
+
+        String redeployed;
+        try (InputStream dmn = getClass().getClassLoader().getResourceAsStream("DetermineTransactionPath.dmn")) {
+            redeployed = new String(dmn.readAllBytes(), StandardCharsets.UTF_8).replace("\"validate,post\"", "\"post\"");
+        }
+        DmnDecision decision = dmnEngine.parseDecision("DeterminePath",
+                new ByteArrayInputStream(redeployed.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals("post", cachingEngine.evaluateDecision(decision, payment).getSingleEntry());
+    }
+
+    @Test
+    void decisionsNotOptedInAreLeftToTheEngine() throws IOException {
+        ReflectionTestUtils.setField(decisionResultCache, "cachedDecisions", "");
+        ReflectionTestUtils.invokeMethod(decisionResultCache, "init");
+
+        assertSame(dmnEngine, decisionResultCache.wrap(dmnEngine));
+        assertFalse(decisionResultCache.isCached("DeterminePath"));
+    }
+
+    private DmnDecision routingDecision() throws IOException {
+        try (InputStream dmn = getClass().getClassLoader().getResourceAsStream("DetermineTransactionPath.dmn")) {
+            return dmnEngine.parseDecision("DeterminePath", dmn);
+        }
+    }
+
+    private static String band(DmnEngine engine, DmnDecision decision, int amount) {
+        return engine.evaluateDecision(decision, Variables.createVariables().putValue("amount", amount))
+                .getSingleEntry();
+    }
+
+    private double count(String decisionKey, String source) {
+        Counter counter = registry.find(TransactionMetrics.DMN_CACHE)
+                .tag("decision", decisionKey)
+                .tag("source", source)
+                .counter();
+        return counter != null ? counter.count() : 0;
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.transactionprocessor.engine;
+
+import org.camunda.bpm.engine.ProcessEngine;
+import org.camunda.bpm.engine.ProcessEngineConfiguration;
+import org.camunda.bpm.engine.delegate.JavaDelegate;
+import org.camunda.bpm.engine.impl.cfg.StandaloneProcessEngineConfiguration;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JdbcBatchProcessingTest {
+
+    @Test
+    void batchProcessingSendsTransactionInsertsInFewerRoundTrips() {
+        CountingDataSource unbatched = startPurchase(false);
+        CountingDataSource batched = startPurchase(true);
+
+        // Batching changes how statements are sent, not which rows are written
+        assertEquals(unbatched.getInserts(), batched.getInserts());
+        assertTrue(batched.getInserts() > 10, "a purchase writes runtime and history rows");
+        assertEquals(unbatched.getStatements(), unbatched.getRoundTrips());
+        assertTrue(batched.getRoundTrips() * 2 < unbatched.getRoundTrips(),
+                () -> "batched " + batched.getRoundTrips() + " vs unbatched " + unbatched.getRoundTrips() + " round trips");
+    }
+
+    private CountingDataSource startPurchase(boolean jdbcBatchProcessing) {
+        JdbcDataSource h2 = new JdbcDataSource();
+        h2.setURL("jdbc:h2:mem:batch-" + jdbcBatchProcessing + ";DB_CLOSE_DELAY=-1");
+        h2.setUser("sa");
+        CountingDataSource dataSource = new CountingDataSource(h2);
+
+        Map<Object, Object> beans = new HashMap<>();
+        beans.put("taskRouterDelegate", (JavaDelegate) execution -> {
+            execution.setVariable("authorized", true);
+            execution.setVariable("settlementStatus", "SETTLED");
+        });
+
+        StandaloneProcessEngineConfiguration configuration = new StandaloneProcessEngineConfiguration();
+        configuration.setDataSource(dataSource);
+        configuration.setDatabaseSchemaUpdate(ProcessEngineConfiguration.DB_SCHEMA_UPDATE_TRUE);
+        configuration.setHistory(ProcessEngineConfiguration.HISTORY_FULL);
+        configuration.setJdbcBatchProcessing(jdbcBatchProcessing);
+        configuration.setJobExecutorActivate(false);
+        configuration.setMetricsEnabled(false);
+        configuration.setBeans(beans);
+        ProcessEngine processEngine = configuration.buildProcessEngine();
+        try {
+            processEngine.getRepositoryService().createDeployment()
+                    .addClasspathResource("transactionProcessingDMNBased.bpmn")
+                    .addClasspathResource("DetermineTransactionPath.dmn")
+                    .deploy();
+
+            Map<String, Object> variables = new HashMap<>();
+            variables.put("processInstanceId", "purchase-1");
+            variables.put("transactionType", "Purchase");
+            variables.put("amount", 125.50);
+            variables.put("referenceNumber", "REF123456789");
+            variables.put("cardHolderName", "John Smith");
+
+            dataSource.reset();
+            processEngine.getRuntimeService()
+                    .startProcessInstanceByKey("transactionProcessing", "purchase-1", variables);
+            return dataSource;
+        } finally {
+            processEngine.close();
+        }
+    }
+}
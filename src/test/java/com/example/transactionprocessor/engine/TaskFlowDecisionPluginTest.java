@@ -0,0 +1,68 @@
+package com.example.transactionprocessor.engine;
+
+import org.camunda.bpm.dmn.engine.DmnDecision;
+import org.camunda.bpm.dmn.engine.DmnEngine;
+import org.camunda.bpm.dmn.engine.DmnEngineConfiguration;
+import org.camunda.bpm.dmn.engine.impl.DefaultDmnEngineConfiguration;
+import org.camunda.bpm.dmn.engine.impl.DmnDecisionTableImpl;
+import org.camunda.bpm.engine.impl.el.JuelExpressionManager;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TaskFlowDecisionPluginTest {
+
+    private final DmnEngine dmnEngine = dmnEngine();
+
+    @Test
+    void bundledDecisionRoutesItsThreeTypes() throws IOException {
+        try (InputStream dmn = getClass().getResourceAsStream("/DetermineTransactionPath.dmn")) {
+            DmnDecision decision = dmnEngine.parseDecision(TaskFlowDecisionPlugin.ROUTING_DECISION_KEY, dmn);
+
+            assertEquals(Set.of("Purchase", "Payment", "Adjustment"),
+                    TaskFlowDecisionPlugin.transactionTypes((DmnDecisionTableImpl) decision.getDecisionLogic()));
+        }
+    }
+
+    @Test
+    void typesAreListedFromLiteralEntriesOnly() {
+        assertEquals(Set.of("Purchase", "Refund", "Chargeback"),
+                transactionTypes("\"Purchase\"", "\"Refund\",\"Chargeback\""));
+        assertNull(transactionTypes("\"Purchase\"", "-"));
+        assertNull(transactionTypes("\"Purchase\"", "not(\"Payment\")"));
+    }
+
+    private static DmnEngine dmnEngine() {
+        DefaultDmnEngineConfiguration configuration =
+                (DefaultDmnEngineConfiguration) DmnEngineConfiguration.createDefaultDmnEngineConfiguration();
+        configuration.setElProvider(new JuelExpressionManager().toElProvider());
+        return configuration.buildEngine();
+    }
+
+    private Set<String> transactionTypes(String... entries) {
+        StringBuilder rules = new StringBuilder();
+        for (int i = 0; i < entries.length; i++) {
+            rules.append("<rule id=\"Rule_").append(i).append("\"><inputEntry id=\"InputEntry_").append(i)
+                    .append("\"><text>").append(entries[i].replace("\"", "&quot;")).append("</text></inputEntry>")
+                    .append("<outputEntry id=\"OutputEntry_").append(i).append("\"><text>\"flow")
+                    .append(i).append("\"</text></outputEntry></rule>");
+        }
+        String dmn = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+                + "<definitions xmlns=\"https://www.omg.org/spec/DMN/20191111/MODEL/\" id=\"Definitions_Path\""
+                + " name=\"DeterminePath\" namespace=\"http://camunda.org/schema/1.0/dmn\">"
+                + "<decision id=\"DeterminePath\" name=\"Determine Path\"><decisionTable id=\"DecisionTable_Path\">"
+                + "<input id=\"Input_Type\"><inputExpression id=\"InputExpression_Type\" typeRef=\"string\">"
+                + "<text>transactionType</text></inputExpression></input>"
+                + "<output id=\"Output_Flow\" name=\"taskFlow\" typeRef=\"string\"/>"
+                + rules + "</decisionTable></decision></definitions>";
+        DmnDecision decision = dmnEngine.parseDecision(TaskFlowDecisionPlugin.ROUTING_DECISION_KEY,
+                new ByteArrayInputStream(dmn.getBytes(StandardCharsets.UTF_8)));
+        return TaskFlowDecisionPlugin.transactionTypes((DmnDecisionTableImpl) decision.getDecisionLogic());
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.transactionprocessor.engine;
+
+import com.example.transactionprocessor.model.TransactionContext;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionContextSerializerTest {
+
+    @Test
+    void roundTripKeepsValuesAndTypes() throws Exception {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("customerName", "Sarah Johnson");
+        values.put("paymentAmount", new BigDecimal("350.00"));
+        values.put("currentBalance", new BigDecimal("-12345678901234567890.125"));
+        values.put("paymentDate", LocalDate.of(2025, 7, 10));
+        values.put("scheduledDateTime", LocalDateTime.of(2025, 7, 10, 9, 0, 1, 500));
+        values.put("isRecurring", false);
+        values.put("validationTimestamp", 1751878800000L);
+        values.put("retryCount", 3);
+        values.put("newBalance", 2100.75);
+        values.put("recurringFrequency", null);
+
+        TransactionContext decoded = TransactionContextSerializer.decode(
+                TransactionContextSerializer.encode(new TransactionContext(values)));
+
+        assertEquals(values, decoded.getValues());
+        assertEquals(new BigDecimal("350.00"), decoded.getDecimal("paymentAmount"));
+        assertTrue(decoded.contains("recurringFrequency"));
+        assertTrue(decoded.getChangedNames().isEmpty());
+    }
+
+    @Test
+    void unsupportedValueTypeIsRejected() {
+        TransactionContext context = new TransactionContext();
+        context.put("billingAddress", new Object());
+
+        assertThrows(IllegalArgumentException.class, () -> TransactionContextSerializer.encode(context));
+    }
+
+    @Test
+    void mergeKeepsOutcomesOfBothSides() {
+        TransactionContext base = new TransactionContext(Map.of("amount", new BigDecimal("10.00")));
+        TransactionContext first = base.copy();
+        first.put("fraudScore", 12);
+        TransactionContext second = base.copy();
+        second.put("limitCheck", "PASSED");
+
+        TransactionContext merged = first.mergeChanges(second);
+
+        assertEquals(12, merged.get("fraudScore"));
+        assertEquals("PASSED", merged.get("limitCheck"));
+        assertEquals(new BigDecimal("10.00"), merged.get("amount"));
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.transactionprocessor.engine;
+
+import org.camunda.bpm.engine.HistoryService;
+import org.camunda.bpm.engine.ProcessEngine;
+import org.camunda.bpm.engine.ProcessEngineConfiguration;
+import org.camunda.bpm.engine.delegate.JavaDelegate;
+import org.camunda.bpm.engine.history.HistoricProcessInstance;
+import org.camunda.bpm.engine.impl.cfg.StandaloneInMemProcessEngineConfiguration;
+import org.camunda.bpm.engine.impl.history.HistoryLevel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionHistoryTest {
+
+    private ProcessEngine processEngine;
+
+    @AfterEach
+    void tearDown() {
+        if (processEngine != null) {
+            processEngine.close();
+        }
+    }
+
+    @Test
+    void historyLevelIsChosenPerTransactionType() {
+        StandaloneInMemProcessEngineConfiguration configuration = configuration("levels");
+        List<HistoryLevel> levels = new ArrayList<>();
+        levels.add(TransactionHistoryLevel.parse("full", "Purchase=none, Adjustment=activity"));
+        configuration.setCustomHistoryLevels(levels);
+        configuration.setHistory(TransactionHistoryLevel.NAME);
+        buildEngine(configuration);
+
+        start("purchase-1", "Purchase");
+        start("payment-1", "Payment");
+        start("adjustment-1", "Adjustment");
+
+        HistoryService historyService = processEngine.getHistoryService();
+        assertEquals(0, historyService.createHistoricProcessInstanceQuery().processInstanceBusinessKey("purchase-1").count());
+
+        HistoricProcessInstance payment = historicInstance("payment-1");
+        assertNotNull(payment.getEndTime());
+        assertTrue(historyService.createHistoricVariableInstanceQuery().processInstanceId(payment.getId()).count() > 0);
+        assertEquals(1, historyService.createHistoricDecisionInstanceQuery().processInstanceId(payment.getId()).count());
+
+        HistoricProcessInstance adjustment = historicInstance("adjustment-1");
+        assertNotNull(adjustment.getEndTime());
+        assertTrue(historyService.createHistoricActivityInstanceQuery().processInstanceId(adjustment.getId()).count() > 0);
+        assertEquals(0, historyService.createHistoricVariableInstanceQuery().processInstanceId(adjustment.getId()).count());
+        assertEquals(0, historyService.createHistoricDecisionInstanceQuery().processInstanceId(adjustment.getId()).count());
+    }
+
+    @Test
+    void asyncHistoryIsWrittenAfterCommitOnly() {
+        StandaloneInMemProcessEngineConfiguration configuration = configuration("async");
+        AsyncHistoryWriter writer = new AsyncHistoryWriter(new DatabaseHistorySink(configuration), 100, 10, 50, 1000);
+        configuration.setEnableDefaultDbHistoryEventHandler(false);
+        configuration.setCustomHistoryEventHandlers(List.of(new BufferedHistoryEventHandler(writer)));
+        buildEngine(configuration);
+
+        for (int i = 0; i < 5; i++) {
+            start("payment-" + i, "Payment");
+        }
+        assertThrows(RuntimeException.class, () -> start("failed-1", "Fail"));
+
+        HistoryService historyService = processEngine.getHistoryService();
+        // The business transactions committed without writing any history
+        assertEquals(0, historyService.createHistoricProcessInstanceQuery().count());
+
+        writer.start();
+        writer.close();
+
+        assertEquals(5, historyService.createHistoricProcessInstanceQuery().count());
+        assertEquals(5, historyService.createHistoricProcessInstanceQuery().finished().count());
+        HistoricProcessInstance payment = historicInstance("payment-0");
+        assertEquals(4, historyService.createHistoricActivityInstanceQuery().processInstanceId(payment.getId())
+                .finished().count());
+        assertEquals(1, historyService.createHistoricDecisionInstanceQuery().processInstanceId(payment.getId()).count());
+        assertEquals("completed", historyService.createHistoricVariableInstanceQuery()
+                .processInstanceId(payment.getId()).variableName("routerStatus").singleResult().getValue());
+        assertEquals(0, writer.getDroppedEventCount());
+    }
+
+    @Test
+    void fileSinkAppendsOneJsonLinePerEvent(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("history.ndjson");
+        StandaloneInMemProcessEngineConfiguration configuration = configuration("file");
+        AsyncHistoryWriter writer = new AsyncHistoryWriter(new FileHistorySink(file), 100, 10, 50, 1000);
+        configuration.setEnableDefaultDbHistoryEventHandler(false);
+        configuration.setCustomHistoryEventHandlers(List.of(new BufferedHistoryEventHandler(writer)));
+        buildEngine(configuration);
+        writer.start();
+
+        String processInstanceId = start("payment-1", "Payment");
+        writer.close();
+
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(writer.getWrittenEventCount(), lines.size());
+        assertTrue(lines.stream().allMatch(line -> line.startsWith("{") && line.endsWith("}")));
+        assertTrue(lines.stream().anyMatch(line -> line.contains("\"eventType\":\"end\"")
+                && line.contains("\"processInstanceId\":\"" + processInstanceId + "\"")));
+        assertEquals(0, processEngine.getHistoryService().createHistoricProcessInstanceQuery().count());
+    }
+
+    private StandaloneInMemProcessEngineConfiguration configuration(String name) {
+        Map<Object, Object> beans = new HashMap<>();
+        beans.put("taskRouterDelegate", (JavaDelegate) execution -> {
+            if ("Fail".equals(execution.getVariable("transactionType"))) {
+                throw new IllegalStateException("task failed");
+            }
+            execution.setVariable("routerStatus", "completed");
+        });
+        StandaloneInMemProcessEngineConfiguration configuration = new StandaloneInMemProcessEngineConfiguration();
+        configuration.setJdbcUrl("jdbc:h2:mem:history-" + name + ";DB_CLOSE_DELAY=-1");
+        configuration.setDatabaseSchemaUpdate(ProcessEngineConfiguration.DB_SCHEMA_UPDATE_CREATE_DROP);
+        configuration.setHistory(ProcessEngineConfiguration.HISTORY_FULL);
+        configuration.setJobExecutorActivate(false);
+        configuration.setMetricsEnabled(false);
+        configuration.setBeans(beans);
+        return configuration;
+    }
+
+    private void buildEngine(StandaloneInMemProcessEngineConfiguration configuration) {
+        processEngine = configuration.buildProcessEngine();
+        processEngine.getRepositoryService().createDeployment()
+                .addClasspathResource("transactionProcessingDMNBased.bpmn")
+                .addClasspathResource("DetermineTransactionPath.dmn")
+                .deploy();
+    }
+
+    private String start(String businessKey, String transactionType) {
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("transactionType", transactionType);
+        variables.put("amount", 100);
+        return TransactionHistoryLevel.start(transactionType, () -> processEngine.getRuntimeService()
+                .startProcessInstanceByKey("transactionProcessing", businessKey, variables)).getId();
+    }
+
+    private HistoricProcessInstance historicInstance(String businessKey) {
+        return processEngine.getHistoryService().createHistoricProcessInstanceQuery()
+                .processInstanceBusinessKey(businessKey).singleResult();
+    }
+}
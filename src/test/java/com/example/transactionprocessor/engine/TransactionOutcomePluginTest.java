@@ -0,0 +1,128 @@
+package com.example.transactionprocessor.engine;
+
+import com.example.transactionprocessor.model.TransactionOutcome;
+import com.example.transactionprocessor.service.TransactionOutcomeIndex;
+import com.example.transactionprocessor.service.TransactionOutcomes;
+import org.camunda.bpm.engine.ProcessEngine;
+import org.camunda.bpm.engine.ProcessEngineConfiguration;
+import org.camunda.bpm.engine.delegate.JavaDelegate;
+import org.camunda.bpm.engine.impl.cfg.StandaloneInMemProcessEngineConfiguration;
+import org.camunda.bpm.model.bpmn.Bpmn;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class TransactionOutcomePluginTest {
+
+    private final TransactionOutcomeIndex transactionOutcomeIndex = mock(TransactionOutcomeIndex.class);
+
+    private TransactionOutcomePlugin plugin;
+    private ProcessEngine processEngine;
+
+    @BeforeEach
+    void setUp() {
+        plugin = new TransactionOutcomePlugin();
+        ReflectionTestUtils.setField(plugin, "transactionOutcomeIndex", transactionOutcomeIndex);
+        ReflectionTestUtils.setField(plugin, "startedRetentionMillis", 3_600_000L);
+
+        Map<Object, Object> beans = new HashMap<>();
+        beans.put("taskRouterDelegate", (JavaDelegate) execution -> {
+            if (Boolean.TRUE.equals(execution.getVariable("fail"))) {
+                throw new IllegalStateException("authorization failed");
+            }
+            execution.setVariable("authorizationCode", "AUTH1");
+            execution.setVariable("settlementStatus", "SETTLED");
+        });
+        StandaloneInMemProcessEngineConfiguration configuration = new StandaloneInMemProcessEngineConfiguration();
+        configuration.setJdbcUrl("jdbc:h2:mem:outcome-plugin;DB_CLOSE_DELAY=-1");
+        configuration.setDatabaseSchemaUpdate(ProcessEngineConfiguration.DB_SCHEMA_UPDATE_CREATE_DROP);
+        configuration.setHistory(ProcessEngineConfiguration.HISTORY_NONE);
+        configuration.setJobExecutorActivate(false);
+        configuration.setMetricsEnabled(false);
+        configuration.setBeans(beans);
+        configuration.setProcessEnginePlugins(List.of(plugin));
+        processEngine = configuration.buildProcessEngine();
+        processEngine.getRepositoryService().createDeployment()
+                .addClasspathResource("transactionProcessingDMNBased.bpmn")
+                .addClasspathResource("DetermineTransactionPath.dmn")
+                .addModelInstance("waiting.bpmn", Bpmn.createExecutableProcess("waiting")
+                        .startEvent().receiveTask("review").endEvent().done())
+                .deploy();
+    }
+
+    @AfterEach
+    void tearDown() {
+        processEngine.close();
+    }
+
+    @Test
+    void finishedInstanceRecordsTheValuesItsTasksProduced() {
+        start(false);
+
+        ArgumentCaptor<TransactionOutcome> captor = ArgumentCaptor.forClass(TransactionOutcome.class);
+        verify(transactionOutcomeIndex).record(captor.capture());
+        TransactionOutcome outcome = captor.getValue();
+        assertEquals("purchase-1", outcome.getProcessInstanceId());
+        assertEquals("Purchase", outcome.getTransactionType());
+        assertEquals("REF1", outcome.getReference());
+        assertEquals(TransactionOutcome.MODE_BPMN, outcome.getExecutionMode());
+        assertNotNull(outcome.getTaskFlow());
+        assertEquals(Map.of("authorizationCode", "AUTH1", "settlementStatus", "SETTLED"),
+                TransactionOutcomes.parse(outcome.getOutcome()));
+    }
+
+    @Test
+    void failedInstanceRecordsNothing() {
+        assertThrows(RuntimeException.class, () -> start(true));
+
+        verifyNoInteractions(transactionOutcomeIndex);
+    }
+
+    @Test
+    void cancelledInstanceRecordsACancelledOutcome() {
+        String id = startWaiting("adjustment-1");
+
+        processEngine.getRuntimeService().deleteProcessInstance(id, "withdrawn by client");
+
+        ArgumentCaptor<TransactionOutcome> captor = ArgumentCaptor.forClass(TransactionOutcome.class);
+        verify(transactionOutcomeIndex).record(captor.capture());
+        assertEquals("adjustment-1", captor.getValue().getProcessInstanceId());
+        assertEquals(TransactionOutcome.STATUS_CANCELLED, captor.getValue().getStatus());
+        assertEquals(0, plugin.getStartedCount());
+    }
+
+    @Test
+    void instancesThatDoNotEndHereAreForgottenAfterTheRetention() throws Exception {
+        ReflectionTestUtils.setField(plugin, "startedRetentionMillis", 1L);
+        startWaiting("adjustment-1");
+        Thread.sleep(5);
+
+        startWaiting("adjustment-2");
+
+        assertEquals(1, plugin.getStartedCount());
+    }
+
+    private String startWaiting(String businessKey) {
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("transactionType", "Adjustment");
+        return processEngine.getRuntimeService().startProcessInstanceByKey("waiting", businessKey, variables).getId();
+    }
+
+    private void start(boolean fail) {
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("transactionType", "Purchase");
+        variables.put("amount", 125.50);
+        variables.put("referenceNumber", "REF1");
+        variables.put("fail", fail);
+        processEngine.getRuntimeService().startProcessInstanceByKey("transactionProcessing", "purchase-1", variables);
+    }
+}
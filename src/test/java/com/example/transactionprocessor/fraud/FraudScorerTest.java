@@ -0,0 +1,151 @@
+package com.example.transactionprocessor.fraud;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FraudScorerTest {
+
+    private static final long NOW = 1_760_000_000_000L;
+    private static final String CARD = "card-token-1";
+
+    private final List<FraudScorer> scorers = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        scorers.forEach(scorer -> ReflectionTestUtils.invokeMethod(scorer, "shutdown"));
+    }
+
+    @Test
+    void windowsDropBucketsThatFallOutOfTheWindow() {
+        SlidingWindow window = new SlidingWindow(5_000, 12);
+        window.add(NOW, 100);
+        window.add(NOW + 30_000, 250);
+
+        assertEquals(2, window.count(NOW + 59_000));
+        assertEquals(350, window.sum(NOW + 59_000));
+        assertEquals(1, window.count(NOW + 61_000));
+        assertEquals(250, window.sum(NOW + 61_000));
+        // Long idle gap: every bucket is stale
+        assertEquals(0, window.count(NOW + 3_600_000));
+        assertEquals(0, window.sum(NOW + 3_600_000));
+    }
+
+    @Test
+    void cardCountLimitIsFlaggedPerWindow() {
+        FraudScorer scorer = scorer();
+
+        int flags = 0;
+        for (int i = 0; i < 6; i++) {
+            flags = scorer.check(CARD, null, null, null, 1_000, NOW + i * 1_000);
+        }
+
+        assertEquals("card:count/1m", FraudScorer.describe(flags));
+        assertEquals(30, FraudScorer.score(flags));
+        // A minute later the 1 min window is clear again, the 1 h window is not yet over its limit
+        assertEquals(0, scorer.check(CARD, null, null, null, 1_000, NOW + 70_000));
+    }
+
+    @Test
+    void cardAmountLimitCoversTheDay() {
+        FraudScorer scorer = scorer();
+        scorer.check(CARD, "Amazon Store", "Online", null, 900_000, NOW);
+
+        int flags = scorer.check(CARD, "Amazon Store", "Online", null, 200_000, NOW + 1_000);
+
+        assertEquals("card:amount/24h", FraudScorer.describe(flags));
+        assertEquals(0, scorer.check("card-token-2", "Amazon Store", "Online", null, 200_000, NOW + 2_000));
+    }
+
+    @Test
+    void vendorsAreCountedPerLocation() {
+        FraudScorer scorer = scorer();
+        for (int i = 0; i < 3; i++) {
+            scorer.check(null, "Coffee Shop", "Boston", null, 500, NOW);
+        }
+
+        assertEquals(0, scorer.check(null, "Coffee Shop", "Denver", null, 500, NOW));
+        int flags = scorer.check(null, "Coffee Shop", "Boston", null, 500, NOW);
+        assertEquals("vendor:count/1m", FraudScorer.describe(flags));
+        assertEquals(15, FraudScorer.score(flags));
+    }
+
+    @Test
+    void scoreIsCappedAt100() {
+        int allFlags = (1 << (3 * VelocityCounter.LIMIT_BITS)) - 1;
+
+        assertEquals(100, FraudScorer.score(allFlags));
+        assertEquals("", FraudScorer.describe(0));
+        assertEquals(0, FraudScorer.score(0));
+    }
+
+    @Test
+    void concurrentChecksOnOneCardCountEveryTransaction() throws Exception {
+        FraudScorer scorer = scorer();
+        int threads = 8;
+        int checksPerThread = 50_000;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int j = 0; j < checksPerThread; j++) {
+                        scorer.check(CARD, "Amazon Store", "Online", null, 100, NOW);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        @SuppressWarnings("unchecked")
+        VelocityCounter counter = ((Map<String, VelocityCounter>) ReflectionTestUtils
+                .getField(scorer, "cards")).get(CARD);
+        assertEquals((long) threads * checksPerThread, counter.count(0, NOW));
+        assertEquals(100L * threads * checksPerThread, counter.sum(2, NOW));
+    }
+
+    @Test
+    void idleCountersAreEvicted() {
+        FraudScorer scorer = scorer();
+        scorer.check(CARD, "Amazon Store", "Online", "4532123456789012", 1_000, NOW);
+        scorer.check("card-token-2", null, null, null, 1_000, NOW + 60_000);
+        assertEquals(4, scorer.getTrackedKeyCount());
+
+        scorer.evictIdle(NOW + 1);
+
+        assertEquals(1, scorer.getTrackedKeyCount());
+    }
+
+    private FraudScorer scorer() {
+        FraudScorer scorer = new FraudScorer();
+        ReflectionTestUtils.setField(scorer, "cardMaxCounts", new long[] {5, 30, 100});
+        ReflectionTestUtils.setField(scorer, "cardMaxAmounts", new String[] {"0", "0", "10000.00"});
+        ReflectionTestUtils.setField(scorer, "vendorMaxCounts", new long[] {3, 0, 0});
+        ReflectionTestUtils.setField(scorer, "vendorMaxAmounts", new String[] {"0", "0", "0"});
+        ReflectionTestUtils.setField(scorer, "accountMaxCounts", new long[] {3, 10, 50});
+        ReflectionTestUtils.setField(scorer, "accountMaxAmounts", new String[] {"0", "0", "0"});
+        ReflectionTestUtils.invokeMethod(scorer, "init");
+        scorers.add(scorer);
+        return scorer;
+    }
+}
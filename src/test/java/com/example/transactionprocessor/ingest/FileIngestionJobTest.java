@@ -0,0 +1,220 @@
+package com.example.transactionprocessor.ingest;
+
+import com.example.transactionprocessor.metrics.TransactionMetrics;
+import com.example.transactionprocessor.model.TransactionRequest;
+import com.example.transactionprocessor.service.IdempotencyService;
+import com.example.transactionprocessor.service.RequestValidator;
+import com.example.transactionprocessor.service.TransactionStartService;
+import com.example.transactionprocessor.service.TransactionVariableMapper;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class FileIngestionJobTest {
+
+    private static final String PURCHASE = "{\"transactionType\":\"Purchase\",\"amount\":250.75,\"currency\":\"USD\","
+            + "\"transactionDateTime\":\"2025-07-05T14:30:00\",\"creditCardInfo\":{\"cardNumber\":\"4111111111111111\","
+            + "\"holderName\":\"John Smith\",\"expiryDate\":\"2026-12-31\",\"cvv\":\"123\",\"cardType\":\"VISA\"},"
+            + "\"billingAddress\":{\"street\":\"123 Main Street\",\"city\":\"New York\",\"state\":\"NY\","
+            + "\"zipCode\":\"10001\",\"country\":\"USA\"},\"vendorInfo\":{\"name\":\"Amazon\",\"location\":\"Seattle, WA\","
+            + "\"merchantId\":\"AMZ123456\",\"category\":\"E-commerce\"},\"tags\":[\"a\",{\"b\":1}],"
+            + "\"description\":\"Online purchase - Electronics\",\"referenceNumber\":\"REF-0\"}";
+
+    @TempDir
+    Path directory;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules()
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    private final TransactionVariableMapper variableMapper = new TransactionVariableMapper();
+    private final TransactionStartService transactionStartService = mock(TransactionStartService.class);
+    private final IdempotencyService idempotencyService = mock(IdempotencyService.class);
+    private final Map<String, Map<String, Object>> startedByReference = new ConcurrentHashMap<>();
+    private final Set<String> startedBeforeCrash = ConcurrentHashMap.newKeySet();
+    private final FileIngestionJob job = new FileIngestionJob();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(variableMapper, "mode", "flat");
+        ReflectionTestUtils.setField(variableMapper, "cardTokenSecret", "test-secret");
+        when(transactionStartService.newProcessInstanceId()).thenAnswer(invocation -> UUID.randomUUID().toString());
+        IdempotencyService.Result started = mock(IdempotencyService.Result.class);
+        IdempotencyService.Result duplicate = mock(IdempotencyService.Result.class);
+        when(duplicate.isDuplicate()).thenReturn(true);
+        when(idempotencyService.startOnce(anyString(), any(), anyString(), any(), any())).thenAnswer(invocation -> {
+            if (startedBeforeCrash.contains(invocation.<String>getArgument(1))) {
+                return duplicate;
+            }
+            invocation.<Runnable>getArgument(4).run();
+            return started;
+        });
+        doAnswer(invocation -> {
+            Map<String, Object> variables = invocation.getArgument(1);
+            startedByReference.put((String) variables.get("referenceNumber"), variables);
+            return null;
+        }).when(transactionStartService).start(anyString(), any());
+
+        ReflectionTestUtils.setField(job, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(job, "variableMapper", variableMapper);
+        ReflectionTestUtils.setField(job, "transactionStartService", transactionStartService);
+        ReflectionTestUtils.setField(job, "idempotencyService", idempotencyService);
+        ReflectionTestUtils.setField(job, "requestValidator", new RequestValidator());
+        ReflectionTestUtils.setField(job, "transactionMetrics", TransactionMetrics.noop());
+        ReflectionTestUtils.setField(job, "directory", directory.toString());
+        // A buffer of a few lines, so reading refills it mid-line
+        ReflectionTestUtils.setField(job, "readBufferBytes", 2048);
+        ReflectionTestUtils.setField(job, "poolSize", 4);
+        ReflectionTestUtils.setField(job, "queueCapacity", 2);
+        ReflectionTestUtils.setField(job, "startWorkers", 3);
+        ReflectionTestUtils.setField(job, "checkpointEvery", 1);
+    }
+
+    @Test
+    void ndjsonRecordsStartWithTheVariablesOfTheRestEndpoint() throws Exception {
+        List<String> lines = purchases(20);
+        lines.add(5, "");
+        lines.add(9, "{\"transactionType\":\"Purchase\",");
+        lines.add(12, PURCHASE.replace("\"amount\":250.75,", "").replace("REF-0", "REF-NO-AMOUNT"));
+        lines.add(15, PURCHASE.replace("REF-0", "REF-NO-VENDOR").replaceAll(",\"vendorInfo\":\\{[^}]*}", ""));
+        Path file = write("purchases.ndjson", String.join("\r\n", lines));
+
+        FileIngestionJob.FileSummary summary = job.ingest(file);
+
+        assertTrue(summary.isCompleted());
+        assertEquals(20, summary.getStarted());
+        assertEquals(3, summary.getRejected());
+        assertEquals(Files.size(file), summary.getOffset());
+        assertEquals(20, startedByReference.size());
+        TransactionRequest request = objectMapper.readValue(purchase(7), TransactionRequest.class);
+        assertEquals(variableMapper.toVariables(request), startedByReference.get("REF-7"));
+        assertFalse(Files.exists(directory.resolve("purchases.ndjson.checkpoint")));
+
+        List<JsonNode> rejected = new ArrayList<>();
+        for (String line : Files.readAllLines(directory.resolve("purchases.ndjson.rejected"))) {
+            rejected.add(objectMapper.readTree(line));
+        }
+        assertEquals(3, rejected.size());
+        rejected.sort((a, b) -> Long.compare(a.get("offset").asLong(), b.get("offset").asLong()));
+        assertTrue(rejected.get(0).get("message").asText().startsWith("Invalid record"));
+        assertEquals("REF-NO-AMOUNT", rejected.get(1).get("reference").asText());
+        assertEquals("amount is required", rejected.get(1).get("message").asText());
+        String content = Files.readString(file);
+        assertEquals(content.lastIndexOf('\n', content.indexOf("REF-NO-AMOUNT")) + 1,
+                rejected.get(1).get("offset").asLong());
+        // Pooled records carry no vendor over from an earlier line
+        assertEquals("vendorInfo is required", rejected.get(2).get("message").asText());
+    }
+
+    @Test
+    void csvRecordsAreReadAgainstTheHeader() throws Exception {
+        Path file = write("purchases.csv", String.join("\n",
+                "referenceNumber,transactionType,amount,currency,creditCardInfo.cardNumber,creditCardInfo.holderName,"
+                        + "billingAddress.city,vendorInfo.name,unknown",
+                "CSV-1,Purchase,10.50,USD,4111111111111111,John Smith,Boston,\"Smith, \"\"Jones\"\" & Co\",x",
+                "CSV-2,Purchase,99,EUR,5555555555554444,Jane Doe,Berlin,Amazon,",
+                "CSV-3,Purchase,1,USD,4111111111111111,John Smith,Boston,Amazon",
+                "CSV-4,Purchase,1,USD,4111111111111111,John Smith,,Amazon,",
+                ""));
+
+        FileIngestionJob.FileSummary summary = job.ingest(file);
+
+        assertEquals(2, summary.getStarted());
+        assertEquals(2, summary.getRejected());
+        assertTrue(Files.readString(directory.resolve("purchases.csv.rejected")).contains("billingAddress is required"));
+        assertEquals("Smith, \"Jones\" & Co", startedByReference.get("CSV-1").get("vendorName"));
+        assertEquals(new BigDecimal("10.50"), startedByReference.get("CSV-1").get("amount"));
+        assertEquals("EUR", startedByReference.get("CSV-2").get("currency"));
+        assertEquals("**** **** **** 4444", startedByReference.get("CSV-2").get("creditCardNumber"));
+    }
+
+    @Test
+    void resumesFromTheCheckpointWithoutStartingRecordsTwice() throws Exception {
+        List<String> lines = purchases(20);
+        Path file = write("resume.ndjson", String.join("\n", lines) + "\n");
+        long afterFifth = String.join("\n", lines.subList(0, 5)).length() + 1;
+        Files.writeString(directory.resolve("resume.ndjson.checkpoint"), Long.toString(afterFifth));
+        // Started before the crash, after the last checkpoint was written
+        startedBeforeCrash.add("REF-5");
+
+        FileIngestionJob.FileSummary summary = job.ingest(file);
+
+        assertEquals(afterFifth, summary.getResumedAt());
+        assertEquals(14, summary.getStarted());
+        assertEquals(1, summary.getDuplicates());
+        for (int i = 0; i < 6; i++) {
+            assertFalse(startedByReference.containsKey("REF-" + i), "REF-" + i + " started again");
+        }
+        assertTrue(startedByReference.containsKey("REF-19"));
+    }
+
+    @Test
+    void shutdownCheckpointsTheFileForTheNextStart() throws Exception {
+        Path file = write("stopped.ndjson", String.join("\n", purchases(20)));
+        ReflectionTestUtils.setField(job, "stopping", true);
+
+        FileIngestionJob.FileSummary summary = job.ingest(file);
+
+        assertFalse(summary.isCompleted());
+        assertEquals(Long.toString(summary.getOffset()),
+                Files.readString(directory.resolve("stopped.ndjson.checkpoint")));
+    }
+
+    @Test
+    void checkpointOnlyPassesRecordsWhoseEarlierRecordsHaveCompleted() throws IOException {
+        IngestCheckpoint checkpoint = new IngestCheckpoint(directory.resolve("x.checkpoint"), 0, 3, 100);
+
+        checkpoint.complete(1, 20);
+        checkpoint.complete(2, 30);
+        assertEquals(0, checkpoint.offset());
+        checkpoint.complete(0, 10);
+        assertEquals(30, checkpoint.offset());
+        checkpoint.complete(4, 50);
+        checkpoint.complete(3, 40);
+        checkpoint.complete(5, 60);
+        assertEquals(60, checkpoint.offset());
+        assertFalse(Files.exists(directory.resolve("x.checkpoint")));
+
+        checkpoint.write();
+        assertEquals(60, IngestCheckpoint.read(directory.resolve("x.checkpoint")));
+    }
+
+    private List<String> purchases(int count) throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            lines.add(purchase(i));
+        }
+        return lines;
+    }
+
+    private String purchase(int index) throws IOException {
+        ObjectNode body = (ObjectNode) objectMapper.readTree(PURCHASE);
+        body.put("referenceNumber", "REF-" + index);
+        body.put("amount", new BigDecimal(index + 1 + ".25"));
+        return objectMapper.writeValueAsString(body);
+    }
+
+    private Path write(String name, String content) throws IOException {
+        return Files.writeString(directory.resolve(name), content, StandardCharsets.UTF_8);
+    }
+}
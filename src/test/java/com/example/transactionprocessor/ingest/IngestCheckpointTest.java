@@ -0,0 +1,42 @@
+package com.example.transactionprocessor.ingest;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IngestCheckpointTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void slowRecordHoldsBackTheOffsetAndTheReader() throws Exception {
+        IngestCheckpoint checkpoint = new IngestCheckpoint(directory.resolve("file.checkpoint"), 0, 2, 100);
+        checkpoint.awaitWindow(0);
+        checkpoint.awaitWindow(1);
+        checkpoint.complete(1, 20);
+        assertEquals(0, checkpoint.offset());
+
+        // Record 2 would take the slot of record 0, which is still in flight
+        CompletableFuture<Void> reader = CompletableFuture.runAsync(() -> {
+            try {
+                checkpoint.awaitWindow(2);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertThrows(TimeoutException.class, () -> reader.get(100, TimeUnit.MILLISECONDS));
+
+        checkpoint.complete(0, 10);
+        reader.get(2, TimeUnit.SECONDS);
+        assertEquals(20, checkpoint.offset());
+        checkpoint.complete(2, 30);
+        assertEquals(30, checkpoint.offset());
+    }
+}
@@ -0,0 +1,209 @@
+package com.example.transactionprocessor.ledger;
+
+import com.example.transactionprocessor.model.AccountBalance;
+import com.example.transactionprocessor.repository.AccountBalanceRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class AccountLedgerTest {
+
+    private static final int THREADS = 16;
+    private static final int POSTINGS_PER_THREAD = 20_000;
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void concurrentPostingsToOneAccountLoseNoUpdate() throws Exception {
+        AccountLedger ledger = ledger(64);
+        AtomicLongArray sums = new AtomicLongArray(1);
+
+        runConcurrently(() -> {
+            for (int i = 0; i < POSTINGS_PER_THREAD; i++) {
+                long delta = ThreadLocalRandom.current().nextLong(-50_000, 50_000);
+                ledger.post("4532123456789012", 245_075, delta);
+                sums.addAndGet(0, delta);
+            }
+        });
+
+        assertEquals(245_075 + sums.get(0), ledger.getBalance("4532123456789012"));
+        assertEquals((long) THREADS * POSTINGS_PER_THREAD, ledger.getPostingCount("4532123456789012"));
+    }
+
+    @Test
+    void accountsSharingALockStripeStayIndependent() throws Exception {
+        int accounts = 100;
+        // Far fewer stripes than accounts, so most stripes guard several accounts
+        AccountLedger ledger = ledger(4);
+        AtomicLongArray sums = new AtomicLongArray(accounts);
+
+        runConcurrently(() -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < POSTINGS_PER_THREAD; i++) {
+                int account = random.nextInt(accounts);
+                long delta = random.nextLong(-10_000, 10_000);
+                ledger.post("ACC" + account, 1_000_000, delta);
+                sums.addAndGet(account, delta);
+            }
+        });
+
+        long postings = 0;
+        for (int account = 0; account < accounts; account++) {
+            assertEquals(1_000_000 + sums.get(account), ledger.getBalance("ACC" + account), "ACC" + account);
+            postings += ledger.getPostingCount("ACC" + account);
+        }
+        assertEquals((long) THREADS * POSTINGS_PER_THREAD, postings);
+    }
+
+    @Test
+    void requestBalanceOnlyOpensTheAccount() {
+        AccountLedger ledger = ledger(64);
+
+        assertEquals(210_075, ledger.post("ACC1", 245_075, -35_000));
+        // A second payment sends the same stale balance; the ledger's balance wins
+        assertEquals(175_075, ledger.post("ACC1", 245_075, -35_000));
+        assertNull(ledger.getBalance("ACC2"));
+    }
+
+    @Test
+    void postingIsReversedWhenItsTransactionRollsBack() {
+        AccountLedger ledger = ledger(64);
+        ledger.post("ACC1", 10_000, -2_500);
+
+        TransactionSynchronizationManager.initSynchronization();
+        ledger.post("ACC1", 10_000, -1_000);
+        ledger.post("ACC2", 0, 700);
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        synchronizations.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        assertEquals(7_500, ledger.getBalance("ACC1"));
+        assertEquals(1, ledger.getPostingCount("ACC1"));
+        assertEquals(0, ledger.getBalance("ACC2"));
+    }
+
+    @Test
+    void committedPostingIsKept() {
+        AccountLedger ledger = ledger(64);
+
+        TransactionSynchronizationManager.initSynchronization();
+        ledger.post("ACC1", 10_000, -1_000);
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+
+        assertEquals(9_000, ledger.getBalance("ACC1"));
+    }
+
+    @Test
+    void storedBalanceIsLoadedInsteadOfTheRequestBalance() {
+        AccountBalanceRepository repository = mock(AccountBalanceRepository.class);
+        when(repository.findById("ACC1")).thenReturn(Optional.of(new AccountBalance("ACC1", 50_000, 3, Instant.now())));
+        when(repository.addPosting(eq("ACC1"), anyLong(), anyLong(), any())).thenReturn(1);
+        AccountLedger ledger = persistentLedger(repository);
+
+        assertEquals(49_000, ledger.post("ACC1", 999_999, -1_000));
+        assertEquals(4, ledger.getPostingCount("ACC1"));
+        verify(repository).addPosting(eq("ACC1"), eq(-1_000L), eq(1L), any());
+        verify(repository, never()).save(any());
+    }
+
+    @Test
+    void postingIsStoredJustBeforeItsTransactionCommits() {
+        AccountBalanceRepository repository = mock(AccountBalanceRepository.class);
+        when(repository.findById("ACC1")).thenReturn(Optional.empty());
+        AccountLedger ledger = persistentLedger(repository);
+
+        TransactionSynchronizationManager.initSynchronization();
+        ledger.post("ACC1", 10_000, -1_000);
+        verify(repository, never()).addPosting(anyString(), anyLong(), anyLong(), any());
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(s -> s.beforeCommit(false));
+
+        // No row yet: the account is inserted with the request's opening balance and the posting
+        ArgumentCaptor<AccountBalance> stored = ArgumentCaptor.forClass(AccountBalance.class);
+        verify(repository).save(stored.capture());
+        assertEquals(9_000, stored.getValue().getBalanceCents());
+        assertEquals(1, stored.getValue().getPostings());
+    }
+
+    @Test
+    void snapshotDoesNotOverrideAStoredBalance() {
+        AccountBalanceRepository repository = mock(AccountBalanceRepository.class);
+        when(repository.findById("CARD1")).thenReturn(Optional.of(new AccountBalance("CARD1", 7_000, 2, Instant.now())));
+        AccountLedger ledger = persistentLedger(repository);
+
+        ledger.restore("CARD1", 100);
+
+        assertEquals(7_000, ledger.getBalance("CARD1"));
+    }
+
+    @Test
+    void amountsAreConvertedToCentsExactly() {
+        assertEquals(12_550, AccountLedger.toCents(new BigDecimal("125.50")));
+        assertEquals(-2_500, AccountLedger.toCents(-25.0));
+        assertEquals(30, AccountLedger.toCents(0.1 + 0.2));
+        assertEquals(new BigDecimal("2100.75"), AccountLedger.toAmount(210_075));
+    }
+
+    private static AccountLedger ledger(int lockStripes) {
+        AccountLedger ledger = new AccountLedger();
+        ReflectionTestUtils.setField(ledger, "lockStripes", lockStripes);
+        ReflectionTestUtils.invokeMethod(ledger, "init");
+        return ledger;
+    }
+
+    private static AccountLedger persistentLedger(AccountBalanceRepository repository) {
+        AccountLedger ledger = ledger(64);
+        ReflectionTestUtils.setField(ledger, "persistent", true);
+        ReflectionTestUtils.setField(ledger, "accountBalanceRepository", repository);
+        return ledger;
+    }
+
+    private static void runConcurrently(Runnable work) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    work.run();
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
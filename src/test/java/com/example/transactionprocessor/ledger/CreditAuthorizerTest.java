@@ -0,0 +1,176 @@
+package com.example.transactionprocessor.ledger;
+
+import com.example.transactionprocessor.metrics.TransactionMetrics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CreditAuthorizerTest {
+
+    private static final int THREADS = 16;
+    private static final String CARD = "card-token-1";
+
+    private final List<CreditAuthorizer> authorizers = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        authorizers.forEach(authorizer -> ReflectionTestUtils.invokeMethod(authorizer, "shutdown"));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void concurrentAuthorizationsNeverExceedTheLimit() throws Exception {
+        CreditAuthorizer authorizer = authorizer(new AccountLedger(), "");
+        AtomicLong approvedCents = new AtomicLong();
+        AtomicInteger sequence = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int j = 0; j < 1_000; j++) {
+                        long cents = ThreadLocalRandom.current().nextLong(1, 2_000);
+                        if (authorizer.authorize("TX" + sequence.incrementAndGet(), CARD, cents)) {
+                            approvedCents.addAndGet(cents);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertTrue(approvedCents.get() <= 500_000);
+        assertEquals(500_000 - approvedCents.get(), authorizer.getOpenToBuy(CARD));
+    }
+
+    @Test
+    void settlingConvertsTheHoldIntoTheCardBalance() {
+        AccountLedger ledger = new AccountLedger();
+        CreditAuthorizer authorizer = authorizer(ledger, "");
+
+        assertTrue(authorizer.authorize("TX1", CARD, 400_000));
+        assertFalse(authorizer.authorize("TX2", CARD, 150_000));
+        assertEquals(400_000L, authorizer.settle("TX1"));
+
+        assertEquals(400_000, ledger.getBalance(CARD));
+        assertEquals(100_000, authorizer.getOpenToBuy(CARD));
+        assertEquals(0, authorizer.getHoldCount());
+        assertNull(authorizer.settle("TX1"));
+    }
+
+    @Test
+    void releasedAndRolledBackHoldsReturnTheirAmount() {
+        CreditAuthorizer authorizer = authorizer(new AccountLedger(), "");
+        authorizer.authorize("TX1", CARD, 100_000);
+        authorizer.release("TX1");
+
+        TransactionSynchronizationManager.initSynchronization();
+        authorizer.authorize("TX2", CARD, 200_000);
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        assertEquals(500_000, authorizer.getOpenToBuy(CARD));
+        assertEquals(0, authorizer.getHoldCount());
+    }
+
+    @Test
+    void refundMakesCreditAvailableAgain() {
+        CreditAuthorizer authorizer = authorizer(new AccountLedger(), "");
+        authorizer.authorize("TX1", CARD, 300_000);
+        authorizer.settle("TX1");
+
+        assertEquals(297_500, authorizer.adjust(CARD, -2_500));
+        assertEquals(202_500, authorizer.getOpenToBuy(CARD));
+    }
+
+    @Test
+    void expiredHoldsAreReleased() {
+        CreditAuthorizer authorizer = authorizer(new AccountLedger(), "");
+        authorizer.authorize("TX1", CARD, 100_000);
+
+        assertEquals(0, authorizer.releaseExpiredHolds(System.currentTimeMillis() - 60_000));
+        assertEquals(1, authorizer.releaseExpiredHolds(System.currentTimeMillis() + 60_000));
+        assertEquals(500_000, authorizer.getOpenToBuy(CARD));
+    }
+
+    @Test
+    void openToBuyIsRestoredFromTheSnapshot(@TempDir Path directory) {
+        String file = directory.resolve("open-to-buy.snapshot").toString();
+        CreditAuthorizer authorizer = authorizer(new AccountLedger(), file);
+        authorizer.authorize("TX1", CARD, 100_000);
+        authorizer.settle("TX1");
+        authorizer.authorize("TX2", CARD, 50_000);
+        authorizer.authorize("TX3", "card-token-2", 20_000);
+        ReflectionTestUtils.invokeMethod(authorizer, "shutdown");
+
+        AccountLedger restartedLedger = new AccountLedger();
+        CreditAuthorizer restarted = authorizer(restartedLedger, file);
+
+        assertEquals(350_000, restarted.getOpenToBuy(CARD));
+        assertEquals(480_000, restarted.getOpenToBuy("card-token-2"));
+        assertEquals(100_000, restartedLedger.getBalance(CARD));
+        assertEquals(2, restarted.getHoldCount());
+        assertEquals(150_000L, restarted.settle("TX2"));
+    }
+
+    @Test
+    void noSnapshotIsTakenWithoutACardTokenSecret(@TempDir Path directory) {
+        Path file = directory.resolve("open-to-buy.snapshot");
+        CreditAuthorizer authorizer = authorizer(new AccountLedger(), file.toString(), "");
+        authorizer.authorize("TX1", CARD, 100_000);
+        ReflectionTestUtils.invokeMethod(authorizer, "shutdown");
+
+        assertFalse(Files.exists(file));
+    }
+
+    private CreditAuthorizer authorizer(AccountLedger ledger, String snapshotFile) {
+        return authorizer(ledger, snapshotFile, "test-secret");
+    }
+
+    private CreditAuthorizer authorizer(AccountLedger ledger, String snapshotFile, String cardTokenSecret) {
+        ReflectionTestUtils.setField(ledger, "lockStripes", 64);
+        ReflectionTestUtils.invokeMethod(ledger, "init");
+
+        CreditAuthorizer authorizer = new CreditAuthorizer();
+        ReflectionTestUtils.setField(authorizer, "accountLedger", ledger);
+        ReflectionTestUtils.setField(authorizer, "transactionMetrics", TransactionMetrics.noop());
+        ReflectionTestUtils.setField(authorizer, "defaultCreditLimit", new BigDecimal("5000.00"));
+        ReflectionTestUtils.setField(authorizer, "holdExpiryMinutes", 10_080L);
+        ReflectionTestUtils.setField(authorizer, "snapshotFile", snapshotFile);
+        ReflectionTestUtils.setField(authorizer, "snapshotIntervalSeconds", 30L);
+        ReflectionTestUtils.setField(authorizer, "cardTokenSecret", cardTokenSecret);
+        ReflectionTestUtils.invokeMethod(authorizer, "init");
+        authorizers.add(authorizer);
+        return authorizer;
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.transactionprocessor.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionMetricsTest {
+
+    @Test
+    void transactionTypesOutsideTheRoutedOnesShareOneTag() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        TransactionMetrics transactionMetrics = new TransactionMetrics(registry);
+
+        for (String transactionType : new String[]{"Purchase", "purchase", "x".repeat(500), "Refund", null}) {
+            transactionMetrics.recordRequest("process", transactionType, "rejected", 1_000);
+        }
+
+        Set<String> tags = registry.find(TransactionMetrics.REQUESTS).timers().stream()
+                .map(timer -> timer.getId().getTag("transactionType"))
+                .collect(Collectors.toSet());
+        assertEquals(Set.of("Purchase", "other", "unknown"), tags);
+    }
+}
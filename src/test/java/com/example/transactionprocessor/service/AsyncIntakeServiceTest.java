@@ -0,0 +1,161 @@
+package com.example.transactionprocessor.service;
+
+import com.example.transactionprocessor.controller.TransactionController;
+import com.example.transactionprocessor.metrics.TransactionMetrics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class AsyncIntakeServiceTest {
+
+    private static final String PURCHASE = "{\"transactionType\":\"Purchase\",\"amount\":250.75,\"currency\":\"USD\","
+            + "\"creditCardInfo\":{\"cardNumber\":\"4111111111111111\",\"holderName\":\"John Smith\"},"
+            + "\"billingAddress\":{\"city\":\"New York\"},\"vendorInfo\":{\"name\":\"Amazon\"},"
+            + "\"referenceNumber\":\"REF-1\"}";
+
+    private final TransactionStartService transactionStartService = mock(TransactionStartService.class);
+    private final CountDownLatch engineReleased = new CountDownLatch(1);
+    private final CountDownLatch workerBusy = new CountDownLatch(1);
+    private final AsyncIntakeService service = new AsyncIntakeService();
+
+    @BeforeEach
+    void setUp() {
+        doAnswer(invocation -> {
+            workerBusy.countDown();
+            engineReleased.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(transactionStartService).start(anyString(), any());
+
+        ReflectionTestUtils.setField(service, "transactionStartService", transactionStartService);
+        ReflectionTestUtils.setField(service, "workers", 1);
+        ReflectionTestUtils.setField(service, "queueCapacity", 1);
+        ReflectionTestUtils.setField(service, "statusRetention", 2);
+        ReflectionTestUtils.invokeMethod(service, "init");
+    }
+
+    @AfterEach
+    void tearDown() {
+        engineReleased.countDown();
+        ReflectionTestUtils.invokeMethod(service, "shutdown");
+    }
+
+    @Test
+    void fullQueueRefusesTheRequestWithoutKeepingItsStatus() throws Exception {
+        assertTrue(service.submit("pi-1", "Purchase", Map.of()));
+        assertTrue(workerBusy.await(2, TimeUnit.SECONDS));
+        assertTrue(service.submit("pi-2", "Purchase", Map.of()));
+
+        assertFalse(service.submit("pi-3", "Purchase", Map.of()));
+
+        assertNull(service.getStatus("pi-3"));
+        assertEquals(AsyncIntakeService.State.RUNNING, service.getStatus("pi-1").getState());
+        assertEquals(AsyncIntakeService.State.QUEUED, service.getStatus("pi-2").getState());
+        assertEquals(0, service.getRemainingCapacity());
+    }
+
+    @Test
+    void fullQueueIsAnswered429WithRetryAfter() throws Exception {
+        TransactionVariableMapper variableMapper = new TransactionVariableMapper();
+        ReflectionTestUtils.setField(variableMapper, "mode", "flat");
+        ReflectionTestUtils.setField(variableMapper, "cardTokenSecret", "test-secret");
+        when(transactionStartService.newProcessInstanceId()).thenReturn("pi-1", "pi-2", "pi-3");
+        TransactionController controller = new TransactionController();
+        ReflectionTestUtils.setField(controller, "transactionStartService", transactionStartService);
+        ReflectionTestUtils.setField(controller, "asyncIntakeService", service);
+        ReflectionTestUtils.setField(controller, "variableMapper", variableMapper);
+        ReflectionTestUtils.setField(controller, "requestValidator", new RequestValidator());
+        ReflectionTestUtils.setField(controller, "transactionMetrics", TransactionMetrics.noop());
+        ReflectionTestUtils.setField(controller, "asyncRetryAfterSeconds", 3);
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+
+        mockMvc.perform(post("/transactions/async/process").contentType(MediaType.APPLICATION_JSON).content(PURCHASE))
+                .andExpect(status().isAccepted());
+        assertTrue(workerBusy.await(2, TimeUnit.SECONDS));
+        mockMvc.perform(post("/transactions/async/process").contentType(MediaType.APPLICATION_JSON).content(PURCHASE))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.statusUrl").value("/transactions/async/pi-2"));
+
+        mockMvc.perform(post("/transactions/async/process").contentType(MediaType.APPLICATION_JSON).content(PURCHASE))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "3"))
+                .andExpect(jsonPath("$.status").value("rejected"));
+        verify(transactionStartService, never()).start(eq("pi-3"), any());
+    }
+
+    @Test
+    void futureDatedPaymentIsScheduledInsteadOfQueued() throws Exception {
+        PaymentScheduler paymentScheduler = mock(PaymentScheduler.class);
+        IdempotencyService idempotencyService = mock(IdempotencyService.class);
+        when(paymentScheduler.accepts(any())).thenReturn(true);
+        when(transactionStartService.newProcessInstanceId()).thenReturn("schedule-1");
+        when(idempotencyService.startOnce(eq("payment"), eq("PAY-1"), eq("schedule-1"), eq("Payment"), any()))
+                .thenAnswer(invocation -> {
+                    invocation.<Runnable>getArgument(4).run();
+                    return new IdempotencyService.Result("schedule-1", IdempotencyService.STATUS_STARTED, false);
+                });
+        TransactionController controller = new TransactionController();
+        ReflectionTestUtils.setField(controller, "transactionStartService", transactionStartService);
+        ReflectionTestUtils.setField(controller, "asyncIntakeService", service);
+        ReflectionTestUtils.setField(controller, "paymentScheduler", paymentScheduler);
+        ReflectionTestUtils.setField(controller, "idempotencyService", idempotencyService);
+        ReflectionTestUtils.setField(controller, "requestValidator", new RequestValidator());
+        ReflectionTestUtils.setField(controller, "transactionMetrics", TransactionMetrics.noop());
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+
+        mockMvc.perform(post("/transactions/async/payment").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"transactionType\":\"Payment\",\"paymentAmount\":100.00,"
+                                + "\"scheduledDateTime\":\"2099-01-01T09:00:00\",\"paymentReference\":\"PAY-1\","
+                                + "\"customerAccount\":{\"accountNumber\":\"1111222233334444\","
+                                + "\"customerName\":\"Jane Doe\",\"accountStatus\":\"ACTIVE\"},"
+                                + "\"paymentMethod\":{\"bankDetails\":{\"bankName\":\"Test Bank\","
+                                + "\"routingNumber\":\"021000021\"}}}"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.status").value("scheduled"))
+                .andExpect(jsonPath("$.statusUrl").value("/transactions/schedules/schedule-1"));
+
+        verify(paymentScheduler).schedule(eq("schedule-1"), any());
+        assertNull(service.getStatus("schedule-1"));
+        verify(transactionStartService, never()).start(anyString(), any());
+    }
+
+    @Test
+    void oldestStatusesAreEvictedBeyondTheRetention() throws Exception {
+        engineReleased.countDown();
+        for (int i = 1; i <= 4; i++) {
+            assertTrue(service.submit("pi-" + i, "Purchase", Map.of()));
+            awaitCompleted("pi-" + i);
+        }
+
+        assertNull(service.getStatus("pi-1"));
+        assertNull(service.getStatus("pi-2"));
+        assertEquals(AsyncIntakeService.State.COMPLETED, service.getStatus("pi-3").getState());
+        assertEquals(AsyncIntakeService.State.COMPLETED, service.getStatus("pi-4").getState());
+    }
+
+    private void awaitCompleted(String processInstanceId) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (service.getStatus(processInstanceId).getState() != AsyncIntakeService.State.COMPLETED) {
+            assertTrue(System.nanoTime() < deadline, processInstanceId + " did not complete");
+            Thread.sleep(5);
+        }
+    }
+}
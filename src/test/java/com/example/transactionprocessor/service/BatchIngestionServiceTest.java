@@ -0,0 +1,154 @@
+package com.example.transactionprocessor.service;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class BatchIngestionServiceTest {
+
+    private static final String PURCHASE = "{\"transactionType\":\"Purchase\",\"amount\":250.75,\"currency\":\"USD\","
+            + "\"creditCardInfo\":{\"cardNumber\":\"4111111111111111\",\"holderName\":\"John Smith\"},"
+            + "\"billingAddress\":{\"city\":\"New York\"},\"vendorInfo\":{\"name\":\"Amazon\"},"
+            + "\"referenceNumber\":\"REF-0\"}";
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules()
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    private final TransactionStartService transactionStartService = mock(TransactionStartService.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final PaymentScheduler paymentScheduler = mock(PaymentScheduler.class);
+    private final ByteArrayOutputStream results = new ByteArrayOutputStream();
+    private final Map<String, Integer> resultLinesAtStart = new ConcurrentHashMap<>();
+    private final BatchIngestionService service = new BatchIngestionService();
+
+    @BeforeEach
+    void setUp() {
+        TransactionVariableMapper variableMapper = new TransactionVariableMapper();
+        ReflectionTestUtils.setField(variableMapper, "mode", "flat");
+        ReflectionTestUtils.setField(variableMapper, "cardTokenSecret", "test-secret");
+        when(transactionStartService.newProcessInstanceId()).thenReturn("pi-0", "pi-1", "pi-2", "pi-3", "pi-4");
+        doAnswer(invocation -> {
+            String processInstanceId = invocation.getArgument(0);
+            resultLinesAtStart.putIfAbsent(processInstanceId, lines().size());
+            if (processInstanceId.equals("pi-2")) {
+                throw new IllegalStateException("engine unavailable");
+            }
+            return null;
+        }).when(transactionStartService).start(anyString(), any());
+
+        ReflectionTestUtils.setField(service, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(service, "variableMapper", variableMapper);
+        ReflectionTestUtils.setField(service, "transactionStartService", transactionStartService);
+        ReflectionTestUtils.setField(service, "requestValidator", new RequestValidator());
+        ReflectionTestUtils.setField(service, "transactionManager", transactionManager);
+        ReflectionTestUtils.setField(service, "paymentScheduler", paymentScheduler);
+        ReflectionTestUtils.setField(service, "commitSize", 2);
+    }
+
+    @Test
+    void itemsAreStartedAndAnsweredOneCommittedChunkAtATime() throws Exception {
+        BatchIngestionService.BatchSummary summary = service.process(ndjson(5), results);
+
+        assertEquals(4, summary.getSucceeded());
+        assertEquals(1, summary.getFailed());
+        // Results of a chunk are written before the next chunk is started
+        assertEquals(0, resultLinesAtStart.get("pi-1"));
+        assertEquals(2, resultLinesAtStart.get("pi-2"));
+        assertEquals(4, resultLinesAtStart.get("pi-4"));
+
+        List<JsonNode> lines = lines();
+        assertEquals(5, lines.size());
+        for (int i = 0; i < 5; i++) {
+            assertEquals(i, lines.get(i).get("index").asInt());
+            assertEquals("REF-" + i, lines.get(i).get("reference").asText());
+        }
+        assertEquals("success", lines.get(3).get("status").asText());
+        assertEquals("pi-3", lines.get(3).get("processInstanceId").asText());
+    }
+
+    @Test
+    void failingChunkIsReplayedItemByItem() throws Exception {
+        service.process(ndjson(5), results);
+
+        // Chunk [0,1] commits; [2,3] rolls back at 2 and is replayed, committing 3 alone; [4] commits
+        verify(transactionManager, times(5)).getTransaction(any());
+        verify(transactionManager, times(3)).commit(any());
+        verify(transactionManager, times(2)).rollback(any());
+        verify(transactionStartService, times(2)).start(eq("pi-2"), any());
+        verify(transactionStartService, times(1)).start(eq("pi-3"), any());
+
+        JsonNode failed = lines().get(2);
+        assertEquals("error", failed.get("status").asText());
+        assertEquals("Error processing transaction: engine unavailable", failed.get("message").asText());
+        assertFalse(failed.has("processInstanceId"));
+    }
+
+    @Test
+    void invalidItemsAreAnsweredWithoutBeingStarted() throws Exception {
+        String body = "[" + PURCHASE + "," + PURCHASE.replace("\"amount\":250.75,", "") + "]";
+
+        BatchIngestionService.BatchSummary summary = service.process(
+                new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), results);
+
+        assertEquals(1, summary.getSucceeded());
+        assertEquals(1, summary.getFailed());
+        assertEquals("Invalid request: amount is required", lines().get(1).get("message").asText());
+        verify(transactionStartService, times(1)).start(anyString(), any());
+    }
+
+    @Test
+    void recurringPaymentIsScheduledInsteadOfStarted() throws Exception {
+        when(paymentScheduler.accepts(any())).thenReturn(true);
+        String payment = "{\"transactionType\":\"Payment\",\"paymentAmount\":100.00,\"isRecurring\":true,"
+                + "\"recurringFrequency\":\"MONTHLY\",\"paymentReference\":\"PAY-1\","
+                + "\"customerAccount\":{\"accountNumber\":\"1111222233334444\",\"customerName\":\"Jane Doe\","
+                + "\"accountStatus\":\"ACTIVE\"},"
+                + "\"paymentMethod\":{\"bankDetails\":{\"bankName\":\"Test Bank\",\"routingNumber\":\"021000021\"}}}";
+
+        BatchIngestionService.BatchSummary summary = service.process(
+                new ByteArrayInputStream(payment.getBytes(StandardCharsets.UTF_8)), results);
+
+        assertEquals(1, summary.getSucceeded());
+        verify(paymentScheduler).schedule(eq("pi-0"), any());
+        verify(transactionStartService, never()).start(anyString(), any());
+        JsonNode line = lines().get(0);
+        assertEquals("scheduled", line.get("status").asText());
+        assertEquals("pi-0", line.get("scheduleId").asText());
+        assertEquals("PAY-1", line.get("reference").asText());
+    }
+
+    private static ByteArrayInputStream ndjson(int items) {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < items; i++) {
+            body.append(PURCHASE.replace("REF-0", "REF-" + i)).append('\n');
+        }
+        return new ByteArrayInputStream(body.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private List<JsonNode> lines() throws Exception {
+        List<JsonNode> lines = new ArrayList<>();
+        for (String line : results.toString(StandardCharsets.UTF_8).split("\n")) {
+            if (!line.isEmpty()) {
+                lines.add(objectMapper.readTree(line));
+            }
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,225 @@
+package com.example.transactionprocessor.service;
+
+import com.example.transactionprocessor.metrics.TransactionMetrics;
+import com.example.transactionprocessor.model.IdempotencyRecord;
+import com.example.transactionprocessor.model.TransactionOutcome;
+import com.example.transactionprocessor.repository.IdempotencyRecordRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyServiceTest {
+
+    @Mock
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private TransactionOutcomeIndex transactionOutcomeIndex;
+
+    @InjectMocks
+    private IdempotencyService idempotencyService;
+
+    private SimpleMeterRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        ReflectionTestUtils.setField(idempotencyService, "transactionMetrics", new TransactionMetrics(registry));
+        ReflectionTestUtils.setField(idempotencyService, "enabled", true);
+        ReflectionTestUtils.setField(idempotencyService, "ttlSeconds", 3600L);
+        ReflectionTestUtils.setField(idempotencyService, "maxEntries", 100);
+        ReflectionTestUtils.invokeMethod(idempotencyService, "init");
+    }
+
+    @Test
+    void retryReturnsOriginalInstanceWithoutStartingAgain() {
+        AtomicInteger starts = new AtomicInteger();
+
+        IdempotencyService.Result first = idempotencyService.startOnce("process", "REF1", "pi-1", "Purchase",
+                starts::incrementAndGet);
+        IdempotencyService.Result retry = idempotencyService.startOnce("process", "REF1", "pi-2", "Purchase",
+                starts::incrementAndGet);
+
+        assertEquals(1, starts.get());
+        assertFalse(first.isDuplicate());
+        assertTrue(retry.isDuplicate());
+        assertEquals("pi-1", retry.getProcessInstanceId());
+        assertEquals(IdempotencyService.STATUS_STARTED, retry.getStatus());
+        verify(idempotencyRecordRepository, times(1)).saveAndFlush(any(IdempotencyRecord.class));
+        assertEquals(1, registry.counter(TransactionMetrics.IDEMPOTENCY_DUPLICATES, "source", "cache").count());
+    }
+
+    @Test
+    void duplicateIsAnsweredWithTheOutcomeOnceTheTransactionHasOne() {
+        idempotencyService.startOnce("process", "REF1", "pi-1", "Purchase", () -> { });
+        verify(idempotencyRecordRepository).saveAndFlush(argThat(record ->
+                IdempotencyService.STATUS_STARTED.equals(record.getStatus())));
+
+        assertEquals(IdempotencyService.STATUS_STARTED,
+                idempotencyService.startOnce("process", "REF1", "pi-2", "Purchase", () -> { }).getStatus());
+
+        TransactionOutcome outcome = mock(TransactionOutcome.class);
+        when(outcome.getStatus()).thenReturn(TransactionOutcome.STATUS_COMPLETED);
+        when(transactionOutcomeIndex.find("pi-1")).thenReturn(Optional.of(outcome));
+        assertEquals(TransactionOutcome.STATUS_COMPLETED,
+                idempotencyService.startOnce("process", "REF1", "pi-3", "Purchase", () -> { }).getStatus());
+    }
+
+    @Test
+    void referencesAreScopedPerEndpoint() {
+        AtomicInteger starts = new AtomicInteger();
+
+        idempotencyService.startOnce("process", "REF1", "pi-1", "Purchase", starts::incrementAndGet);
+        IdempotencyService.Result payment = idempotencyService.startOnce("payment", "REF1", "pi-2", "Payment",
+                starts::incrementAndGet);
+
+        assertEquals(2, starts.get());
+        assertFalse(payment.isDuplicate());
+    }
+
+    @Test
+    void concurrentDuplicatesShareOneStart() throws Exception {
+        AtomicInteger starts = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        int clients = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        try {
+            List<Future<IdempotencyService.Result>> results = new ArrayList<>();
+            for (int i = 0; i < clients; i++) {
+                String processInstanceId = "pi-" + i;
+                results.add(executor.submit(() -> idempotencyService.startOnce("payment", "PAY1", processInstanceId,
+                        "Payment", () -> {
+                            starts.incrementAndGet();
+                            awaitQuietly(release);
+                        })));
+            }
+            // Let the other clients reach the in-flight start before it completes
+            Thread.sleep(200);
+            release.countDown();
+
+            String original = null;
+            int duplicates = 0;
+            for (Future<IdempotencyService.Result> result : results) {
+                IdempotencyService.Result value = result.get(5, TimeUnit.SECONDS);
+                if (original == null) {
+                    original = value.getProcessInstanceId();
+                }
+                assertEquals(original, value.getProcessInstanceId());
+                duplicates += value.isDuplicate() ? 1 : 0;
+            }
+            assertEquals(1, starts.get());
+            assertEquals(clients - 1, duplicates);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void recordedReferenceIsAnsweredFromTheTable() {
+        when(idempotencyRecordRepository.findById("process:REF1")).thenReturn(Optional.of(
+                new IdempotencyRecord("process:REF1", "pi-original", "Purchase", "COMPLETED", Instant.now())));
+
+        IdempotencyService.Result result = idempotencyService.startOnce("process", "REF1", "pi-2", "Purchase",
+                () -> fail("must not start"));
+
+        assertTrue(result.isDuplicate());
+        assertEquals("pi-original", result.getProcessInstanceId());
+        verify(idempotencyRecordRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    void concurrentClaimOnAnotherInstanceReturnsItsRecord() {
+        when(idempotencyRecordRepository.findById("process:REF1")).thenReturn(Optional.empty())
+                .thenReturn(Optional.of(new IdempotencyRecord("process:REF1", "pi-elsewhere", "Purchase", "COMPLETED",
+                        Instant.now())));
+        when(idempotencyRecordRepository.saveAndFlush(any())).thenThrow(new DataIntegrityViolationException("duplicate key"));
+
+        IdempotencyService.Result result = idempotencyService.startOnce("process", "REF1", "pi-2", "Purchase",
+                () -> fail("must not start"));
+
+        assertTrue(result.isDuplicate());
+        assertEquals("pi-elsewhere", result.getProcessInstanceId());
+    }
+
+    @Test
+    void failedStartCanBeRetried() {
+        assertThrows(IllegalStateException.class, () -> idempotencyService.startOnce("process", "REF1", "pi-1",
+                "Purchase", () -> {
+                    throw new IllegalStateException("authorization failed");
+                }));
+
+        IdempotencyService.Result retry = idempotencyService.startOnce("process", "REF1", "pi-2", "Purchase", () -> {});
+
+        assertFalse(retry.isDuplicate());
+        assertEquals("pi-2", retry.getProcessInstanceId());
+    }
+
+    @Test
+    void cacheIsBounded() {
+        ReflectionTestUtils.setField(idempotencyService, "maxEntries", 10);
+        for (int i = 0; i < 50; i++) {
+            idempotencyService.startOnce("process", "REF" + i, "pi-" + i, "Purchase", () -> {});
+        }
+        assertEquals(10, idempotencyService.getCacheSize());
+    }
+
+    @Test
+    void expiredEntriesFallBackToTheTable() {
+        ReflectionTestUtils.setField(idempotencyService, "ttlSeconds", 0L);
+        idempotencyService.startOnce("process", "REF1", "pi-1", "Purchase", () -> {});
+        when(idempotencyRecordRepository.findById("process:REF1")).thenReturn(Optional.of(
+                new IdempotencyRecord("process:REF1", "pi-1", "Purchase", "COMPLETED", Instant.now())));
+
+        IdempotencyService.Result retry = idempotencyService.startOnce("process", "REF1", "pi-2", "Purchase",
+                () -> fail("must not start"));
+
+        assertTrue(retry.isDuplicate());
+        assertEquals("pi-1", retry.getProcessInstanceId());
+        assertEquals(1, registry.counter(TransactionMetrics.IDEMPOTENCY_DUPLICATES, "source", "database").count());
+    }
+
+    @Test
+    void requestsWithoutReferenceAlwaysStart() {
+        AtomicInteger starts = new AtomicInteger();
+
+        idempotencyService.startOnce("process", null, "pi-1", "Purchase", starts::incrementAndGet);
+        idempotencyService.startOnce("process", " ", "pi-2", "Purchase", starts::incrementAndGet);
+
+        assertEquals(2, starts.get());
+        verifyNoInteractions(idempotencyRecordRepository);
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package com.example.transactionprocessor.service;
+
+import com.example.transactionprocessor.metrics.TransactionMetrics;
+import com.example.transactionprocessor.model.BankDetails;
+import com.example.transactionprocessor.model.CustomerAccount;
+import com.example.transactionprocessor.model.PaymentMethod;
+import com.example.transactionprocessor.model.PaymentTransactionRequest;
+import com.example.transactionprocessor.model.ScheduledPayment;
+import com.example.transactionprocessor.repository.ScheduledPaymentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class PaymentSchedulerTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2027, 1, 31, 9, 0);
+
+    private final SimulatedClock clock = new SimulatedClock(START.toInstant(ZoneOffset.UTC));
+    private final Map<String, ScheduledPayment> table = new HashMap<>();
+    private final Map<String, Map<String, Object>> started = new HashMap<>();
+    private final ScheduledPaymentRepository repository = mock(ScheduledPaymentRepository.class);
+    private final TransactionStartService transactionStartService = mock(TransactionStartService.class);
+
+    private PaymentScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        when(repository.save(any())).thenAnswer(invocation -> {
+            ScheduledPayment scheduledPayment = invocation.getArgument(0);
+            table.put(scheduledPayment.getScheduleId(), scheduledPayment);
+            return scheduledPayment;
+        });
+        when(repository.findById(anyString())).thenAnswer(invocation ->
+                Optional.ofNullable(table.get((String) invocation.getArgument(0))));
+        when(repository.findDue(any(), any(), any())).thenAnswer(invocation -> {
+            String status = invocation.getArgument(0);
+            Instant now = invocation.getArgument(1);
+            Pageable page = invocation.getArgument(2);
+            return table.values().stream()
+                    .filter(p -> p.getStatus().equals(status) && !p.getDueAt().isAfter(now))
+                    .sorted(Comparator.comparing(ScheduledPayment::getDueAt))
+                    .limit(page.getPageSize())
+                    .collect(Collectors.toCollection(ArrayList::new));
+        });
+        doAnswer(invocation -> started.put(invocation.getArgument(0), invocation.getArgument(1)))
+                .when(transactionStartService).start(anyString(), any());
+
+        TransactionVariableMapper variableMapper = new TransactionVariableMapper();
+        ReflectionTestUtils.setField(variableMapper, "mode", "flat");
+        ReflectionTestUtils.setField(variableMapper, "cardTokenSecret", "test-secret");
+
+        scheduler = new PaymentScheduler();
+        ReflectionTestUtils.setField(scheduler, "scheduledPaymentRepository", repository);
+        ReflectionTestUtils.setField(scheduler, "transactionStartService", transactionStartService);
+        ReflectionTestUtils.setField(scheduler, "variableMapper", variableMapper);
+        ReflectionTestUtils.setField(scheduler, "transactionManager", mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(scheduler, "transactionMetrics", TransactionMetrics.noop());
+        ReflectionTestUtils.setField(scheduler, "enabled", false);
+        ReflectionTestUtils.setField(scheduler, "batchSize", 2);
+        ReflectionTestUtils.setField(scheduler, "maxAttempts", 3);
+        ReflectionTestUtils.setField(scheduler, "retryDelayMillis", 60_000L);
+        ReflectionTestUtils.setField(scheduler, "clock", clock);
+        ReflectionTestUtils.invokeMethod(scheduler, "init");
+    }
+
+    @Test
+    void futurePaymentIsStartedOnceWhenDue() {
+        PaymentTransactionRequest request = payment("PAY-1", START.plusHours(2), false, null);
+        assertTrue(scheduler.accepts(request));
+        scheduler.schedule("S1", request);
+
+        assertEquals(0, scheduler.releaseDue());
+        clock.advance(Duration.ofHours(2));
+        assertEquals(1, scheduler.releaseDue());
+        clock.advance(Duration.ofDays(30));
+        assertEquals(0, scheduler.releaseDue());
+
+        Map<String, Object> variables = started.get(id("S1", 1));
+        assertEquals(new BigDecimal("150.00"), variables.get("paymentAmount"));
+        assertEquals("S1", variables.get("scheduleId"));
+        ScheduledPayment scheduledPayment = table.get("S1");
+        assertEquals(ScheduledPayment.STATUS_COMPLETED, scheduledPayment.getStatus());
+        assertEquals(id("S1", 1), scheduledPayment.getLastProcessInstanceId());
+        assertNull(scheduledPayment.getDueAt());
+    }
+
+    @Test
+    void paymentDueNowOrInThePastIsNotScheduled() {
+        assertFalse(scheduler.accepts(payment("PAY-2", null, false, null)));
+        assertFalse(scheduler.accepts(payment("PAY-2", START.minusMinutes(1), false, null)));
+        assertTrue(scheduler.accepts(payment("PAY-2", null, true, "WEEKLY")));
+    }
+
+    @Test
+    void monthlyPaymentKeepsItsDayOfMonth() {
+        scheduler.schedule("S2", payment("PAY-3", null, true, "monthly"));
+
+        assertEquals(1, scheduler.releaseDue());
+        assertEquals(utc(2027, 2, 28), table.get("S2").getDueAt());
+
+        clock.set(utc(2027, 2, 28));
+        assertEquals(1, scheduler.releaseDue());
+        assertEquals(utc(2027, 3, 31), table.get("S2").getDueAt());
+        assertEquals(Set.of(id("S2", 1), id("S2", 2)), started.keySet());
+        assertEquals(ScheduledPayment.STATUS_SCHEDULED, table.get("S2").getStatus());
+    }
+
+    @Test
+    void recurringPaymentStartedInThePastRecursFromNow() {
+        scheduler.schedule("S9", payment("PAY-10", START.minusMonths(6), true, "WEEKLY"));
+
+        assertEquals(1, scheduler.releaseDue());
+        assertEquals(START.plusWeeks(1).toInstant(ZoneOffset.UTC), table.get("S9").getDueAt());
+    }
+
+    @Test
+    void missedOccurrencesAreStartedInBatchesOnThePoll() {
+        scheduler.schedule("S3", payment("PAY-4", START.plusMinutes(1), true, "WEEKLY"));
+        scheduler.schedule("S4", payment("PAY-5", START.plusMinutes(2), false, null));
+
+        // Down for three weeks: S3 owes four weekly occurrences, S4 its only one
+        clock.advance(Duration.ofDays(21).plusMinutes(5));
+        assertEquals(5, scheduler.releaseDue());
+
+        assertEquals(4, table.get("S3").getOccurrences());
+        assertEquals(START.plusMinutes(1).plusWeeks(4).toInstant(ZoneOffset.UTC), table.get("S3").getDueAt());
+        assertTrue(started.containsKey(id("S4", 1)));
+        // 2 + 1 + 1 + 1 started, then an empty read
+        verify(repository, times(5)).findDue(any(), any(), any());
+    }
+
+    @Test
+    void paymentThatFailsToStartIsRetriedWithoutHoldingUpOthers() {
+        scheduler.schedule("S5", payment("PAY-6", START.plusMinutes(1), false, null));
+        scheduler.schedule("S6", payment("PAY-7", START.plusMinutes(2), false, null));
+        doThrow(new IllegalStateException("engine unavailable"))
+                .when(transactionStartService).start(eq(id("S5", 1)), any());
+
+        clock.advance(Duration.ofMinutes(5));
+        assertEquals(1, scheduler.releaseDue());
+
+        assertEquals(ScheduledPayment.STATUS_SCHEDULED, table.get("S5").getStatus());
+        assertEquals(1, table.get("S5").getFailedAttempts());
+        assertEquals(clock.instant().plusSeconds(60), table.get("S5").getDueAt());
+        assertEquals(ScheduledPayment.STATUS_COMPLETED, table.get("S6").getStatus());
+        assertTrue(started.containsKey(id("S6", 1)));
+
+        // The second failure waits twice as long, the third is the last attempt
+        clock.advance(Duration.ofMinutes(1));
+        assertEquals(0, scheduler.releaseDue());
+        assertEquals(clock.instant().plusSeconds(120), table.get("S5").getDueAt());
+        clock.advance(Duration.ofMinutes(2));
+        assertEquals(0, scheduler.releaseDue());
+        assertEquals(ScheduledPayment.STATUS_FAILED, table.get("S5").getStatus());
+    }
+
+    @Test
+    void retriedPaymentStartsOnceTheFailureClears() {
+        scheduler.schedule("S9", payment("PAY-10", START.plusMinutes(1), true, "WEEKLY"));
+        // Fails in the batch and in the replay of the first poll
+        IllegalStateException unavailable = new IllegalStateException("engine unavailable");
+        doThrow(unavailable).doThrow(unavailable).doNothing()
+                .when(transactionStartService).start(eq(id("S9", 1)), any());
+
+        clock.advance(Duration.ofMinutes(5));
+        assertEquals(0, scheduler.releaseDue());
+        clock.advance(Duration.ofMinutes(1));
+        assertEquals(1, scheduler.releaseDue());
+
+        assertEquals(0, table.get("S9").getFailedAttempts());
+        assertEquals(START.plusMinutes(1).plusWeeks(1).toInstant(ZoneOffset.UTC), table.get("S9").getDueAt());
+    }
+
+    @Test
+    void invalidPaymentFailsItsScheduleWithoutRetrying() {
+        scheduler.schedule("S10", payment("PAY-11", START.plusMinutes(1), false, null));
+        doThrow(new IllegalArgumentException("Payment validation failed"))
+                .when(transactionStartService).start(eq(id("S10", 1)), any());
+
+        clock.advance(Duration.ofMinutes(5));
+        assertEquals(0, scheduler.releaseDue());
+
+        assertEquals(ScheduledPayment.STATUS_FAILED, table.get("S10").getStatus());
+    }
+
+    @Test
+    void cancelledScheduleStartsNothingMore() {
+        scheduler.schedule("S7", payment("PAY-8", null, true, "QUARTERLY"));
+        assertEquals(1, scheduler.releaseDue());
+
+        scheduler.cancel("S7");
+        clock.advance(Duration.ofDays(366));
+
+        assertEquals(0, scheduler.releaseDue());
+        assertEquals(ScheduledPayment.STATUS_CANCELLED, table.get("S7").getStatus());
+    }
+
+    @Test
+    void unknownFrequencyIsRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> scheduler.schedule("S8", payment("PAY-9", null, true, "DAILY")));
+        assertTrue(table.isEmpty());
+    }
+
+    private static String id(String scheduleId, int occurrence) {
+        return PaymentScheduler.occurrenceId(scheduleId, occurrence);
+    }
+
+    private static Instant utc(int year, int month, int day) {
+        return LocalDateTime.of(year, month, day, 9, 0).toInstant(ZoneOffset.UTC);
+    }
+
+    private static PaymentTransactionRequest payment(String reference, LocalDateTime scheduledDateTime,
+                                                     boolean recurring, String frequency) {
+        PaymentTransactionRequest request = new PaymentTransactionRequest();
+        request.setPaymentAmount(new BigDecimal("150.00"));
+        request.setCurrency("USD");
+        request.setScheduledDateTime(scheduledDateTime);
+        request.setRecurring(recurring);
+        request.setRecurringFrequency(frequency);
+        request.setPaymentReference(reference);
+        CustomerAccount account = new CustomerAccount();
+        account.setAccountNumber("ACC-1001");
+        request.setCustomerAccount(account);
+        PaymentMethod method = new PaymentMethod();
+        BankDetails bankDetails = new BankDetails();
+        bankDetails.setAccountNumber("123456789");
+        method.setBankDetails(bankDetails);
+        request.setPaymentMethod(method);
+        return request;
+    }
+
+    private static final class SimulatedClock extends Clock {
+
+        private Instant now;
+
+        private SimulatedClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        void set(Instant instant) {
+            now = instant;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.transactionprocessor.service;
+
+import com.example.transactionprocessor.model.Address;
+import com.example.transactionprocessor.model.BankDetails;
+import com.example.transactionprocessor.model.CreditCardInfo;
+import com.example.transactionprocessor.model.CustomerAccount;
+import com.example.transactionprocessor.model.PaymentMethod;
+import com.example.transactionprocessor.model.PaymentTransactionRequest;
+import com.example.transactionprocessor.model.TransactionRequest;
+import com.example.transactionprocessor.model.VendorInfo;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestValidatorTest {
+
+    private final RequestValidator validator = new RequestValidator();
+
+    @Test
+    void validRequestsHaveNoViolations() {
+        assertTrue(validator.validate(purchase()).isEmpty());
+        assertTrue(validator.validate(payment()).isEmpty());
+
+        TransactionRequest refund = purchase();
+        refund.setTransactionType("Adjustment");
+        refund.setAmount(new BigDecimal("-25.00"));
+        assertTrue(validator.validate(refund).isEmpty());
+    }
+
+    @Test
+    void transactionViolationsAreCollectedInOnePass() {
+        TransactionRequest request = purchase();
+        request.setTransactionType("Payment");
+        request.setAmount(BigDecimal.ZERO);
+        request.getCreditCardInfo().setHolderName(" ");
+        request.setVendorInfo(null);
+
+        List<RequestValidator.Violation> violations = validator.validate(request);
+
+        assertEquals(List.of("transactionType", "amount", "creditCardInfo.holderName", "vendorInfo"), fields(violations));
+        assertEquals("amount must be positive", violations.get(1).toString());
+    }
+
+    @Test
+    void missingNestedObjectsAreViolationsRatherThanFailures() {
+        List<RequestValidator.Violation> violations = validator.validate(new TransactionRequest());
+
+        assertEquals(List.of("transactionType", "amount", "creditCardInfo", "billingAddress", "vendorInfo"),
+                fields(violations));
+        assertEquals(List.of("paymentAmount", "customerAccount", "paymentMethod"),
+                fields(validator.validate(new PaymentTransactionRequest())));
+    }
+
+    @Test
+    void paymentsAreHeldToThePaymentValidationRules() {
+        PaymentTransactionRequest request = payment();
+        request.getCustomerAccount().setAccountStatus("SUSPENDED");
+        request.getPaymentMethod().getBankDetails().setRoutingNumber("12345678X");
+        request.setRecurring(true);
+        request.setRecurringFrequency("DAILY");
+
+        List<RequestValidator.Violation> violations = validator.validate(request);
+
+        assertEquals(List.of("recurringFrequency", "customerAccount.accountStatus",
+                "paymentMethod.bankDetails.routingNumber"), fields(violations));
+        assertEquals("recurringFrequency must be WEEKLY, MONTHLY or QUARTERLY, "
+                        + "customerAccount.accountStatus must be ACTIVE, "
+                        + "paymentMethod.bankDetails.routingNumber must be 9 digits",
+                RequestValidator.describe(violations));
+    }
+
+    @Test
+    void onlyTypesTheDecisionRoutesAreAcceptedAsTheyAreSpelled() {
+        TransactionRequest request = purchase();
+        request.setTransactionType("purchase");
+        assertEquals(List.of("transactionType"), fields(validator.validate(request)));
+
+        validator.onDecisionDeployed(Set.of("Purchase", "Refund"));
+        request.setTransactionType("Refund");
+        assertTrue(validator.validate(request).isEmpty());
+        request.setTransactionType("Adjustment");
+        assertEquals(List.of("transactionType"), fields(validator.validate(request)));
+
+        validator.onDecisionDeployed(null);
+        request.setTransactionType("anything");
+        assertTrue(validator.validate(request).isEmpty());
+    }
+
+    @Test
+    void paymentsMustBePaymentsOfAnAccountWithBoundedReferences() {
+        PaymentTransactionRequest request = payment();
+        request.setTransactionType("Purchase");
+        request.getCustomerAccount().setAccountNumber(null);
+        request.setPaymentReference("P".repeat(65));
+
+        assertEquals(List.of("transactionType", "paymentReference", "customerAccount.accountNumber"),
+                fields(validator.validate(request)));
+
+        TransactionRequest purchase = purchase();
+        purchase.setReferenceNumber("R".repeat(64));
+        assertTrue(validator.validate(purchase).isEmpty());
+        purchase.setReferenceNumber("R".repeat(65));
+        assertEquals(List.of("referenceNumber"), fields(validator.validate(purchase)));
+    }
+
+    private static List<String> fields(List<RequestValidator.Violation> violations) {
+        return violations.stream().map(RequestValidator.Violation::getField).collect(Collectors.toList());
+    }
+
+    private static TransactionRequest purchase() {
+        TransactionRequest request = new TransactionRequest();
+        request.setTransactionType("Purchase");
+        request.setAmount(new BigDecimal("125.50"));
+        request.setCurrency("USD");
+        CreditCardInfo creditCardInfo = new CreditCardInfo();
+        creditCardInfo.setCardNumber("4111111111111111");
+        creditCardInfo.setHolderName("John Smith");
+        request.setCreditCardInfo(creditCardInfo);
+        request.setBillingAddress(new Address());
+        request.setVendorInfo(new VendorInfo());
+        request.setReferenceNumber("REF-1");
+        return request;
+    }
+
+    private static PaymentTransactionRequest payment() {
+        PaymentTransactionRequest request = new PaymentTransactionRequest();
+        request.setPaymentAmount(new BigDecimal("150.00"));
+        request.setCurrency("USD");
+        request.setPaymentReference("PAY-1");
+        CustomerAccount account = new CustomerAccount();
+        account.setAccountNumber("ACC-1001");
+        account.setCustomerName("Jane Doe");
+        account.setAccountStatus("ACTIVE");
+        request.setCustomerAccount(account);
+        PaymentMethod method = new PaymentMethod();
+        BankDetails bankDetails = new BankDetails();
+        bankDetails.setBankName("First Bank");
+        bankDetails.setRoutingNumber("021000021");
+        method.setBankDetails(bankDetails);
+        request.setPaymentMethod(method);
+        return request;
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.transactionprocessor.service;
+
+import com.example.transactionprocessor.delegate.TaskRouterDelegate;
+import com.example.transactionprocessor.engine.RoutingDecisionEvaluator;
+import com.example.transactionprocessor.ledger.AccountLedger;
+import com.example.transactionprocessor.model.TransactionOutcome;
+import org.camunda.bpm.engine.delegate.DelegateExecution;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StraightThroughExecutorTest {
+
+    @Mock
+    private RoutingDecisionEvaluator routingDecisionEvaluator;
+
+    @Mock
+    private TaskRouterDelegate taskRouterDelegate;
+
+    @Mock
+    private TransactionOutcomeIndex transactionOutcomeIndex;
+
+    @Spy
+    private PlatformTransactionManager transactionManager = new AbstractPlatformTransactionManager() {
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+    };
+
+    @InjectMocks
+    private StraightThroughExecutor straightThroughExecutor;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.invokeMethod(straightThroughExecutor, "init");
+        ReflectionTestUtils.setField(straightThroughExecutor, "enabled", true);
+        ReflectionTestUtils.setField(straightThroughExecutor, "transactionTypes", Set.of("Purchase", "Payment"));
+    }
+
+    @Test
+    void onlyConfiguredTypesAreAccepted() {
+        when(routingDecisionEvaluator.isReady()).thenReturn(true);
+
+        assertTrue(straightThroughExecutor.accepts("Purchase"));
+        assertFalse(straightThroughExecutor.accepts("Adjustment"));
+    }
+
+    @Test
+    void runsTaskFlowInMemoryAndRecordsOneOutcome() throws Exception {
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("transactionType", "Purchase");
+        variables.put("referenceNumber", "REF123456789");
+        when(routingDecisionEvaluator.evaluate(variables)).thenReturn("authorize,settle");
+        doAnswer(invocation -> {
+            DelegateExecution execution = invocation.getArgument(0);
+            assertEquals("authorize,settle", execution.getVariable("dmnResult"));
+            assertEquals("tx-1", execution.getProcessInstanceId());
+            execution.setVariable("authorizationCode", "AUTH1");
+            return null;
+        }).when(taskRouterDelegate).execute(any(DelegateExecution.class));
+
+        straightThroughExecutor.execute("tx-1", variables);
+
+        ArgumentCaptor<TransactionOutcome> outcome = ArgumentCaptor.forClass(TransactionOutcome.class);
+        verify(transactionOutcomeIndex).record(outcome.capture());
+        assertEquals("tx-1", outcome.getValue().getProcessInstanceId());
+        assertEquals("REF123456789", outcome.getValue().getReference());
+        assertEquals(TransactionOutcome.MODE_STRAIGHT_THROUGH, outcome.getValue().getExecutionMode());
+        assertEquals("authorizationCode=AUTH1", outcome.getValue().getOutcome());
+    }
+
+    @Test
+    void failingDelegateRecordsNothing() throws Exception {
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("transactionType", "Payment");
+        when(routingDecisionEvaluator.evaluate(variables)).thenReturn("validate,post");
+        doThrow(new RuntimeException("Payment validation failed")).when(taskRouterDelegate).execute(any(DelegateExecution.class));
+
+        assertThrows(RuntimeException.class, () -> straightThroughExecutor.execute("tx-2", variables));
+        verifyNoInteractions(transactionOutcomeIndex);
+    }
+
+    @Test
+    void postingOfAFailedFlowIsReversed() throws Exception {
+        AccountLedger ledger = new AccountLedger();
+        ReflectionTestUtils.setField(ledger, "lockStripes", 4);
+        ReflectionTestUtils.invokeMethod(ledger, "init");
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("transactionType", "Payment");
+        when(routingDecisionEvaluator.evaluate(variables)).thenReturn("validate,post,settle");
+        doAnswer(invocation -> {
+            ledger.post("acct-1", 10_000, -2_500);
+            throw new IllegalStateException("Settlement unavailable");
+        }).when(taskRouterDelegate).execute(any(DelegateExecution.class));
+
+        assertThrows(IllegalStateException.class, () -> straightThroughExecutor.execute("tx-3", variables));
+
+        assertEquals(10_000, ledger.getBalance("acct-1"));
+        assertEquals(0, ledger.getPostingCount("acct-1"));
+    }
+
+    @Test
+    void postingIsReversedWhenTheOutcomeCannotBeRecorded() throws Exception {
+        AccountLedger ledger = new AccountLedger();
+        ReflectionTestUtils.setField(ledger, "lockStripes", 4);
+        ReflectionTestUtils.invokeMethod(ledger, "init");
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("transactionType", "Payment");
+        when(routingDecisionEvaluator.evaluate(variables)).thenReturn("validate,post");
+        doAnswer(invocation -> ledger.post("acct-1", 10_000, -2_500))
+                .when(taskRouterDelegate).execute(any(DelegateExecution.class));
+        doThrow(new IllegalStateException("Outcome table unavailable")).when(transactionOutcomeIndex).record(any());
+
+        assertThrows(IllegalStateException.class, () -> straightThroughExecutor.execute("tx-4", variables));
+
+        assertEquals(10_000, ledger.getBalance("acct-1"));
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.transactionprocessor.service;
+
+import com.example.transactionprocessor.metrics.TransactionMetrics;
+import com.example.transactionprocessor.model.TransactionOutcome;
+import com.example.transactionprocessor.repository.TransactionOutcomeRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionOutcomeIndexTest {
+
+    @Mock
+    private TransactionOutcomeRepository transactionOutcomeRepository;
+
+    @InjectMocks
+    private TransactionOutcomeIndex transactionOutcomeIndex;
+
+    private SimpleMeterRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        ReflectionTestUtils.setField(transactionOutcomeIndex, "transactionMetrics", new TransactionMetrics(registry));
+        ReflectionTestUtils.setField(transactionOutcomeIndex, "maxEntries", 3);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void recordedOutcomeIsServedFromMemory() {
+        TransactionOutcome outcome = outcome("pi-1", "REF1");
+
+        transactionOutcomeIndex.record(outcome);
+
+        assertSame(outcome, transactionOutcomeIndex.find("pi-1").orElseThrow());
+        verify(transactionOutcomeRepository).save(outcome);
+        verify(transactionOutcomeRepository, never()).findById(any());
+        assertEquals(1, lookups("memory"));
+    }
+
+    @Test
+    void outcomeIsIndexedOnlyAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionOutcome outcome = outcome("pi-1", "REF1");
+
+        transactionOutcomeIndex.record(outcome);
+        assertEquals(0, transactionOutcomeIndex.getSize());
+
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+        assertEquals(1, transactionOutcomeIndex.getSize());
+    }
+
+    @Test
+    void evictedOutcomeIsReadFromTheTable() {
+        for (int i = 1; i <= 4; i++) {
+            transactionOutcomeIndex.record(outcome("pi-" + i, "REF" + i));
+        }
+        assertEquals(3, transactionOutcomeIndex.getSize());
+        TransactionOutcome stored = outcome("pi-1", "REF1");
+        when(transactionOutcomeRepository.findById("pi-1")).thenReturn(Optional.of(stored));
+
+        assertSame(stored, transactionOutcomeIndex.find("pi-1").orElseThrow());
+        assertSame(stored, transactionOutcomeIndex.find("pi-1").orElseThrow());
+
+        verify(transactionOutcomeRepository, times(1)).findById("pi-1");
+        assertEquals(1, lookups("database"));
+        assertEquals(1, lookups("memory"));
+    }
+
+    @Test
+    void unknownTransactionIsAMiss() {
+        when(transactionOutcomeRepository.findById("pi-unknown")).thenReturn(Optional.empty());
+
+        assertTrue(transactionOutcomeIndex.find("pi-unknown").isEmpty());
+        assertEquals(1, lookups("miss"));
+    }
+
+    @Test
+    void referenceLookupIsLoadedOnceThenExtendedByNewOutcomes() {
+        TransactionOutcome first = outcome("pi-1", "REF1");
+        when(transactionOutcomeRepository.findByReferenceOrderByCreatedAtDesc("REF1")).thenReturn(List.of(first));
+
+        assertEquals(List.of(first), transactionOutcomeIndex.findByReference("REF1"));
+        TransactionOutcome second = outcome("pi-2", "REF1");
+        transactionOutcomeIndex.record(second);
+
+        assertEquals(List.of(second, first), transactionOutcomeIndex.findByReference("REF1"));
+        verify(transactionOutcomeRepository, times(1)).findByReferenceOrderByCreatedAtDesc("REF1");
+    }
+
+    @Test
+    void referenceEntryIsDroppedWhenOneOfItsOutcomesIsEvicted() {
+        TransactionOutcome first = outcome("pi-1", "REF1");
+        when(transactionOutcomeRepository.findByReferenceOrderByCreatedAtDesc("REF1")).thenReturn(List.of(first));
+        transactionOutcomeIndex.findByReference("REF1");
+
+        for (int i = 2; i <= 4; i++) {
+            transactionOutcomeIndex.record(outcome("pi-" + i, "REF" + i));
+        }
+        transactionOutcomeIndex.findByReference("REF1");
+
+        verify(transactionOutcomeRepository, times(2)).findByReferenceOrderByCreatedAtDesc("REF1");
+    }
+
+    private double lookups(String source) {
+        return registry.counter(TransactionMetrics.OUTCOME_LOOKUPS, "source", source).count();
+    }
+
+    private static TransactionOutcome outcome(String processInstanceId, String reference) {
+        return new TransactionOutcome(processInstanceId, "Purchase", reference, TransactionOutcome.STATUS_COMPLETED,
+                TransactionOutcome.MODE_BPMN, "authorize,settle", "authorizationCode=AUTH1", Instant.now(), 100);
+    }
+}
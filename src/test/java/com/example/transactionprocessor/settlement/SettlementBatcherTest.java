@@ -0,0 +1,228 @@
+package com.example.transactionprocessor.settlement;
+
+import com.example.transactionprocessor.metrics.TransactionMetrics;
+import com.example.transactionprocessor.model.SettlementEntry;
+import com.example.transactionprocessor.repository.SettlementEntryRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class SettlementBatcherTest {
+
+    private final SettlementEntryRepository repository = mock(SettlementEntryRepository.class);
+    private final RecordingGateway gateway = new RecordingGateway();
+    private final List<SettlementBatcher> batchers = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        batchers.forEach(batcher -> ReflectionTestUtils.invokeMethod(batcher, "shutdown"));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+    }
+
+    @Test
+    void fullBatchIsSubmittedWithoutWaitingForItsWindow() throws Exception {
+        SettlementBatcher batcher = batcher(3, 60_000, 5);
+        batcher.enqueue(entry("P1", "Vendor A", 1_000));
+        batcher.enqueue(entry("P2", "Vendor B", 2_000));
+        batcher.enqueue(entry("P3", "Vendor A", 3_000));
+        batcher.enqueue(entry("P4", "Vendor A", 4_000));
+
+        SettlementBatch batch = gateway.next();
+        assertEquals("Vendor A", batch.getDestination());
+        assertEquals(List.of("P1", "P3", "P4"), batch.getProcessInstanceIds());
+        assertEquals(8_000, batch.getTotalCents());
+        verify(repository, timeout(2_000)).complete(eq(List.of("P1", "P3", "P4")), eq(batch.getBatchId()),
+                eq(SettlementEntry.STATUS_SETTLED), any());
+        assertNull(gateway.submitted.poll(100, TimeUnit.MILLISECONDS));
+
+        batcher.closeExpired(Long.MAX_VALUE);
+        assertEquals(List.of("P2"), gateway.next().getProcessInstanceIds());
+    }
+
+    @Test
+    void openBatchIsSubmittedWhenItsWindowCloses() throws Exception {
+        SettlementBatcher batcher = batcher(500, 50, 5);
+        batcher.enqueue(entry("P1", "First Bank", 1_000));
+
+        SettlementBatch batch = gateway.next();
+        assertEquals(List.of("P1"), batch.getProcessInstanceIds());
+        verify(repository).assignBatch(List.of("P1"), batch.getBatchId());
+        verify(repository, timeout(2_000)).complete(eq(List.of("P1")), eq(batch.getBatchId()),
+                eq(SettlementEntry.STATUS_SETTLED), any());
+    }
+
+    @Test
+    void entryJoinsABatchOnlyOnceItsTransactionCommits() {
+        SettlementBatcher batcher = batcher(500, 60_000, 5);
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        SettlementEntry entry = entry("P1", "Vendor A", 1_000);
+
+        batcher.enqueue(entry);
+        verify(repository).save(entry);
+        assertEquals(0, batcher.getPendingCount());
+
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+        assertEquals(1, batcher.getPendingCount());
+
+        // Also found pending by startup recovery: still batched once
+        batcher.add(entry);
+        assertEquals(1, batcher.getPendingCount());
+    }
+
+    @Test
+    void entryEnqueuedOnAStageThreadIsWrittenWhenTheEngineTransactionCommits() {
+        SettlementBatcher batcher = batcher(500, 60_000, 5);
+        TransactionSynchronizationManager.initSynchronization();
+        SettlementEntry entry = entry("P1", "Vendor A", 1_000);
+
+        batcher.enqueue(entry);
+        verify(repository, never()).save(any());
+
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(synchronization -> synchronization.beforeCommit(false));
+        verify(repository).save(entry);
+        assertEquals(0, batcher.getPendingCount());
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+        assertEquals(1, batcher.getPendingCount());
+    }
+
+    @Test
+    void failedSubmissionIsRetriedUnderTheSameBatchId() throws Exception {
+        SettlementBatcher batcher = batcher(1, 60_000, 3);
+        gateway.failures.set(2);
+
+        batcher.enqueue(entry("P1", "Vendor A", 1_000));
+
+        SettlementBatch first = gateway.next();
+        assertSame(first, gateway.next());
+        assertSame(first, gateway.next());
+        verify(repository, timeout(2_000)).complete(eq(List.of("P1")), eq(first.getBatchId()),
+                eq(SettlementEntry.STATUS_SETTLED), any());
+        verify(repository, times(1)).assignBatch(any(), any());
+    }
+
+    @Test
+    void batchFailingEveryAttemptMarksItsEntriesFailed() throws Exception {
+        SettlementBatcher batcher = batcher(1, 60_000, 2);
+        gateway.failures.set(Integer.MAX_VALUE);
+
+        batcher.enqueue(entry("P1", "Vendor A", 1_000));
+
+        SettlementBatch batch = gateway.next();
+        gateway.next();
+        verify(repository, timeout(2_000)).complete(eq(List.of("P1")), eq(batch.getBatchId()),
+                eq(SettlementEntry.STATUS_FAILED), any());
+        assertEquals(0, batcher.getPendingCount());
+    }
+
+    @Test
+    void pendingEntriesAreResubmittedAfterARestart() throws Exception {
+        SettlementEntry assigned = entry("P1", "Vendor A", 1_000);
+        ReflectionTestUtils.setField(assigned, "batchId", "batch-1");
+        SettlementEntry unassigned = entry("P2", "Vendor A", 2_000);
+        when(repository.findByStatusAndOwner(SettlementEntry.STATUS_PENDING, "node-a"))
+                .thenReturn(List.of(assigned, unassigned));
+
+        SettlementBatcher batcher = batcher(500, 50, 5);
+
+        SettlementBatch resubmitted = gateway.next();
+        assertEquals("batch-1", resubmitted.getBatchId());
+        assertEquals(List.of("P1"), resubmitted.getProcessInstanceIds());
+        SettlementBatch fresh = gateway.next();
+        assertNotEquals("batch-1", fresh.getBatchId());
+        assertEquals(List.of("P2"), fresh.getProcessInstanceIds());
+        verify(repository, never()).assignBatch(any(), eq("batch-1"));
+    }
+
+    @Test
+    void onlyEntriesOwnedByThisNodeAreRecovered() throws Exception {
+        SettlementEntry adopted = entry("P1", "Vendor A", 1_000);
+        adopted.setOwner("node-a");
+        when(repository.findByStatusAndOwner(SettlementEntry.STATUS_PENDING, "node-a")).thenReturn(List.of(adopted));
+
+        SettlementBatcher batcher = batcher(500, 50, 5, Set.of("node-b"));
+
+        assertEquals(List.of("P1"), gateway.next().getProcessInstanceIds());
+        // node-b's entries are moved to this node before this node's entries are read
+        InOrder inOrder = inOrder(repository);
+        inOrder.verify(repository).adopt(SettlementEntry.STATUS_PENDING, Set.of("node-a", "node-b"), "node-a");
+        inOrder.verify(repository).findByStatusAndOwner(SettlementEntry.STATUS_PENDING, "node-a");
+        assertNull(gateway.submitted.poll(100, TimeUnit.MILLISECONDS));
+
+        SettlementEntry entry = entry("P2", "Vendor A", 2_000);
+        batcher.enqueue(entry);
+        assertEquals("node-a", entry.getOwner());
+    }
+
+    private SettlementBatcher batcher(int maxBatchSize, long windowMillis, int maxAttempts) {
+        return batcher(maxBatchSize, windowMillis, maxAttempts, Set.of());
+    }
+
+    private SettlementBatcher batcher(int maxBatchSize, long windowMillis, int maxAttempts, Set<String> adoptOwners) {
+        SettlementBatcher batcher = new SettlementBatcher();
+        ReflectionTestUtils.setField(batcher, "settlementGateway", gateway);
+        ReflectionTestUtils.setField(batcher, "settlementEntryRepository", repository);
+        ReflectionTestUtils.setField(batcher, "transactionManager", mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(batcher, "transactionMetrics", TransactionMetrics.noop());
+        ReflectionTestUtils.setField(batcher, "maxBatchSize", maxBatchSize);
+        ReflectionTestUtils.setField(batcher, "windowMillis", windowMillis);
+        ReflectionTestUtils.setField(batcher, "maxAttempts", maxAttempts);
+        ReflectionTestUtils.setField(batcher, "retryDelayMillis", 10L);
+        ReflectionTestUtils.setField(batcher, "nodeId", "node-a");
+        ReflectionTestUtils.setField(batcher, "adoptOwners", adoptOwners);
+        ReflectionTestUtils.invokeMethod(batcher, "init");
+        batchers.add(batcher);
+        return batcher;
+    }
+
+    private static SettlementEntry entry(String processInstanceId, String destination, long cents) {
+        return new SettlementEntry(processInstanceId, "Purchase", "REF-" + processInstanceId,
+                SettlementEntry.DESTINATION_VENDOR, destination, cents, Instant.now());
+    }
+
+    private static final class RecordingGateway implements SettlementGateway {
+
+        private final BlockingQueue<SettlementBatch> submitted = new LinkedBlockingQueue<>();
+        private final AtomicInteger failures = new AtomicInteger();
+
+        @Override
+        public void submit(SettlementBatch batch) throws IOException {
+            submitted.add(batch);
+            if (failures.getAndDecrement() > 0) {
+                throw new IOException("network unavailable");
+            }
+        }
+
+        SettlementBatch next() throws InterruptedException {
+            SettlementBatch batch = submitted.poll(2, TimeUnit.SECONDS);
+            assertNotNull(batch, "no batch submitted");
+            return batch;
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.example.transactionprocessor.worker;
+
+import com.example.transactionprocessor.delegate.TaskFlowPlanCache;
+import com.example.transactionprocessor.delegate.TaskRouterDelegate;
+import com.example.transactionprocessor.metrics.TransactionMetrics;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.camunda.bpm.engine.ProcessEngine;
+import org.camunda.bpm.engine.ProcessEngineConfiguration;
+import org.camunda.bpm.engine.delegate.JavaDelegate;
+import org.camunda.bpm.engine.impl.cfg.StandaloneInMemProcessEngineConfiguration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.support.StaticApplicationContext;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class ExternalTaskWorkerTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final List<String> executed = new CopyOnWriteArrayList<>();
+    private final List<ExternalTaskWorker> workers = new ArrayList<>();
+
+    private ProcessEngine processEngine;
+    private ExternalTaskWorker worker;
+
+    @BeforeEach
+    void setUp() {
+        StaticApplicationContext delegates = new StaticApplicationContext();
+        delegates.getBeanFactory().registerSingleton("fraudCheckDelegate", (JavaDelegate) execution ->
+                record("fraudCheck", execution.getBusinessKey()));
+        delegates.getBeanFactory().registerSingleton("purchaseAuthorizationDelegate", (JavaDelegate) execution -> {
+            record("authorize", execution.getBusinessKey());
+            execution.setVariable("authorized", true);
+        });
+        delegates.getBeanFactory().registerSingleton("purchaseSettlementDelegate", (JavaDelegate) execution -> {
+            record("settle:" + execution.getVariable("authorized"), execution.getBusinessKey());
+            if (Boolean.TRUE.equals(execution.getVariable("failSettlement"))) {
+                throw new IllegalStateException("settlement network unavailable");
+            }
+        });
+        delegates.refresh();
+
+        TaskFlowPlanCache taskFlowPlanCache = new TaskFlowPlanCache(delegates);
+        TaskRouterDelegate taskRouterDelegate = new TaskRouterDelegate();
+        ReflectionTestUtils.setField(taskRouterDelegate, "taskFlowPlanCache", taskFlowPlanCache);
+        ReflectionTestUtils.setField(taskRouterDelegate, "transactionMetrics", new TransactionMetrics(registry));
+
+        worker = worker(taskRouterDelegate, "fraudCheck,authorize,settle");
+
+        Map<Object, Object> beans = new HashMap<>();
+        beans.put("taskFlowPlanCache", taskFlowPlanCache);
+        beans.put("externalTaskWorker", worker);
+        StandaloneInMemProcessEngineConfiguration configuration = new StandaloneInMemProcessEngineConfiguration();
+        configuration.setJdbcUrl("jdbc:h2:mem:external-task-worker;DB_CLOSE_DELAY=-1");
+        configuration.setDatabaseSchemaUpdate(ProcessEngineConfiguration.DB_SCHEMA_UPDATE_CREATE_DROP);
+        configuration.setHistory(ProcessEngineConfiguration.HISTORY_NONE);
+        configuration.setJobExecutorActivate(false);
+        configuration.setMetricsEnabled(false);
+        configuration.setBeans(beans);
+        processEngine = configuration.buildProcessEngine();
+        processEngine.getRepositoryService().createDeployment()
+                .addClasspathResource("transactionProcessingExternal.bpmn")
+                .addClasspathResource("DetermineTransactionPath.dmn")
+                .deploy();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        for (ExternalTaskWorker started : workers) {
+            started.shutdown();
+        }
+        processEngine.close();
+    }
+
+    @Test
+    void tasksOfTheRoutedFlowRunOnTheWorkerInOrder() {
+        start(worker);
+
+        startPurchase("purchase-1", false);
+
+        awaitTrue(() -> processEngine.getRuntimeService().createProcessInstanceQuery().count() == 0);
+        assertEquals(List.of("fraudCheck@purchase-1", "authorize@purchase-1", "settle:true@purchase-1"), executed);
+        Timer settle = registry.find(TransactionMetrics.TASK).tag("task", "settle").timer();
+        assertNotNull(settle);
+        assertEquals(1, settle.count());
+    }
+
+    @Test
+    void failingTaskIsRetriedThenRaisesAnIncident() {
+        start(worker);
+
+        startPurchase("purchase-2", true);
+
+        awaitTrue(() -> processEngine.getRuntimeService().createIncidentQuery().count() == 1);
+        assertEquals(2, executed.stream().filter(task -> task.startsWith("settle")).count());
+        assertEquals(1, processEngine.getRuntimeService().createProcessInstanceQuery().count());
+    }
+
+    @Test
+    void topicsNotServedAreLeftToOtherWorkers() {
+        start(worker(taskRouterDelegate(), "fraudCheck"));
+
+        startPurchase("purchase-3", false);
+
+        awaitTrue(() -> processEngine.getExternalTaskService().createExternalTaskQuery()
+                .topicName("authorize").notLocked().count() == 1);
+        assertEquals(List.of("fraudCheck@purchase-3"), executed);
+
+        // A second node serving the remaining topics finishes the instance
+        start(worker);
+        awaitTrue(() -> processEngine.getRuntimeService().createProcessInstanceQuery().count() == 0);
+        assertEquals(List.of("fraudCheck@purchase-3", "authorize@purchase-3", "settle:true@purchase-3"), executed);
+    }
+
+    @Test
+    void perTopicValuesOverrideTheDefault() {
+        assertEquals(Map.of("authorize", 8, "settle", 2), ExternalTaskWorker.perTopic("authorize=8, settle=2"));
+        assertEquals(Map.of(), ExternalTaskWorker.perTopic(""));
+        assertThrows(IllegalArgumentException.class, () -> ExternalTaskWorker.perTopic("authorize"));
+    }
+
+    private void record(String task, String transactionId) {
+        executed.add(task + "@" + transactionId);
+        assertTrue(Thread.currentThread().getName().startsWith("external-task-"));
+    }
+
+    private TaskRouterDelegate taskRouterDelegate() {
+        return (TaskRouterDelegate) ReflectionTestUtils.getField(worker, "taskRouterDelegate");
+    }
+
+    private ExternalTaskWorker worker(TaskRouterDelegate taskRouterDelegate, String topics) {
+        ExternalTaskWorker externalTaskWorker = new ExternalTaskWorker();
+        ReflectionTestUtils.setField(externalTaskWorker, "taskRouterDelegate", taskRouterDelegate);
+        ReflectionTestUtils.setField(externalTaskWorker, "transactionManager", mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(externalTaskWorker, "transactionMetrics", new TransactionMetrics(registry));
+        ReflectionTestUtils.setField(externalTaskWorker, "enabled", true);
+        ReflectionTestUtils.setField(externalTaskWorker, "workerId", "worker-" + topics);
+        ReflectionTestUtils.setField(externalTaskWorker, "topics", Set.of(topics.split(",")));
+        ReflectionTestUtils.setField(externalTaskWorker, "concurrency", 2);
+        ReflectionTestUtils.setField(externalTaskWorker, "concurrencyPerTopic", "settle=1");
+        ReflectionTestUtils.setField(externalTaskWorker, "batchSize", 10);
+        ReflectionTestUtils.setField(externalTaskWorker, "batchSizePerTopic", "");
+        ReflectionTestUtils.setField(externalTaskWorker, "lockDurationMillis", 60_000L);
+        ReflectionTestUtils.setField(externalTaskWorker, "maxPollIntervalMillis", 100L);
+        ReflectionTestUtils.setField(externalTaskWorker, "retries", 2);
+        ReflectionTestUtils.setField(externalTaskWorker, "retryTimeoutMillis", 0L);
+        return externalTaskWorker;
+    }
+
+    private void start(ExternalTaskWorker externalTaskWorker) {
+        ReflectionTestUtils.setField(externalTaskWorker, "externalTaskService", processEngine.getExternalTaskService());
+        externalTaskWorker.start();
+        workers.add(externalTaskWorker);
+    }
+
+    private void startPurchase(String transactionId, boolean failSettlement) {
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("transactionType", "Purchase");
+        variables.put("failSettlement", failSettlement);
+        processEngine.getRuntimeService().startProcessInstanceByKey("transactionProcessingExternal", transactionId,
+                variables);
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "condition not met within 5 s");
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(e);
+            }
+        }
+    }
+}